@@ -0,0 +1,76 @@
+package com.pahanaedu.controller;
+
+import com.pahanaedu.util.LatencyHistogram;
+import com.pahanaedu.util.MetricsRegistry;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-action request timing for the servlets that dispatch on their path info
+ * Actions outside the servlet's list are counted as "other", so a crawler cannot add series
+ */
+final class ActionMetrics {
+
+    static final String REQUEST_DURATION = "pahanaedu_http_request_duration_seconds";
+    static final String REQUEST_ERRORS = "pahanaedu_http_request_errors_total";
+
+    private final MetricsRegistry registry;
+    private final String servlet;
+    private final Set<String> actions;
+    private final Map<String, Action> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @param registry Registry to record into
+     * @param servlet Label value naming the servlet
+     * @param actions Path info actions the servlet handles
+     */
+    ActionMetrics(MetricsRegistry registry, String servlet, String... actions) {
+        this.registry = registry;
+        this.servlet = servlet;
+        this.actions = new HashSet<>(Arrays.asList(actions));
+    }
+
+    /**
+     * Record one request
+     * @param method HTTP method
+     * @param pathInfo Request path info, or null for the servlet root
+     * @param startNanos System.nanoTime() when the request arrived
+     * @param failed Whether the request threw or answered with a 5xx status
+     */
+    void record(String method, String pathInfo, long startNanos, boolean failed) {
+        String httpMethod = "GET".equals(method) || "POST".equals(method) ? method : "other";
+        String action = actionOf(method, pathInfo);
+        Action timer = timers.computeIfAbsent(httpMethod + ' ' + action, k -> new Action(httpMethod, action));
+        timer.duration.recordSince(startNanos);
+        if (failed) {
+            timer.errors.increment();
+        }
+    }
+
+    /**
+     * Action label for a request, with the same defaults as the servlets' dispatch
+     */
+    String actionOf(String method, String pathInfo) {
+        if (pathInfo == null || pathInfo.length() <= 1) {
+            return "GET".equals(method) ? "manage" : "other";
+        }
+        String action = pathInfo.substring(1);
+        return actions.contains(action) ? action : "other";
+    }
+
+    private final class Action {
+        final LatencyHistogram duration;
+        final MetricsRegistry.Counter errors;
+
+        Action(String httpMethod, String action) {
+            duration = registry.histogram(REQUEST_DURATION, "Time to handle a request, by servlet action",
+                    "servlet", servlet, "method", httpMethod, "action", action);
+            errors = registry.counter(REQUEST_ERRORS, "Requests that threw or answered with a server error",
+                    "servlet", servlet, "method", httpMethod, "action", action);
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.pahanaedu.controller;
 
+import com.pahanaedu.dao.Page;
+import com.pahanaedu.dto.BillFilter;
+import com.pahanaedu.dto.CustomerSummary;
+import com.pahanaedu.dto.ItemSummary;
 import com.pahanaedu.model.Bill;
-import com.pahanaedu.model.Customer;
-import com.pahanaedu.model.Item;
 import com.pahanaedu.service.BillingService;
 import com.pahanaedu.service.CustomerService;
 import com.pahanaedu.service.ItemService;
+import com.pahanaedu.util.CatalogVersion;
+import com.pahanaedu.util.JsonWriter;
 import com.pahanaedu.util.ServiceFactory;
 import com.pahanaedu.util.SessionUtil;
 import javax.ejb.EJB;
@@ -17,6 +21,8 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +38,9 @@ public class BillingServlet extends HttpServlet {
     
     private static final Logger logger = Logger.getLogger(BillingServlet.class.getName());
     
+    private static final int DEFAULT_PAGE_SIZE = 25;
+    private static final int MAX_PAGE_SIZE = 100;
+    
     @EJB
     private BillingService billingService;
     
@@ -41,6 +50,8 @@ public class BillingServlet extends HttpServlet {
     @EJB
     private ItemService itemService;
     
+    private ActionMetrics actionMetrics;
+    
     @Override
     public void init() throws ServletException {
         super.init();
@@ -57,14 +68,31 @@ public class BillingServlet extends HttpServlet {
             itemService = ServiceFactory.getItemService();
             logger.info("ItemService EJB injection failed, using ServiceFactory fallback");
         }
+        actionMetrics = new ActionMetrics(ServiceFactory.getMetricsRegistry(), "billing",
+                "manage", "create", "view", "edit", "customers", "items", "search", "test",
+                "add-item", "remove-item", "update-quantity", "complete", "cancel", "delete");
+    }
+    
+    /**
+     * Time each request by action, for the /metrics endpoint
+     */
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            super.service(request, response);
+            failed = response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        } finally {
+            actionMetrics.record(request.getMethod(), request.getPathInfo(), start, failed);
+        }
     }
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         
-        SessionUtil.updateLastActivity(request);
-        
         String pathInfo = request.getPathInfo();
         String action = pathInfo != null ? pathInfo.substring(1) : "manage";
         
@@ -147,26 +175,41 @@ public class BillingServlet extends HttpServlet {
     }
     
     /**
-     * Handle manage bills page - shows all bills
+     * Handle manage bills page - shows one page of bills matching the filter
+     * Line items are not loaded here; the view modal fetches them per bill, and the
+     * create and add-item modals fetch their pickers from /billing/customers and /billing/items
      */
     private void handleManageBills(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         
         try {
-            logger.info("Loading billing management page...");
-            
-            List<Bill> bills = billingService.getAllBills();
-            List<Customer> customers = customerService.getAllCustomers();
-            List<Item> availableItems = itemService.getItemsInStock();
+            BillFilter filter;
+            try {
+                filter = readBillFilter(request);
+            } catch (IllegalArgumentException e) {
+                request.setAttribute("errorMessage", e.getMessage());
+                filter = BillFilter.none();
+            }
+            int pageSize = parsePageSize(request.getParameter("size"));
             
-            logger.info("Loaded " + bills.size() + " bills, " + customers.size() + " customers, " + availableItems.size() + " items");
+            Page<Bill> page;
+            try {
+                page = billingService.getBillsPage(filter, request.getParameter("after"), pageSize);
+            } catch (IllegalArgumentException e) {
+                // Stale or tampered page token, start again from the first page
+                page = billingService.getBillsPage(filter, null, pageSize);
+            }
+            List<Bill> bills = page.getItems();
             
             request.setAttribute("bills", bills);
-            request.setAttribute("customers", customers);
-            request.setAttribute("availableItems", availableItems);
+            request.setAttribute("billItemCounts", billingService.getItemCounts(bills));
+            request.setAttribute("nextPageToken", page.getNextToken());
+            request.setAttribute("pageSize", pageSize);
+            request.setAttribute("filter", filter);
+            request.setAttribute("isSearchResult", !filter.isEmpty());
             
             // Create a map of bill dates converted to java.util.Date for JSP compatibility
-            java.util.Map<Long, Date> billDatesMap = new java.util.HashMap<>();
+            Map<Long, Date> billDatesMap = new HashMap<>();
             for (Bill bill : bills) {
                 billDatesMap.put(bill.getBillId(), convertLocalDateToDate(bill.getBillDate()));
             }
@@ -181,6 +224,51 @@ public class BillingServlet extends HttpServlet {
         }
     }
     
+    /**
+     * Read the bill listing filter from request parameters
+     * Accepts customerName as an alias of customer for old search links
+     */
+    private BillFilter readBillFilter(HttpServletRequest request) {
+        String status = request.getParameter("status");
+        String customer = request.getParameter("customer");
+        if (customer == null) {
+            customer = request.getParameter("customerName");
+        }
+        
+        Bill.BillStatus billStatus = null;
+        if (status != null && !status.trim().isEmpty()) {
+            try {
+                billStatus = Bill.BillStatus.valueOf(status.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // Invalid status, ignore
+            }
+        }
+        return new BillFilter(billStatus, parseDate(request.getParameter("from")),
+                parseDate(request.getParameter("to")), customer);
+    }
+    
+    private LocalDate parseDate(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + value);
+        }
+    }
+    
+    private int parsePageSize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            return Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(value.trim())));
+        } catch (NumberFormatException e) {
+            return DEFAULT_PAGE_SIZE;
+        }
+    }
+    
     /**
      * Handle create bill form display - redirect to manage page with modal
      */
@@ -259,6 +347,19 @@ public class BillingServlet extends HttpServlet {
                 return;
             }
             
+            if (acceptsJson(request)) {
+                // Scripted clients (see LoadDriver) continue with the new bill's ID
+                response.setStatus(HttpServletResponse.SC_CREATED);
+                response.setContentType("application/json");
+                response.setCharacterEncoding("UTF-8");
+                new JsonWriter(response.getWriter()).beginObject()
+                    .name("billId").value(bill.getBillId())
+                    .name("itemCount").value(itemCount)
+                    .endObject()
+                    .flush();
+                return;
+            }
+            
             request.getSession().setAttribute("successMessage", 
                 "Bill created successfully with " + itemCount + " item(s)! Bill ID: " + bill.getBillId());
             response.sendRedirect(request.getContextPath() + "/billing/manage");
@@ -303,7 +404,7 @@ public class BillingServlet extends HttpServlet {
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.setContentType("application/json");
-            response.getWriter().write("{\"error\": \"" + escapeJson(e.getMessage()) + "\"}");
+            JsonWriter.writeError(response.getWriter(), e.getMessage());
         }
     }
     
@@ -333,7 +434,7 @@ public class BillingServlet extends HttpServlet {
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.setContentType("application/json");
-            response.getWriter().write("{\"error\": \"" + escapeJson(e.getMessage()) + "\"}");
+            JsonWriter.writeError(response.getWriter(), e.getMessage());
         }
     }
     
@@ -365,7 +466,7 @@ public class BillingServlet extends HttpServlet {
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.setContentType("application/json");
-            response.getWriter().write("{\"error\": \"" + escapeJson(e.getMessage()) + "\"}");
+            JsonWriter.writeError(response.getWriter(), e.getMessage());
         }
     }
     
@@ -377,22 +478,49 @@ public class BillingServlet extends HttpServlet {
         
         String billIdStr = request.getParameter("billId");
         
+        boolean json = acceptsJson(request);
         try {
             Long billId = Long.parseLong(billIdStr);
             billingService.markBillAsPaid(billId);
             
+            if (json) {
+                response.setContentType("application/json");
+                response.setCharacterEncoding("UTF-8");
+                response.getWriter().write("{\"success\": true, \"message\": \"Bill completed successfully\"}");
+                return;
+            }
             request.getSession().setAttribute("successMessage", "Bill completed successfully!");
             response.sendRedirect(request.getContextPath() + "/billing/manage");
             
         } catch (NumberFormatException e) {
+            if (json) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.setContentType("application/json");
+                response.getWriter().write("{\"error\": \"Invalid bill ID\"}");
+                return;
+            }
             request.getSession().setAttribute("errorMessage", "Invalid bill ID");
             response.sendRedirect(request.getContextPath() + "/billing/manage");
         } catch (Exception e) {
+            if (json) {
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                response.setContentType("application/json");
+                JsonWriter.writeError(response.getWriter(), e.getMessage());
+                return;
+            }
             request.getSession().setAttribute("errorMessage", "Error completing bill: " + e.getMessage());
             response.sendRedirect(request.getContextPath() + "/billing/manage");
         }
     }
     
+    /**
+     * Check whether the client asked for a JSON answer instead of a redirect
+     */
+    private static boolean acceptsJson(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.contains("application/json");
+    }
+    
     /**
      * Handle cancel bill
      */
@@ -470,34 +598,10 @@ public class BillingServlet extends HttpServlet {
             response.setContentType("application/json");
             response.setCharacterEncoding("UTF-8");
             
-            // Build JSON response for bill details
-            StringBuilder json = new StringBuilder();
-            json.append("{");
-            json.append("\"billId\":").append(bill.getBillId()).append(",");
-            json.append("\"customerName\":\"").append(escapeJson(bill.getCustomer().getName())).append("\",");
-            json.append("\"accountNumber\":\"").append(escapeJson(bill.getCustomer().getAccountNumber())).append("\",");
-            json.append("\"billDate\":\"").append(bill.getBillDate()).append("\",");
-            json.append("\"totalAmount\":").append(bill.getTotalAmount()).append(",");
-            json.append("\"status\":\"").append(bill.getStatus()).append("\",");
-            json.append("\"itemCount\":").append(bill.getTotalItemCount()).append(",");
-            
-            // Add bill items
-            json.append("\"billItems\":[\n");
-            for (int i = 0; i < bill.getBillItems().size(); i++) {
-                if (i > 0) json.append(",\n");
-                var billItem = bill.getBillItems().get(i);
-                json.append("{");
-                json.append("\"itemId\":").append(billItem.getItem().getItemId()).append(",");
-                json.append("\"itemName\":\"").append(escapeJson(billItem.getItem().getItemName())).append("\",");
-                json.append("\"quantity\":").append(billItem.getQuantity()).append(",");
-                json.append("\"unitPrice\":").append(billItem.getUnitPrice()).append(",");
-                json.append("\"totalPrice\":").append(billItem.getTotalPrice());
-                json.append("}");
-            }
-            json.append("]");
-            json.append("}");
-            
-            response.getWriter().write(json.toString());
+            // Stream the bill details straight to the response
+            JsonWriter json = new JsonWriter(response.getWriter());
+            JsonViews.bill(json, bill);
+            json.flush();
             
         } catch (NumberFormatException e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -517,26 +621,20 @@ public class BillingServlet extends HttpServlet {
     private void handleGetCustomers(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         
+        // Tills poll this list; an unchanged list is answered from the version alone
+        if (CatalogVersion.CUSTOMERS.checkNotModified(request, response)) {
+            return;
+        }
+        
         try {
-            List<Customer> customers = customerService.getAllCustomers();
+            List<CustomerSummary> customers = customerService.getCustomerSummaries(null, null, null);
             
             response.setContentType("application/json");
             response.setCharacterEncoding("UTF-8");
             
-            StringBuilder json = new StringBuilder();
-            json.append("[");
-            for (int i = 0; i < customers.size(); i++) {
-                if (i > 0) json.append(",");
-                Customer customer = customers.get(i);
-                json.append("{");
-                json.append("\"accountNumber\":\"").append(customer.getAccountNumber()).append("\",");
-                json.append("\"name\":\"").append(escapeJson(customer.getName())).append("\",");
-                json.append("\"telephoneNumber\":\"").append(escapeJson(customer.getTelephoneNumber() != null ? customer.getTelephoneNumber() : "")).append("\"");
-                json.append("}");
-            }
-            json.append("]");
-            
-            response.getWriter().write(json.toString());
+            JsonWriter json = new JsonWriter(response.getWriter());
+            JsonViews.customerSummaries(json, customers);
+            json.flush();
             
         } catch (Exception e) {
             logger.severe("Error fetching customers: " + e.getMessage());
@@ -552,28 +650,19 @@ public class BillingServlet extends HttpServlet {
     private void handleGetItems(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         
+        if (CatalogVersion.ITEMS.checkNotModified(request, response)) {
+            return;
+        }
+        
         try {
-            List<Item> items = itemService.getItemsInStock();
+            List<ItemSummary> items = itemService.getItemSummaries(null, null, true);
             
             response.setContentType("application/json");
             response.setCharacterEncoding("UTF-8");
             
-            StringBuilder json = new StringBuilder();
-            json.append("[");
-            for (int i = 0; i < items.size(); i++) {
-                if (i > 0) json.append(",");
-                Item item = items.get(i);
-                json.append("{");
-                json.append("\"itemId\":").append(item.getItemId()).append(",");
-                json.append("\"itemName\":\"").append(escapeJson(item.getItemName())).append("\",");
-                json.append("\"unitPrice\":").append(item.getUnitPrice()).append(",");
-                json.append("\"stockQuantity\":").append(item.getStockQuantity()).append(",");
-                json.append("\"category\":\"").append(escapeJson(item.getCategory() != null ? item.getCategory() : "")).append("\"");
-                json.append("}");
-            }
-            json.append("]");
-            
-            response.getWriter().write(json.toString());
+            JsonWriter json = new JsonWriter(response.getWriter());
+            JsonViews.itemSummaries(json, items);
+            json.flush();
             
         } catch (Exception e) {
             logger.severe("Error fetching items: " + e.getMessage());
@@ -584,49 +673,11 @@ public class BillingServlet extends HttpServlet {
     }
     
     /**
-     * Handle search bills
+     * Handle search bills - kept for old links, the manage page now filters and pages itself
      */
     private void handleSearchBills(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        
-        String customerName = request.getParameter("customerName");
-        String status = request.getParameter("status");
-        
-        List<Bill> bills;
-        Bill.BillStatus billStatus = null;
-        
-        if (status != null && !status.trim().isEmpty()) {
-            try {
-                billStatus = Bill.BillStatus.valueOf(status.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                // Invalid status, ignore
-            }
-        }
-        
-        if ((customerName == null || customerName.trim().isEmpty()) && billStatus == null) {
-            bills = billingService.getAllBills();
-        } else {
-            bills = billingService.searchBills(customerName, billStatus, null, null, null, null);
-        }
-        
-        List<Customer> customers = customerService.getAllCustomers();
-        List<Item> availableItems = itemService.getItemsInStock();
-        
-        request.setAttribute("bills", bills);
-        request.setAttribute("customers", customers);
-        request.setAttribute("availableItems", availableItems);
-        request.setAttribute("searchCustomerName", customerName);
-        request.setAttribute("searchStatus", status);
-        request.setAttribute("isSearchResult", true);
-        
-        // Create a map of bill dates converted to java.util.Date for JSP compatibility
-        Map<Long, Date> billDatesMap = new HashMap<>();
-        for (Bill bill : bills) {
-            billDatesMap.put(bill.getBillId(), convertLocalDateToDate(bill.getBillDate()));
-        }
-        request.setAttribute("billDatesMap", billDatesMap);
-        
-        request.getRequestDispatcher("/WEB-INF/jsp/billing/manage.jsp").forward(request, response);
+        handleManageBills(request, response);
     }
     
     /**
@@ -648,18 +699,6 @@ public class BillingServlet extends HttpServlet {
         response.getWriter().write("<h1>Billing Servlet is Working!</h1><p>The servlet is properly loaded and responding.</p>");
     }
     
-    /**
-     * Helper method to escape JSON strings
-     */
-    private String escapeJson(String input) {
-        if (input == null) return "";
-        return input.replace("\\", "\\\\")
-                   .replace("\"", "\\\"")
-                   .replace("\n", "\\n")
-                   .replace("\r", "\\r")
-                   .replace("\t", "\\t");
-    }
-    
     /**
      * Helper method to convert LocalDate to java.sql.Date for JSP compatibility
      */
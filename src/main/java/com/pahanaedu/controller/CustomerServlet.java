@@ -1,7 +1,10 @@
 package com.pahanaedu.controller;
 
+import com.pahanaedu.dto.CustomerDetails;
+import com.pahanaedu.dto.CustomerSummary;
 import com.pahanaedu.model.Customer;
 import com.pahanaedu.service.CustomerService;
+import com.pahanaedu.util.JsonWriter;
 import com.pahanaedu.util.ServiceFactory;
 import com.pahanaedu.util.SessionUtil;
 import javax.ejb.EJB;
@@ -27,6 +30,8 @@ public class CustomerServlet extends HttpServlet {
     @EJB
     private CustomerService customerService;
     
+    private ActionMetrics actionMetrics;
+    
     @Override
     public void init() throws ServletException {
         super.init();
@@ -35,14 +40,30 @@ public class CustomerServlet extends HttpServlet {
             customerService = ServiceFactory.getCustomerService();
             logger.info("CustomerService EJB injection failed, using ServiceFactory fallback");
         }
+        actionMetrics = new ActionMetrics(ServiceFactory.getMetricsRegistry(), "customer",
+                "manage", "add", "edit", "view", "search", "delete", "toggle-status");
+    }
+    
+    /**
+     * Time each request by action, for the /metrics endpoint
+     */
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            super.service(request, response);
+            failed = response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        } finally {
+            actionMetrics.record(request.getMethod(), request.getPathInfo(), start, failed);
+        }
     }
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         
-        SessionUtil.updateLastActivity(request);
-        
         String pathInfo = request.getPathInfo();
         String action = pathInfo != null ? pathInfo.substring(1) : "manage";
         
@@ -115,7 +136,7 @@ public class CustomerServlet extends HttpServlet {
             throws ServletException, IOException {
         
         // Get all customers for the unified management page
-        List<Customer> customers = customerService.getAllCustomers();
+        List<CustomerSummary> customers = customerService.getCustomerSummaries(null, null, null);
         
         request.setAttribute("customers", customers);
         
@@ -161,27 +182,26 @@ public class CustomerServlet extends HttpServlet {
         }
         
         try {
-            Optional<Customer> customerOpt = customerService.findByAccountNumber(accountNumber);
+            Optional<CustomerDetails> customerOpt = customerService.getCustomerDetails(accountNumber);
             if (!customerOpt.isPresent()) {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 response.getWriter().write("{\"error\":\"Customer not found\"}");
                 return;
             }
             
-            Customer customer = customerOpt.get();
+            CustomerDetails customer = customerOpt.get();
             response.setContentType("application/json");
             response.setCharacterEncoding("UTF-8");
             
             // Return customer data as JSON
-            StringBuilder json = new StringBuilder();
-            json.append("{");
-            json.append("\"accountNumber\":\"").append(escapeJson(customer.getAccountNumber())).append("\",");
-            json.append("\"name\":\"").append(escapeJson(customer.getName())).append("\",");
-            json.append("\"telephoneNumber\":\"").append(escapeJson(customer.getTelephoneNumber() != null ? customer.getTelephoneNumber() : "")).append("\",");
-            json.append("\"address\":\"").append(escapeJson(customer.getAddress() != null ? customer.getAddress() : "")).append("\"");
-            json.append("}");
-            
-            response.getWriter().write(json.toString());
+            JsonWriter json = new JsonWriter(response.getWriter());
+            json.beginObject()
+                .name("accountNumber").value(customer.getAccountNumber())
+                .name("name").value(customer.getName())
+                .name("telephoneNumber").value(customer.getTelephoneNumber() != null ? customer.getTelephoneNumber() : "")
+                .name("address").value(customer.getAddress() != null ? customer.getAddress() : "")
+                .endObject()
+                .flush();
             
         } catch (Exception e) {
             logger.severe("Error fetching customer data: " + e.getMessage());
@@ -190,18 +210,6 @@ public class CustomerServlet extends HttpServlet {
         }
     }
     
-    /**
-     * Helper method to escape JSON strings
-     */
-    private String escapeJson(String input) {
-        if (input == null) return "";
-        return input.replace("\\", "\\\\")
-                   .replace("\"", "\\\"")
-                   .replace("\n", "\\n")
-                   .replace("\r", "\\r")
-                   .replace("\t", "\\t");
-    }
-    
     /**
      * Handle edit customer
      */
@@ -255,7 +263,7 @@ public class CustomerServlet extends HttpServlet {
         }
         
         try {
-            Optional<Customer> customerOpt = customerService.findByAccountNumber(accountNumber);
+            Optional<CustomerDetails> customerOpt = customerService.getCustomerDetails(accountNumber);
             if (!customerOpt.isPresent()) {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 response.setContentType("application/json");
@@ -263,7 +271,7 @@ public class CustomerServlet extends HttpServlet {
                 return;
             }
             
-            Customer customer = customerOpt.get();
+            CustomerDetails customer = customerOpt.get();
             response.setContentType("application/json");
             response.setCharacterEncoding("UTF-8");
             
@@ -272,22 +280,19 @@ public class CustomerServlet extends HttpServlet {
                        ", Name: " + customer.getName() + 
                        ", Phone: " + customer.getTelephoneNumber() + 
                        ", Address: " + customer.getAddress() + 
-                       ", Active: " + customer.getActive());
+                       ", Active: " + customer.isActive());
             
             // Return complete customer data as JSON including registration date
-            StringBuilder json = new StringBuilder();
-            json.append("{");
-            json.append("\"accountNumber\":\"").append(escapeJson(customer.getAccountNumber() != null ? customer.getAccountNumber() : "")).append("\",");
-            json.append("\"name\":\"").append(escapeJson(customer.getName() != null ? customer.getName() : "")).append("\",");
-            json.append("\"telephoneNumber\":\"").append(escapeJson(customer.getTelephoneNumber() != null ? customer.getTelephoneNumber() : "")).append("\",");
-            json.append("\"address\":\"").append(escapeJson(customer.getAddress() != null ? customer.getAddress() : "")).append("\",");
-            json.append("\"registrationDate\":\"").append(customer.getRegistrationDate() != null ? customer.getRegistrationDate().toString() : "").append("\",");
-            json.append("\"active\":").append(customer.getActive() != null ? customer.getActive() : false);
-            json.append("}");
-            
-            String jsonString = json.toString();
-            logger.info("JSON response: " + jsonString);
-            response.getWriter().write(jsonString);
+            JsonWriter json = new JsonWriter(response.getWriter());
+            json.beginObject()
+                .name("accountNumber").value(customer.getAccountNumber() != null ? customer.getAccountNumber() : "")
+                .name("name").value(customer.getName() != null ? customer.getName() : "")
+                .name("telephoneNumber").value(customer.getTelephoneNumber() != null ? customer.getTelephoneNumber() : "")
+                .name("address").value(customer.getAddress() != null ? customer.getAddress() : "")
+                .name("registrationDate").value(customer.getRegistrationDate() != null ? customer.getRegistrationDate().toString() : "")
+                .name("active").value(customer.isActive())
+                .endObject()
+                .flush();
             
         } catch (Exception e) {
             logger.severe("Error fetching customer data for view: " + e.getMessage());
@@ -330,16 +335,8 @@ public class CustomerServlet extends HttpServlet {
         String activeParam = request.getParameter("active");
         Boolean active = activeParam != null && !activeParam.isEmpty() ? Boolean.valueOf(activeParam) : null;
         
-        List<Customer> customers;
-        
-        if ((name == null || name.trim().isEmpty()) && 
-            (telephoneNumber == null || telephoneNumber.trim().isEmpty()) && 
-            active == null) {
-            // No search criteria, show all customers
-            customers = customerService.getAllCustomers();
-        } else {
-            customers = customerService.searchCustomers(name, telephoneNumber, active);
-        }
+        // Blank criteria match every customer
+        List<CustomerSummary> customers = customerService.getCustomerSummaries(name, telephoneNumber, active);
         
         request.setAttribute("customers", customers);
         request.setAttribute("searchName", name);
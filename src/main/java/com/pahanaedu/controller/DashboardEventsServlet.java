@@ -0,0 +1,166 @@
+package com.pahanaedu.controller;
+
+import com.pahanaedu.service.BillingService;
+import com.pahanaedu.service.CustomerService;
+import com.pahanaedu.service.DashboardAggregator;
+import com.pahanaedu.service.DashboardFeed;
+import com.pahanaedu.service.ItemService;
+import com.pahanaedu.util.EntityManagerHolder;
+import com.pahanaedu.util.EntityManagerUtil;
+import com.pahanaedu.util.EventStream;
+import com.pahanaedu.util.ServiceFactory;
+import javax.ejb.EJB;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server-Sent Events stream of the live dashboard figures
+ * Each browser holds one asynchronous connection and no thread. A single background thread
+ * polls DashboardFeed and sends the figures that changed as a "dashboard" event; the first
+ * event on a connection carries all of them. When nothing changes a heartbeat comment keeps
+ * proxies from closing the connection
+ *
+ * Settings (system properties, defaults in brackets): pahanaedu.dashboard.events.interval.ms [1000],
+ * pahanaedu.dashboard.events.query.interval.ms [15000], pahanaedu.dashboard.events.max.clients [1000]
+ */
+@WebServlet(name = "DashboardEventsServlet", urlPatterns = {"/dashboard/events"}, asyncSupported = true)
+public class DashboardEventsServlet extends HttpServlet {
+
+    private static final Logger logger = Logger.getLogger(DashboardEventsServlet.class.getName());
+
+    private static final long HEARTBEAT_NANOS = TimeUnit.SECONDS.toNanos(15);
+    private static final int MAX_BACKLOG = 64;
+
+    @EJB
+    private CustomerService customerService;
+
+    @EJB
+    private ItemService itemService;
+
+    @EJB
+    private BillingService billingService;
+
+    private final Object publishLock = new Object();
+    private DashboardFeed feed;
+    private EventStream stream;
+    private ScheduledExecutorService scheduler;
+    private long lastSentAt;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        boolean injected = customerService != null && itemService != null && billingService != null;
+        // Fallback for development environments where EJB injection might fail
+        if (customerService == null) {
+            customerService = ServiceFactory.getCustomerService();
+        }
+        if (itemService == null) {
+            itemService = ServiceFactory.getItemService();
+        }
+        if (billingService == null) {
+            billingService = ServiceFactory.getBillingService();
+        }
+
+        // The snapshot is only fed by the ServiceFactory services
+        feed = new DashboardFeed(injected ? null : ServiceFactory.getDashboardSnapshot(), this::queryFigures,
+                Long.getLong("pahanaedu.dashboard.events.query.interval.ms", 15000));
+        stream = new EventStream(Integer.getInteger("pahanaedu.dashboard.events.max.clients", 1000), MAX_BACKLOG);
+
+        long interval = Long.getLong("pahanaedu.dashboard.events.interval.ms", 1000);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::tick, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (stream != null) {
+            stream.closeAll();
+        }
+        super.destroy();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        // Under the lock, so the new browser misses no change between its first event and the next tick
+        synchronized (publishLock) {
+            publish();
+            Map<String, Object> figures = feed.getCurrent();
+            if (figures.isEmpty()) {
+                response.setHeader("Retry-After", "15");
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                return;
+            }
+            stream.open(request, response, EventStream.event("dashboard", DashboardFeed.toJson(figures)));
+        }
+    }
+
+    private void tick() {
+        try {
+            if (stream.getClientCount() == 0) {
+                return;
+            }
+            synchronized (publishLock) {
+                if (!publish() && System.nanoTime() - lastSentAt >= HEARTBEAT_NANOS) {
+                    stream.broadcast(EventStream.HEARTBEAT);
+                    lastSentAt = System.nanoTime();
+                }
+            }
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next tick retries
+            logger.log(Level.WARNING, "Dashboard event tick failed", e);
+        }
+    }
+
+    /**
+     * Send the figures that changed since the last poll to every connected browser
+     * @return true if an event was sent
+     */
+    private boolean publish() {
+        Map<String, Object> changed = feed.poll();
+        if (changed.isEmpty()) {
+            return false;
+        }
+        int clients = stream.broadcast(EventStream.event("dashboard", DashboardFeed.toJson(changed)));
+        lastSentAt = System.nanoTime();
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Dashboard figures " + changed.keySet() + " sent to " + clients + " browsers");
+        }
+        return true;
+    }
+
+    private Map<String, Object> queryFigures() {
+        if (EntityManagerHolder.isBound()) {
+            return loadFigures();
+        }
+        return EntityManagerHolder.inScope(EntityManagerUtil.getEntityManagerFactory(), this::loadFigures);
+    }
+
+    private Map<String, Object> loadFigures() {
+        LocalDate today = LocalDate.now();
+        return DashboardFeed.figures(billingService.getBillStatistics(),
+                itemService.getItemStatistics(DashboardAggregator.LOW_STOCK_THRESHOLD),
+                customerService.getCustomerStatistics(),
+                billingService.calculateRevenueForPeriod(today, today),
+                billingService.calculateRevenueForPeriod(today.withDayOfMonth(1), today));
+    }
+}
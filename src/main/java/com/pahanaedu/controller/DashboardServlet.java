@@ -3,8 +3,10 @@ package com.pahanaedu.controller;
 import com.pahanaedu.service.CustomerService;
 import com.pahanaedu.service.ItemService;
 import com.pahanaedu.service.BillingService;
+import com.pahanaedu.service.DashboardAggregator;
+import com.pahanaedu.service.DashboardSnapshot;
+import com.pahanaedu.util.EntityManagerUtil;
 import com.pahanaedu.util.ServiceFactory;
-import com.pahanaedu.util.SessionUtil;
 import javax.ejb.EJB;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -12,6 +14,8 @@ import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
 /**
@@ -32,9 +36,13 @@ public class DashboardServlet extends HttpServlet {
     @EJB
     private BillingService billingService;
     
+    private ExecutorService dashboardExecutor;
+    private DashboardAggregator dashboardAggregator;
+    
     @Override
     public void init() throws ServletException {
         super.init();
+        boolean injected = customerService != null && itemService != null && billingService != null;
         // Fallback for development environments where EJB injection might fail
         if (customerService == null) {
             customerService = ServiceFactory.getCustomerService();
@@ -48,15 +56,26 @@ public class DashboardServlet extends HttpServlet {
             billingService = ServiceFactory.getBillingService();
             logger.info("BillingService EJB injection failed, using ServiceFactory fallback");
         }
+        
+        dashboardExecutor = DashboardAggregator.newExecutor(Integer.getInteger("pahanaedu.dashboard.threads", 4));
+        // The snapshot is only fed by the ServiceFactory services
+        DashboardSnapshot snapshot = injected ? null : ServiceFactory.getDashboardSnapshot();
+        dashboardAggregator = DashboardAggregator.forServices(customerService, itemService, billingService,
+                snapshot, EntityManagerUtil.getEntityManagerFactory(), dashboardExecutor);
+    }
+    
+    @Override
+    public void destroy() {
+        if (dashboardExecutor != null) {
+            dashboardExecutor.shutdownNow();
+        }
+        super.destroy();
     }
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         
-        // Update last activity
-        SessionUtil.updateLastActivity(request);
-        
         try {
             // Get dashboard statistics
             loadDashboardStatistics(request);
@@ -82,61 +101,17 @@ public class DashboardServlet extends HttpServlet {
     
     /**
      * Load dashboard statistics and data
+     * Counts and revenue come from the snapshot once loaded; the other widgets run in parallel,
+     * and any that fail or time out show zeros or empty lists
      */
     private void loadDashboardStatistics(HttpServletRequest request) {
-        try {
-            // Customer statistics
-            long[] customerStats = customerService.getCustomerStatistics();
-            request.setAttribute("totalCustomers", customerStats[0]);
-            request.setAttribute("activeCustomers", customerStats[1]);
-            request.setAttribute("customersWithPendingBills", customerStats[2]);
-            
-            // Item statistics (using low stock threshold of 10)
-            long[] itemStats = itemService.getItemStatistics(10);
-            request.setAttribute("totalItems", itemStats[0]);
-            request.setAttribute("itemsInStock", itemStats[1]);
-            request.setAttribute("outOfStockItems", itemStats[2]);
-            request.setAttribute("lowStockItems", itemStats[3]);
-            
-            // Bill statistics
-            long[] billStats = billingService.getBillStatistics();
-            request.setAttribute("totalBills", billStats[0]);
-            request.setAttribute("pendingBills", billStats[1]);
-            request.setAttribute("paidBills", billStats[2]);
-            request.setAttribute("cancelledBills", billStats[3]);
-            
-            // Recent activity
-            request.setAttribute("recentCustomers", customerService.getCustomersWithPagination(0, 5));
-            request.setAttribute("lowStockItemsList", itemService.getLowStockItems(10));
-            request.setAttribute("pendingBillsList", billingService.getPendingBills());
-            request.setAttribute("todaysBills", billingService.getTodaysBills());
-            
-            // Revenue information
-            java.time.LocalDate today = java.time.LocalDate.now();
-            java.time.LocalDate startOfMonth = today.withDayOfMonth(1);
-            
-            java.math.BigDecimal todaysRevenue = billingService.calculateRevenueForPeriod(today, today);
-            java.math.BigDecimal monthlyRevenue = billingService.calculateRevenueForPeriod(startOfMonth, today);
-            
-            request.setAttribute("todaysRevenue", todaysRevenue);
-            request.setAttribute("monthlyRevenue", monthlyRevenue);
-            
-        } catch (Exception e) {
-            logger.warning("Error loading some dashboard statistics: " + e.getMessage());
-            // Set default values to prevent JSP errors
-            request.setAttribute("totalCustomers", 0L);
-            request.setAttribute("activeCustomers", 0L);
-            request.setAttribute("customersWithPendingBills", 0L);
-            request.setAttribute("totalItems", 0L);
-            request.setAttribute("itemsInStock", 0L);
-            request.setAttribute("outOfStockItems", 0L);
-            request.setAttribute("lowStockItems", 0L);
-            request.setAttribute("totalBills", 0L);
-            request.setAttribute("pendingBills", 0L);
-            request.setAttribute("paidBills", 0L);
-            request.setAttribute("cancelledBills", 0L);
-            request.setAttribute("todaysRevenue", java.math.BigDecimal.ZERO);
-            request.setAttribute("monthlyRevenue", java.math.BigDecimal.ZERO);
+        DashboardAggregator.Result result = dashboardAggregator.load();
+        for (Map.Entry<String, Object> attribute : result.getAttributes().entrySet()) {
+            request.setAttribute(attribute.getKey(), attribute.getValue());
+        }
+        if (!result.getDegraded().isEmpty()) {
+            logger.warning("Dashboard served with fallback values for " + result.getDegraded()
+                    + " after " + result.getElapsedMillis() + " ms");
         }
     }
 }
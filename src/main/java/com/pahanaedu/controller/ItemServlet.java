@@ -1,7 +1,9 @@
 package com.pahanaedu.controller;
 
+import com.pahanaedu.dto.ItemSummary;
 import com.pahanaedu.model.Item;
 import com.pahanaedu.service.ItemService;
+import com.pahanaedu.util.JsonWriter;
 import com.pahanaedu.util.ServiceFactory;
 import com.pahanaedu.util.SessionUtil;
 import javax.ejb.EJB;
@@ -28,6 +30,8 @@ public class ItemServlet extends HttpServlet {
     @EJB
     private ItemService itemService;
     
+    private ActionMetrics actionMetrics;
+    
     @Override
     public void init() throws ServletException {
         super.init();
@@ -36,14 +40,30 @@ public class ItemServlet extends HttpServlet {
             itemService = ServiceFactory.getItemService();
             logger.info("ItemService EJB injection failed, using ServiceFactory fallback");
         }
+        actionMetrics = new ActionMetrics(ServiceFactory.getMetricsRegistry(), "item",
+                "manage", "add", "edit", "view", "search", "delete");
+    }
+    
+    /**
+     * Time each request by action, for the /metrics endpoint
+     */
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            super.service(request, response);
+            failed = response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        } finally {
+            actionMetrics.record(request.getMethod(), request.getPathInfo(), start, failed);
+        }
     }
     
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         
-        SessionUtil.updateLastActivity(request);
-        
         String pathInfo = request.getPathInfo();
         String action = pathInfo != null ? pathInfo.substring(1) : "manage";
         
@@ -113,7 +133,7 @@ public class ItemServlet extends HttpServlet {
             throws ServletException, IOException {
         
         // Get all items for the unified management page
-        List<Item> items = itemService.getAllItems();
+        List<ItemSummary> items = itemService.getItemSummaries(null, null, false);
         
         request.setAttribute("items", items);
         
@@ -177,18 +197,7 @@ public class ItemServlet extends HttpServlet {
             response.setContentType("application/json");
             response.setCharacterEncoding("UTF-8");
             
-            // Return item data as JSON
-            StringBuilder json = new StringBuilder();
-            json.append("{");
-            json.append("\"itemId\":").append(item.getItemId()).append(",");
-            json.append("\"itemName\":\"").append(escapeJson(item.getItemName())).append("\",");
-            json.append("\"description\":\"").append(escapeJson(item.getDescription() != null ? item.getDescription() : "")).append("\",");
-            json.append("\"unitPrice\":").append(item.getUnitPrice()).append(",");
-            json.append("\"stockQuantity\":").append(item.getStockQuantity()).append(",");
-            json.append("\"category\":\"").append(escapeJson(item.getCategory() != null ? item.getCategory() : "")).append("\"");
-            json.append("}");
-            
-            response.getWriter().write(json.toString());
+            writeItemJson(item, response);
             
         } catch (NumberFormatException e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -235,20 +244,7 @@ public class ItemServlet extends HttpServlet {
                        ", Stock: " + item.getStockQuantity() + 
                        ", Category: " + item.getCategory());
             
-            // Return complete item data as JSON
-            StringBuilder json = new StringBuilder();
-            json.append("{");
-            json.append("\"itemId\":").append(item.getItemId()).append(",");
-            json.append("\"itemName\":\"").append(escapeJson(item.getItemName() != null ? item.getItemName() : "")).append("\",");
-            json.append("\"description\":\"").append(escapeJson(item.getDescription() != null ? item.getDescription() : "")).append("\",");
-            json.append("\"unitPrice\":").append(item.getUnitPrice() != null ? item.getUnitPrice() : 0).append(",");
-            json.append("\"stockQuantity\":").append(item.getStockQuantity() != null ? item.getStockQuantity() : 0).append(",");
-            json.append("\"category\":\"").append(escapeJson(item.getCategory() != null ? item.getCategory() : "")).append("\"");
-            json.append("}");
-            
-            String jsonString = json.toString();
-            logger.info("JSON response: " + jsonString);
-            response.getWriter().write(jsonString);
+            writeItemJson(item, response);
             
         } catch (NumberFormatException e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -263,15 +259,12 @@ public class ItemServlet extends HttpServlet {
     }
     
     /**
-     * Helper method to escape JSON strings
+     * Stream an item as JSON for the view and edit modals
      */
-    private String escapeJson(String input) {
-        if (input == null) return "";
-        return input.replace("\\", "\\\\")
-                   .replace("\"", "\\\"")
-                   .replace("\n", "\\n")
-                   .replace("\r", "\\r")
-                   .replace("\t", "\\t");
+    private void writeItemJson(Item item, HttpServletResponse response) throws IOException {
+        JsonWriter json = new JsonWriter(response.getWriter());
+        JsonViews.item(json, item);
+        json.flush();
     }
     
     /**
@@ -328,15 +321,8 @@ public class ItemServlet extends HttpServlet {
         String itemName = request.getParameter("itemName");
         String category = request.getParameter("category");
         
-        List<Item> items;
-        
-        if ((itemName == null || itemName.trim().isEmpty()) && 
-            (category == null || category.trim().isEmpty())) {
-            // No search criteria, show all items
-            items = itemService.getAllItems();
-        } else {
-            items = itemService.searchItems(itemName, category, null, null, false);
-        }
+        // Blank criteria match every item
+        List<ItemSummary> items = itemService.getItemSummaries(itemName, category, false);
         
         request.setAttribute("items", items);
         request.setAttribute("searchItemName", itemName);
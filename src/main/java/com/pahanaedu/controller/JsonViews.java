@@ -0,0 +1,93 @@
+package com.pahanaedu.controller;
+
+import com.pahanaedu.dto.CustomerSummary;
+import com.pahanaedu.dto.ItemSummary;
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.BillItem;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.util.JsonWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * JSON bodies written by the servlets for modals and till lookups
+ * Kept apart from the servlets so they can be measured and tested without a container
+ */
+final class JsonViews {
+
+    private JsonViews() {
+    }
+
+    /**
+     * Write a bill with its lines, for the bill details modal
+     */
+    static void bill(JsonWriter json, Bill bill) throws IOException {
+        json.beginObject()
+            .name("billId").value(bill.getBillId())
+            .name("customerName").value(bill.getCustomer().getName())
+            .name("accountNumber").value(bill.getCustomer().getAccountNumber())
+            .name("billDate").value(bill.getBillDate())
+            .name("totalAmount").value(bill.getTotalAmount())
+            .name("status").value(bill.getStatus().toString())
+            .name("itemCount").value(bill.getTotalItemCount());
+
+        json.name("billItems").beginArray();
+        for (BillItem billItem : bill.getBillItems()) {
+            json.beginObject()
+                .name("itemId").value(billItem.getItem().getItemId())
+                .name("itemName").value(billItem.getItem().getItemName())
+                .name("quantity").value(billItem.getQuantity())
+                .name("unitPrice").value(billItem.getUnitPrice())
+                .name("totalPrice").value(billItem.getTotalPrice())
+                .endObject();
+        }
+        json.endArray().endObject();
+    }
+
+    /**
+     * Write an item, for the view and edit modals
+     */
+    static void item(JsonWriter json, Item item) throws IOException {
+        json.beginObject()
+            .name("itemId").value(item.getItemId())
+            .name("itemName").value(item.getItemName() != null ? item.getItemName() : "")
+            .name("description").value(item.getDescription() != null ? item.getDescription() : "")
+            .name("unitPrice").value(item.getUnitPrice() != null ? item.getUnitPrice() : BigDecimal.ZERO)
+            .name("stockQuantity").value(item.getStockQuantity() != null ? item.getStockQuantity() : 0)
+            .name("category").value(item.getCategory() != null ? item.getCategory() : "")
+            .endObject();
+    }
+
+    /**
+     * Write the customer list the tills pick from
+     */
+    static void customerSummaries(JsonWriter json, List<CustomerSummary> customers) throws IOException {
+        json.beginArray();
+        for (CustomerSummary customer : customers) {
+            json.beginObject()
+                .name("accountNumber").value(customer.getAccountNumber())
+                .name("name").value(customer.getName())
+                .name("telephoneNumber").value(customer.getTelephoneNumber() != null ? customer.getTelephoneNumber() : "")
+                .endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * Write the item list the tills pick from
+     */
+    static void itemSummaries(JsonWriter json, List<ItemSummary> items) throws IOException {
+        json.beginArray();
+        for (ItemSummary item : items) {
+            json.beginObject()
+                .name("itemId").value(item.getItemId())
+                .name("itemName").value(item.getItemName())
+                .name("unitPrice").value(item.getUnitPrice())
+                .name("stockQuantity").value(item.getStockQuantity())
+                .name("category").value(item.getCategory() != null ? item.getCategory() : "")
+                .endObject();
+        }
+        json.endArray();
+    }
+}
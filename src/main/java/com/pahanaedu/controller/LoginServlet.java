@@ -1,5 +1,6 @@
 package com.pahanaedu.controller;
 
+import com.pahanaedu.dto.UserPrincipal;
 import com.pahanaedu.model.User;
 import com.pahanaedu.service.UserService;
 import com.pahanaedu.service.impl.UserServiceImpl;
@@ -111,7 +112,7 @@ public class LoginServlet extends HttpServlet {
     private void handleLogout(HttpServletRequest request, HttpServletResponse response)
             throws IOException {
         
-        User currentUser = SessionUtil.getCurrentUser(request);
+        UserPrincipal currentUser = SessionUtil.getCurrentUser(request);
         if (currentUser != null) {
             logger.info("User logging out: " + currentUser.getUsername());
         }
@@ -0,0 +1,75 @@
+package com.pahanaedu.controller;
+
+import com.pahanaedu.service.CustomerCache;
+import com.pahanaedu.util.MetricsRegistry;
+import com.pahanaedu.util.ServiceFactory;
+import com.pahanaedu.util.SessionUtil;
+import com.pahanaedu.util.StatementCounter;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.RuntimeMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.logging.Logger;
+
+/**
+ * Admin-only metrics in the Prometheus text format
+ * Serves the latency of every servlet action, DAO and service method (p50, p90 and p99 since
+ * start, with sums and counts), error counters, SQL statement totals, and a few JVM and customer
+ * cache gauges
+ */
+@WebServlet(name = "MetricsServlet", urlPatterns = {"/metrics"})
+public class MetricsServlet extends HttpServlet {
+
+    private static final Logger logger = Logger.getLogger(MetricsServlet.class.getName());
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=UTF-8";
+
+    private MetricsRegistry registry;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        registry = ServiceFactory.getMetricsRegistry();
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        registry.gauge("pahanaedu_jvm_heap_used_bytes", "Heap in use", () -> memory.getHeapMemoryUsage().getUsed());
+        registry.gauge("pahanaedu_jvm_heap_max_bytes", "Largest heap the JVM will use", () -> memory.getHeapMemoryUsage().getMax());
+        registry.gauge("pahanaedu_jvm_threads", "Live threads", threads::getThreadCount);
+        registry.gauge("pahanaedu_uptime_seconds", "Time since the JVM started", () -> runtime.getUptime() / 1000.0);
+
+        CustomerCache customerCache = ServiceFactory.getCustomerCache();
+        registry.gauge("pahanaedu_customer_cache_entries", "Customers held in the cache",
+                () -> customerCache.getStatistics().getSize());
+        registry.counter("pahanaedu_customer_cache_hits_total", "Cache lookups answered without a query",
+                () -> customerCache.getStatistics().getHits());
+        registry.counter("pahanaedu_customer_cache_misses_total", "Cache lookups that queried the database",
+                () -> customerCache.getStatistics().getMisses());
+
+        for (StatementCounter.Kind kind : StatementCounter.Kind.values()) {
+            registry.gauge("pahanaedu_sql_statements", "SQL statements prepared since start",
+                    () -> StatementCounter.getTotal(kind), "kind", kind.name().toLowerCase());
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if (!SessionUtil.isAdmin(request)) {
+            logger.warning("Metrics requested by non-admin user: " + SessionUtil.getUsername(request));
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader("Cache-Control", "no-store");
+        registry.writePrometheus(response.getWriter());
+    }
+}
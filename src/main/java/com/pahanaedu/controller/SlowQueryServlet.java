@@ -0,0 +1,86 @@
+package com.pahanaedu.controller;
+
+import com.pahanaedu.util.ServiceFactory;
+import com.pahanaedu.util.SessionUtil;
+import com.pahanaedu.util.SlowQueryLog;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Date;
+import java.util.logging.Logger;
+
+/**
+ * Servlet controller for the query statistics page
+ * Lists the statements with the most total or p99 time from SlowQueryLog, for admins,
+ * who can also clear the figures and change the slow query threshold
+ */
+@WebServlet(name = "SlowQueryServlet", urlPatterns = {"/admin/queries"})
+public class SlowQueryServlet extends HttpServlet {
+
+    private static final Logger logger = Logger.getLogger(SlowQueryServlet.class.getName());
+
+    private static final int TOP = 50;
+
+    private SlowQueryLog slowQueryLog;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        slowQueryLog = ServiceFactory.getSlowQueryLog();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        // Check if user is admin
+        if (!SessionUtil.isAdmin(request)) {
+            response.sendRedirect(request.getContextPath() + "/dashboard");
+            return;
+        }
+
+        SlowQueryLog.Order order = "p99".equals(request.getParameter("order")) ? SlowQueryLog.Order.P99 : SlowQueryLog.Order.TOTAL;
+        request.setAttribute("queries", slowQueryLog.getTop(order, TOP));
+        request.setAttribute("order", order.name().toLowerCase());
+        request.setAttribute("thresholdMillis", slowQueryLog.getThresholdMillis());
+        request.setAttribute("fingerprintCount", slowQueryLog.getFingerprintCount());
+        request.setAttribute("maxFingerprints", slowQueryLog.getMaxFingerprints());
+        request.setAttribute("evictions", slowQueryLog.getEvictions());
+        request.setAttribute("since", new Date(slowQueryLog.getSinceMillis()));
+        request.getRequestDispatcher("/WEB-INF/jsp/admin/queries.jsp").forward(request, response);
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        // Check if user is admin
+        if (!SessionUtil.isAdmin(request)) {
+            response.sendRedirect(request.getContextPath() + "/dashboard");
+            return;
+        }
+
+        String action = request.getParameter("action");
+        if ("reset".equals(action)) {
+            slowQueryLog.reset();
+            logger.info("Query statistics reset by " + SessionUtil.getUsername(request));
+            response.sendRedirect(request.getContextPath() + "/admin/queries?success=Query statistics cleared");
+            return;
+        }
+        if ("threshold".equals(action)) {
+            try {
+                long threshold = Long.parseLong(request.getParameter("thresholdMillis").trim());
+                slowQueryLog.setThresholdMillis(threshold);
+                logger.info("Slow query threshold set to " + threshold + " ms by " + SessionUtil.getUsername(request));
+                response.sendRedirect(request.getContextPath() + "/admin/queries?success=Slow query threshold updated");
+            } catch (NullPointerException | IllegalArgumentException e) {
+                response.sendRedirect(request.getContextPath() + "/admin/queries?error=Invalid threshold");
+            }
+            return;
+        }
+        response.sendRedirect(request.getContextPath() + "/admin/queries");
+    }
+}
@@ -42,8 +42,6 @@ public class UserServlet extends HttpServlet {
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
-        SessionUtil.updateLastActivity(request);
-
         // Check if user is admin
         if (!SessionUtil.isAdmin(request)) {
             response.sendRedirect(request.getContextPath() + "/dashboard");
@@ -89,8 +87,6 @@ public class UserServlet extends HttpServlet {
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
-        SessionUtil.updateLastActivity(request);
-
         // Check if user is admin
         if (!SessionUtil.isAdmin(request)) {
             response.sendRedirect(request.getContextPath() + "/dashboard");
@@ -19,6 +19,16 @@ public interface BaseDAO<T, ID> {
      */
     T save(T entity);
     
+    /**
+     * Save new entities in one transaction, flushing in JDBC batch-sized chunks
+     * Each chunk but the last is detached after flushing to keep the persistence context
+     * small, so those returned entities are detached; the last chunk stays managed.
+     * Other entities in the persistence context are left managed
+     * @param entities Entities to save
+     * @return Saved entities
+     */
+    List<T> saveAll(List<T> entities);
+    
     /**
      * Update an existing entity
      * @param entity Entity to update
@@ -45,6 +55,14 @@ public interface BaseDAO<T, ID> {
      */
     Optional<T> findById(ID id);
     
+    /**
+     * Get a reference to an entity known to exist, without loading it
+     * Only for use inside a unit of work, e.g. to set an association
+     * @param id Primary key
+     * @return Entity reference
+     */
+    T getReference(ID id);
+    
     /**
      * Find all entities
      * @return List of all entities
@@ -71,5 +89,16 @@ public interface BaseDAO<T, ID> {
      * @return List of entities
      */
     List<T> findWithPagination(int offset, int limit);
+    
+    /**
+     * Find a page by seeking past the previous page on the sort key
+     * Cost depends on the page size only, not on how deep the page is
+     * @param after Cursor from the previous page, or null for the first page
+     * @param limit Maximum number of results
+     * @param sort Sort key, or null for the DAO's default (indexed) sort
+     * @return Page with the cursor for the following page
+     * @throws IllegalArgumentException if the cursor does not match the sort key
+     */
+    Page<T> findPage(Cursor after, int limit, SortSpec sort);
 }
 
@@ -2,9 +2,13 @@ package com.pahanaedu.dao;
 
 import com.pahanaedu.model.Bill;
 import com.pahanaedu.model.Customer;
+import com.pahanaedu.dto.BillFilter;
+import com.pahanaedu.dto.BillStatistics;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -104,9 +108,15 @@ public interface BillDAO extends BaseDAO<Bill, Long> {
     
     /**
      * Get bill statistics
-     * @return Array containing [totalBills, pendingBills, paidBills, cancelledBills]
+     * @return Bill counts by status
      */
-    long[] getBillStatistics();
+    BillStatistics getBillStatistics();
+    
+    /**
+     * Count pending bills per customer
+     * @return List of [accountNumber, pending bill count] pairs
+     */
+    List<Object[]> getPendingBillCountsByCustomer();
     
     /**
      * Get daily revenue for date range
@@ -143,5 +153,20 @@ public interface BillDAO extends BaseDAO<Bill, Long> {
     List<Bill> searchBills(String customerName, Bill.BillStatus status, 
                           LocalDate startDate, LocalDate endDate, 
                           BigDecimal minAmount, BigDecimal maxAmount);
+    
+    /**
+     * Find a page of bills, newest first, with their customers but without line items
+     * @param filter Listing filter
+     * @param after Cursor from the previous page, or null for the first page
+     * @param limit Maximum number of results
+     * @return Page of bills
+     */
+    Page<Bill> findPage(BillFilter filter, Cursor after, int limit);
+    
+    /**
+     * Count item units per bill without loading the line items
+     * @param billIds Bill IDs
+     * @return Map of bill ID to total quantity (bills without lines are absent)
+     */
+    Map<Long, Long> getItemCounts(Collection<Long> billIds);
 }
-
@@ -0,0 +1,147 @@
+package com.pahanaedu.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Opaque continuation point for keyset pagination
+ * Holds the sort key values of the last row of a page; encode() turns it into a
+ * URL-safe token and decode() reads it back
+ */
+public final class Cursor {
+    
+    private static final byte VERSION = 1;
+    
+    private final List<Object> values;
+    
+    private Cursor(List<Object> values) {
+        this.values = Collections.unmodifiableList(values);
+    }
+    
+    /**
+     * Create a cursor from sort key values
+     * @param values Values in sort key order (String, Long, Integer, LocalDate, LocalDateTime or BigDecimal)
+     * @return Cursor
+     */
+    public static Cursor of(Object... values) {
+        for (Object value : values) {
+            if (value == null) {
+                throw new IllegalArgumentException("Cursor values cannot be null");
+            }
+        }
+        return new Cursor(new ArrayList<>(Arrays.asList(values)));
+    }
+    
+    public List<Object> getValues() {
+        return values;
+    }
+    
+    /**
+     * Encode as a URL-safe token
+     * @return Token
+     */
+    public String encode() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeByte(values.size());
+            for (Object value : values) {
+                if (value instanceof String) {
+                    out.writeByte('s');
+                    out.writeUTF((String) value);
+                } else if (value instanceof Long) {
+                    out.writeByte('l');
+                    out.writeLong((Long) value);
+                } else if (value instanceof Integer) {
+                    out.writeByte('i');
+                    out.writeInt((Integer) value);
+                } else if (value instanceof LocalDate) {
+                    out.writeByte('d');
+                    out.writeLong(((LocalDate) value).toEpochDay());
+                } else if (value instanceof LocalDateTime) {
+                    out.writeByte('t');
+                    out.writeUTF(value.toString());
+                } else if (value instanceof BigDecimal) {
+                    out.writeByte('b');
+                    out.writeUTF(((BigDecimal) value).toPlainString());
+                } else {
+                    throw new IllegalStateException("Unsupported cursor value type: " + value.getClass().getName());
+                }
+            }
+            out.flush();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("Error encoding cursor", e);
+        }
+    }
+    
+    /**
+     * Decode a token produced by encode()
+     * @param token Token
+     * @return Cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static Cursor decode(String token) {
+        if (token == null || token.trim().isEmpty()) {
+            throw new IllegalArgumentException("Cursor token cannot be empty");
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token.trim())));
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Unsupported cursor version");
+            }
+            int count = in.readUnsignedByte();
+            List<Object> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte type = in.readByte();
+                switch (type) {
+                    case 's': values.add(in.readUTF()); break;
+                    case 'l': values.add(in.readLong()); break;
+                    case 'i': values.add(in.readInt()); break;
+                    case 'd': values.add(LocalDate.ofEpochDay(in.readLong())); break;
+                    case 't': values.add(LocalDateTime.parse(in.readUTF())); break;
+                    case 'b': values.add(new BigDecimal(in.readUTF())); break;
+                    default: throw new IllegalArgumentException("Invalid cursor token");
+                }
+            }
+            if (in.available() > 0) {
+                throw new IllegalArgumentException("Invalid cursor token");
+            }
+            return new Cursor(values);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor token", e);
+        }
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Cursor)) return false;
+        return values.equals(((Cursor) o).values);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(values);
+    }
+    
+    @Override
+    public String toString() {
+        return "Cursor" + values;
+    }
+}
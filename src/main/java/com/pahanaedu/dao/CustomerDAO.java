@@ -1,6 +1,8 @@
 package com.pahanaedu.dao;
 
 import com.pahanaedu.model.Customer;
+import com.pahanaedu.dto.CustomerStatistics;
+import com.pahanaedu.dto.CustomerSummary;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -84,8 +86,22 @@ public interface CustomerDAO extends BaseDAO<Customer, String> {
     
     /**
      * Get customer statistics
-     * @return Array containing [totalCustomers, activeCustomers, customersWithPendingBills]
+     * @return Total, active and pending-bill customer counts
      */
-    long[] getCustomerStatistics();
+    CustomerStatistics getCustomerStatistics();
+    
+    /**
+     * Get the account numbers of inactive customers
+     * @return List of account numbers
+     */
+    List<String> findInactiveAccountNumbers();
+    
+    /**
+     * Search customers as read-only summaries for list views, ordered by name
+     * @param name Name fragment (optional)
+     * @param telephoneNumber Telephone number (optional)
+     * @param active Active status (optional)
+     * @return List of customer summaries
+     */
+    List<CustomerSummary> findSummaries(String name, String telephoneNumber, Boolean active);
 }
-
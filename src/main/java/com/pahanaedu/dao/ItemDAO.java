@@ -1,8 +1,12 @@
 package com.pahanaedu.dao;
 
 import com.pahanaedu.model.Item;
+import com.pahanaedu.dto.ItemStatistics;
+import com.pahanaedu.dto.ItemSummary;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -18,6 +22,13 @@ public interface ItemDAO extends BaseDAO<Item, Long> {
      */
     Optional<Item> findByItemId(Long itemId);
     
+    /**
+     * Find items by ID one at a time, so cached items are served from the second-level cache
+     * @param itemIds Item IDs
+     * @return Items in the order of the IDs; IDs with no item are skipped
+     */
+    List<Item> findByItemIds(List<Long> itemIds);
+    
     /**
      * Find items by name (partial match, case-insensitive)
      * @param itemName Item name or partial name
@@ -91,6 +102,55 @@ public interface ItemDAO extends BaseDAO<Item, Long> {
      */
     Item decreaseStock(Long itemId, int quantity);
     
+    /**
+     * Atomically decrease stock with a single guarded UPDATE, without loading the item
+     * Managed Item instances are not refreshed
+     * @param itemId Item ID
+     * @param quantity Quantity to subtract
+     * @return Number of rows updated (always 1)
+     * @throws IllegalArgumentException if the item does not exist or has insufficient stock
+     */
+    int decrementStock(Long itemId, int quantity);
+    
+    /**
+     * Atomically increase stock with a single UPDATE, without loading the item
+     * Managed Item instances are not refreshed
+     * @param itemId Item ID
+     * @param quantity Quantity to add
+     * @return Number of rows updated (always 1)
+     * @throws IllegalArgumentException if the item does not exist
+     */
+    int incrementStock(Long itemId, int quantity);
+    
+    /**
+     * Atomically apply signed stock deltas to several items in one UPDATE statement
+     * Fails without applying anything (within the transaction) if an item is missing
+     * or would go below zero
+     * @param deltas Map of item ID to signed quantity change
+     * @return Number of rows updated
+     * @throws IllegalArgumentException if an item does not exist or has insufficient stock
+     */
+    int adjustStock(Map<Long, Integer> deltas);
+    
+    /**
+     * Read the stock column as stored in the database, without flushing pending changes
+     * @param itemId Item ID
+     * @return Optional containing the stored stock quantity if the item exists
+     */
+    Optional<Integer> findStoredStockQuantity(Long itemId);
+    
+    /**
+     * Get the stock ledger in one scan
+     * @return List of [itemId, stockQuantity, quantity on non-cancelled bills]
+     */
+    List<Object[]> getStockLedger();
+    
+    /**
+     * Check whether the trigger_update_stock database trigger is installed
+     * @return true if the trigger exists
+     */
+    boolean isStockTriggerInstalled();
+    
     /**
      * Search items by multiple criteria
      * @param itemName Item name (partial match)
@@ -104,9 +164,10 @@ public interface ItemDAO extends BaseDAO<Item, Long> {
     
     /**
      * Get item statistics
-     * @return Array containing [totalItems, itemsInStock, outOfStockItems, lowStockItems]
+     * @param lowStockThreshold Low stock threshold
+     * @return Total, in-stock, out-of-stock and low-stock item counts
      */
-    long[] getItemStatistics(int lowStockThreshold);
+    ItemStatistics getItemStatistics(int lowStockThreshold);
     
     /**
      * Get top selling items
@@ -114,5 +175,20 @@ public interface ItemDAO extends BaseDAO<Item, Long> {
      * @return List of top selling items ordered by quantity sold
      */
     List<Item> getTopSellingItems(int limit);
+    
+    /**
+     * Search items as read-only summaries for list views, ordered by name
+     * @param itemName Item name fragment (optional)
+     * @param category Category fragment (optional)
+     * @param inStockOnly Only items with stock
+     * @return List of item summaries
+     */
+    List<ItemSummary> findSummaries(String itemName, String category, boolean inStockOnly);
+    
+    /**
+     * Evict items from the second-level cache after their stock changed outside
+     * Hibernate, e.g. through the stock trigger
+     * @param itemIds Item IDs
+     */
+    void evictFromCache(Collection<Long> itemIds);
 }
-
@@ -0,0 +1,44 @@
+package com.pahanaedu.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing
+ * 
+ * @param <T> Entity type
+ */
+public final class Page<T> {
+    
+    private final List<T> items;
+    private final Cursor next;
+    
+    public Page(List<T> items, Cursor next) {
+        this.items = Collections.unmodifiableList(items);
+        this.next = next;
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    /**
+     * Cursor for the following page
+     * @return Cursor, or null on the last page
+     */
+    public Cursor getNext() {
+        return next;
+    }
+    
+    public boolean hasNext() {
+        return next != null;
+    }
+    
+    /**
+     * Encoded next cursor for links and JSON
+     * @return Token, or null on the last page
+     */
+    public String getNextToken() {
+        return next != null ? next.encode() : null;
+    }
+}
@@ -0,0 +1,82 @@
+package com.pahanaedu.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sort key for keyset pagination
+ * All attributes sort in the same direction; the last attribute must be unique
+ * (BaseDAOImpl appends the entity id if it is not), so the order is total and a page
+ * can seek past the previous one on an index instead of skipping rows
+ */
+public final class SortSpec {
+    
+    public enum Direction { ASC, DESC }
+    
+    private final Direction direction;
+    private final List<String> attributes;
+    
+    private SortSpec(Direction direction, List<String> attributes) {
+        this.direction = direction;
+        this.attributes = Collections.unmodifiableList(attributes);
+    }
+    
+    /**
+     * Create a sort key
+     * @param direction Direction for every attribute
+     * @param attributes Entity attribute names, most significant first
+     * @return Sort key
+     */
+    public static SortSpec of(Direction direction, String... attributes) {
+        if (direction == null) {
+            throw new IllegalArgumentException("Sort direction cannot be null");
+        }
+        if (attributes == null || attributes.length == 0) {
+            throw new IllegalArgumentException("Sort needs at least one attribute");
+        }
+        return new SortSpec(direction, new ArrayList<>(Arrays.asList(attributes)));
+    }
+    
+    /**
+     * Copy of this sort key with a tie-breaking attribute appended if missing
+     * @param attribute Unique attribute
+     * @return Sort key ending with the attribute
+     */
+    public SortSpec thenBy(String attribute) {
+        if (attributes.get(attributes.size() - 1).equals(attribute)) {
+            return this;
+        }
+        List<String> extended = new ArrayList<>(attributes);
+        extended.remove(attribute);
+        extended.add(attribute);
+        return new SortSpec(direction, extended);
+    }
+    
+    public Direction getDirection() {
+        return direction;
+    }
+    
+    public List<String> getAttributes() {
+        return attributes;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SortSpec)) return false;
+        SortSpec other = (SortSpec) o;
+        return direction == other.direction && attributes.equals(other.attributes);
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * direction.hashCode() + attributes.hashCode();
+    }
+    
+    @Override
+    public String toString() {
+        return attributes + " " + direction;
+    }
+}
@@ -1,16 +1,33 @@
 package com.pahanaedu.dao.impl;
 
 import com.pahanaedu.dao.BaseDAO;
+import com.pahanaedu.dao.Cursor;
+import com.pahanaedu.dao.Page;
+import com.pahanaedu.dao.SortSpec;
+import com.pahanaedu.util.DaoQueryEvent;
+import com.pahanaedu.util.EntityManagerHolder;
 import com.pahanaedu.util.EntityManagerUtil;
+import org.hibernate.jpa.QueryHints;
 import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.EntityType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 /**
@@ -24,6 +41,11 @@ public abstract class BaseDAOImpl<T, ID> implements BaseDAO<T, ID> {
     
     private static final Logger logger = Logger.getLogger(BaseDAOImpl.class.getName());
     
+    /**
+     * Escape character for patterns built by containsPattern
+     */
+    protected static final char LIKE_ESCAPE = '\\';
+    
     @PersistenceContext(unitName = "PahanaEduPU")
     protected EntityManager entityManager;
     
@@ -37,149 +59,103 @@ public abstract class BaseDAOImpl<T, ID> implements BaseDAO<T, ID> {
     
     @Override
     public T save(T entity) {
-        EntityManager em = getEntityManager();
-        boolean isOwnTransaction = !em.getTransaction().isActive();
-        
         try {
-            if (isOwnTransaction) {
-                em.getTransaction().begin();
-            }
-            
-            em.persist(entity);
-            em.flush();
-            
-            if (isOwnTransaction) {
-                em.getTransaction().commit();
-            }
-            
-            return entity;
-        } catch (Exception e) {
-            if (isOwnTransaction && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
+            return executeInTransaction(em -> {
+                em.persist(entity);
+                em.flush();
+                return entity;
+            });
+        } catch (RuntimeException e) {
             throw new RuntimeException("Error saving entity", e);
-        } finally {
-            if (isOwnTransaction && entityManager == null) {
-                // Only close if we created it (fallback mode)
-                em.close();
-            }
         }
     }
     
     @Override
-    public T update(T entity) {
-        EntityManager em = getEntityManager();
-        boolean isOwnTransaction = !em.getTransaction().isActive();
-        
-        try {
-            if (isOwnTransaction) {
-                em.getTransaction().begin();
+    public List<T> saveAll(List<T> entities) {
+        return executeInTransaction(em -> {
+            int chunkSize = saveChunkSize(em);
+            int chunkStart = 0;
+            for (int i = 0; i < entities.size(); i++) {
+                em.persist(entities.get(i));
+                if ((i + 1) % chunkSize == 0 && i + 1 < entities.size()) {
+                    em.flush();
+                    // Detach only this chunk; the context may hold the caller's own entities
+                    for (int j = chunkStart; j <= i; j++) {
+                        em.detach(entities.get(j));
+                    }
+                    chunkStart = i + 1;
+                }
             }
-            
-            T updatedEntity = em.merge(entity);
             em.flush();
-            
-            if (isOwnTransaction) {
-                em.getTransaction().commit();
-            }
-            
-            return updatedEntity;
-        } catch (Exception e) {
-            if (isOwnTransaction && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
+            return entities;
+        });
+    }
+    
+    @Override
+    public T update(T entity) {
+        try {
+            return executeInTransaction(em -> {
+                T updatedEntity = em.merge(entity);
+                em.flush();
+                return updatedEntity;
+            });
+        } catch (RuntimeException e) {
             throw new RuntimeException("Error updating entity", e);
-        } finally {
-            if (isOwnTransaction && entityManager == null) {
-                // Only close if we created it (fallback mode)
-                em.close();
-            }
         }
     }
     
     @Override
     public void deleteById(ID id) {
-        EntityManager em = getEntityManager();
-        boolean isOwnTransaction = !em.getTransaction().isActive();
-        
         try {
-            if (isOwnTransaction) {
-                em.getTransaction().begin();
-            }
-            
-            T entity = em.find(entityClass, id);
-            if (entity != null) {
-                em.remove(entity);
-                em.flush();
-            }
-            
-            if (isOwnTransaction) {
-                em.getTransaction().commit();
-            }
-        } catch (Exception e) {
-            if (isOwnTransaction && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
+            executeInTransaction(em -> {
+                T entity = em.find(entityClass, id);
+                if (entity != null) {
+                    em.remove(entity);
+                    em.flush();
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
             throw new RuntimeException("Error deleting entity with id: " + id, e);
-        } finally {
-            if (isOwnTransaction && entityManager == null) {
-                // Only close if we created it (fallback mode)
-                em.close();
-            }
         }
     }
     
     @Override
     public void delete(T entity) {
-        EntityManager em = getEntityManager();
-        boolean isOwnTransaction = !em.getTransaction().isActive();
-        
         try {
-            if (isOwnTransaction) {
-                em.getTransaction().begin();
-            }
-            
-            if (em.contains(entity)) {
-                em.remove(entity);
-            } else {
-                em.remove(em.merge(entity));
-            }
-            em.flush();
-            
-            if (isOwnTransaction) {
-                em.getTransaction().commit();
-            }
-        } catch (Exception e) {
-            if (isOwnTransaction && em.getTransaction().isActive()) {
-                em.getTransaction().rollback();
-            }
+            executeInTransaction(em -> {
+                if (em.contains(entity)) {
+                    em.remove(entity);
+                } else {
+                    em.remove(em.merge(entity));
+                }
+                em.flush();
+                return null;
+            });
+        } catch (RuntimeException e) {
             throw new RuntimeException("Error deleting entity", e);
-        } finally {
-            if (isOwnTransaction && entityManager == null) {
-                // Only close if we created it (fallback mode)
-                em.close();
-            }
         }
     }
     
     @Override
     public Optional<T> findById(ID id) {
+        return executeQuery(em -> Optional.ofNullable(em.find(entityClass, id)));
+    }
+    
+    @Override
+    public T getReference(ID id) {
         EntityManager em = getEntityManager();
-        try {
-            T entity = em.find(entityClass, id);
-            return Optional.ofNullable(entity);
-        } finally {
-            if (entityManager == null) {
-                // Only close if we created it (fallback mode)
-                em.close();
-            }
+        if (em != entityManager && !EntityManagerHolder.isCurrent(em)) {
+            // A standalone EntityManager would be closed before the reference could be used
+            releaseEntityManager(em);
+            throw new IllegalStateException("Entity references need a bound EntityManager");
         }
+        return em.getReference(entityClass, id);
     }
     
     @Override
     public List<T> findAll() {
-        EntityManager em = getEntityManager();
-        try {
+        return executeQuery(em -> {
             CriteriaBuilder cb = em.getCriteriaBuilder();
             CriteriaQuery<T> cq = cb.createQuery(entityClass);
             Root<T> root = cq.from(entityClass);
@@ -187,18 +163,12 @@ public abstract class BaseDAOImpl<T, ID> implements BaseDAO<T, ID> {
             
             TypedQuery<T> query = em.createQuery(cq);
             return query.getResultList();
-        } finally {
-            if (entityManager == null) {
-                // Only close if we created it (fallback mode)
-                em.close();
-            }
-        }
+        });
     }
     
     @Override
     public long count() {
-        EntityManager em = getEntityManager();
-        try {
+        return executeQuery(em -> {
             CriteriaBuilder cb = em.getCriteriaBuilder();
             CriteriaQuery<Long> cq = cb.createQuery(Long.class);
             Root<T> root = cq.from(entityClass);
@@ -206,12 +176,7 @@ public abstract class BaseDAOImpl<T, ID> implements BaseDAO<T, ID> {
             
             TypedQuery<Long> query = em.createQuery(cq);
             return query.getSingleResult();
-        } finally {
-            if (entityManager == null) {
-                // Only close if we created it (fallback mode)
-                em.close();
-            }
-        }
+        });
     }
     
     @Override
@@ -221,23 +186,269 @@ public abstract class BaseDAOImpl<T, ID> implements BaseDAO<T, ID> {
     
     @Override
     public List<T> findWithPagination(int offset, int limit) {
-        EntityManager em = getEntityManager();
-        try {
+        return executeQuery(em -> {
             CriteriaBuilder cb = em.getCriteriaBuilder();
             CriteriaQuery<T> cq = cb.createQuery(entityClass);
             Root<T> root = cq.from(entityClass);
-            cq.select(root);
+            // Without an ORDER BY the rows on each page are arbitrary
+            cq.select(root).orderBy(orders(cb, root, sortKey(em, null)));
             
             TypedQuery<T> query = em.createQuery(cq);
             query.setFirstResult(offset);
             query.setMaxResults(limit);
             
             return query.getResultList();
+        });
+    }
+    
+    @Override
+    public Page<T> findPage(Cursor after, int limit, SortSpec sort) {
+        return findPage(after, limit, sort, null);
+    }
+    
+    /**
+     * Keyset page restricted by extra predicates; subclasses use this for filtered listings
+     * @param after Cursor from the previous page, or null for the first page
+     * @param limit Maximum number of results
+     * @param sort Sort key, or null for defaultSort()
+     * @param filter Builds extra predicates, or null
+     * @return Page with the cursor for the following page
+     */
+    protected Page<T> findPage(Cursor after, int limit, SortSpec sort,
+                               BiFunction<CriteriaBuilder, Root<T>, List<Predicate>> filter) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        
+        return executeQuery(em -> {
+            SortSpec key = sortKey(em, sort);
+            CriteriaBuilder cb = em.getCriteriaBuilder();
+            CriteriaQuery<T> cq = cb.createQuery(entityClass);
+            Root<T> root = cq.from(entityClass);
+            fetchForPage(root);
+            
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter != null) {
+                predicates.addAll(filter.apply(cb, root));
+            }
+            if (after != null) {
+                predicates.add(seekPredicate(cb, root, key, after));
+            }
+            cq.select(root).where(predicates.toArray(new Predicate[0])).orderBy(orders(cb, root, key));
+            
+            // One extra row tells whether another page follows
+            List<T> rows = em.createQuery(cq).setMaxResults(limit + 1).getResultList();
+            if (rows.size() <= limit) {
+                return new Page<>(rows, null);
+            }
+            List<T> items = new ArrayList<>(rows.subList(0, limit));
+            return new Page<>(items, cursorFor(em, items.get(limit - 1), key));
+        });
+    }
+    
+    /**
+     * Default sort for pages; subclasses override with the key their listing index covers
+     * @return Sort key (the id is appended as tie-breaker when missing)
+     */
+    protected SortSpec defaultSort() {
+        return null;
+    }
+    
+    /**
+     * Add fetch joins for single-valued associations every listed row needs
+     * Collection fetches would break the row limit and must not be added here
+     * @param root Query root
+     */
+    protected void fetchForPage(Root<T> root) {
+    }
+    
+    /**
+     * Resolve the sort key: requested or default sort, ending with the id
+     */
+    private SortSpec sortKey(EntityManager em, SortSpec sort) {
+        String idAttribute = idAttribute(em);
+        SortSpec base = sort != null ? sort : defaultSort();
+        if (base == null) {
+            base = SortSpec.of(SortSpec.Direction.ASC, idAttribute);
+        }
+        return base.thenBy(idAttribute);
+    }
+    
+    private String idAttribute(EntityManager em) {
+        EntityType<T> type = em.getMetamodel().entity(entityClass);
+        return type.getId(type.getIdType().getJavaType()).getName();
+    }
+    
+    private static <E> List<Order> orders(CriteriaBuilder cb, Root<E> root, SortSpec key) {
+        List<Order> orders = new ArrayList<>();
+        for (String attribute : key.getAttributes()) {
+            orders.add(key.getDirection() == SortSpec.Direction.ASC
+                    ? cb.asc(root.get(attribute)) : cb.desc(root.get(attribute)));
+        }
+        return orders;
+    }
+    
+    /**
+     * Rows strictly after the cursor in sort order:
+     * k1 >= v1 AND ((k1 > v1) OR (k1 = v1 AND k2 > v2) OR ...) for ascending keys
+     * The redundant leading bound gives the database an index range on k1 to seek from;
+     * the OR form alone is not sargable. JPA criteria has no row-value comparison
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <E> Predicate seekPredicate(CriteriaBuilder cb, Root<E> root, SortSpec key, Cursor after) {
+        List<String> attributes = key.getAttributes();
+        List<Object> values = after.getValues();
+        if (values.size() != attributes.size()) {
+            throw new IllegalArgumentException("Cursor does not match sort " + key);
+        }
+        
+        List<Predicate> alternatives = new ArrayList<>();
+        List<Predicate> equalPrefix = new ArrayList<>();
+        Predicate leadingBound = null;
+        for (int i = 0; i < attributes.size(); i++) {
+            Path<Comparable> path = root.get(attributes.get(i));
+            Object value = values.get(i);
+            if (!path.getJavaType().isInstance(value)) {
+                throw new IllegalArgumentException("Cursor does not match sort " + key);
+            }
+            Comparable comparable = (Comparable) value;
+            if (i == 0) {
+                leadingBound = key.getDirection() == SortSpec.Direction.ASC
+                        ? cb.greaterThanOrEqualTo(path, comparable) : cb.lessThanOrEqualTo(path, comparable);
+            }
+            Predicate beyond = key.getDirection() == SortSpec.Direction.ASC
+                    ? cb.greaterThan(path, comparable) : cb.lessThan(path, comparable);
+            
+            List<Predicate> alternative = new ArrayList<>(equalPrefix);
+            alternative.add(beyond);
+            alternatives.add(cb.and(alternative.toArray(new Predicate[0])));
+            equalPrefix.add(cb.equal(path, value));
+        }
+        if (alternatives.size() == 1) {
+            return alternatives.get(0);
+        }
+        return cb.and(leadingBound, cb.or(alternatives.toArray(new Predicate[0])));
+    }
+    
+    private Cursor cursorFor(EntityManager em, T entity, SortSpec key) {
+        Object[] values = new Object[key.getAttributes().size()];
+        EntityType<T> type = em.getMetamodel().entity(entityClass);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readAttribute(type.getAttribute(key.getAttributes().get(i)).getJavaMember(), entity);
+        }
+        return Cursor.of(values);
+    }
+    
+    private static Object readAttribute(Member member, Object entity) {
+        try {
+            if (member instanceof Field) {
+                Field field = (Field) member;
+                field.setAccessible(true);
+                return field.get(entity);
+            }
+            Method getter = (Method) member;
+            getter.setAccessible(true);
+            return getter.invoke(entity);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot read sort attribute " + member.getName(), e);
+        }
+    }
+    
+    /**
+     * Read an aggregate result column as long; SUM over no rows is null
+     */
+    protected static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+    
+    /**
+     * LIKE pattern matching text anywhere, with % and _ in the text matched literally
+     * Use with LIKE_ESCAPE as the escape character
+     */
+    protected static String containsPattern(String text) {
+        String escaped = text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+    
+    /**
+     * Chunk size for saveAll: hibernate.jdbc.batch_size, or 50 when batching is off
+     */
+    private static int saveChunkSize(EntityManager em) {
+        Object value = em.getEntityManagerFactory().getProperties().get("hibernate.jdbc.batch_size");
+        int batchSize = value != null ? Integer.parseInt(value.toString().trim()) : 0;
+        return batchSize > 0 ? batchSize : 50;
+    }
+    
+    /**
+     * Run read work against the entity manager and release it afterwards
+     * Every DAO method runs through this or executeInTransaction, which raise one
+     * DaoQueryEvent per call whether or not the DAO is instrumented
+     * @param work Work to run
+     * @return Result of the work
+     */
+    protected <R> R executeQuery(Function<EntityManager, R> work) {
+        DaoQueryEvent event = new DaoQueryEvent();
+        event.begin();
+        EntityManager em = getEntityManager();
+        try {
+            R result = work.apply(em);
+            event.succeeded = true;
+            event.rowCount = DaoQueryEvent.rowsOf(result);
+            return result;
         } finally {
-            if (entityManager == null) {
-                // Only close if we created it (fallback mode)
-                em.close();
+            releaseEntityManager(em);
+            commit(event);
+        }
+    }
+    
+    /**
+     * Run work against the entity manager in the active transaction, or in its own
+     * transaction if none is active. Exceptions propagate unchanged after rollback
+     * @param work Work to run
+     * @return Result of the work
+     */
+    protected <R> R executeInTransaction(Function<EntityManager, R> work) {
+        DaoQueryEvent event = new DaoQueryEvent();
+        event.begin();
+        EntityManager em = getEntityManager();
+        boolean isOwnTransaction = !em.getTransaction().isActive();
+        
+        try {
+            if (isOwnTransaction) {
+                em.getTransaction().begin();
             }
+            
+            R result = work.apply(em);
+            
+            if (isOwnTransaction) {
+                em.getTransaction().commit();
+            }
+            
+            event.succeeded = true;
+            event.rowCount = DaoQueryEvent.rowsOf(result);
+            return result;
+        } catch (RuntimeException e) {
+            if (isOwnTransaction && em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            if (isOwnTransaction) {
+                releaseEntityManager(em);
+            }
+            commit(event);
+        }
+    }
+    
+    /**
+     * Commit a DaoQueryEvent under the DAO method that called executeQuery or executeInTransaction
+     */
+    private void commit(DaoQueryEvent event) {
+        if (event.shouldCommit()) {
+            event.daoClass = getClass().getSimpleName();
+            event.method = StackWalker.getInstance().walk(frames -> frames.skip(2).findFirst())
+                    .map(StackWalker.StackFrame::getMethodName).orElse(null);
+            event.commit();
         }
     }
     
@@ -250,16 +461,48 @@ public abstract class BaseDAOImpl<T, ID> implements BaseDAO<T, ID> {
     }
     
     /**
-     * Get the entity manager with fallback for development environments
+     * Get the entity manager: the injected one, else the request-scoped one bound by
+     * EntityManagerFilter, else a standalone one for code running outside a request
      * @return Entity manager
      */
     protected EntityManager getEntityManager() {
-        if (entityManager == null) {
-            // Fallback for development environments without full EJB container
-            logger.warning("PersistenceContext injection failed, using EntityManagerUtil for development");
-            return EntityManagerUtil.getEntityManager();
+        if (entityManager != null) {
+            return entityManager;
+        }
+        EntityManager bound = EntityManagerHolder.get();
+        if (bound != null) {
+            return bound;
+        }
+        // Fallback for code running outside a request scope
+        logger.warning("No request-scoped EntityManager bound, using standalone EntityManager from EntityManagerUtil");
+        return EntityManagerUtil.getEntityManager();
+    }
+    
+    /**
+     * Close an entity manager obtained from getEntityManager if this DAO created it
+     * Injected and request-scoped entity managers are left open for their owner to close
+     * @param em Entity manager to release
+     */
+    protected void releaseEntityManager(EntityManager em) {
+        if (em != entityManager && !EntityManagerHolder.isCurrent(em) && em.isOpen()) {
+            em.close();
         }
-        return entityManager;
+    }
+    
+    /**
+     * Create a query for read-only list views, typically a constructor expression
+     * Results are not managed; the query is flagged read-only and does not trigger
+     * the auto-flush dirty check of the persistence context
+     * @param em Entity manager
+     * @param jpql JPQL query string
+     * @param resultClass Result type
+     * @return TypedQuery for further configuration
+     */
+    protected <R> TypedQuery<R> createProjectionQuery(EntityManager em, String jpql, Class<R> resultClass) {
+        TypedQuery<R> query = em.createQuery(jpql, resultClass);
+        query.setFlushMode(FlushModeType.COMMIT);
+        query.setHint(QueryHints.HINT_READONLY, true);
+        return query;
     }
     
     /**
@@ -1,13 +1,25 @@
 package com.pahanaedu.dao.impl;
 
 import com.pahanaedu.dao.BillDAO;
+import com.pahanaedu.dao.Cursor;
+import com.pahanaedu.dao.Page;
+import com.pahanaedu.dao.SortSpec;
 import com.pahanaedu.model.Bill;
 import com.pahanaedu.model.Customer;
+import com.pahanaedu.dto.BillFilter;
+import com.pahanaedu.dto.BillStatistics;
 import javax.ejb.Stateless;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -17,96 +29,123 @@ import java.util.Optional;
 @Stateless
 public class BillDAOImpl extends BaseDAOImpl<Bill, Long> implements BillDAO {
     
+    /**
+     * Newest bills first; matches idx_bills_date (bill_date, bill_id)
+     */
+    @Override
+    protected SortSpec defaultSort() {
+        return SortSpec.of(SortSpec.Direction.DESC, "billDate", "billId");
+    }
+    
+    @Override
+    protected void fetchForPage(Root<Bill> root) {
+        root.fetch("customer", JoinType.LEFT);
+    }
+    
     @Override
     public List<Bill> findAll() {
-        // First get distinct bills with customers
-        TypedQuery<Bill> query = createQuery(
-            "SELECT DISTINCT b FROM Bill b LEFT JOIN FETCH b.customer ORDER BY b.billDate DESC"
-        );
-        List<Bill> bills = query.getResultList();
-
-        // Then fetch bill items for each bill in a separate query to avoid Cartesian product
-        if (!bills.isEmpty()) {
-            TypedQuery<Bill> itemsQuery = createQuery(
-                "SELECT DISTINCT b FROM Bill b LEFT JOIN FETCH b.billItems bi LEFT JOIN FETCH bi.item WHERE b IN :bills"
+        return executeQuery(em -> {
+            // First get distinct bills with customers
+            TypedQuery<Bill> query = em.createQuery(
+                "SELECT DISTINCT b FROM Bill b LEFT JOIN FETCH b.customer ORDER BY b.billDate DESC", Bill.class
             );
-            itemsQuery.setParameter("bills", bills);
-            itemsQuery.getResultList(); // This will populate the billItems collections
-        }
+            List<Bill> bills = query.getResultList();
 
-        return bills;
+            // Then fetch bill items for each bill in a separate query to avoid Cartesian product
+            if (!bills.isEmpty()) {
+                TypedQuery<Bill> itemsQuery = em.createQuery(
+                    "SELECT DISTINCT b FROM Bill b LEFT JOIN FETCH b.billItems bi LEFT JOIN FETCH bi.item WHERE b IN :bills", Bill.class
+                );
+                itemsQuery.setParameter("bills", bills);
+                itemsQuery.getResultList(); // This will populate the billItems collections
+            }
+
+            return bills;
+        });
     }
     
     @Override
     public Optional<Bill> findByBillId(Long billId) {
-        // First get the bill with customer
-        TypedQuery<Bill> query = createQuery(
-            "SELECT b FROM Bill b LEFT JOIN FETCH b.customer WHERE b.billId = :billId"
-        );
-        query.setParameter("billId", billId);
-        List<Bill> results = query.getResultList();
+        return executeQuery(em -> {
+            // First get the bill with customer
+            TypedQuery<Bill> query = em.createQuery(
+                "SELECT b FROM Bill b LEFT JOIN FETCH b.customer WHERE b.billId = :billId", Bill.class
+            );
+            query.setParameter("billId", billId);
+            List<Bill> results = query.getResultList();
 
-        if (results.isEmpty()) {
-            return Optional.empty();
-        }
+            if (results.isEmpty()) {
+                return Optional.empty();
+            }
 
-        Bill bill = results.get(0);
+            Bill bill = results.get(0);
 
-        // Then fetch bill items for this specific bill
-        TypedQuery<Bill> itemsQuery = createQuery(
-            "SELECT b FROM Bill b LEFT JOIN FETCH b.billItems bi LEFT JOIN FETCH bi.item WHERE b.billId = :billId"
-        );
-        itemsQuery.setParameter("billId", billId);
-        itemsQuery.getResultList(); // This will populate the billItems collection
+            // Then fetch bill items for this specific bill
+            TypedQuery<Bill> itemsQuery = em.createQuery(
+                "SELECT b FROM Bill b LEFT JOIN FETCH b.billItems bi LEFT JOIN FETCH bi.item WHERE b.billId = :billId", Bill.class
+            );
+            itemsQuery.setParameter("billId", billId);
+            itemsQuery.getResultList(); // This will populate the billItems collection
 
-        return Optional.of(bill);
+            return Optional.of(bill);
+        });
     }
     
     @Override
     public List<Bill> findByCustomer(Customer customer) {
-        TypedQuery<Bill> query = createQuery(
-            "SELECT DISTINCT b FROM Bill b LEFT JOIN FETCH b.customer WHERE b.customer = :customer ORDER BY b.billDate DESC"
-        );
-        query.setParameter("customer", customer);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Bill> query = em.createQuery(
+                "SELECT DISTINCT b FROM Bill b LEFT JOIN FETCH b.customer WHERE b.customer = :customer ORDER BY b.billDate DESC", Bill.class
+            );
+            query.setParameter("customer", customer);
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Bill> findByCustomerAccountNumber(String accountNumber) {
-        TypedQuery<Bill> query = createQuery(
-            "SELECT DISTINCT b FROM Bill b LEFT JOIN FETCH b.customer WHERE b.customer.accountNumber = :accountNumber ORDER BY b.billDate DESC"
-        );
-        query.setParameter("accountNumber", accountNumber);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Bill> query = em.createQuery(
+                "SELECT DISTINCT b FROM Bill b LEFT JOIN FETCH b.customer WHERE b.customer.accountNumber = :accountNumber ORDER BY b.billDate DESC", Bill.class
+            );
+            query.setParameter("accountNumber", accountNumber);
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Bill> findByStatus(Bill.BillStatus status) {
-        TypedQuery<Bill> query = createQuery(
-            "SELECT DISTINCT b FROM Bill b LEFT JOIN FETCH b.customer WHERE b.status = :status ORDER BY b.billDate DESC"
-        );
-        query.setParameter("status", status);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Bill> query = em.createQuery(
+                "SELECT DISTINCT b FROM Bill b LEFT JOIN FETCH b.customer WHERE b.status = :status ORDER BY b.billDate DESC", Bill.class
+            );
+            query.setParameter("status", status);
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Bill> findByBillDateBetween(LocalDate startDate, LocalDate endDate) {
-        TypedQuery<Bill> query = createQuery(
-            "SELECT b FROM Bill b WHERE b.billDate BETWEEN :startDate AND :endDate ORDER BY b.billDate DESC"
-        );
-        query.setParameter("startDate", startDate);
-        query.setParameter("endDate", endDate);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Bill> query = em.createQuery(
+                "SELECT b FROM Bill b LEFT JOIN FETCH b.customer WHERE b.billDate BETWEEN :startDate AND :endDate ORDER BY b.billDate DESC", Bill.class
+            );
+            query.setParameter("startDate", startDate);
+            query.setParameter("endDate", endDate);
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Bill> findByTotalAmountBetween(BigDecimal minAmount, BigDecimal maxAmount) {
-        TypedQuery<Bill> query = createQuery(
-            "SELECT b FROM Bill b WHERE b.totalAmount BETWEEN :minAmount AND :maxAmount ORDER BY b.totalAmount DESC"
-        );
-        query.setParameter("minAmount", minAmount);
-        query.setParameter("maxAmount", maxAmount);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Bill> query = em.createQuery(
+                "SELECT b FROM Bill b WHERE b.totalAmount BETWEEN :minAmount AND :maxAmount ORDER BY b.totalAmount DESC", Bill.class
+            );
+            query.setParameter("minAmount", minAmount);
+            query.setParameter("maxAmount", maxAmount);
+            return query.getResultList();
+        });
     }
     
     @Override
@@ -140,147 +179,208 @@ public class BillDAOImpl extends BaseDAOImpl<Bill, Long> implements BillDAO {
     
     @Override
     public BigDecimal calculateRevenueForPeriod(LocalDate startDate, LocalDate endDate) {
-        TypedQuery<BigDecimal> query = getEntityManager().createQuery(
-            "SELECT COALESCE(SUM(b.totalAmount), 0) FROM Bill b WHERE b.billDate BETWEEN :startDate AND :endDate AND b.status = 'PAID'", 
-            BigDecimal.class
-        );
-        query.setParameter("startDate", startDate);
-        query.setParameter("endDate", endDate);
-        BigDecimal result = query.getSingleResult();
-        return result != null ? result : BigDecimal.ZERO;
+        return executeQuery(em -> {
+            TypedQuery<BigDecimal> query = em.createQuery(
+                "SELECT COALESCE(SUM(b.totalAmount), 0) FROM Bill b WHERE b.billDate BETWEEN :startDate AND :endDate AND b.status = 'PAID'", 
+                BigDecimal.class
+            );
+            query.setParameter("startDate", startDate);
+            query.setParameter("endDate", endDate);
+            BigDecimal result = query.getSingleResult();
+            return result != null ? result : BigDecimal.ZERO;
+        });
     }
     
     @Override
     public BigDecimal calculateCustomerRevenue(String accountNumber) {
-        TypedQuery<BigDecimal> query = getEntityManager().createQuery(
-            "SELECT COALESCE(SUM(b.totalAmount), 0) FROM Bill b WHERE b.customer.accountNumber = :accountNumber AND b.status = 'PAID'", 
-            BigDecimal.class
-        );
-        query.setParameter("accountNumber", accountNumber);
-        BigDecimal result = query.getSingleResult();
-        return result != null ? result : BigDecimal.ZERO;
+        return executeQuery(em -> {
+            TypedQuery<BigDecimal> query = em.createQuery(
+                "SELECT COALESCE(SUM(b.totalAmount), 0) FROM Bill b WHERE b.customer.accountNumber = :accountNumber AND b.status = 'PAID'", 
+                BigDecimal.class
+            );
+            query.setParameter("accountNumber", accountNumber);
+            BigDecimal result = query.getSingleResult();
+            return result != null ? result : BigDecimal.ZERO;
+        });
+    }
+    
+    @Override
+    public BillStatistics getBillStatistics() {
+        return executeQuery(em -> {
+            // One scan over bills with a conditional count per status
+            TypedQuery<Object[]> query = em.createQuery(
+                "SELECT COUNT(b), " +
+                "SUM(CASE WHEN b.status = 'PENDING' THEN 1 ELSE 0 END), " +
+                "SUM(CASE WHEN b.status = 'PAID' THEN 1 ELSE 0 END), " +
+                "SUM(CASE WHEN b.status = 'CANCELLED' THEN 1 ELSE 0 END) " +
+                "FROM Bill b",
+                Object[].class
+            );
+            Object[] row = query.getSingleResult();
+            return new BillStatistics(toLong(row[0]), toLong(row[1]), toLong(row[2]), toLong(row[3]));
+        });
     }
     
     @Override
-    public long[] getBillStatistics() {
-        // Total bills
-        TypedQuery<Long> totalQuery = getEntityManager().createQuery(
-            "SELECT COUNT(b) FROM Bill b", Long.class
-        );
-        long totalBills = totalQuery.getSingleResult();
-        
-        // Pending bills
-        TypedQuery<Long> pendingQuery = getEntityManager().createQuery(
-            "SELECT COUNT(b) FROM Bill b WHERE b.status = 'PENDING'", Long.class
-        );
-        long pendingBills = pendingQuery.getSingleResult();
-        
-        // Paid bills
-        TypedQuery<Long> paidQuery = getEntityManager().createQuery(
-            "SELECT COUNT(b) FROM Bill b WHERE b.status = 'PAID'", Long.class
-        );
-        long paidBills = paidQuery.getSingleResult();
-        
-        // Cancelled bills
-        TypedQuery<Long> cancelledQuery = getEntityManager().createQuery(
-            "SELECT COUNT(b) FROM Bill b WHERE b.status = 'CANCELLED'", Long.class
-        );
-        long cancelledBills = cancelledQuery.getSingleResult();
-        
-        return new long[]{totalBills, pendingBills, paidBills, cancelledBills};
+    public List<Object[]> getPendingBillCountsByCustomer() {
+        return executeQuery(em -> {
+            TypedQuery<Object[]> query = em.createQuery(
+                "SELECT b.customer.accountNumber, COUNT(b) " +
+                "FROM Bill b " +
+                "WHERE b.status = 'PENDING' " +
+                "GROUP BY b.customer.accountNumber",
+                Object[].class
+            );
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Object[]> getDailyRevenue(LocalDate startDate, LocalDate endDate) {
-        TypedQuery<Object[]> query = getEntityManager().createQuery(
-            "SELECT b.billDate, COALESCE(SUM(b.totalAmount), 0) " +
-            "FROM Bill b " +
-            "WHERE b.billDate BETWEEN :startDate AND :endDate AND b.status = 'PAID' " +
-            "GROUP BY b.billDate " +
-            "ORDER BY b.billDate", 
-            Object[].class
-        );
-        query.setParameter("startDate", startDate);
-        query.setParameter("endDate", endDate);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Object[]> query = em.createQuery(
+                "SELECT b.billDate, COALESCE(SUM(b.totalAmount), 0) " +
+                "FROM Bill b " +
+                "WHERE b.billDate BETWEEN :startDate AND :endDate AND b.status = 'PAID' " +
+                "GROUP BY b.billDate " +
+                "ORDER BY b.billDate", 
+                Object[].class
+            );
+            query.setParameter("startDate", startDate);
+            query.setParameter("endDate", endDate);
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Object[]> getMonthlyRevenue(int year) {
-        TypedQuery<Object[]> query = getEntityManager().createQuery(
-            "SELECT EXTRACT(MONTH FROM b.billDate), COALESCE(SUM(b.totalAmount), 0) " +
-            "FROM Bill b " +
-            "WHERE EXTRACT(YEAR FROM b.billDate) = :year AND b.status = 'PAID' " +
-            "GROUP BY EXTRACT(MONTH FROM b.billDate) " +
-            "ORDER BY EXTRACT(MONTH FROM b.billDate)", 
-            Object[].class
-        );
-        query.setParameter("year", year);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Object[]> query = em.createQuery(
+                "SELECT EXTRACT(MONTH FROM b.billDate), COALESCE(SUM(b.totalAmount), 0) " +
+                "FROM Bill b " +
+                "WHERE EXTRACT(YEAR FROM b.billDate) = :year AND b.status = 'PAID' " +
+                "GROUP BY EXTRACT(MONTH FROM b.billDate) " +
+                "ORDER BY EXTRACT(MONTH FROM b.billDate)", 
+                Object[].class
+            );
+            query.setParameter("year", year);
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Object[]> getTopCustomersByRevenue(int limit) {
-        TypedQuery<Object[]> query = getEntityManager().createQuery(
-            "SELECT b.customer, COALESCE(SUM(b.totalAmount), 0) " +
-            "FROM Bill b " +
-            "WHERE b.status = 'PAID' " +
-            "GROUP BY b.customer " +
-            "ORDER BY SUM(b.totalAmount) DESC", 
-            Object[].class
-        );
-        query.setMaxResults(limit);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Object[]> query = em.createQuery(
+                "SELECT b.customer, COALESCE(SUM(b.totalAmount), 0) " +
+                "FROM Bill b " +
+                "WHERE b.status = 'PAID' " +
+                "GROUP BY b.customer " +
+                "ORDER BY SUM(b.totalAmount) DESC", 
+                Object[].class
+            );
+            query.setMaxResults(limit);
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Bill> searchBills(String customerName, Bill.BillStatus status, 
                                  LocalDate startDate, LocalDate endDate, 
                                  BigDecimal minAmount, BigDecimal maxAmount) {
-        StringBuilder jpql = new StringBuilder("SELECT b FROM Bill b WHERE 1=1");
-        
-        if (customerName != null && !customerName.trim().isEmpty()) {
-            jpql.append(" AND LOWER(b.customer.name) LIKE LOWER(:customerName)");
-        }
-        if (status != null) {
-            jpql.append(" AND b.status = :status");
-        }
-        if (startDate != null) {
-            jpql.append(" AND b.billDate >= :startDate");
-        }
-        if (endDate != null) {
-            jpql.append(" AND b.billDate <= :endDate");
-        }
-        if (minAmount != null) {
-            jpql.append(" AND b.totalAmount >= :minAmount");
-        }
-        if (maxAmount != null) {
-            jpql.append(" AND b.totalAmount <= :maxAmount");
-        }
-        
-        jpql.append(" ORDER BY b.billDate DESC");
-        
-        TypedQuery<Bill> query = createQuery(jpql.toString());
-        
-        if (customerName != null && !customerName.trim().isEmpty()) {
-            query.setParameter("customerName", "%" + customerName.trim() + "%");
-        }
-        if (status != null) {
-            query.setParameter("status", status);
-        }
-        if (startDate != null) {
-            query.setParameter("startDate", startDate);
-        }
-        if (endDate != null) {
-            query.setParameter("endDate", endDate);
-        }
-        if (minAmount != null) {
-            query.setParameter("minAmount", minAmount);
+        return executeQuery(em -> {
+            StringBuilder jpql = new StringBuilder("SELECT b FROM Bill b WHERE 1=1");
+            
+            if (customerName != null && !customerName.trim().isEmpty()) {
+                jpql.append(" AND LOWER(b.customer.name) LIKE LOWER(:customerName)");
+            }
+            if (status != null) {
+                jpql.append(" AND b.status = :status");
+            }
+            if (startDate != null) {
+                jpql.append(" AND b.billDate >= :startDate");
+            }
+            if (endDate != null) {
+                jpql.append(" AND b.billDate <= :endDate");
+            }
+            if (minAmount != null) {
+                jpql.append(" AND b.totalAmount >= :minAmount");
+            }
+            if (maxAmount != null) {
+                jpql.append(" AND b.totalAmount <= :maxAmount");
+            }
+            
+            jpql.append(" ORDER BY b.billDate DESC");
+            
+            TypedQuery<Bill> query = em.createQuery(jpql.toString(), Bill.class);
+            
+            if (customerName != null && !customerName.trim().isEmpty()) {
+                query.setParameter("customerName", "%" + customerName.trim() + "%");
+            }
+            if (status != null) {
+                query.setParameter("status", status);
+            }
+            if (startDate != null) {
+                query.setParameter("startDate", startDate);
+            }
+            if (endDate != null) {
+                query.setParameter("endDate", endDate);
+            }
+            if (minAmount != null) {
+                query.setParameter("minAmount", minAmount);
+            }
+            if (maxAmount != null) {
+                query.setParameter("maxAmount", maxAmount);
+            }
+            
+            return query.getResultList();
+        });
+    }
+    
+    @Override
+    public Page<Bill> findPage(BillFilter filter, Cursor after, int limit) {
+        if (filter == null || filter.isEmpty()) {
+            return findPage(after, limit, null);
         }
-        if (maxAmount != null) {
-            query.setParameter("maxAmount", maxAmount);
+        return findPage(after, limit, null, (cb, root) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.getStatus() != null) {
+                predicates.add(cb.equal(root.get("status"), filter.getStatus()));
+            }
+            if (filter.getFromDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("billDate"), filter.getFromDate()));
+            }
+            if (filter.getToDate() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("billDate"), filter.getToDate()));
+            }
+            if (filter.getCustomer() != null) {
+                predicates.add(cb.or(
+                    cb.equal(root.get("customer").get("accountNumber"), filter.getCustomer()),
+                    cb.like(cb.lower(root.get("customer").get("name")),
+                            containsPattern(filter.getCustomer().toLowerCase()), LIKE_ESCAPE)
+                ));
+            }
+            return predicates;
+        });
+    }
+    
+    @Override
+    public Map<Long, Long> getItemCounts(Collection<Long> billIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (billIds == null || billIds.isEmpty()) {
+            return counts;
         }
-        
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Object[]> query = em.createQuery(
+                "SELECT bi.bill.billId, SUM(bi.quantity) FROM BillItem bi " +
+                "WHERE bi.bill.billId IN :billIds GROUP BY bi.bill.billId",
+                Object[].class
+            );
+            query.setParameter("billIds", billIds);
+            for (Object[] row : query.getResultList()) {
+                counts.put((Long) row[0], toLong(row[1]));
+            }
+            return counts;
+        });
     }
 }
@@ -1,9 +1,11 @@
 package com.pahanaedu.dao.impl;
 
 import com.pahanaedu.dao.CustomerDAO;
+import com.pahanaedu.dao.SortSpec;
 import com.pahanaedu.model.Customer;
+import com.pahanaedu.dto.CustomerStatistics;
+import com.pahanaedu.dto.CustomerSummary;
 import javax.ejb.Stateless;
-import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
 import java.time.LocalDate;
@@ -17,6 +19,14 @@ import java.util.Optional;
 @Stateless
 public class CustomerDAOImpl extends BaseDAOImpl<Customer, String> implements CustomerDAO {
     
+    /**
+     * Alphabetical; matches idx_customers_name (name, account_number)
+     */
+    @Override
+    protected SortSpec defaultSort() {
+        return SortSpec.of(SortSpec.Direction.ASC, "name", "accountNumber");
+    }
+    
     @Override
     public Optional<Customer> findByAccountNumber(String accountNumber) {
         return findById(accountNumber);
@@ -24,102 +34,95 @@ public class CustomerDAOImpl extends BaseDAOImpl<Customer, String> implements Cu
     
     @Override
     public List<Customer> findByNameContaining(String name) {
-        EntityManager em = getEntityManager();
-        try {
+        return executeQuery(em -> {
             TypedQuery<Customer> query = em.createQuery(
                 "SELECT c FROM Customer c WHERE LOWER(c.name) LIKE LOWER(:name) ORDER BY c.name", Customer.class
             );
             query.setParameter("name", "%" + name + "%");
             return query.getResultList();
-        } finally {
-            if (entityManager == null) {
-                em.close();
-            }
-        }
+        });
     }
     
     @Override
     public List<Customer> findByTelephoneNumber(String telephoneNumber) {
-        EntityManager em = getEntityManager();
-        try {
+        return executeQuery(em -> {
             TypedQuery<Customer> query = em.createQuery(
                 "SELECT c FROM Customer c WHERE c.telephoneNumber = :telephoneNumber ORDER BY c.name", Customer.class
             );
             query.setParameter("telephoneNumber", telephoneNumber);
             return query.getResultList();
-        } finally {
-            if (entityManager == null) {
-                em.close();
-            }
-        }
+        });
     }
     
     @Override
     public List<Customer> findActiveCustomers() {
-        EntityManager em = getEntityManager();
-        try {
+        return executeQuery(em -> {
             TypedQuery<Customer> query = em.createQuery(
                 "SELECT c FROM Customer c WHERE c.active = true ORDER BY c.name", Customer.class
             );
             return query.getResultList();
-        } finally {
-            if (entityManager == null) {
-                em.close();
-            }
-        }
+        });
     }
     
     @Override
     public List<Customer> findByRegistrationDateBetween(LocalDate startDate, LocalDate endDate) {
-        TypedQuery<Customer> query = createQuery(
-            "SELECT c FROM Customer c WHERE c.registrationDate BETWEEN :startDate AND :endDate ORDER BY c.registrationDate DESC"
-        );
-        query.setParameter("startDate", startDate);
-        query.setParameter("endDate", endDate);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Customer> query = em.createQuery(
+                "SELECT c FROM Customer c WHERE c.registrationDate BETWEEN :startDate AND :endDate ORDER BY c.registrationDate DESC", Customer.class
+            );
+            query.setParameter("startDate", startDate);
+            query.setParameter("endDate", endDate);
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Customer> findCustomersWithPendingBills() {
-        TypedQuery<Customer> query = createQuery(
-            "SELECT DISTINCT c FROM Customer c JOIN c.bills b WHERE b.status = 'PENDING' ORDER BY c.name"
-        );
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Customer> query = em.createQuery(
+                "SELECT DISTINCT c FROM Customer c JOIN c.bills b WHERE b.status = 'PENDING' ORDER BY c.name", Customer.class
+            );
+            return query.getResultList();
+        });
     }
     
     @Override
     public String generateNextAccountNumber() {
-        try {
-            // Use the database function to generate account number
-            javax.persistence.Query query = getEntityManager().createNativeQuery(
-                "SELECT generate_account_number()"
-            );
-            return (String) query.getSingleResult();
-        } catch (Exception e) {
-            // Fallback to application-level generation
-            TypedQuery<String> query = getEntityManager().createQuery(
-                "SELECT MAX(c.accountNumber) FROM Customer c WHERE c.accountNumber LIKE 'ACC%'", String.class
-            );
-            String maxAccountNumber = query.getSingleResult();
+        return executeQuery(em -> {
+            try {
+                // Use the database function to generate account number
+                javax.persistence.Query query = em.createNativeQuery(
+                    "SELECT generate_account_number()"
+                );
+                return (String) query.getSingleResult();
+            } catch (Exception e) {
+                // Fallback to application-level generation
+                TypedQuery<String> query = em.createQuery(
+                    "SELECT MAX(c.accountNumber) FROM Customer c WHERE c.accountNumber LIKE 'ACC%'", String.class
+                );
+                String maxAccountNumber = query.getSingleResult();
             
-            if (maxAccountNumber == null) {
-                return "ACC000001";
-            }
+                if (maxAccountNumber == null) {
+                    return "ACC000001";
+                }
             
-            // Extract number part and increment
-            String numberPart = maxAccountNumber.substring(3);
-            int nextNumber = Integer.parseInt(numberPart) + 1;
-            return String.format("ACC%06d", nextNumber);
-        }
+                // Extract number part and increment
+                String numberPart = maxAccountNumber.substring(3);
+                int nextNumber = Integer.parseInt(numberPart) + 1;
+                return String.format("ACC%06d", nextNumber);
+            }
+        });
     }
     
     @Override
     public boolean accountNumberExists(String accountNumber) {
-        TypedQuery<Long> query = getEntityManager().createQuery(
-            "SELECT COUNT(c) FROM Customer c WHERE c.accountNumber = :accountNumber", Long.class
-        );
-        query.setParameter("accountNumber", accountNumber);
-        return query.getSingleResult() > 0;
+        return executeQuery(em -> {
+            TypedQuery<Long> query = em.createQuery(
+                "SELECT COUNT(c) FROM Customer c WHERE c.accountNumber = :accountNumber", Long.class
+            );
+            query.setParameter("accountNumber", accountNumber);
+            return query.getSingleResult() > 0;
+        });
     }
     
     @Override
@@ -135,8 +138,7 @@ public class CustomerDAOImpl extends BaseDAOImpl<Customer, String> implements Cu
     
     @Override
     public List<Customer> searchCustomers(String name, String telephoneNumber, Boolean active) {
-        EntityManager em = getEntityManager();
-        try {
+        return executeQuery(em -> {
             StringBuilder jpql = new StringBuilder("SELECT c FROM Customer c WHERE 1=1");
             
             if (name != null && !name.trim().isEmpty()) {
@@ -164,41 +166,69 @@ public class CustomerDAOImpl extends BaseDAOImpl<Customer, String> implements Cu
             }
             
             return query.getResultList();
-        } finally {
-            if (entityManager == null) {
-                em.close();
-            }
-        }
+        });
     }
     
     @Override
-    public long[] getCustomerStatistics() {
-        EntityManager em = getEntityManager();
-        try {
-            // Total customers
-            TypedQuery<Long> totalQuery = em.createQuery(
-                "SELECT COUNT(c) FROM Customer c", Long.class
+    public CustomerStatistics getCustomerStatistics() {
+        return executeQuery(em -> {
+            // One scan over customers; the join only matches pending bills, so it adds few rows
+            TypedQuery<Object[]> query = em.createQuery(
+                "SELECT COUNT(DISTINCT c.accountNumber), " +
+                "COUNT(DISTINCT CASE WHEN c.active = true THEN c.accountNumber END), " +
+                "COUNT(DISTINCT b.customer.accountNumber) " +
+                "FROM Customer c LEFT JOIN c.bills b ON b.status = 'PENDING'",
+                Object[].class
             );
-            long totalCustomers = totalQuery.getSingleResult();
-            
-            // Active customers
-            TypedQuery<Long> activeQuery = em.createQuery(
-                "SELECT COUNT(c) FROM Customer c WHERE c.active = true", Long.class
+            Object[] row = query.getSingleResult();
+            return new CustomerStatistics(toLong(row[0]), toLong(row[1]), toLong(row[2]));
+        });
+    }
+    
+    @Override
+    public List<String> findInactiveAccountNumbers() {
+        return executeQuery(em -> {
+            TypedQuery<String> query = em.createQuery(
+                "SELECT c.accountNumber FROM Customer c WHERE c.active = false", String.class
             );
-            long activeCustomers = activeQuery.getSingleResult();
+            return query.getResultList();
+        });
+    }
+    
+    @Override
+    public List<CustomerSummary> findSummaries(String name, String telephoneNumber, Boolean active) {
+        return executeQuery(em -> {
+            // Only the address prefix shown in lists is read, plus one character to tell if it was cut
+            StringBuilder jpql = new StringBuilder(
+                "SELECT NEW com.pahanaedu.dto.CustomerSummary(c.accountNumber, c.name, " +
+                "SUBSTRING(c.address, 1, " + (CustomerSummary.PREVIEW_LENGTH + 1) + "), " +
+                "c.telephoneNumber, c.registrationDate, c.active) FROM Customer c WHERE 1=1");
             
-            // Customers with pending bills - simplified query
-            TypedQuery<Long> pendingQuery = em.createQuery(
-                "SELECT COUNT(c) FROM Customer c WHERE c.active = true", Long.class
-            );
-            long customersWithPendingBills = 0; // Simplified for now
+            if (name != null && !name.trim().isEmpty()) {
+                jpql.append(" AND LOWER(c.name) LIKE LOWER(:name)");
+            }
+            if (telephoneNumber != null && !telephoneNumber.trim().isEmpty()) {
+                jpql.append(" AND c.telephoneNumber = :telephoneNumber");
+            }
+            if (active != null) {
+                jpql.append(" AND c.active = :active");
+            }
+            
+            jpql.append(" ORDER BY c.name, c.accountNumber");
             
-            return new long[]{totalCustomers, activeCustomers, customersWithPendingBills};
-        } finally {
-            if (entityManager == null) {
-                em.close();
+            TypedQuery<CustomerSummary> query = createProjectionQuery(em, jpql.toString(), CustomerSummary.class);
+            
+            if (name != null && !name.trim().isEmpty()) {
+                query.setParameter("name", "%" + name.trim() + "%");
             }
-        }
+            if (telephoneNumber != null && !telephoneNumber.trim().isEmpty()) {
+                query.setParameter("telephoneNumber", telephoneNumber.trim());
+            }
+            if (active != null) {
+                query.setParameter("active", active);
+            }
+            
+            return query.getResultList();
+        });
     }
 }
-
@@ -1,11 +1,24 @@
 package com.pahanaedu.dao.impl;
 
 import com.pahanaedu.dao.ItemDAO;
+import com.pahanaedu.dao.SortSpec;
 import com.pahanaedu.model.Item;
+import com.pahanaedu.dto.ItemStatistics;
+import com.pahanaedu.dto.ItemSummary;
+import com.pahanaedu.util.CatalogVersion;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.query.NativeQuery;
 import javax.ejb.Stateless;
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
 import javax.persistence.TypedQuery;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -15,71 +28,109 @@ import java.util.Optional;
 @Stateless
 public class ItemDAOImpl extends BaseDAOImpl<Item, Long> implements ItemDAO {
     
+    private static final String STOCK_QUERY_SPACE = "items_stock";
+    
+    /**
+     * Alphabetical; matches idx_items_name (item_name, item_id)
+     */
+    @Override
+    protected SortSpec defaultSort() {
+        return SortSpec.of(SortSpec.Direction.ASC, "itemName", "itemId");
+    }
+    
     @Override
     public Optional<Item> findByItemId(Long itemId) {
         return findById(itemId);
     }
     
+    @Override
+    public List<Item> findByItemIds(List<Long> itemIds) {
+        return executeQuery(em -> {
+            List<Item> items = new ArrayList<>(itemIds.size());
+            for (Long itemId : itemIds) {
+                Item item = em.find(Item.class, itemId);
+                if (item != null) {
+                    items.add(item);
+                }
+            }
+            return items;
+        });
+    }
+    
     @Override
     public List<Item> findByItemNameContaining(String itemName) {
-        TypedQuery<Item> query = createQuery(
-            "SELECT i FROM Item i WHERE LOWER(i.itemName) LIKE LOWER(:itemName) ORDER BY i.itemName"
-        );
-        query.setParameter("itemName", "%" + itemName + "%");
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Item> query = em.createQuery(
+                "SELECT i FROM Item i WHERE LOWER(i.itemName) LIKE LOWER(:itemName) ORDER BY i.itemName", Item.class
+            );
+            query.setParameter("itemName", "%" + itemName + "%");
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Item> findByCategory(String category) {
-        TypedQuery<Item> query = createQuery(
-            "SELECT i FROM Item i WHERE LOWER(i.category) LIKE LOWER(:category) ORDER BY i.itemName"
-        );
-        query.setParameter("category", "%" + category + "%");
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Item> query = em.createQuery(
+                "SELECT i FROM Item i WHERE LOWER(i.category) LIKE LOWER(:category) ORDER BY i.itemName", Item.class
+            );
+            query.setParameter("category", "%" + category + "%");
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Item> findByStockQuantityGreaterThan(int minQuantity) {
-        TypedQuery<Item> query = createQuery(
-            "SELECT i FROM Item i WHERE i.stockQuantity > :minQuantity ORDER BY i.itemName"
-        );
-        query.setParameter("minQuantity", minQuantity);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Item> query = em.createQuery(
+                "SELECT i FROM Item i WHERE i.stockQuantity > :minQuantity ORDER BY i.itemName", Item.class
+            );
+            query.setParameter("minQuantity", minQuantity);
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Item> findOutOfStockItems() {
-        TypedQuery<Item> query = createQuery(
-            "SELECT i FROM Item i WHERE i.stockQuantity = 0 ORDER BY i.itemName"
-        );
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Item> query = em.createQuery(
+                "SELECT i FROM Item i WHERE i.stockQuantity = 0 ORDER BY i.itemName", Item.class
+            );
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Item> findLowStockItems(int threshold) {
-        TypedQuery<Item> query = createQuery(
-            "SELECT i FROM Item i WHERE i.stockQuantity > 0 AND i.stockQuantity <= :threshold ORDER BY i.stockQuantity, i.itemName"
-        );
-        query.setParameter("threshold", threshold);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Item> query = em.createQuery(
+                "SELECT i FROM Item i WHERE i.stockQuantity > 0 AND i.stockQuantity <= :threshold ORDER BY i.stockQuantity, i.itemName", Item.class
+            );
+            query.setParameter("threshold", threshold);
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<Item> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
-        TypedQuery<Item> query = createQuery(
-            "SELECT i FROM Item i WHERE i.unitPrice BETWEEN :minPrice AND :maxPrice ORDER BY i.unitPrice"
-        );
-        query.setParameter("minPrice", minPrice);
-        query.setParameter("maxPrice", maxPrice);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Item> query = em.createQuery(
+                "SELECT i FROM Item i WHERE i.unitPrice BETWEEN :minPrice AND :maxPrice ORDER BY i.unitPrice", Item.class
+            );
+            query.setParameter("minPrice", minPrice);
+            query.setParameter("maxPrice", maxPrice);
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<String> findAllCategories() {
-        TypedQuery<String> query = getEntityManager().createQuery(
-            "SELECT DISTINCT i.category FROM Item i WHERE i.category IS NOT NULL ORDER BY i.category", String.class
-        );
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<String> query = em.createQuery(
+                "SELECT DISTINCT i.category FROM Item i WHERE i.category IS NOT NULL ORDER BY i.category", String.class
+            );
+            return query.getResultList();
+        });
     }
     
     @Override
@@ -95,103 +146,310 @@ public class ItemDAOImpl extends BaseDAOImpl<Item, Long> implements ItemDAO {
     
     @Override
     public Item increaseStock(Long itemId, int quantity) {
-        Optional<Item> itemOpt = findByItemId(itemId);
-        if (itemOpt.isPresent()) {
-            Item item = itemOpt.get();
-            item.increaseStock(quantity);
-            return update(item);
-        }
-        throw new IllegalArgumentException("Item not found: " + itemId);
+        return executeInTransaction(em -> {
+            incrementStock(itemId, quantity);
+            return reloadItem(em, itemId);
+        });
     }
     
     @Override
     public Item decreaseStock(Long itemId, int quantity) {
-        Optional<Item> itemOpt = findByItemId(itemId);
-        if (itemOpt.isPresent()) {
-            Item item = itemOpt.get();
-            item.reduceStock(quantity);
-            return update(item);
-        }
-        throw new IllegalArgumentException("Item not found: " + itemId);
+        return executeInTransaction(em -> {
+            decrementStock(itemId, quantity);
+            return reloadItem(em, itemId);
+        });
     }
     
     @Override
-    public List<Item> searchItems(String itemName, String category, BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly) {
-        StringBuilder jpql = new StringBuilder("SELECT i FROM Item i WHERE 1=1");
-        
-        if (itemName != null && !itemName.trim().isEmpty()) {
-            jpql.append(" AND LOWER(i.itemName) LIKE LOWER(:itemName)");
-        }
-        if (category != null && !category.trim().isEmpty()) {
-            jpql.append(" AND LOWER(i.category) LIKE LOWER(:category)");
-        }
-        if (minPrice != null) {
-            jpql.append(" AND i.unitPrice >= :minPrice");
-        }
-        if (maxPrice != null) {
-            jpql.append(" AND i.unitPrice <= :maxPrice");
-        }
-        if (inStockOnly) {
-            jpql.append(" AND i.stockQuantity > 0");
+    public int decrementStock(Long itemId, int quantity) {
+        return executeInTransaction(em -> {
+            int updated = createStockUpdate(em,
+                "UPDATE items SET stock_quantity = stock_quantity - :quantity " +
+                "WHERE item_id = :itemId AND stock_quantity >= :quantity"
+            )
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+            if (updated == 0) {
+                throw stockUpdateFailure(em, itemId, quantity);
+            }
+            evict(em, Collections.singleton(itemId));
+            return updated;
+        });
+    }
+    
+    @Override
+    public int incrementStock(Long itemId, int quantity) {
+        return executeInTransaction(em -> {
+            int updated = createStockUpdate(em,
+                "UPDATE items SET stock_quantity = stock_quantity + :quantity WHERE item_id = :itemId"
+            )
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+            if (updated == 0) {
+                throw new IllegalArgumentException("Item not found: " + itemId);
+            }
+            evict(em, Collections.singleton(itemId));
+            return updated;
+        });
+    }
+    
+    @Override
+    public int adjustStock(Map<Long, Integer> deltas) {
+        if (deltas == null || deltas.isEmpty()) {
+            return 0;
         }
         
-        jpql.append(" ORDER BY i.itemName");
-        
-        TypedQuery<Item> query = createQuery(jpql.toString());
+        // UPDATE ... SET stock = stock + CASE id WHEN :id0 THEN :delta0 ... END, guarded against going negative
+        StringBuilder delta = new StringBuilder("CASE item_id");
+        for (int index = 0; index < deltas.size(); index++) {
+            delta.append(" WHEN :id").append(index).append(" THEN :delta").append(index);
+        }
+        delta.append(" ELSE 0 END");
+        String sql = "UPDATE items SET stock_quantity = stock_quantity + " + delta +
+                " WHERE item_id IN (:itemIds) AND stock_quantity + " + delta + " >= 0";
         
-        if (itemName != null && !itemName.trim().isEmpty()) {
-            query.setParameter("itemName", "%" + itemName.trim() + "%");
+        return executeInTransaction(em -> {
+            javax.persistence.Query query = createStockUpdate(em, sql);
+            int index = 0;
+            for (Map.Entry<Long, Integer> entry : deltas.entrySet()) {
+                query.setParameter("id" + index, entry.getKey());
+                query.setParameter("delta" + index, entry.getValue());
+                index++;
+            }
+            query.setParameter("itemIds", deltas.keySet());
+            
+            int updated = query.executeUpdate();
+            if (updated != deltas.size()) {
+                // Throwing rolls back the rows that did match
+                for (Long itemId : deltas.keySet()) {
+                    if (findStockQuantity(em, itemId) == null) {
+                        throw new IllegalArgumentException("Item not found: " + itemId);
+                    }
+                }
+                throw new IllegalArgumentException("Insufficient stock for stock adjustment " + deltas);
+            }
+            evict(em, deltas.keySet());
+            return updated;
+        });
+    }
+    
+    @Override
+    public Optional<Integer> findStoredStockQuantity(Long itemId) {
+        return executeQuery(em -> {
+            List<Integer> result = em.createQuery(
+                "SELECT i.stockQuantity FROM Item i WHERE i.itemId = :itemId", Integer.class
+            )
+                .setParameter("itemId", itemId)
+                .setFlushMode(FlushModeType.COMMIT)
+                .getResultList();
+            return result.isEmpty() ? Optional.empty() : Optional.ofNullable(result.get(0));
+        });
+    }
+    
+    @Override
+    public List<Object[]> getStockLedger() {
+        return executeQuery(em -> {
+            TypedQuery<Object[]> query = em.createQuery(
+                "SELECT i.itemId, i.stockQuantity, " +
+                "COALESCE(SUM(CASE WHEN b.status <> 'CANCELLED' THEN bi.quantity ELSE 0 END), 0) " +
+                "FROM Item i LEFT JOIN i.billItems bi LEFT JOIN bi.bill b " +
+                "GROUP BY i.itemId, i.stockQuantity " +
+                "ORDER BY i.itemId",
+                Object[].class
+            );
+            return query.getResultList();
+        });
+    }
+    
+    @Override
+    public boolean isStockTriggerInstalled() {
+        return executeQuery(em -> {
+            javax.persistence.Query query = em.createNativeQuery(
+                "SELECT COUNT(*) FROM information_schema.triggers WHERE LOWER(trigger_name) = 'trigger_update_stock'"
+            );
+            return ((Number) query.getSingleResult()).longValue() > 0;
+        });
+    }
+    
+    @Override
+    public void evictFromCache(Collection<Long> itemIds) {
+        if (itemIds == null || itemIds.isEmpty()) {
+            return;
         }
-        if (category != null && !category.trim().isEmpty()) {
-            query.setParameter("category", "%" + category.trim() + "%");
+        executeQuery(em -> {
+            evict(em, itemIds);
+            return null;
+        });
+    }
+    
+    /**
+     * Native stock update in its own query space
+     * Hibernate clears the whole item cache region after a bulk update on Item; with a
+     * query space of its own only the touched items are evicted (see evict). Managed
+     * Item instances are neither flushed first nor refreshed, as with the bulk update
+     */
+    private javax.persistence.Query createStockUpdate(EntityManager em, String sql) {
+        return em.createNativeQuery(sql)
+            .unwrap(NativeQuery.class)
+            .addSynchronizedQuerySpace(STOCK_QUERY_SPACE);
+    }
+    
+    /**
+     * Evict items from the second-level cache now and again when the transaction ends,
+     * since a concurrent load can put the old row back before this transaction commits.
+     * The next read of each item loads it back through the caller's EntityManager. Every
+     * stock change passes through here, so it also moves the catalog version
+     */
+    private void evict(EntityManager em, Collection<Long> itemIds) {
+        CatalogVersion.ITEMS.changed(em);
+        Cache cache = em.getEntityManagerFactory().getCache();
+        List<Long> ids = new ArrayList<>(itemIds);
+        ids.forEach(id -> cache.evict(Item.class, id));
+        
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        if (session.isTransactionInProgress()) {
+            session.getActionQueue().registerProcess((success, completedSession) ->
+                ids.forEach(id -> cache.evict(Item.class, id)));
         }
-        if (minPrice != null) {
-            query.setParameter("minPrice", minPrice);
+    }
+    
+    /**
+     * Build the exception for a guarded stock update that matched no row
+     */
+    private IllegalArgumentException stockUpdateFailure(EntityManager em, Long itemId, int quantity) {
+        Integer available = findStockQuantity(em, itemId);
+        if (available == null) {
+            return new IllegalArgumentException("Item not found: " + itemId);
         }
-        if (maxPrice != null) {
-            query.setParameter("maxPrice", maxPrice);
+        return new IllegalArgumentException("Insufficient stock. Available: " + available + ", Required: " + quantity);
+    }
+    
+    /**
+     * Read the current stock column without loading the entity
+     * @return Stock quantity or null if the item does not exist
+     */
+    private Integer findStockQuantity(EntityManager em, Long itemId) {
+        List<Integer> result = em.createQuery(
+            "SELECT i.stockQuantity FROM Item i WHERE i.itemId = :itemId", Integer.class
+        )
+            .setParameter("itemId", itemId)
+            .getResultList();
+        return result.isEmpty() ? null : result.get(0);
+    }
+    
+    /**
+     * Load the item after a bulk update, refreshing it if it was already managed
+     */
+    private Item reloadItem(EntityManager em, Long itemId) {
+        Item item = em.find(Item.class, itemId);
+        if (item != null) {
+            em.refresh(item);
         }
-        
-        return query.getResultList();
+        return item;
     }
     
     @Override
-    public long[] getItemStatistics(int lowStockThreshold) {
-        // Total items
-        TypedQuery<Long> totalQuery = getEntityManager().createQuery(
-            "SELECT COUNT(i) FROM Item i", Long.class
-        );
-        long totalItems = totalQuery.getSingleResult();
-        
-        // Items in stock
-        TypedQuery<Long> inStockQuery = getEntityManager().createQuery(
-            "SELECT COUNT(i) FROM Item i WHERE i.stockQuantity > 0", Long.class
-        );
-        long itemsInStock = inStockQuery.getSingleResult();
-        
-        // Out of stock items
-        TypedQuery<Long> outOfStockQuery = getEntityManager().createQuery(
-            "SELECT COUNT(i) FROM Item i WHERE i.stockQuantity = 0", Long.class
-        );
-        long outOfStockItems = outOfStockQuery.getSingleResult();
-        
-        // Low stock items
-        TypedQuery<Long> lowStockQuery = getEntityManager().createQuery(
-            "SELECT COUNT(i) FROM Item i WHERE i.stockQuantity > 0 AND i.stockQuantity <= :threshold", Long.class
-        );
-        lowStockQuery.setParameter("threshold", lowStockThreshold);
-        long lowStockItems = lowStockQuery.getSingleResult();
-        
-        return new long[]{totalItems, itemsInStock, outOfStockItems, lowStockItems};
+    public List<Item> searchItems(String itemName, String category, BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly) {
+        return executeQuery(em -> {
+            StringBuilder jpql = new StringBuilder("SELECT i FROM Item i WHERE 1=1");
+            
+            if (itemName != null && !itemName.trim().isEmpty()) {
+                jpql.append(" AND LOWER(i.itemName) LIKE LOWER(:itemName)");
+            }
+            if (category != null && !category.trim().isEmpty()) {
+                jpql.append(" AND LOWER(i.category) LIKE LOWER(:category)");
+            }
+            if (minPrice != null) {
+                jpql.append(" AND i.unitPrice >= :minPrice");
+            }
+            if (maxPrice != null) {
+                jpql.append(" AND i.unitPrice <= :maxPrice");
+            }
+            if (inStockOnly) {
+                jpql.append(" AND i.stockQuantity > 0");
+            }
+            
+            jpql.append(" ORDER BY i.itemName");
+            
+            TypedQuery<Item> query = em.createQuery(jpql.toString(), Item.class);
+            
+            if (itemName != null && !itemName.trim().isEmpty()) {
+                query.setParameter("itemName", "%" + itemName.trim() + "%");
+            }
+            if (category != null && !category.trim().isEmpty()) {
+                query.setParameter("category", "%" + category.trim() + "%");
+            }
+            if (minPrice != null) {
+                query.setParameter("minPrice", minPrice);
+            }
+            if (maxPrice != null) {
+                query.setParameter("maxPrice", maxPrice);
+            }
+            
+            return query.getResultList();
+        });
+    }
+    
+    @Override
+    public ItemStatistics getItemStatistics(int lowStockThreshold) {
+        return executeQuery(em -> {
+            // One scan over items with a conditional count per stock bucket
+            TypedQuery<Object[]> query = em.createQuery(
+                "SELECT COUNT(i), " +
+                "SUM(CASE WHEN i.stockQuantity > 0 THEN 1 ELSE 0 END), " +
+                "SUM(CASE WHEN i.stockQuantity = 0 THEN 1 ELSE 0 END), " +
+                "SUM(CASE WHEN i.stockQuantity > 0 AND i.stockQuantity <= :threshold THEN 1 ELSE 0 END) " +
+                "FROM Item i",
+                Object[].class
+            );
+            query.setParameter("threshold", lowStockThreshold);
+            Object[] row = query.getSingleResult();
+            return new ItemStatistics(toLong(row[0]), toLong(row[1]), toLong(row[2]), toLong(row[3]));
+        });
     }
     
     @Override
     public List<Item> getTopSellingItems(int limit) {
-        TypedQuery<Item> query = createQuery(
-            "SELECT i FROM Item i JOIN i.billItems bi GROUP BY i ORDER BY SUM(bi.quantity) DESC"
-        );
-        query.setMaxResults(limit);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<Item> query = em.createQuery(
+                "SELECT i FROM Item i JOIN i.billItems bi GROUP BY i ORDER BY SUM(bi.quantity) DESC", Item.class
+            );
+            query.setMaxResults(limit);
+            return query.getResultList();
+        });
+    }
+    
+    @Override
+    public List<ItemSummary> findSummaries(String itemName, String category, boolean inStockOnly) {
+        return executeQuery(em -> {
+            StringBuilder jpql = new StringBuilder(
+                "SELECT NEW com.pahanaedu.dto.ItemSummary(i.itemId, i.itemName, i.unitPrice, i.stockQuantity, i.category) " +
+                "FROM Item i WHERE 1=1");
+            
+            if (itemName != null && !itemName.trim().isEmpty()) {
+                jpql.append(" AND LOWER(i.itemName) LIKE LOWER(:itemName)");
+            }
+            if (category != null && !category.trim().isEmpty()) {
+                jpql.append(" AND LOWER(i.category) LIKE LOWER(:category)");
+            }
+            if (inStockOnly) {
+                jpql.append(" AND i.stockQuantity > 0");
+            }
+            
+            jpql.append(" ORDER BY i.itemName, i.itemId");
+            
+            TypedQuery<ItemSummary> query = createProjectionQuery(em, jpql.toString(), ItemSummary.class);
+            
+            if (itemName != null && !itemName.trim().isEmpty()) {
+                query.setParameter("itemName", "%" + itemName.trim() + "%");
+            }
+            if (category != null && !category.trim().isEmpty()) {
+                query.setParameter("category", "%" + category.trim() + "%");
+            }
+            
+            return query.getResultList();
+        });
     }
 }
-
@@ -17,59 +17,69 @@ public class UserDAOImpl extends BaseDAOImpl<User, String> implements UserDAO {
     
     @Override
     public Optional<User> findByUsernameAndPassword(String username, String passwordHash) {
-        try {
-            TypedQuery<User> query = createQuery(
-                "SELECT u FROM User u WHERE u.username = :username AND u.passwordHash = :passwordHash AND u.active = true"
-            );
-            query.setParameter("username", username);
-            query.setParameter("passwordHash", passwordHash);
+        return executeQuery(em -> {
+            try {
+                TypedQuery<User> query = em.createQuery(
+                    "SELECT u FROM User u WHERE u.username = :username AND u.passwordHash = :passwordHash AND u.active = true", User.class
+                );
+                query.setParameter("username", username);
+                query.setParameter("passwordHash", passwordHash);
             
-            User user = query.getSingleResult();
-            return Optional.of(user);
-        } catch (NoResultException e) {
-            return Optional.empty();
-        }
+                User user = query.getSingleResult();
+                return Optional.of(user);
+            } catch (NoResultException e) {
+                return Optional.empty();
+            }
+        });
     }
     
     @Override
     public Optional<User> findByUsername(String username) {
-        try {
-            TypedQuery<User> query = createQuery(
-                "SELECT u FROM User u WHERE u.username = :username"
-            );
-            query.setParameter("username", username);
+        return executeQuery(em -> {
+            try {
+                TypedQuery<User> query = em.createQuery(
+                    "SELECT u FROM User u WHERE u.username = :username", User.class
+                );
+                query.setParameter("username", username);
             
-            User user = query.getSingleResult();
-            return Optional.of(user);
-        } catch (NoResultException e) {
-            return Optional.empty();
-        }
+                User user = query.getSingleResult();
+                return Optional.of(user);
+            } catch (NoResultException e) {
+                return Optional.empty();
+            }
+        });
     }
     
     @Override
     public List<User> findActiveUsers() {
-        TypedQuery<User> query = createQuery(
-            "SELECT u FROM User u WHERE u.active = true ORDER BY u.username"
-        );
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<User> query = em.createQuery(
+                "SELECT u FROM User u WHERE u.active = true ORDER BY u.username", User.class
+            );
+            return query.getResultList();
+        });
     }
     
     @Override
     public List<User> findByRole(User.UserRole role) {
-        TypedQuery<User> query = createQuery(
-            "SELECT u FROM User u WHERE u.role = :role ORDER BY u.username"
-        );
-        query.setParameter("role", role);
-        return query.getResultList();
+        return executeQuery(em -> {
+            TypedQuery<User> query = em.createQuery(
+                "SELECT u FROM User u WHERE u.role = :role ORDER BY u.username", User.class
+            );
+            query.setParameter("role", role);
+            return query.getResultList();
+        });
     }
     
     @Override
     public boolean usernameExists(String username) {
-        TypedQuery<Long> query = getEntityManager().createQuery(
-            "SELECT COUNT(u) FROM User u WHERE u.username = :username", Long.class
-        );
-        query.setParameter("username", username);
-        return query.getSingleResult() > 0;
+        return executeQuery(em -> {
+            TypedQuery<Long> query = em.createQuery(
+                "SELECT COUNT(u) FROM User u WHERE u.username = :username", Long.class
+            );
+            query.setParameter("username", username);
+            return query.getSingleResult() > 0;
+        });
     }
     
     @Override
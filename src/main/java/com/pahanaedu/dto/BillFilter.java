@@ -0,0 +1,56 @@
+package com.pahanaedu.dto;
+
+import com.pahanaedu.model.Bill;
+
+import java.time.LocalDate;
+
+/**
+ * Filter for the paginated bill listing; null fields do not restrict
+ */
+public final class BillFilter {
+    
+    private final Bill.BillStatus status;
+    private final LocalDate fromDate;
+    private final LocalDate toDate;
+    private final String customer;
+    
+    /**
+     * @param status Bill status
+     * @param fromDate First bill date (inclusive)
+     * @param toDate Last bill date (inclusive)
+     * @param customer Account number, or part of the customer name
+     */
+    public BillFilter(Bill.BillStatus status, LocalDate fromDate, LocalDate toDate, String customer) {
+        if (fromDate != null && toDate != null && fromDate.isAfter(toDate)) {
+            throw new IllegalArgumentException("Start date cannot be after end date");
+        }
+        this.status = status;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.customer = customer != null && !customer.trim().isEmpty() ? customer.trim() : null;
+    }
+    
+    public static BillFilter none() {
+        return new BillFilter(null, null, null, null);
+    }
+    
+    public Bill.BillStatus getStatus() {
+        return status;
+    }
+    
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+    
+    public LocalDate getToDate() {
+        return toDate;
+    }
+    
+    public String getCustomer() {
+        return customer;
+    }
+    
+    public boolean isEmpty() {
+        return status == null && fromDate == null && toDate == null && customer == null;
+    }
+}
@@ -0,0 +1,41 @@
+package com.pahanaedu.dto;
+
+/**
+ * Bill counts by status, computed in one aggregate query
+ */
+public final class BillStatistics {
+    
+    private final long totalBills;
+    private final long pendingBills;
+    private final long paidBills;
+    private final long cancelledBills;
+    
+    public BillStatistics(long totalBills, long pendingBills, long paidBills, long cancelledBills) {
+        this.totalBills = totalBills;
+        this.pendingBills = pendingBills;
+        this.paidBills = paidBills;
+        this.cancelledBills = cancelledBills;
+    }
+    
+    public long getTotalBills() {
+        return totalBills;
+    }
+    
+    public long getPendingBills() {
+        return pendingBills;
+    }
+    
+    public long getPaidBills() {
+        return paidBills;
+    }
+    
+    public long getCancelledBills() {
+        return cancelledBills;
+    }
+    
+    @Override
+    public String toString() {
+        return "BillStatistics{total=" + totalBills + ", pending=" + pendingBills +
+               ", paid=" + paidBills + ", cancelled=" + cancelledBills + "}";
+    }
+}
@@ -0,0 +1,68 @@
+package com.pahanaedu.dto;
+
+import com.pahanaedu.model.Customer;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable copy of a customer's own fields, safe to share between requests
+ * Used by CustomerCache; edits still go through the Customer entity
+ */
+public final class CustomerDetails {
+    
+    private final String accountNumber;
+    private final String name;
+    private final String address;
+    private final String telephoneNumber;
+    private final LocalDate registrationDate;
+    private final boolean active;
+    
+    public CustomerDetails(String accountNumber, String name, String address, String telephoneNumber,
+                           LocalDate registrationDate, boolean active) {
+        this.accountNumber = accountNumber;
+        this.name = name;
+        this.address = address;
+        this.telephoneNumber = telephoneNumber;
+        this.registrationDate = registrationDate;
+        this.active = active;
+    }
+    
+    /**
+     * Copy the fields of a customer entity
+     * @param customer Customer
+     * @return Customer details
+     */
+    public static CustomerDetails of(Customer customer) {
+        return new CustomerDetails(customer.getAccountNumber(), customer.getName(), customer.getAddress(),
+                customer.getTelephoneNumber(), customer.getRegistrationDate(), Boolean.TRUE.equals(customer.getActive()));
+    }
+    
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public String getAddress() {
+        return address;
+    }
+    
+    public String getTelephoneNumber() {
+        return telephoneNumber;
+    }
+    
+    public LocalDate getRegistrationDate() {
+        return registrationDate;
+    }
+    
+    public boolean isActive() {
+        return active;
+    }
+    
+    @Override
+    public String toString() {
+        return "CustomerDetails{accountNumber='" + accountNumber + "', name='" + name + "', active=" + active + "}";
+    }
+}
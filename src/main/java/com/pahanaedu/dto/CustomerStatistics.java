@@ -0,0 +1,35 @@
+package com.pahanaedu.dto;
+
+/**
+ * Customer counts, computed in one aggregate query
+ */
+public final class CustomerStatistics {
+    
+    private final long totalCustomers;
+    private final long activeCustomers;
+    private final long customersWithPendingBills;
+    
+    public CustomerStatistics(long totalCustomers, long activeCustomers, long customersWithPendingBills) {
+        this.totalCustomers = totalCustomers;
+        this.activeCustomers = activeCustomers;
+        this.customersWithPendingBills = customersWithPendingBills;
+    }
+    
+    public long getTotalCustomers() {
+        return totalCustomers;
+    }
+    
+    public long getActiveCustomers() {
+        return activeCustomers;
+    }
+    
+    public long getCustomersWithPendingBills() {
+        return customersWithPendingBills;
+    }
+    
+    @Override
+    public String toString() {
+        return "CustomerStatistics{total=" + totalCustomers + ", active=" + activeCustomers +
+               ", withPendingBills=" + customersWithPendingBills + "}";
+    }
+}
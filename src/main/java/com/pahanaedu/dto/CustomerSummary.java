@@ -0,0 +1,82 @@
+package com.pahanaedu.dto;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Read-only customer row for list pages and customer pickers
+ * Built by a constructor-expression query; only the first PREVIEW_LENGTH characters
+ * of the address are read
+ */
+public final class CustomerSummary {
+    
+    /**
+     * Address characters shown in lists
+     */
+    public static final int PREVIEW_LENGTH = 30;
+    
+    private final String accountNumber;
+    private final String name;
+    private final String addressPreview;
+    private final String telephoneNumber;
+    private final LocalDate registrationDate;
+    private final boolean active;
+    
+    /**
+     * @param address Address prefix of at most PREVIEW_LENGTH + 1 characters, so longer
+     *                addresses can be shown with an ellipsis
+     */
+    public CustomerSummary(String accountNumber, String name, String address, String telephoneNumber,
+                           LocalDate registrationDate, Boolean active) {
+        this.accountNumber = accountNumber;
+        this.name = name;
+        this.addressPreview = address != null && address.length() > PREVIEW_LENGTH
+                ? address.substring(0, PREVIEW_LENGTH) + "..." : address;
+        this.telephoneNumber = telephoneNumber;
+        this.registrationDate = registrationDate;
+        this.active = Boolean.TRUE.equals(active);
+    }
+    
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Address shortened to PREVIEW_LENGTH characters with a trailing ellipsis
+     */
+    public String getAddressPreview() {
+        return addressPreview;
+    }
+    
+    public String getTelephoneNumber() {
+        return telephoneNumber;
+    }
+    
+    public LocalDate getRegistrationDate() {
+        return registrationDate;
+    }
+    
+    /**
+     * Get registration date as java.util.Date for JSTL fmt:formatDate
+     */
+    public Date getRegistrationDateAsDate() {
+        if (registrationDate == null) {
+            return null;
+        }
+        return Date.from(registrationDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+    
+    public boolean isActive() {
+        return active;
+    }
+    
+    @Override
+    public String toString() {
+        return "CustomerSummary{accountNumber='" + accountNumber + "', name='" + name + "', active=" + active + "}";
+    }
+}
@@ -0,0 +1,44 @@
+package com.pahanaedu.dto;
+
+/**
+ * Item stock counts, computed in one aggregate query
+ */
+public final class ItemStatistics {
+    
+    private final long totalItems;
+    private final long itemsInStock;
+    private final long outOfStockItems;
+    private final long lowStockItems;
+    
+    public ItemStatistics(long totalItems, long itemsInStock, long outOfStockItems, long lowStockItems) {
+        this.totalItems = totalItems;
+        this.itemsInStock = itemsInStock;
+        this.outOfStockItems = outOfStockItems;
+        this.lowStockItems = lowStockItems;
+    }
+    
+    public long getTotalItems() {
+        return totalItems;
+    }
+    
+    public long getItemsInStock() {
+        return itemsInStock;
+    }
+    
+    public long getOutOfStockItems() {
+        return outOfStockItems;
+    }
+    
+    /**
+     * Items in stock at or below the requested threshold
+     */
+    public long getLowStockItems() {
+        return lowStockItems;
+    }
+    
+    @Override
+    public String toString() {
+        return "ItemStatistics{total=" + totalItems + ", inStock=" + itemsInStock +
+               ", outOfStock=" + outOfStockItems + ", lowStock=" + lowStockItems + "}";
+    }
+}
@@ -0,0 +1,55 @@
+package com.pahanaedu.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only item row for list pages and item pickers
+ * Built by a constructor-expression query, so it never becomes a managed entity
+ * and the description column is not read
+ */
+public final class ItemSummary {
+    
+    private final Long itemId;
+    private final String itemName;
+    private final BigDecimal unitPrice;
+    private final int stockQuantity;
+    private final String category;
+    
+    public ItemSummary(Long itemId, String itemName, BigDecimal unitPrice, Integer stockQuantity, String category) {
+        this.itemId = itemId;
+        this.itemName = itemName;
+        this.unitPrice = unitPrice;
+        this.stockQuantity = stockQuantity != null ? stockQuantity : 0;
+        this.category = category;
+    }
+    
+    public Long getItemId() {
+        return itemId;
+    }
+    
+    public String getItemName() {
+        return itemName;
+    }
+    
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+    
+    public int getStockQuantity() {
+        return stockQuantity;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public boolean isInStock() {
+        return stockQuantity > 0;
+    }
+    
+    @Override
+    public String toString() {
+        return "ItemSummary{itemId=" + itemId + ", itemName='" + itemName + "', unitPrice=" + unitPrice +
+               ", stockQuantity=" + stockQuantity + ", category='" + category + "'}";
+    }
+}
@@ -0,0 +1,81 @@
+package com.pahanaedu.dto;
+
+import com.pahanaedu.model.User;
+
+import java.io.Serializable;
+import java.security.Principal;
+
+/**
+ * Immutable view of the logged-in user kept in the HTTP session
+ * Holds only what authorization needs, never the password hash. The version is the
+ * CatalogVersion.USERS counter at the time the principal was built; AuthenticationFilter
+ * reloads the user when it no longer matches
+ */
+public final class UserPrincipal implements Principal, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String username;
+    private final User.UserRole role;
+    private final boolean active;
+    private final long version;
+
+    public UserPrincipal(String username, User.UserRole role, boolean active, long version) {
+        this.username = username;
+        this.role = role;
+        this.active = active;
+        this.version = version;
+    }
+
+    /**
+     * Copy the fields of a user entity
+     * @param user User
+     * @param version User version the entity was read at
+     * @return User principal
+     */
+    public static UserPrincipal of(User user, long version) {
+        return new UserPrincipal(user.getUsername(), user.getRole(), user.isActive(), version);
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public User.UserRole getRole() {
+        return role;
+    }
+
+    /**
+     * Get the role name, as shown in the navigation bar
+     * @return Role name, or null if the user has no role
+     */
+    public String getRoleName() {
+        return role != null ? role.name() : null;
+    }
+
+    public boolean isAdmin() {
+        return role == User.UserRole.ADMIN;
+    }
+
+    public boolean isOperator() {
+        return role == User.UserRole.OPERATOR;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "UserPrincipal{username='" + username + "', role=" + role + ", active=" + active + ", version=" + version + "}";
+    }
+}
@@ -16,7 +16,8 @@ import java.util.Objects;
 public class Bill {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bill_seq")
+    @SequenceGenerator(name = "bill_seq", sequenceName = "bills_bill_id_seq", allocationSize = 50)
     @Column(name = "bill_id")
     private Long billId;
     
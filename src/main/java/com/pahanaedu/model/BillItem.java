@@ -13,7 +13,8 @@ import java.util.Objects;
 public class BillItem {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bill_item_seq")
+    @SequenceGenerator(name = "bill_item_seq", sequenceName = "bill_items_bill_item_id_seq", allocationSize = 50)
     @Column(name = "bill_item_id")
     private Long billItemId;
     
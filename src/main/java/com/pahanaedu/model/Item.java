@@ -1,5 +1,8 @@
 package com.pahanaedu.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -9,13 +12,21 @@ import java.util.Objects;
 /**
  * Item entity representing bookshop inventory items
  * Each item has stock quantity and can be included in multiple bills
+ * Cached in the "item" second-level cache region; stock updates that bypass the entity
+ * (bulk updates, the stock trigger) evict the affected items from it, and the next read
+ * loads them back
  */
 @Entity
 @Table(name = "items")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Item.CACHE_REGION)
 public class Item {
     
+    public static final String CACHE_REGION = "item";
+    
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+    @SequenceGenerator(name = "item_seq", sequenceName = "items_item_id_seq", allocationSize = 50)
     @Column(name = "item_id")
     private Long itemId;
     
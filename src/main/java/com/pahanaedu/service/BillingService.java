@@ -1,10 +1,14 @@
 package com.pahanaedu.service;
 
+import com.pahanaedu.dao.Page;
 import com.pahanaedu.model.Bill;
 import com.pahanaedu.model.Customer;
+import com.pahanaedu.dto.BillFilter;
+import com.pahanaedu.dto.BillStatistics;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -143,9 +147,9 @@ public interface BillingService {
     
     /**
      * Get bill statistics
-     * @return Array containing [totalBills, pendingBills, paidBills, cancelledBills]
+     * @return Bill counts by status
      */
-    long[] getBillStatistics();
+    BillStatistics getBillStatistics();
     
     /**
      * Get daily revenue for date range
@@ -189,6 +193,23 @@ public interface BillingService {
      */
     List<Bill> getAllBills();
     
+    /**
+     * Get one page of bills for the management listing, newest first
+     * Line items are not loaded; use findById for a bill's details
+     * @param filter Listing filter
+     * @param afterToken Next-page token from the previous page, or null for the first page
+     * @param limit Page size
+     * @return Page of bills
+     */
+    Page<Bill> getBillsPage(BillFilter filter, String afterToken, int limit);
+    
+    /**
+     * Count item units for listed bills without loading their line items
+     * @param bills Bills
+     * @return Map of bill ID to total quantity
+     */
+    Map<Long, Long> getItemCounts(List<Bill> bills);
+    
     /**
      * Delete bill
      * @param billId Bill ID
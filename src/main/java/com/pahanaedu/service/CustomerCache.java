@@ -0,0 +1,261 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.dao.CustomerDAO;
+import com.pahanaedu.dao.impl.CustomerDAOImpl;
+import com.pahanaedu.dto.CustomerDetails;
+import com.pahanaedu.dto.CustomerSummary;
+import com.pahanaedu.util.CacheAccessEvent;
+import com.pahanaedu.util.ServiceFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache of customers by account number, plus the full customer list used by
+ * the billing customer picker
+ * Entries expire after the TTL; past the size bound the oldest entries are dropped first.
+ * Services that change customers call invalidate, which also drops the list. A load that
+ * started before an invalidation is not stored, so it cannot put the old row back. Lookups
+ * are raised as CacheAccessEvents for Flight Recorder
+ *
+ * Settings (system properties, defaults in brackets): pahanaedu.customer.cache.ttl.seconds [300],
+ * pahanaedu.customer.cache.max_entries [5000]
+ */
+public class CustomerCache {
+
+    private final CustomerDAO customerDAO;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Insertion order, for dropping the oldest entries past maxEntries
+    private final ConcurrentLinkedQueue<KeyedEntry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private volatile ListEntry summaries;
+    // Bumped by every invalidation; loads compare it before storing their result
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CustomerCache() {
+        this(ServiceFactory.getMetricsRegistry().instrument(CustomerDAO.class, new CustomerDAOImpl(), "dao"),
+             Long.getLong("pahanaedu.customer.cache.ttl.seconds", 300), TimeUnit.SECONDS,
+             Integer.getInteger("pahanaedu.customer.cache.max_entries", 5000));
+    }
+
+    public CustomerCache(CustomerDAO customerDAO, long ttl, TimeUnit unit, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        this.customerDAO = customerDAO;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Get a customer, loading it on a miss
+     * Unknown account numbers are not cached
+     * @param accountNumber Account number
+     * @return Customer details if the customer exists
+     */
+    public Optional<CustomerDetails> get(String accountNumber) {
+        if (accountNumber == null) {
+            return Optional.empty();
+        }
+        CacheAccessEvent event = new CacheAccessEvent();
+        event.begin();
+        long now = System.nanoTime();
+        Entry entry = entries.get(accountNumber);
+        if (entry != null && entry.expiresAt - now > 0) {
+            hits.increment();
+            commit(event, "customer", accountNumber, true);
+            return Optional.of(entry.value);
+        }
+        misses.increment();
+
+        try {
+            long loadGeneration = generation.get();
+            Optional<CustomerDetails> loaded = customerDAO.findByAccountNumber(accountNumber).map(CustomerDetails::of);
+            if (loaded.isPresent()) {
+                store(accountNumber, new Entry(loaded.get(), System.nanoTime() + ttlNanos), loadGeneration);
+            }
+            return loaded;
+        } finally {
+            commit(event, "customer", accountNumber, false);
+        }
+    }
+
+    /**
+     * Get summaries of all customers, ordered by name, loading them on a miss
+     * @return Customer summaries
+     */
+    public List<CustomerSummary> getSummaries() {
+        CacheAccessEvent event = new CacheAccessEvent();
+        event.begin();
+        ListEntry current = summaries;
+        if (current != null && current.expiresAt - System.nanoTime() > 0) {
+            hits.increment();
+            commit(event, "customerList", null, true);
+            return current.value;
+        }
+        misses.increment();
+
+        try {
+            long loadGeneration = generation.get();
+            List<CustomerSummary> loaded = Collections.unmodifiableList(customerDAO.findSummaries(null, null, null));
+            synchronized (this) {
+                if (generation.get() == loadGeneration) {
+                    summaries = new ListEntry(loaded, System.nanoTime() + ttlNanos);
+                }
+            }
+            return loaded;
+        } finally {
+            commit(event, "customerList", null, false);
+        }
+    }
+
+    /**
+     * Fill in and commit a lookup event if a recording wants it
+     */
+    private static void commit(CacheAccessEvent event, String cache, String key, boolean hit) {
+        if (event.shouldCommit()) {
+            event.cache = cache;
+            event.key = key;
+            event.hit = hit;
+            event.commit();
+        }
+    }
+
+    /**
+     * Drop a customer, and the customer list, after the customer changed
+     * @param accountNumber Account number
+     */
+    public void invalidate(String accountNumber) {
+        synchronized (this) {
+            generation.incrementAndGet();
+            summaries = null;
+        }
+        if (accountNumber != null) {
+            entries.remove(accountNumber);
+        }
+        invalidations.increment();
+    }
+
+    /**
+     * Drop everything
+     */
+    public void invalidateAll() {
+        synchronized (this) {
+            generation.incrementAndGet();
+            summaries = null;
+        }
+        entries.clear();
+        insertionOrder.clear();
+        invalidations.increment();
+    }
+
+    private void store(String accountNumber, Entry entry, long loadGeneration) {
+        synchronized (this) {
+            if (generation.get() != loadGeneration) {
+                return;
+            }
+            entries.put(accountNumber, entry);
+        }
+        insertionOrder.add(new KeyedEntry(accountNumber, entry));
+        while (entries.size() > maxEntries) {
+            KeyedEntry oldest = insertionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            // Skip queue records of entries that were already replaced or removed
+            if (entries.remove(oldest.key, oldest.entry)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Get a snapshot of the cache counters
+     * @return Cache statistics
+     */
+    public Statistics getStatistics() {
+        return new Statistics(entries.size(), maxEntries, hits.sum(), misses.sum(), evictions.sum(), invalidations.sum());
+    }
+
+    private static final class Entry {
+        final CustomerDetails value;
+        final long expiresAt;
+
+        Entry(CustomerDetails value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class KeyedEntry {
+        final String key;
+        final Entry entry;
+
+        KeyedEntry(String key, Entry entry) {
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    private static final class ListEntry {
+        final List<CustomerSummary> value;
+        final long expiresAt;
+
+        ListEntry(List<CustomerSummary> value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Point-in-time counters of the cache
+     */
+    public static final class Statistics {
+        private final int size;
+        private final int maxEntries;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long invalidations;
+
+        Statistics(int size, int maxEntries, long hits, long misses, long evictions, long invalidations) {
+            this.size = size;
+            this.maxEntries = maxEntries;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.invalidations = invalidations;
+        }
+
+        public int getSize() { return size; }
+        public int getMaxEntries() { return maxEntries; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getInvalidations() { return invalidations; }
+
+        public double getHitRatio() {
+            long lookups = hits + misses;
+            return lookups > 0 ? (double) hits / lookups : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("CustomerCache.Statistics{size=%d/%d, hits=%d, misses=%d, hitRatio=%.2f, evictions=%d, invalidations=%d}",
+                    size, maxEntries, hits, misses, getHitRatio(), evictions, invalidations);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.pahanaedu.service;
 
 import com.pahanaedu.model.Customer;
+import com.pahanaedu.dto.CustomerDetails;
+import com.pahanaedu.dto.CustomerStatistics;
+import com.pahanaedu.dto.CustomerSummary;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -44,6 +47,13 @@ public interface CustomerService {
      */
     Optional<Customer> findByAccountNumber(String accountNumber);
     
+    /**
+     * Find customer details by account number, served from CustomerCache
+     * @param accountNumber Customer account number
+     * @return Optional containing customer details if found
+     */
+    Optional<CustomerDetails> getCustomerDetails(String accountNumber);
+    
     /**
      * Search customers by name
      * @param name Customer name (partial match)
@@ -101,11 +111,21 @@ public interface CustomerService {
      */
     List<Customer> searchCustomers(String name, String telephoneNumber, Boolean active);
     
+    /**
+     * Search customers as read-only summaries for list pages and pickers
+     * With no criteria the list comes from CustomerCache and must not be modified
+     * @param name Customer name (partial match, optional)
+     * @param telephoneNumber Telephone number (optional)
+     * @param active Active status filter (optional)
+     * @return List of matching customer summaries, ordered by name
+     */
+    List<CustomerSummary> getCustomerSummaries(String name, String telephoneNumber, Boolean active);
+    
     /**
      * Get customer statistics
-     * @return Array containing [totalCustomers, activeCustomers, customersWithPendingBills]
+     * @return Total, active and pending-bill customer counts
      */
-    long[] getCustomerStatistics();
+    CustomerStatistics getCustomerStatistics();
     
     /**
      * Validate customer data
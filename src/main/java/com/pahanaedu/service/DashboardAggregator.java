@@ -0,0 +1,342 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.dto.BillStatistics;
+import com.pahanaedu.dto.CustomerStatistics;
+import com.pahanaedu.dto.ItemStatistics;
+import com.pahanaedu.util.EntityManagerHolder;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the dashboard widgets in parallel
+ * Each widget runs on the executor in its own EntityManager scope, so page latency is that
+ * of the slowest widget rather than the sum of all of them. A widget that fails, runs past
+ * its timeout or is rejected by a saturated executor shows its fallback values and the rest
+ * of the page is still served
+ *
+ * Widgets return detached entities; their queries must fetch what the JSP renders. Counts
+ * and revenue are read from DashboardSnapshot when it is loaded, without using the executor
+ *
+ * Settings (system properties, defaults in brackets): pahanaedu.dashboard.threads [4],
+ * pahanaedu.dashboard.widget.timeout.ms [2000]
+ */
+public class DashboardAggregator {
+
+    private static final Logger logger = Logger.getLogger(DashboardAggregator.class.getName());
+
+    /**
+     * Low stock threshold used by the dashboard
+     */
+    public static final int LOW_STOCK_THRESHOLD = 10;
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ExecutorService executor;
+    private final List<Widget> widgets = new ArrayList<>();
+
+    /**
+     * @param entityManagerFactory Factory for the per-widget EntityManagers, or null to run
+     *                             widgets without a scope (container-managed persistence)
+     * @param executor Executor the widgets run on
+     */
+    public DashboardAggregator(EntityManagerFactory entityManagerFactory, ExecutorService executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+        this.entityManagerFactory = entityManagerFactory;
+        this.executor = executor;
+    }
+
+    /**
+     * Create the aggregator with the dashboard's standard widgets
+     * @param customerService Customer service
+     * @param itemService Item service
+     * @param billingService Billing service
+     * @param entityManagerFactory Factory for the per-widget EntityManagers, or null
+     * @param executor Executor the widgets run on
+     * @return Dashboard aggregator
+     */
+    public static DashboardAggregator forServices(CustomerService customerService, ItemService itemService,
+                                                  BillingService billingService, EntityManagerFactory entityManagerFactory,
+                                                  ExecutorService executor) {
+        return forServices(customerService, itemService, billingService, null, entityManagerFactory, executor);
+    }
+
+    /**
+     * Create the aggregator with the dashboard's standard widgets, reading counts and revenue
+     * from the snapshot once it is loaded
+     * @param customerService Customer service
+     * @param itemService Item service
+     * @param billingService Billing service
+     * @param snapshot Snapshot fed by the same services, or null to always query
+     * @param entityManagerFactory Factory for the per-widget EntityManagers, or null
+     * @param executor Executor the widgets run on
+     * @return Dashboard aggregator
+     */
+    public static DashboardAggregator forServices(CustomerService customerService, ItemService itemService,
+                                                  BillingService billingService, DashboardSnapshot snapshot,
+                                                  EntityManagerFactory entityManagerFactory, ExecutorService executor) {
+        long timeout = Long.getLong("pahanaedu.dashboard.widget.timeout.ms", 2000);
+        DashboardAggregator aggregator = new DashboardAggregator(entityManagerFactory, executor);
+
+        aggregator.widget("customerStatistics", timeout,
+                snapshot != null ? () -> snapshot.getCustomerStatistics().map(DashboardAggregator::attributes).orElse(null) : null,
+                () -> attributes(customerService.getCustomerStatistics()),
+                attributes("totalCustomers", 0L, "activeCustomers", 0L, "customersWithPendingBills", 0L));
+
+        aggregator.widget("itemStatistics", timeout,
+                snapshot != null ? () -> snapshot.getItemStatistics().map(DashboardAggregator::attributes).orElse(null) : null,
+                () -> attributes(itemService.getItemStatistics(LOW_STOCK_THRESHOLD)),
+                attributes("totalItems", 0L, "itemsInStock", 0L, "outOfStockItems", 0L, "lowStockItems", 0L));
+
+        aggregator.widget("billStatistics", timeout,
+                snapshot != null ? () -> snapshot.getBillStatistics().map(DashboardAggregator::attributes).orElse(null) : null,
+                () -> attributes(billingService.getBillStatistics()),
+                attributes("totalBills", 0L, "pendingBills", 0L, "paidBills", 0L, "cancelledBills", 0L));
+
+        aggregator.widget("recentCustomers", timeout,
+                () -> attributes("recentCustomers", customerService.getCustomersWithPagination(0, 5)),
+                attributes("recentCustomers", Collections.emptyList()));
+        aggregator.widget("lowStockItemsList", timeout,
+                () -> attributes("lowStockItemsList", itemService.getLowStockItems(LOW_STOCK_THRESHOLD)),
+                attributes("lowStockItemsList", Collections.emptyList()));
+        aggregator.widget("pendingBillsList", timeout,
+                () -> attributes("pendingBillsList", billingService.getPendingBills()),
+                attributes("pendingBillsList", Collections.emptyList()));
+        aggregator.widget("todaysBills", timeout,
+                () -> attributes("todaysBills", billingService.getTodaysBills()),
+                attributes("todaysBills", Collections.emptyList()));
+
+        aggregator.widget("todaysRevenue", timeout,
+                snapshot != null ? () -> {
+                    LocalDate today = LocalDate.now();
+                    return snapshot.getRevenue(today, today).map(revenue -> attributes("todaysRevenue", revenue)).orElse(null);
+                } : null,
+                () -> {
+                    LocalDate today = LocalDate.now();
+                    return attributes("todaysRevenue", billingService.calculateRevenueForPeriod(today, today));
+                },
+                attributes("todaysRevenue", BigDecimal.ZERO));
+        aggregator.widget("monthlyRevenue", timeout,
+                snapshot != null ? () -> {
+                    LocalDate today = LocalDate.now();
+                    return snapshot.getRevenue(today.withDayOfMonth(1), today)
+                            .map(revenue -> attributes("monthlyRevenue", revenue)).orElse(null);
+                } : null,
+                () -> {
+                    LocalDate today = LocalDate.now();
+                    return attributes("monthlyRevenue", billingService.calculateRevenueForPeriod(today.withDayOfMonth(1), today));
+                },
+                attributes("monthlyRevenue", BigDecimal.ZERO));
+
+        return aggregator;
+    }
+
+    /**
+     * Create the bounded executor for dashboard widgets
+     * When all threads are busy and the queue is full, new widgets are rejected and load() shows
+     * their fallback values, so a burst of dashboard requests never runs queries on the request
+     * thread or holds more connections than there are threads
+     * @param threads Number of worker threads, which also caps the connections the widgets hold
+     * @return Executor; shut it down when the application stops
+     */
+    public static ExecutorService newExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(threads * 16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-widget-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Add a widget
+     * @param name Widget name, used in logs
+     * @param timeoutMillis Time the page waits for this widget, counted from the start of load()
+     * @param query Query producing the widget's request attributes
+     * @param fallback Attributes shown when the query fails, times out or is rejected
+     * @return This aggregator
+     */
+    public DashboardAggregator widget(String name, long timeoutMillis, Callable<Map<String, Object>> query,
+                                      Map<String, Object> fallback) {
+        return widget(name, timeoutMillis, null, query, fallback);
+    }
+
+    /**
+     * Add a widget whose attributes may be available without a query
+     * @param name Widget name, used in logs
+     * @param timeoutMillis Time the page waits for this widget, counted from the start of load()
+     * @param snapshot Reads the attributes from memory on the requesting thread, returning null
+     *                 when they are not available; null if the widget always queries
+     * @param query Query producing the widget's request attributes
+     * @param fallback Attributes shown when the query fails, times out or is rejected
+     * @return This aggregator
+     */
+    public DashboardAggregator widget(String name, long timeoutMillis, Supplier<Map<String, Object>> snapshot,
+                                      Callable<Map<String, Object>> query, Map<String, Object> fallback) {
+        widgets.add(new Widget(name, timeoutMillis, snapshot, query, fallback));
+        return this;
+    }
+
+    /**
+     * Run all widgets and collect their attributes
+     * @return Attributes of every widget, with fallbacks for those that failed
+     */
+    public Result load() {
+        long start = System.nanoTime();
+        Map<String, Object> attributes = new HashMap<>();
+        List<String> degraded = new ArrayList<>();
+        List<Future<Map<String, Object>>> futures = new ArrayList<>(widgets.size());
+        for (Widget widget : widgets) {
+            Map<String, Object> cached = widget.snapshot != null ? widget.snapshot.get() : null;
+            if (cached != null) {
+                attributes.putAll(cached);
+                futures.add(null);
+                continue;
+            }
+            try {
+                futures.add(executor.submit(() -> run(widget)));
+            } catch (RejectedExecutionException e) {
+                logger.warning("Dashboard widget " + widget.name + " rejected: executor saturated");
+                attributes.putAll(widget.fallback);
+                degraded.add(widget.name);
+                futures.add(null);
+            }
+        }
+
+        for (int i = 0; i < widgets.size(); i++) {
+            Widget widget = widgets.get(i);
+            Future<Map<String, Object>> future = futures.get(i);
+            if (future == null) {
+                continue;
+            }
+            long remaining = widget.timeoutNanos - (System.nanoTime() - start);
+            try {
+                attributes.putAll(future.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS));
+                continue;
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                logger.warning("Dashboard widget " + widget.name + " timed out after "
+                        + TimeUnit.NANOSECONDS.toMillis(widget.timeoutNanos) + " ms");
+            } catch (ExecutionException e) {
+                logger.log(Level.WARNING, "Dashboard widget " + widget.name + " failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+            }
+            attributes.putAll(widget.fallback);
+            degraded.add(widget.name);
+        }
+        return new Result(attributes, degraded, System.nanoTime() - start);
+    }
+
+    private Map<String, Object> run(Widget widget) throws Exception {
+        if (entityManagerFactory == null || EntityManagerHolder.isBound()) {
+            // No factory, or an executor that runs tasks on a thread already in a scope
+            return widget.query.call();
+        }
+        EntityManagerHolder.bind(entityManagerFactory);
+        try {
+            return widget.query.call();
+        } finally {
+            EntityManagerHolder.unbind();
+        }
+    }
+
+    private static Map<String, Object> attributes(CustomerStatistics stats) {
+        return attributes("totalCustomers", stats.getTotalCustomers(),
+                          "activeCustomers", stats.getActiveCustomers(),
+                          "customersWithPendingBills", stats.getCustomersWithPendingBills());
+    }
+
+    private static Map<String, Object> attributes(ItemStatistics stats) {
+        return attributes("totalItems", stats.getTotalItems(),
+                          "itemsInStock", stats.getItemsInStock(),
+                          "outOfStockItems", stats.getOutOfStockItems(),
+                          "lowStockItems", stats.getLowStockItems());
+    }
+
+    private static Map<String, Object> attributes(BillStatistics stats) {
+        return attributes("totalBills", stats.getTotalBills(),
+                          "pendingBills", stats.getPendingBills(),
+                          "paidBills", stats.getPaidBills(),
+                          "cancelledBills", stats.getCancelledBills());
+    }
+
+    private static Map<String, Object> attributes(Object... namesAndValues) {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            attributes.put((String) namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return attributes;
+    }
+
+    private static final class Widget {
+        private final String name;
+        private final long timeoutNanos;
+        private final Supplier<Map<String, Object>> snapshot;
+        private final Callable<Map<String, Object>> query;
+        private final Map<String, Object> fallback;
+
+        private Widget(String name, long timeoutMillis, Supplier<Map<String, Object>> snapshot,
+                       Callable<Map<String, Object>> query, Map<String, Object> fallback) {
+            this.name = name;
+            this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            this.snapshot = snapshot;
+            this.query = query;
+            this.fallback = fallback;
+        }
+    }
+
+    /**
+     * Attributes collected by one load()
+     */
+    public static final class Result {
+        private final Map<String, Object> attributes;
+        private final List<String> degraded;
+        private final long elapsedNanos;
+
+        private Result(Map<String, Object> attributes, List<String> degraded, long elapsedNanos) {
+            this.attributes = Collections.unmodifiableMap(attributes);
+            this.degraded = Collections.unmodifiableList(degraded);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        /**
+         * Names of the widgets showing fallback values
+         */
+        public List<String> getDegraded() {
+            return degraded;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+    }
+}
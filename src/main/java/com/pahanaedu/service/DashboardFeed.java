@@ -0,0 +1,161 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.dto.BillStatistics;
+import com.pahanaedu.dto.CustomerStatistics;
+import com.pahanaedu.dto.ItemStatistics;
+import com.pahanaedu.util.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Dashboard figures pushed to browsers over the dashboard event stream
+ * poll() reads the figures and returns the ones that changed since the previous poll. They
+ * come from DashboardSnapshot when it is loaded, at no query cost; otherwise from the query,
+ * run at most once per query interval however many browsers are connected
+ */
+public class DashboardFeed {
+
+    private static final Logger logger = Logger.getLogger(DashboardFeed.class.getName());
+
+    private final DashboardSnapshot snapshot;
+    private final Callable<Map<String, Object>> query;
+    private final long queryIntervalNanos;
+
+    private Map<String, Object> current = Collections.emptyMap();
+    private long queriedAt;
+    private boolean queried;
+
+    /**
+     * @param snapshot Snapshot fed by the services, or null to always query
+     * @param query Loads the figures from the database, see figures()
+     * @param queryIntervalMillis Minimum time between two runs of the query
+     */
+    public DashboardFeed(DashboardSnapshot snapshot, Callable<Map<String, Object>> query, long queryIntervalMillis) {
+        this.snapshot = snapshot;
+        this.query = query;
+        this.queryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(queryIntervalMillis);
+    }
+
+    /**
+     * Build the figures the dashboard pages update live
+     * @param bills Bill counts
+     * @param items Item counts
+     * @param customers Customer counts
+     * @param todaysRevenue Revenue of bills paid today
+     * @param monthlyRevenue Revenue of bills paid this month
+     * @return Figures by the request attribute names the dashboard uses
+     */
+    public static Map<String, Object> figures(BillStatistics bills, ItemStatistics items, CustomerStatistics customers,
+                                              BigDecimal todaysRevenue, BigDecimal monthlyRevenue) {
+        Map<String, Object> figures = new LinkedHashMap<>();
+        figures.put("todaysRevenue", todaysRevenue);
+        figures.put("monthlyRevenue", monthlyRevenue);
+        figures.put("totalBills", bills.getTotalBills());
+        figures.put("pendingBills", bills.getPendingBills());
+        figures.put("paidBills", bills.getPaidBills());
+        figures.put("totalItems", items.getTotalItems());
+        figures.put("lowStockItems", items.getLowStockItems());
+        figures.put("outOfStockItems", items.getOutOfStockItems());
+        figures.put("customersWithPendingBills", customers.getCustomersWithPendingBills());
+        return figures;
+    }
+
+    /**
+     * Get the figures read by the last poll
+     * @return Figures, empty before the first successful poll
+     */
+    public synchronized Map<String, Object> getCurrent() {
+        return current;
+    }
+
+    /**
+     * Read the figures and keep them as current
+     * @return Figures that changed since the previous poll; empty if none did or the query was skipped
+     */
+    public synchronized Map<String, Object> poll() {
+        Map<String, Object> latest = read();
+        if (latest == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> changed = changes(current, latest);
+        current = Collections.unmodifiableMap(latest);
+        return changed;
+    }
+
+    private Map<String, Object> read() {
+        if (snapshot != null && snapshot.isLoaded()) {
+            LocalDate today = LocalDate.now();
+            return figures(snapshot.getBillStatistics().orElseThrow(),
+                           snapshot.getItemStatistics().orElseThrow(),
+                           snapshot.getCustomerStatistics().orElseThrow(),
+                           snapshot.getRevenue(today, today).orElse(BigDecimal.ZERO),
+                           snapshot.getRevenue(today.withDayOfMonth(1), today).orElse(BigDecimal.ZERO));
+        }
+
+        long now = System.nanoTime();
+        if (queried && now - queriedAt < queryIntervalNanos) {
+            return null;
+        }
+        queried = true;
+        queriedAt = now;
+        try {
+            return query.call();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Could not load dashboard figures", e);
+            return null;
+        }
+    }
+
+    /**
+     * Compare two sets of figures; decimals are compared by value, ignoring scale
+     * @param previous Figures sent before
+     * @param latest Figures just read
+     * @return Figures of latest that are new or differ from previous
+     */
+    static Map<String, Object> changes(Map<String, Object> previous, Map<String, Object> latest) {
+        Map<String, Object> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> figure : latest.entrySet()) {
+            Object before = previous.get(figure.getKey());
+            Object after = figure.getValue();
+            boolean same = before instanceof BigDecimal && after instanceof BigDecimal
+                    ? ((BigDecimal) before).compareTo((BigDecimal) after) == 0
+                    : Objects.equals(before, after);
+            if (!same) {
+                changed.put(figure.getKey(), after);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Write figures as one JSON object
+     * @param figures Figures, all numbers
+     * @return JSON text
+     */
+    public static String toJson(Map<String, Object> figures) {
+        StringWriter out = new StringWriter(32 * figures.size() + 2);
+        try {
+            JsonWriter json = new JsonWriter(out).beginObject();
+            for (Map.Entry<String, Object> figure : figures.entrySet()) {
+                json.name(figure.getKey()).value((Number) figure.getValue());
+            }
+            json.endObject();
+        } catch (IOException e) {
+            // StringWriter does not throw
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,485 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.dao.BillDAO;
+import com.pahanaedu.dao.CustomerDAO;
+import com.pahanaedu.dao.ItemDAO;
+import com.pahanaedu.dao.impl.BillDAOImpl;
+import com.pahanaedu.dao.impl.CustomerDAOImpl;
+import com.pahanaedu.dao.impl.ItemDAOImpl;
+import com.pahanaedu.dto.BillStatistics;
+import com.pahanaedu.dto.CustomerStatistics;
+import com.pahanaedu.dto.ItemStatistics;
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.util.EntityManagerHolder;
+import com.pahanaedu.util.MetricsRegistry;
+import com.pahanaedu.util.ServiceFactory;
+import org.hibernate.engine.spi.SessionImplementor;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Dashboard figures held in memory and kept current by the services
+ * The billing, item and customer services report each change as they make it; the change is
+ * applied when its transaction commits and dropped if it rolls back. reconcile() reloads
+ * everything from the database, at startup and then periodically from DashboardSnapshotListener,
+ * and logs any drift it corrects
+ *
+ * Reads take no lock and run no query. Until the first reconcile the snapshot is empty and
+ * the dashboard runs its queries instead
+ *
+ * Figures live in this JVM only: with several application nodes, changes made on another
+ * node show up here at the next reconcile
+ */
+public class DashboardSnapshot {
+
+    private static final Logger logger = Logger.getLogger(DashboardSnapshot.class.getName());
+
+    private static final int RECONCILE_ATTEMPTS = 3;
+
+    private final BillDAO billDAO;
+    private final ItemDAO itemDAO;
+    private final CustomerDAO customerDAO;
+    private final int lowStockThreshold;
+
+    // Guarded by this; readers only see the published Figures
+    private boolean loaded;
+    private long sequence;
+    private int inFlight;
+    private long totalBills;
+    private long pendingBills;
+    private long paidBills;
+    private long cancelledBills;
+    private final Map<String, Integer> pendingBillsByCustomer = new HashMap<>();
+    private final Map<Long, Integer> stockByItem = new HashMap<>();
+    private long itemsInStock;
+    private long outOfStockItems;
+    private long lowStockItems;
+    private long totalCustomers;
+    private final Set<String> inactiveCustomers = new HashSet<>();
+    private LocalDate revenueSince;
+    private ConcurrentHashMap<LocalDate, BigDecimal> revenueByDay = new ConcurrentHashMap<>();
+
+    private volatile Figures figures;
+
+    public DashboardSnapshot() {
+        this(ServiceFactory.getMetricsRegistry(), DashboardAggregator.LOW_STOCK_THRESHOLD);
+    }
+
+    private DashboardSnapshot(MetricsRegistry metrics, int lowStockThreshold) {
+        this(metrics.instrument(BillDAO.class, new BillDAOImpl(), "dao"),
+             metrics.instrument(ItemDAO.class, new ItemDAOImpl(), "dao"),
+             metrics.instrument(CustomerDAO.class, new CustomerDAOImpl(), "dao"), lowStockThreshold);
+    }
+
+    public DashboardSnapshot(BillDAO billDAO, ItemDAO itemDAO, CustomerDAO customerDAO, int lowStockThreshold) {
+        this.billDAO = billDAO;
+        this.itemDAO = itemDAO;
+        this.customerDAO = customerDAO;
+        this.lowStockThreshold = lowStockThreshold;
+    }
+
+    /**
+     * Whether the snapshot has been loaded from the database
+     */
+    public boolean isLoaded() {
+        return figures != null;
+    }
+
+    /**
+     * Get the bill counts by status
+     * @return Bill statistics, or empty if the snapshot is not loaded
+     */
+    public Optional<BillStatistics> getBillStatistics() {
+        Figures current = figures;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new BillStatistics(current.totalBills, current.pendingBills,
+                                              current.paidBills, current.cancelledBills));
+    }
+
+    /**
+     * Get the item counts by stock level, using the dashboard's low stock threshold
+     * @return Item statistics, or empty if the snapshot is not loaded
+     */
+    public Optional<ItemStatistics> getItemStatistics() {
+        Figures current = figures;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new ItemStatistics(current.totalItems, current.itemsInStock,
+                                              current.outOfStockItems, current.lowStockItems));
+    }
+
+    /**
+     * Get the customer counts
+     * @return Customer statistics, or empty if the snapshot is not loaded
+     */
+    public Optional<CustomerStatistics> getCustomerStatistics() {
+        Figures current = figures;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new CustomerStatistics(current.totalCustomers, current.activeCustomers,
+                                                  current.customersWithPendingBills));
+    }
+
+    /**
+     * Get the revenue of paid bills dated in a period
+     * Only days since the start of the month of the last reconcile are held
+     * @param startDate First day, inclusive
+     * @param endDate Last day, inclusive
+     * @return Revenue, or empty if the snapshot is not loaded or does not cover the period
+     */
+    public Optional<BigDecimal> getRevenue(LocalDate startDate, LocalDate endDate) {
+        Figures current = figures;
+        if (current == null || startDate.isBefore(current.revenueSince)) {
+            return Optional.empty();
+        }
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (Map.Entry<LocalDate, BigDecimal> day : current.revenueByDay.entrySet()) {
+            if (!day.getKey().isBefore(startDate) && !day.getKey().isAfter(endDate)) {
+                revenue = revenue.add(day.getValue());
+            }
+        }
+        return Optional.of(revenue);
+    }
+
+    /**
+     * Record a new pending bill
+     * @param accountNumber Customer account number
+     */
+    public void billCreated(String accountNumber) {
+        apply(() -> {
+            totalBills++;
+            pendingBills++;
+            pendingBillsByCustomer.merge(accountNumber, 1, Integer::sum);
+        });
+    }
+
+    /**
+     * Record a pending bill being paid
+     * @param accountNumber Customer account number
+     * @param billDate Bill date
+     * @param totalAmount Bill total
+     */
+    public void billPaid(String accountNumber, LocalDate billDate, BigDecimal totalAmount) {
+        apply(() -> {
+            leavePending(accountNumber);
+            paidBills++;
+            addRevenue(billDate, totalAmount);
+        });
+    }
+
+    /**
+     * Record a pending bill being cancelled
+     * @param accountNumber Customer account number
+     */
+    public void billCancelled(String accountNumber) {
+        apply(() -> {
+            leavePending(accountNumber);
+            cancelledBills++;
+        });
+    }
+
+    /**
+     * Record a bill being deleted
+     * @param accountNumber Customer account number
+     * @param status Status of the bill when it was deleted
+     * @param billDate Bill date
+     * @param totalAmount Bill total
+     */
+    public void billDeleted(String accountNumber, Bill.BillStatus status, LocalDate billDate, BigDecimal totalAmount) {
+        apply(() -> {
+            totalBills--;
+            switch (status) {
+                case PENDING:
+                    leavePending(accountNumber);
+                    break;
+                case PAID:
+                    paidBills--;
+                    addRevenue(billDate, totalAmount != null ? totalAmount.negate() : null);
+                    break;
+                case CANCELLED:
+                    cancelledBills--;
+                    break;
+                default:
+                    break;
+            }
+        });
+    }
+
+    /**
+     * Record a change in an item's stock
+     * @param itemId Item ID
+     * @param delta Change in stock quantity
+     */
+    public void stockChanged(Long itemId, int delta) {
+        if (delta != 0) {
+            apply(() -> adjustStock(itemId, delta));
+        }
+    }
+
+    /**
+     * Record changes in several items' stock
+     * @param deltas Change in stock quantity per item ID
+     */
+    public void stockChanged(Map<Long, Integer> deltas) {
+        if (!deltas.isEmpty()) {
+            Map<Long, Integer> copy = new HashMap<>(deltas);
+            apply(() -> copy.forEach(this::adjustStock));
+        }
+    }
+
+    /**
+     * Record an item's new stock quantity, adding the item if it is new
+     * @param itemId Item ID
+     * @param stockQuantity Stock quantity
+     */
+    public void stockSet(Long itemId, int stockQuantity) {
+        apply(() -> {
+            Integer previous = stockByItem.put(itemId, stockQuantity);
+            if (previous != null) {
+                countStock(previous, -1);
+            }
+            countStock(stockQuantity, 1);
+        });
+    }
+
+    /**
+     * Record an item being deleted
+     * @param itemId Item ID
+     */
+    public void itemDeleted(Long itemId) {
+        apply(() -> {
+            Integer previous = stockByItem.remove(itemId);
+            if (previous != null) {
+                countStock(previous, -1);
+            }
+        });
+    }
+
+    /**
+     * Record a new customer
+     * @param accountNumber Account number
+     * @param active Whether the customer is active
+     */
+    public void customerAdded(String accountNumber, boolean active) {
+        apply(() -> {
+            totalCustomers++;
+            if (!active) {
+                inactiveCustomers.add(accountNumber);
+            }
+        });
+    }
+
+    /**
+     * Record a customer's active flag
+     * @param accountNumber Account number
+     * @param active Whether the customer is active
+     */
+    public void customerStatusChanged(String accountNumber, boolean active) {
+        apply(() -> {
+            if (active) {
+                inactiveCustomers.remove(accountNumber);
+            } else {
+                inactiveCustomers.add(accountNumber);
+            }
+        });
+    }
+
+    /**
+     * Reload the snapshot from the database, replacing the incrementally kept figures
+     * The reload is kept only if no change was applied or pending while it ran; otherwise it
+     * is retried. A change committed outside a transaction at the same moment can still be
+     * counted twice, until the next reconcile
+     * @return true if the snapshot was replaced
+     */
+    public boolean reconcile() {
+        for (int attempt = 0; attempt < RECONCILE_ATTEMPTS; attempt++) {
+            long startSequence;
+            synchronized (this) {
+                startSequence = sequence;
+            }
+
+            LocalDate since = LocalDate.now().withDayOfMonth(1);
+            BillStatistics bills = billDAO.getBillStatistics();
+            List<Object[]> pendingByCustomer = billDAO.getPendingBillCountsByCustomer();
+            List<Object[]> dailyRevenue = billDAO.getDailyRevenue(since, since.plusMonths(1).minusDays(1));
+            List<Object[]> ledger = itemDAO.getStockLedger();
+            CustomerStatistics customers = customerDAO.getCustomerStatistics();
+            List<String> inactive = customerDAO.findInactiveAccountNumbers();
+
+            synchronized (this) {
+                if (sequence != startSequence || inFlight > 0) {
+                    continue;
+                }
+                Figures previous = figures;
+
+                totalBills = bills.getTotalBills();
+                pendingBills = bills.getPendingBills();
+                paidBills = bills.getPaidBills();
+                cancelledBills = bills.getCancelledBills();
+                pendingBillsByCustomer.clear();
+                for (Object[] row : pendingByCustomer) {
+                    pendingBillsByCustomer.put((String) row[0], ((Number) row[1]).intValue());
+                }
+
+                revenueSince = since;
+                revenueByDay = new ConcurrentHashMap<>();
+                for (Object[] row : dailyRevenue) {
+                    revenueByDay.put((LocalDate) row[0], (BigDecimal) row[1]);
+                }
+
+                stockByItem.clear();
+                itemsInStock = 0;
+                outOfStockItems = 0;
+                lowStockItems = 0;
+                for (Object[] row : ledger) {
+                    int stock = ((Number) row[1]).intValue();
+                    stockByItem.put(((Number) row[0]).longValue(), stock);
+                    countStock(stock, 1);
+                }
+
+                totalCustomers = customers.getTotalCustomers();
+                inactiveCustomers.clear();
+                inactiveCustomers.addAll(inactive);
+
+                loaded = true;
+                publish();
+                if (previous != null && !previous.sameCounts(figures)) {
+                    logger.warning("Dashboard snapshot drift corrected: " + previous + " -> " + figures);
+                }
+                return true;
+            }
+        }
+        logger.warning("Dashboard snapshot not reconciled: changes kept arriving over " + RECONCILE_ATTEMPTS + " attempts");
+        return false;
+    }
+
+    /**
+     * Apply a change when the current transaction commits, or now if none is in progress
+     */
+    private void apply(Runnable change) {
+        EntityManager em = EntityManagerHolder.isBound() ? EntityManagerHolder.get() : null;
+        if (em != null && em.isOpen()) {
+            SessionImplementor session = em.unwrap(SessionImplementor.class);
+            if (session.isTransactionInProgress()) {
+                synchronized (this) {
+                    inFlight++;
+                }
+                session.getActionQueue().registerProcess((success, completedSession) -> complete(change, true, success));
+                return;
+            }
+        }
+        complete(change, false, true);
+    }
+
+    private synchronized void complete(Runnable change, boolean deferred, boolean committed) {
+        sequence++;
+        if (deferred) {
+            inFlight--;
+        }
+        if (committed && loaded) {
+            change.run();
+            publish();
+        }
+    }
+
+    private void leavePending(String accountNumber) {
+        pendingBills--;
+        pendingBillsByCustomer.computeIfPresent(accountNumber, (account, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void addRevenue(LocalDate billDate, BigDecimal amount) {
+        if (billDate != null && amount != null && !billDate.isBefore(revenueSince)) {
+            revenueByDay.merge(billDate, amount, BigDecimal::add);
+        }
+    }
+
+    private void adjustStock(Long itemId, int delta) {
+        Integer previous = stockByItem.get(itemId);
+        if (previous == null) {
+            // Not loaded yet; the next reconcile picks the item up
+            return;
+        }
+        countStock(previous, -1);
+        stockByItem.put(itemId, previous + delta);
+        countStock(previous + delta, 1);
+    }
+
+    /**
+     * Add or remove an item from the stock level counts, bucketed as getItemStatistics does
+     */
+    private void countStock(int stockQuantity, int sign) {
+        if (stockQuantity > 0) {
+            itemsInStock += sign;
+            if (stockQuantity <= lowStockThreshold) {
+                lowStockItems += sign;
+            }
+        } else if (stockQuantity == 0) {
+            outOfStockItems += sign;
+        }
+    }
+
+    private void publish() {
+        figures = new Figures(this);
+    }
+
+    /**
+     * Immutable copy of the counters, published after every change
+     */
+    private static final class Figures {
+        private final long totalBills;
+        private final long pendingBills;
+        private final long paidBills;
+        private final long cancelledBills;
+        private final long totalItems;
+        private final long itemsInStock;
+        private final long outOfStockItems;
+        private final long lowStockItems;
+        private final long totalCustomers;
+        private final long activeCustomers;
+        private final long customersWithPendingBills;
+        private final LocalDate revenueSince;
+        private final Map<LocalDate, BigDecimal> revenueByDay;
+
+        private Figures(DashboardSnapshot snapshot) {
+            this.totalBills = snapshot.totalBills;
+            this.pendingBills = snapshot.pendingBills;
+            this.paidBills = snapshot.paidBills;
+            this.cancelledBills = snapshot.cancelledBills;
+            this.totalItems = snapshot.stockByItem.size();
+            this.itemsInStock = snapshot.itemsInStock;
+            this.outOfStockItems = snapshot.outOfStockItems;
+            this.lowStockItems = snapshot.lowStockItems;
+            this.totalCustomers = snapshot.totalCustomers;
+            this.activeCustomers = snapshot.totalCustomers - snapshot.inactiveCustomers.size();
+            this.customersWithPendingBills = snapshot.pendingBillsByCustomer.size();
+            this.revenueSince = snapshot.revenueSince;
+            // Shared, not copied: revenue changes are seen by readers as they are merged
+            this.revenueByDay = snapshot.revenueByDay;
+        }
+
+        private boolean sameCounts(Figures other) {
+            return toString().equals(other.toString());
+        }
+
+        @Override
+        public String toString() {
+            return "{bills=" + totalBills + "/" + pendingBills + "/" + paidBills + "/" + cancelledBills +
+                   ", items=" + totalItems + "/" + itemsInStock + "/" + outOfStockItems + "/" + lowStockItems +
+                   ", customers=" + totalCustomers + "/" + activeCustomers + "/" + customersWithPendingBills + "}";
+        }
+    }
+}
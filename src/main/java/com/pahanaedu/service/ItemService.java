@@ -1,6 +1,8 @@
 package com.pahanaedu.service;
 
 import com.pahanaedu.model.Item;
+import com.pahanaedu.dto.ItemStatistics;
+import com.pahanaedu.dto.ItemSummary;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
@@ -110,6 +112,15 @@ public interface ItemService {
      */
     List<Item> searchItems(String itemName, String category, BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly);
     
+    /**
+     * Search items as read-only summaries for list pages and pickers
+     * @param itemName Item name filter (optional)
+     * @param category Category filter (optional)
+     * @param inStockOnly Show only items in stock
+     * @return List of matching item summaries, ordered by name
+     */
+    List<ItemSummary> getItemSummaries(String itemName, String category, boolean inStockOnly);
+    
     /**
      * Get all categories
      * @return List of all item categories
@@ -119,9 +130,9 @@ public interface ItemService {
     /**
      * Get item statistics
      * @param lowStockThreshold Low stock threshold
-     * @return Array containing [totalItems, itemsInStock, outOfStockItems, lowStockItems]
+     * @return Total, in-stock, out-of-stock and low-stock item counts
      */
-    long[] getItemStatistics(int lowStockThreshold);
+    ItemStatistics getItemStatistics(int lowStockThreshold);
     
     /**
      * Get top selling items
@@ -0,0 +1,98 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.dao.ItemDAO;
+import com.pahanaedu.dao.impl.ItemDAOImpl;
+import com.pahanaedu.util.ServiceFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Consistency check between items.stock_quantity and the bill_items ledger
+ * For each item, stock plus the quantity on non-cancelled bills is the stock received so far.
+ * That figure only moves through manual stock changes, which services report with recordAdjustment;
+ * any other movement between two runs means stock was changed twice or not at all for a bill line
+ * (for example the database trigger and the application both adjusting it)
+ */
+public class StockConsistencyChecker {
+
+    private static final Logger logger = Logger.getLogger(StockConsistencyChecker.class.getName());
+
+    private final ItemDAO itemDAO;
+
+    // Received stock per item at the previous run
+    private final Map<Long, Long> baseline = new HashMap<>();
+
+    // Manual stock changes since the previous run
+    private final ConcurrentHashMap<Long, Long> adjustments = new ConcurrentHashMap<>();
+
+    public StockConsistencyChecker() {
+        this(ServiceFactory.getMetricsRegistry().instrument(ItemDAO.class, new ItemDAOImpl(), "dao"));
+    }
+
+    public StockConsistencyChecker(ItemDAO itemDAO) {
+        this.itemDAO = itemDAO;
+    }
+
+    /**
+     * Record a committed stock change that is not backed by a bill line
+     * @param itemId Item ID
+     * @param delta Change in stock quantity
+     */
+    public void recordAdjustment(Long itemId, long delta) {
+        if (itemId != null && delta != 0) {
+            adjustments.merge(itemId, delta, Long::sum);
+        }
+    }
+
+    /**
+     * Compare the ledger against the previous run
+     * The first run only records the baseline. A stock change committed concurrently with a run
+     * can show up as a drift that reverses on the following run
+     * @return Unexplained stock change per item since the previous run (empty if consistent)
+     */
+    public synchronized Map<Long, Long> check() {
+        List<Object[]> ledger = itemDAO.getStockLedger();
+        Map<Long, Long> expected = drainAdjustments();
+
+        Map<Long, Long> received = new HashMap<>();
+        Map<Long, Long> drift = new LinkedHashMap<>();
+        for (Object[] row : ledger) {
+            Long itemId = ((Number) row[0]).longValue();
+            long stock = ((Number) row[1]).longValue();
+            long committed = ((Number) row[2]).longValue();
+            long current = stock + committed;
+            received.put(itemId, current);
+
+            Long previous = baseline.get(itemId);
+            if (previous != null) {
+                long unexplained = current - previous - expected.getOrDefault(itemId, 0L);
+                if (unexplained != 0) {
+                    drift.put(itemId, unexplained);
+                    logger.warning("Stock drift for item ID " + itemId + ": " + unexplained +
+                                   " (stock " + stock + ", on bills " + committed + ")");
+                }
+            }
+        }
+
+        baseline.clear();
+        baseline.putAll(received);
+        logger.info("Stock consistency check completed: " + ledger.size() + " items, " + drift.size() + " drifted");
+        return drift;
+    }
+
+    private Map<Long, Long> drainAdjustments() {
+        Map<Long, Long> drained = new HashMap<>();
+        for (Long itemId : adjustments.keySet()) {
+            Long delta = adjustments.remove(itemId);
+            if (delta != null) {
+                drained.put(itemId, delta);
+            }
+        }
+        return drained;
+    }
+}
@@ -3,7 +3,9 @@ package com.pahanaedu.service.impl;
 import com.pahanaedu.dao.BillDAO;
 import com.pahanaedu.dao.BillItemDAO;
 import com.pahanaedu.dao.CustomerDAO;
+import com.pahanaedu.dao.Cursor;
 import com.pahanaedu.dao.ItemDAO;
+import com.pahanaedu.dao.Page;
 import com.pahanaedu.dao.impl.BillDAOImpl;
 import com.pahanaedu.dao.impl.BillItemDAOImpl;
 import com.pahanaedu.dao.impl.CustomerDAOImpl;
@@ -13,16 +15,36 @@ import com.pahanaedu.model.BillItem;
 import com.pahanaedu.model.Customer;
 import com.pahanaedu.model.Item;
 import com.pahanaedu.service.BillingService;
+import com.pahanaedu.service.CustomerCache;
+import com.pahanaedu.service.DashboardSnapshot;
+import com.pahanaedu.service.StockConsistencyChecker;
+import com.pahanaedu.util.BillMutationEvent;
+import com.pahanaedu.util.MetricsRegistry;
+import com.pahanaedu.util.ServiceFactory;
+import com.pahanaedu.util.StockMutationMode;
+import com.pahanaedu.util.TransactionTemplate;
+import com.pahanaedu.dto.BillFilter;
+import com.pahanaedu.dto.BillStatistics;
+import org.hibernate.Hibernate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
  * Simple implementation of BillingService for development environments
  * Uses direct DAO instantiation instead of EJB dependency injection
+ * Each mutation runs as one unit of work through TransactionTemplate
+ * Line-level stock changes are made here or by the database trigger, per StockMutationMode
+ * Bill and stock changes are reported to DashboardSnapshot, which applies them on commit
+ * Every mutation is timed as a BillMutationEvent for Flight Recorder
  */
 public class SimpleBillingServiceImpl implements BillingService {
     
@@ -32,12 +54,35 @@ public class SimpleBillingServiceImpl implements BillingService {
     private final BillItemDAO billItemDAO;
     private final CustomerDAO customerDAO;
     private final ItemDAO itemDAO;
+    private final StockMutationMode stockMode;
+    private final StockConsistencyChecker stockConsistencyChecker;
+    private final CustomerCache customerCache;
+    private final DashboardSnapshot dashboardSnapshot;
     
     public SimpleBillingServiceImpl() {
-        this.billDAO = new BillDAOImpl();
-        this.billItemDAO = new BillItemDAOImpl();
-        this.customerDAO = new CustomerDAOImpl();
-        this.itemDAO = new ItemDAOImpl();
+        this(StockMutationMode.current(), ServiceFactory.getStockConsistencyChecker());
+    }
+    
+    public SimpleBillingServiceImpl(StockMutationMode stockMode, StockConsistencyChecker stockConsistencyChecker) {
+        this(stockMode, stockConsistencyChecker, ServiceFactory.getCustomerCache());
+    }
+    
+    public SimpleBillingServiceImpl(StockMutationMode stockMode, StockConsistencyChecker stockConsistencyChecker,
+                                    CustomerCache customerCache) {
+        this(stockMode, stockConsistencyChecker, customerCache, ServiceFactory.getDashboardSnapshot());
+    }
+    
+    public SimpleBillingServiceImpl(StockMutationMode stockMode, StockConsistencyChecker stockConsistencyChecker,
+                                    CustomerCache customerCache, DashboardSnapshot dashboardSnapshot) {
+        MetricsRegistry metrics = ServiceFactory.getMetricsRegistry();
+        this.billDAO = metrics.instrument(BillDAO.class, new BillDAOImpl(), "dao");
+        this.billItemDAO = metrics.instrument(BillItemDAO.class, new BillItemDAOImpl(), "dao");
+        this.customerDAO = metrics.instrument(CustomerDAO.class, new CustomerDAOImpl(), "dao");
+        this.itemDAO = metrics.instrument(ItemDAO.class, new ItemDAOImpl(), "dao");
+        this.stockMode = stockMode;
+        this.stockConsistencyChecker = stockConsistencyChecker;
+        this.customerCache = customerCache;
+        this.dashboardSnapshot = dashboardSnapshot;
     }
     
     @Override
@@ -46,8 +91,7 @@ public class SimpleBillingServiceImpl implements BillingService {
             throw new IllegalArgumentException("Customer cannot be null");
         }
         
-        Bill bill = new Bill(customer);
-        Bill savedBill = billDAO.save(bill);
+        Bill savedBill = mutateBill("createBill", null, () -> saveNewBill(customer));
         logger.info("Bill created successfully: ID " + savedBill.getBillId() + " for customer " + customer.getAccountNumber());
         return savedBill;
     }
@@ -58,12 +102,24 @@ public class SimpleBillingServiceImpl implements BillingService {
             throw new IllegalArgumentException("Account number cannot be empty");
         }
         
-        Optional<Customer> customerOpt = customerDAO.findByAccountNumber(accountNumber.trim());
-        if (!customerOpt.isPresent()) {
+        // The customer is checked against the cache; the bill only needs a reference to it
+        String account = accountNumber.trim();
+        if (!customerCache.get(account).isPresent()) {
             throw new IllegalArgumentException("Customer not found: " + accountNumber);
         }
         
-        return createBill(customerOpt.get());
+        Bill savedBill = mutateBill("createBill", null, () -> saveNewBill(customerDAO.getReference(account)));
+        logger.info("Bill created successfully: ID " + savedBill.getBillId() + " for customer " + account);
+        return savedBill;
+    }
+    
+    /**
+     * Save a new bill for a customer and count it on the dashboard
+     */
+    private Bill saveNewBill(Customer customer) {
+        Bill bill = billDAO.save(new Bill(customer));
+        dashboardSnapshot.billCreated(customer.getAccountNumber());
+        return bill;
     }
     
     @Override
@@ -75,68 +131,68 @@ public class SimpleBillingServiceImpl implements BillingService {
             throw new IllegalArgumentException("Quantity must be positive");
         }
         
-        Optional<Bill> billOpt = billDAO.findByBillId(billId);
-        if (!billOpt.isPresent()) {
-            throw new IllegalArgumentException("Bill not found: " + billId);
-        }
-        
-        Optional<Item> itemOpt = itemDAO.findByItemId(itemId);
-        if (!itemOpt.isPresent()) {
-            throw new IllegalArgumentException("Item not found: " + itemId);
-        }
-        
-        Bill bill = billOpt.get();
-        Item item = itemOpt.get();
-        
-        if (!bill.isPending()) {
-            throw new IllegalStateException("Cannot modify non-pending bill");
-        }
-        
-        // Check stock availability
-        if (!item.hasStock(quantity)) {
-            throw new IllegalArgumentException("Insufficient stock for item: " + item.getItemName() + ". Available: " + item.getStockQuantity());
-        }
-        
-        // First check if item already exists in the bill using database query
-        Optional<BillItem> existingBillItemOpt = billItemDAO.findByBillAndItem(bill, item);
-
-        if (existingBillItemOpt.isPresent()) {
-            // Item already exists - update quantity instead of adding new
-            BillItem existingBillItem = existingBillItemOpt.get();
-            int newQuantity = existingBillItem.getQuantity() + quantity;
-
-            // Check total stock availability for the new quantity
-            int additionalStock = quantity; // Only need additional quantity since we already have some
-            if (!item.hasStock(additionalStock)) {
+        return mutateBill("addItemToBill", billId, () -> {
+            Bill bill = findBillOrThrow(billId);
+            
+            // Bill items and their items were fetched with the bill, so an existing line needs no extra query
+            BillItem existingBillItem = findBillItem(bill, itemId);
+            Item item;
+            if (existingBillItem != null) {
+                item = existingBillItem.getItem();
+            } else {
+                Optional<Item> itemOpt = itemDAO.findByItemId(itemId);
+                if (!itemOpt.isPresent()) {
+                    throw new IllegalArgumentException("Item not found: " + itemId);
+                }
+                item = itemOpt.get();
+            }
+            
+            if (!bill.isPending()) {
+                throw new IllegalStateException("Cannot modify non-pending bill");
+            }
+            
+            // Check stock availability
+            if (!item.hasStock(quantity)) {
                 throw new IllegalArgumentException("Insufficient stock for item: " + item.getItemName() + ". Available: " + item.getStockQuantity());
             }
-
-            // Update the existing bill item
-            existingBillItem.setQuantity(newQuantity);
-            existingBillItem.setTotalPrice(item.getUnitPrice().multiply(BigDecimal.valueOf(newQuantity)));
-            billItemDAO.update(existingBillItem);
-
-            // Update stock for the additional quantity only
-            itemDAO.decreaseStock(itemId, quantity);
-
-            logger.info("Updated existing item in bill " + billId + ": " + item.getItemName() + " (new qty: " + newQuantity + ")");
-        } else {
-            // Item doesn't exist - create new bill item
-            BillItem billItem = new BillItem(bill, item, quantity, item.getUnitPrice());
-            bill.addBillItem(billItem);
-
-            // Update stock
-            itemDAO.decreaseStock(itemId, quantity);
-
-            logger.info("Added new item to bill " + billId + ": " + item.getItemName() + " (qty: " + quantity + ")");
-        }
-
-        // Recalculate total and save
-        bill.recalculateTotal();
-        Bill updatedBill = billDAO.update(bill);
-
-        // Return fresh data from database to ensure UI sync
-        return billDAO.findByBillId(billId).orElse(updatedBill);
+            
+            if (existingBillItem != null) {
+                // Item already exists - update quantity instead of adding new
+                int newQuantity = existingBillItem.getQuantity() + quantity;
+                
+                existingBillItem.setQuantity(newQuantity);
+                existingBillItem.setTotalPrice(item.getUnitPrice().multiply(BigDecimal.valueOf(newQuantity)));
+                billItemDAO.update(existingBillItem);
+                
+                // Update stock for the additional quantity only
+                if (applicationManagesStock()) {
+                    itemDAO.decrementStock(itemId, quantity);
+                } else {
+                    itemDAO.evictFromCache(Collections.singleton(itemId));
+                }
+                
+                logger.info("Updated existing item in bill " + billId + ": " + item.getItemName() + " (new qty: " + newQuantity + ")");
+            } else {
+                // Item doesn't exist - create new bill item
+                BillItem billItem = new BillItem(bill, item, quantity, item.getUnitPrice());
+                bill.addBillItem(billItem);
+                
+                // Update stock
+                if (applicationManagesStock()) {
+                    itemDAO.decrementStock(itemId, quantity);
+                } else {
+                    itemDAO.evictFromCache(Collections.singleton(itemId));
+                }
+                
+                logger.info("Added new item to bill " + billId + ": " + item.getItemName() + " (qty: " + quantity + ")");
+            }
+            
+            dashboardSnapshot.stockChanged(itemId, -quantity);
+            
+            // Recalculate total and save; the bill stays managed so no re-read is needed
+            bill.recalculateTotal();
+            return billDAO.update(bill);
+        });
     }
     
     @Override
@@ -145,43 +201,28 @@ public class SimpleBillingServiceImpl implements BillingService {
             throw new IllegalArgumentException("Bill ID and Item ID cannot be null");
         }
         
-        Optional<Bill> billOpt = billDAO.findByBillId(billId);
-        if (!billOpt.isPresent()) {
-            throw new IllegalArgumentException("Bill not found: " + billId);
-        }
-        
-        Optional<Item> itemOpt = itemDAO.findByItemId(itemId);
-        if (!itemOpt.isPresent()) {
-            throw new IllegalArgumentException("Item not found: " + itemId);
-        }
-        
-        Bill bill = billOpt.get();
-        Item item = itemOpt.get();
-        
-        if (!bill.isPending()) {
-            throw new IllegalStateException("Cannot modify non-pending bill");
-        }
-        
-        // Find bill item
-        Optional<BillItem> billItemOpt = billItemDAO.findByBillAndItem(bill, item);
-        if (!billItemOpt.isPresent()) {
-            throw new IllegalArgumentException("Item not found in bill");
-        }
-        
-        BillItem billItem = billItemOpt.get();
-        int quantity = billItem.getQuantity();
-        
-        // Remove item from bill
-        bill.removeBillItem(billItem);
-        
-        // Restore stock
-        itemDAO.increaseStock(itemId, quantity);
-        
-        Bill updatedBill = billDAO.update(bill);
-        logger.info("Item removed from bill " + billId + ": " + item.getItemName() + " (qty: " + quantity + ")");
-
-        // Return fresh data from database to ensure UI sync
-        return billDAO.findByBillId(billId).orElse(updatedBill);
+        return mutateBill("removeItemFromBill", billId, () -> {
+            Bill bill = findBillOrThrow(billId);
+            BillItem billItem = findBillItemOrThrow(bill, itemId);
+            Item item = billItem.getItem();
+            int quantity = billItem.getQuantity();
+            
+            // Remove item from bill
+            bill.removeBillItem(billItem);
+            
+            // Restore stock
+            if (applicationManagesStock()) {
+                itemDAO.incrementStock(itemId, quantity);
+            } else {
+                itemDAO.evictFromCache(Collections.singleton(itemId));
+            }
+            
+            dashboardSnapshot.stockChanged(itemId, quantity);
+            
+            Bill updatedBill = billDAO.update(bill);
+            logger.info("Item removed from bill " + billId + ": " + item.getItemName() + " (qty: " + quantity + ")");
+            return updatedBill;
+        });
     }
     
     @Override
@@ -193,55 +234,41 @@ public class SimpleBillingServiceImpl implements BillingService {
             throw new IllegalArgumentException("Quantity must be positive");
         }
         
-        Optional<Bill> billOpt = billDAO.findByBillId(billId);
-        if (!billOpt.isPresent()) {
-            throw new IllegalArgumentException("Bill not found: " + billId);
-        }
-        
-        Optional<Item> itemOpt = itemDAO.findByItemId(itemId);
-        if (!itemOpt.isPresent()) {
-            throw new IllegalArgumentException("Item not found: " + itemId);
-        }
-        
-        Bill bill = billOpt.get();
-        Item item = itemOpt.get();
-        
-        if (!bill.isPending()) {
-            throw new IllegalStateException("Cannot modify non-pending bill");
-        }
-        
-        // Find bill item
-        Optional<BillItem> billItemOpt = billItemDAO.findByBillAndItem(bill, item);
-        if (!billItemOpt.isPresent()) {
-            throw new IllegalArgumentException("Item not found in bill");
-        }
-        
-        BillItem billItem = billItemOpt.get();
-        int oldQuantity = billItem.getQuantity();
-        int quantityDifference = newQuantity - oldQuantity;
-        
-        // Check stock availability if increasing quantity
-        if (quantityDifference > 0 && !item.hasStock(quantityDifference)) {
-            throw new IllegalArgumentException("Insufficient stock for item: " + item.getItemName() + ". Available: " + item.getStockQuantity());
-        }
-        
-        // Update bill item quantity
-        billItem.updateQuantity(newQuantity);
-        billItemDAO.update(billItem);
-        
-        // Update stock
-        if (quantityDifference > 0) {
-            itemDAO.decreaseStock(itemId, quantityDifference);
-        } else if (quantityDifference < 0) {
-            itemDAO.increaseStock(itemId, Math.abs(quantityDifference));
-        }
-        
-        // Recalculate bill total
-        bill.recalculateTotal();
-        Bill updatedBill = billDAO.update(bill);
-        
-        logger.info("Item quantity updated in bill " + billId + ": " + item.getItemName() + " (old: " + oldQuantity + ", new: " + newQuantity + ")");
-        return updatedBill;
+        return mutateBill("updateItemQuantityInBill", billId, () -> {
+            Bill bill = findBillOrThrow(billId);
+            BillItem billItem = findBillItemOrThrow(bill, itemId);
+            Item item = billItem.getItem();
+            int oldQuantity = billItem.getQuantity();
+            int quantityDifference = newQuantity - oldQuantity;
+            
+            // Check stock availability if increasing quantity
+            if (quantityDifference > 0 && !item.hasStock(quantityDifference)) {
+                throw new IllegalArgumentException("Insufficient stock for item: " + item.getItemName() + ". Available: " + item.getStockQuantity());
+            }
+            
+            // Update bill item quantity
+            billItem.updateQuantity(newQuantity);
+            billItemDAO.update(billItem);
+            
+            // Update stock
+            if (applicationManagesStock()) {
+                if (quantityDifference > 0) {
+                    itemDAO.decrementStock(itemId, quantityDifference);
+                } else if (quantityDifference < 0) {
+                    itemDAO.incrementStock(itemId, Math.abs(quantityDifference));
+                }
+            } else {
+                itemDAO.evictFromCache(Collections.singleton(itemId));
+            }
+            dashboardSnapshot.stockChanged(itemId, -quantityDifference);
+            
+            // Recalculate bill total
+            bill.recalculateTotal();
+            Bill updatedBill = billDAO.update(bill);
+            
+            logger.info("Item quantity updated in bill " + billId + ": " + item.getItemName() + " (old: " + oldQuantity + ", new: " + newQuantity + ")");
+            return updatedBill;
+        });
     }
     
     @Override
@@ -250,15 +277,12 @@ public class SimpleBillingServiceImpl implements BillingService {
             throw new IllegalArgumentException("Bill ID cannot be null");
         }
         
-        Optional<Bill> billOpt = billDAO.findByBillId(billId);
-        if (!billOpt.isPresent()) {
-            throw new IllegalArgumentException("Bill not found: " + billId);
-        }
-        
-        Bill bill = billOpt.get();
-        bill.recalculateTotal();
-        
-        return billDAO.update(bill);
+        return mutateBill("calculateBillTotal", billId, () -> {
+            Bill bill = findBillOrThrow(billId);
+            bill.recalculateTotal();
+            
+            return billDAO.update(bill);
+        });
     }
     
     @Override
@@ -267,20 +291,18 @@ public class SimpleBillingServiceImpl implements BillingService {
             throw new IllegalArgumentException("Bill ID cannot be null");
         }
         
-        Optional<Bill> billOpt = billDAO.findByBillId(billId);
-        if (!billOpt.isPresent()) {
-            throw new IllegalArgumentException("Bill not found: " + billId);
-        }
-        
-        Bill bill = billOpt.get();
-        if (!bill.isPending()) {
-            throw new IllegalStateException("Only pending bills can be marked as paid");
-        }
-        
-        bill.markAsPaid();
-        Bill updatedBill = billDAO.update(bill);
-        logger.info("Bill marked as paid: ID " + billId);
-        return updatedBill;
+        return mutateBill("markBillAsPaid", billId, () -> {
+            Bill bill = findBillOrThrow(billId);
+            if (!bill.isPending()) {
+                throw new IllegalStateException("Only pending bills can be marked as paid");
+            }
+            
+            bill.markAsPaid();
+            Bill updatedBill = billDAO.update(bill);
+            dashboardSnapshot.billPaid(bill.getCustomer().getAccountNumber(), bill.getBillDate(), bill.getTotalAmount());
+            logger.info("Bill marked as paid: ID " + billId);
+            return updatedBill;
+        });
     }
     
     @Override
@@ -289,25 +311,113 @@ public class SimpleBillingServiceImpl implements BillingService {
             throw new IllegalArgumentException("Bill ID cannot be null");
         }
         
+        return mutateBill("cancelBill", billId, () -> {
+            Bill bill = findBillOrThrow(billId);
+            if (!bill.isPending()) {
+                throw new IllegalStateException("Only pending bills can be cancelled");
+            }
+            
+            // Restore stock for all items in the bill
+            Map<Long, Integer> deltas = stockRestoreDeltas(bill);
+            itemDAO.adjustStock(deltas);
+            
+            bill.markAsCancelled();
+            Bill updatedBill = billDAO.update(bill);
+            dashboardSnapshot.stockChanged(deltas);
+            dashboardSnapshot.billCancelled(bill.getCustomer().getAccountNumber());
+            logger.info("Bill cancelled: ID " + billId);
+            return updatedBill;
+        });
+    }
+    
+    /**
+     * Run a bill mutation as one unit of work, timed from begin to commit as a BillMutationEvent
+     * @param action Method name recorded on the event
+     * @param billId Bill being changed, or null for a new bill
+     */
+    private Bill mutateBill(String action, Long billId, Supplier<Bill> work) {
+        BillMutationEvent event = new BillMutationEvent();
+        event.begin();
+        Bill bill = null;
+        try {
+            bill = TransactionTemplate.inTransaction(work);
+            return bill;
+        } finally {
+            if (event.shouldCommit()) {
+                Long id = bill != null ? bill.getBillId() : billId;
+                event.billId = id != null ? id : 0;
+                event.action = action;
+                event.lineCount = lineCount(bill);
+                event.succeeded = bill != null;
+                event.commit();
+            }
+        }
+    }
+    
+    /**
+     * Lines on a bill if they are already loaded, else -1; never queries
+     */
+    private static int lineCount(Bill bill) {
+        return bill != null && Hibernate.isInitialized(bill.getBillItems()) ? bill.getBillItems().size() : -1;
+    }
+    
+    /**
+     * Whether bill line changes must adjust stock here rather than in the database trigger
+     */
+    private boolean applicationManagesStock() {
+        return stockMode == StockMutationMode.APPLICATION;
+    }
+    
+    /**
+     * Load a bill with its items, failing if it does not exist
+     */
+    private Bill findBillOrThrow(Long billId) {
         Optional<Bill> billOpt = billDAO.findByBillId(billId);
         if (!billOpt.isPresent()) {
             throw new IllegalArgumentException("Bill not found: " + billId);
         }
-        
-        Bill bill = billOpt.get();
-        if (!bill.isPending()) {
-            throw new IllegalStateException("Only pending bills can be cancelled");
+        return billOpt.get();
+    }
+    
+    /**
+     * Build the per-item stock increments that undo a bill's lines
+     */
+    private Map<Long, Integer> stockRestoreDeltas(Bill bill) {
+        Map<Long, Integer> deltas = new HashMap<>();
+        for (BillItem billItem : bill.getBillItems()) {
+            deltas.merge(billItem.getItem().getItemId(), billItem.getQuantity(), Integer::sum);
         }
-        
-        // Restore stock for all items in the bill
+        return deltas;
+    }
+    
+    /**
+     * Find the line for an item among a bill's already-loaded items
+     * @return Bill item or null if the item is not on the bill
+     */
+    private BillItem findBillItem(Bill bill, Long itemId) {
         for (BillItem billItem : bill.getBillItems()) {
-            itemDAO.increaseStock(billItem.getItem().getItemId(), billItem.getQuantity());
+            if (itemId.equals(billItem.getItem().getItemId())) {
+                return billItem;
+            }
         }
-        
-        bill.markAsCancelled();
-        Bill updatedBill = billDAO.update(bill);
-        logger.info("Bill cancelled: ID " + billId);
-        return updatedBill;
+        return null;
+    }
+    
+    /**
+     * Find the line for an item on a pending bill, with the same checks and messages as before
+     */
+    private BillItem findBillItemOrThrow(Bill bill, Long itemId) {
+        BillItem billItem = findBillItem(bill, itemId);
+        if (billItem == null && !itemDAO.existsById(itemId)) {
+            throw new IllegalArgumentException("Item not found: " + itemId);
+        }
+        if (!bill.isPending()) {
+            throw new IllegalStateException("Cannot modify non-pending bill");
+        }
+        if (billItem == null) {
+            throw new IllegalArgumentException("Item not found in bill");
+        }
+        return billItem;
     }
     
     @Override
@@ -384,7 +494,7 @@ public class SimpleBillingServiceImpl implements BillingService {
     }
     
     @Override
-    public long[] getBillStatistics() {
+    public BillStatistics getBillStatistics() {
         return billDAO.getBillStatistics();
     }
     
@@ -428,25 +538,86 @@ public class SimpleBillingServiceImpl implements BillingService {
         return billDAO.findAll();
     }
     
+    @Override
+    public Page<Bill> getBillsPage(BillFilter filter, String afterToken, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        Cursor after = afterToken != null && !afterToken.trim().isEmpty() ? Cursor.decode(afterToken) : null;
+        return billDAO.findPage(filter, after, limit);
+    }
+    
+    @Override
+    public Map<Long, Long> getItemCounts(List<Bill> bills) {
+        List<Long> billIds = new ArrayList<>(bills.size());
+        for (Bill bill : bills) {
+            billIds.add(bill.getBillId());
+        }
+        return billDAO.getItemCounts(billIds);
+    }
+    
     @Override
     public void deleteBill(Long billId) {
         if (billId == null) {
             throw new IllegalArgumentException("Bill ID cannot be null");
         }
         
-        Optional<Bill> billOpt = billDAO.findByBillId(billId);
-        if (billOpt.isPresent()) {
-            Bill bill = billOpt.get();
-            
-            // Restore stock if bill is pending
-            if (bill.isPending()) {
-                for (BillItem billItem : bill.getBillItems()) {
-                    itemDAO.increaseStock(billItem.getItem().getItemId(), billItem.getQuantity());
+        BillMutationEvent event = new BillMutationEvent();
+        event.begin();
+        Map<Long, Integer> soldQuantities;
+        boolean deleted = false;
+        try {
+            soldQuantities = TransactionTemplate.inTransaction(() -> {
+                Optional<Bill> billOpt = billDAO.findByBillId(billId);
+                if (!billOpt.isPresent()) {
+                    billDAO.deleteById(billId);
+                    return null;
                 }
+                
+                Bill bill = billOpt.get();
+                event.lineCount = lineCount(bill);
+                Map<Long, Integer> deltas = stockRestoreDeltas(bill);
+                
+                // Restore stock if bill is pending
+                if (bill.isPending() && applicationManagesStock()) {
+                    itemDAO.adjustStock(deltas);
+                }
+                
+                billDAO.deleteById(billId);
+                
+                if (!applicationManagesStock()) {
+                    itemDAO.evictFromCache(deltas.keySet());
+                }
+                
+                // The trigger restores stock for every deleted line; only pending bills should get it back
+                if (!bill.isPending() && !applicationManagesStock()) {
+                    Map<Long, Integer> compensation = new HashMap<>();
+                    deltas.forEach((id, quantity) -> compensation.put(id, -quantity));
+                    itemDAO.adjustStock(compensation);
+                }
+                
+                dashboardSnapshot.billDeleted(bill.getCustomer().getAccountNumber(), bill.getStatus(),
+                                              bill.getBillDate(), bill.getTotalAmount());
+                if (bill.isPending()) {
+                    dashboardSnapshot.stockChanged(deltas);
+                }
+                
+                return bill.isPaid() ? deltas : null;
+            });
+            deleted = true;
+        } finally {
+            if (event.shouldCommit()) {
+                event.billId = billId;
+                event.action = "deleteBill";
+                event.succeeded = deleted;
+                event.commit();
             }
         }
         
-        billDAO.deleteById(billId);
+        // Paid lines leave the ledger without returning to stock
+        if (soldQuantities != null) {
+            soldQuantities.forEach((id, quantity) -> stockConsistencyChecker.recordAdjustment(id, -quantity));
+        }
         logger.info("Bill deleted successfully: ID " + billId);
     }
     
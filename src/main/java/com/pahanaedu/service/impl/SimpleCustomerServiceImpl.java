@@ -3,7 +3,14 @@ package com.pahanaedu.service.impl;
 import com.pahanaedu.dao.CustomerDAO;
 import com.pahanaedu.dao.impl.CustomerDAOImpl;
 import com.pahanaedu.model.Customer;
+import com.pahanaedu.service.CustomerCache;
 import com.pahanaedu.service.CustomerService;
+import com.pahanaedu.service.DashboardSnapshot;
+import com.pahanaedu.dto.CustomerDetails;
+import com.pahanaedu.dto.CustomerStatistics;
+import com.pahanaedu.dto.CustomerSummary;
+import com.pahanaedu.util.CatalogVersion;
+import com.pahanaedu.util.ServiceFactory;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -12,15 +19,30 @@ import java.util.logging.Logger;
 /**
  * Simple POJO implementation of CustomerService interface
  * For use in development environments without full EJB container
+ * New customers and active flag changes are reported to DashboardSnapshot
  */
 public class SimpleCustomerServiceImpl implements CustomerService {
     
     private static final Logger logger = Logger.getLogger(SimpleCustomerServiceImpl.class.getName());
     
     private final CustomerDAO customerDAO;
+    private final CustomerCache customerCache;
+    private final DashboardSnapshot dashboardSnapshot;
     
     public SimpleCustomerServiceImpl() {
-        this.customerDAO = new CustomerDAOImpl();
+        this(ServiceFactory.getMetricsRegistry().instrument(CustomerDAO.class, new CustomerDAOImpl(), "dao"),
+             ServiceFactory.getCustomerCache());
+    }
+    
+    public SimpleCustomerServiceImpl(CustomerDAO customerDAO, CustomerCache customerCache) {
+        this(customerDAO, customerCache, ServiceFactory.getDashboardSnapshot());
+    }
+    
+    public SimpleCustomerServiceImpl(CustomerDAO customerDAO, CustomerCache customerCache,
+                                     DashboardSnapshot dashboardSnapshot) {
+        this.customerDAO = customerDAO;
+        this.customerCache = customerCache;
+        this.dashboardSnapshot = dashboardSnapshot;
     }
     
     @Override
@@ -51,6 +73,9 @@ public class SimpleCustomerServiceImpl implements CustomerService {
                                        telephoneNumber != null ? telephoneNumber.trim() : null);
         
         Customer savedCustomer = customerDAO.save(customer);
+        customerCache.invalidate(finalAccountNumber);
+        CatalogVersion.CUSTOMERS.changed();
+        dashboardSnapshot.customerAdded(finalAccountNumber, customer.isActive());
         logger.info("Customer registered successfully: " + finalAccountNumber + " - " + name);
         return savedCustomer;
     }
@@ -65,6 +90,9 @@ public class SimpleCustomerServiceImpl implements CustomerService {
         }
         
         Customer updatedCustomer = customerDAO.update(customer);
+        customerCache.invalidate(customer.getAccountNumber());
+        CatalogVersion.CUSTOMERS.changed();
+        dashboardSnapshot.customerStatusChanged(customer.getAccountNumber(), customer.isActive());
         logger.info("Customer updated successfully: " + customer.getAccountNumber());
         return updatedCustomer;
     }
@@ -77,6 +105,14 @@ public class SimpleCustomerServiceImpl implements CustomerService {
         return customerDAO.findByAccountNumber(accountNumber.trim());
     }
     
+    @Override
+    public Optional<CustomerDetails> getCustomerDetails(String accountNumber) {
+        if (accountNumber == null || accountNumber.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        return customerCache.get(accountNumber.trim());
+    }
+    
     @Override
     public List<Customer> searchByName(String name) {
         if (name == null || name.trim().isEmpty()) {
@@ -110,6 +146,9 @@ public class SimpleCustomerServiceImpl implements CustomerService {
         }
         
         Customer updatedCustomer = customerDAO.updateActiveStatus(accountNumber.trim(), active);
+        customerCache.invalidate(accountNumber.trim());
+        CatalogVersion.CUSTOMERS.changed();
+        dashboardSnapshot.customerStatusChanged(accountNumber.trim(), active);
         logger.info("Customer active status updated: " + accountNumber + " -> " + active);
         return updatedCustomer;
     }
@@ -137,7 +176,15 @@ public class SimpleCustomerServiceImpl implements CustomerService {
     }
     
     @Override
-    public long[] getCustomerStatistics() {
+    public List<CustomerSummary> getCustomerSummaries(String name, String telephoneNumber, Boolean active) {
+        if (name == null && telephoneNumber == null && active == null) {
+            return customerCache.getSummaries();
+        }
+        return customerDAO.findSummaries(name, telephoneNumber, active);
+    }
+    
+    @Override
+    public CustomerStatistics getCustomerStatistics() {
         return customerDAO.getCustomerStatistics();
     }
     
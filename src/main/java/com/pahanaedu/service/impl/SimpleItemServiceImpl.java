@@ -4,7 +4,14 @@ import com.pahanaedu.dao.ItemDAO;
 import com.pahanaedu.dao.impl.ItemDAOImpl;
 import com.pahanaedu.model.Item;
 import com.pahanaedu.service.ItemService;
+import com.pahanaedu.service.DashboardSnapshot;
+import com.pahanaedu.service.StockConsistencyChecker;
+import com.pahanaedu.util.CatalogVersion;
+import com.pahanaedu.util.ServiceFactory;
+import com.pahanaedu.dto.ItemStatistics;
+import com.pahanaedu.dto.ItemSummary;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.logging.Logger;
@@ -12,15 +19,42 @@ import java.util.logging.Logger;
 /**
  * Simple POJO implementation of ItemService interface
  * For use in development environments without full EJB container
+ * Stock changes are reported to DashboardSnapshot
  */
 public class SimpleItemServiceImpl implements ItemService {
     
     private static final Logger logger = Logger.getLogger(SimpleItemServiceImpl.class.getName());
     
     private final ItemDAO itemDAO;
+    private final StockConsistencyChecker stockConsistencyChecker;
+    private final DashboardSnapshot dashboardSnapshot;
+    // IDs of in-stock items as of a catalog version; the items themselves come from the item cache
+    private volatile InStockIds inStockIds;
+    
+    private static final class InStockIds {
+        final long version;
+        final List<Long> itemIds;
+        
+        InStockIds(long version, List<Long> itemIds) {
+            this.version = version;
+            this.itemIds = itemIds;
+        }
+    }
     
     public SimpleItemServiceImpl() {
-        this.itemDAO = new ItemDAOImpl();
+        this(ServiceFactory.getMetricsRegistry().instrument(ItemDAO.class, new ItemDAOImpl(), "dao"),
+             ServiceFactory.getStockConsistencyChecker());
+    }
+    
+    public SimpleItemServiceImpl(ItemDAO itemDAO, StockConsistencyChecker stockConsistencyChecker) {
+        this(itemDAO, stockConsistencyChecker, ServiceFactory.getDashboardSnapshot());
+    }
+    
+    public SimpleItemServiceImpl(ItemDAO itemDAO, StockConsistencyChecker stockConsistencyChecker,
+                                 DashboardSnapshot dashboardSnapshot) {
+        this.itemDAO = itemDAO;
+        this.stockConsistencyChecker = stockConsistencyChecker;
+        this.dashboardSnapshot = dashboardSnapshot;
     }
     
     @Override
@@ -36,6 +70,8 @@ public class SimpleItemServiceImpl implements ItemService {
                            category != null ? category.trim() : null);
         
         Item savedItem = itemDAO.save(item);
+        CatalogVersion.ITEMS.changed();
+        dashboardSnapshot.stockSet(savedItem.getItemId(), stockQuantity);
         logger.info("Item created successfully: " + itemName + " (ID: " + savedItem.getItemId() + ")");
         return savedItem;
     }
@@ -49,7 +85,16 @@ public class SimpleItemServiceImpl implements ItemService {
             throw new IllegalArgumentException("Invalid item data");
         }
         
+        // Callers may have changed the managed item already, so read the stored value without flushing
+        Optional<Integer> storedStock = item.getItemId() != null
+                ? itemDAO.findStoredStockQuantity(item.getItemId()) : Optional.empty();
+        
         Item updatedItem = itemDAO.update(item);
+        CatalogVersion.ITEMS.changed();
+        dashboardSnapshot.stockSet(item.getItemId(), item.getStockQuantity());
+        if (storedStock.isPresent()) {
+            stockConsistencyChecker.recordAdjustment(item.getItemId(), item.getStockQuantity() - storedStock.get());
+        }
         logger.info("Item updated successfully: " + item.getItemName() + " (ID: " + item.getItemId() + ")");
         return updatedItem;
     }
@@ -85,7 +130,17 @@ public class SimpleItemServiceImpl implements ItemService {
     
     @Override
     public List<Item> getItemsInStock() {
-        return itemDAO.findByStockQuantityGreaterThan(0);
+        // Every item and stock write moves the catalog version; read it before the query
+        long version = CatalogVersion.ITEMS.getVersion();
+        InStockIds known = inStockIds;
+        if (known != null && known.version == version) {
+            return itemDAO.findByItemIds(known.itemIds);
+        }
+        List<Item> items = itemDAO.findByStockQuantityGreaterThan(0);
+        List<Long> itemIds = new ArrayList<>(items.size());
+        items.forEach(item -> itemIds.add(item.getItemId()));
+        inStockIds = new InStockIds(version, itemIds);
+        return items;
     }
     
     @Override
@@ -110,7 +165,13 @@ public class SimpleItemServiceImpl implements ItemService {
             throw new IllegalArgumentException("Stock quantity cannot be negative");
         }
         
+        Optional<Integer> storedStock = itemDAO.findStoredStockQuantity(itemId);
         Item updatedItem = itemDAO.updateStockQuantity(itemId, newQuantity);
+        CatalogVersion.ITEMS.changed();
+        dashboardSnapshot.stockSet(itemId, newQuantity);
+        if (storedStock.isPresent()) {
+            stockConsistencyChecker.recordAdjustment(itemId, newQuantity - storedStock.get());
+        }
         logger.info("Stock quantity updated for item ID " + itemId + ": " + newQuantity);
         return updatedItem;
     }
@@ -125,6 +186,9 @@ public class SimpleItemServiceImpl implements ItemService {
         }
         
         Item updatedItem = itemDAO.increaseStock(itemId, quantity);
+        CatalogVersion.ITEMS.changed();
+        stockConsistencyChecker.recordAdjustment(itemId, quantity);
+        dashboardSnapshot.stockChanged(itemId, quantity);
         logger.info("Stock increased for item ID " + itemId + " by " + quantity);
         return updatedItem;
     }
@@ -139,6 +203,9 @@ public class SimpleItemServiceImpl implements ItemService {
         }
         
         Item updatedItem = itemDAO.decreaseStock(itemId, quantity);
+        CatalogVersion.ITEMS.changed();
+        stockConsistencyChecker.recordAdjustment(itemId, -quantity);
+        dashboardSnapshot.stockChanged(itemId, -quantity);
         logger.info("Stock decreased for item ID " + itemId + " by " + quantity);
         return updatedItem;
     }
@@ -148,13 +215,18 @@ public class SimpleItemServiceImpl implements ItemService {
         return itemDAO.searchItems(itemName, category, minPrice, maxPrice, inStockOnly);
     }
     
+    @Override
+    public List<ItemSummary> getItemSummaries(String itemName, String category, boolean inStockOnly) {
+        return itemDAO.findSummaries(itemName, category, inStockOnly);
+    }
+    
     @Override
     public List<String> getAllCategories() {
         return itemDAO.findAllCategories();
     }
     
     @Override
-    public long[] getItemStatistics(int lowStockThreshold) {
+    public ItemStatistics getItemStatistics(int lowStockThreshold) {
         if (lowStockThreshold < 0) {
             throw new IllegalArgumentException("Low stock threshold cannot be negative");
         }
@@ -199,6 +271,8 @@ public class SimpleItemServiceImpl implements ItemService {
         }
         
         itemDAO.deleteById(itemId);
+        CatalogVersion.ITEMS.changed();
+        dashboardSnapshot.itemDeleted(itemId);
         logger.info("Item deleted successfully: ID " + itemId);
     }
     
@@ -3,6 +3,9 @@ package com.pahanaedu.service.impl;
 import com.pahanaedu.dao.UserDAO;
 import com.pahanaedu.model.User;
 import com.pahanaedu.service.UserService;
+import com.pahanaedu.util.CatalogVersion;
+import com.pahanaedu.util.LoginEvent;
+import com.pahanaedu.util.PasswordUtil;
 import com.pahanaedu.util.ServiceFactory;
 
 import javax.ejb.EJB;
@@ -84,6 +87,7 @@ public class UserServiceImpl implements UserService {
                 throw new IllegalArgumentException("User not found");
             }
             userDAO.update(user);
+            CatalogVersion.USERS.changed();
             logger.info("User updated successfully: " + user.getUsername());
         } catch (Exception e) {
             logger.severe("Error updating user: " + e.getMessage());
@@ -99,6 +103,7 @@ public class UserServiceImpl implements UserService {
                 throw new IllegalArgumentException("User not found");
             }
             userDAO.delete(username);
+            CatalogVersion.USERS.changed();
             logger.info("User deleted successfully: " + username);
         } catch (Exception e) {
             logger.severe("Error deleting user: " + e.getMessage());
@@ -127,6 +132,7 @@ public class UserServiceImpl implements UserService {
             User user = userOpt.get();
             user.setActive(!user.isActive());
             userDAO.update(user);
+            CatalogVersion.USERS.changed();
             logger.info("User status toggled for: " + username);
         } catch (Exception e) {
             logger.severe("Error toggling user status: " + e.getMessage());
@@ -179,7 +185,7 @@ public class UserServiceImpl implements UserService {
             if (userOpt.isPresent()) {
                 User user = userOpt.get();
                 // Check if user is active and password matches
-                if (user.isActive() && com.pahanaedu.util.PasswordUtil.verifyPassword(password, user.getPasswordHash())) {
+                if (user.isActive() && verifyPassword(username, password, user.getPasswordHash())) {
                     return Optional.of(user);
                 }
             }
@@ -189,4 +195,23 @@ public class UserServiceImpl implements UserService {
             return Optional.empty();
         }
     }
+    
+    /**
+     * Check a password, timed as a LoginEvent
+     */
+    private boolean verifyPassword(String username, String password, String passwordHash) {
+        LoginEvent event = new LoginEvent();
+        event.begin();
+        boolean verified = false;
+        try {
+            verified = PasswordUtil.verifyPassword(password, passwordHash);
+            return verified;
+        } finally {
+            if (event.shouldCommit()) {
+                event.username = username;
+                event.succeeded = verified;
+                event.commit();
+            }
+        }
+    }
 }
@@ -1,84 +1,169 @@
 package com.pahanaedu.util;
 
+import com.pahanaedu.dto.UserPrincipal;
 import com.pahanaedu.model.User;
 import javax.servlet.*;
 import javax.servlet.annotation.WebFilter;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
+import java.security.Principal;
+import java.util.Optional;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Authentication filter to protect secured resources
  * Ensures users are authenticated before accessing protected pages
+ *
+ * Runs on every page and JSON call, so the authenticated path only reads the session's
+ * UserPrincipal and compares its version; the user is reloaded only after a user account
+ * change. Per-request access logging is at FINE
  */
-@WebFilter(filterName = "AuthenticationFilter", urlPatterns = {"/dashboard/*", "/customer/*", "/item/*", "/billing/*", "/admin/*", "/help"})
+@WebFilter(filterName = "AuthenticationFilter", asyncSupported = true)
 public class AuthenticationFilter implements Filter {
-    
+
     private static final Logger logger = Logger.getLogger(AuthenticationFilter.class.getName());
-    
+
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
         logger.info("AuthenticationFilter initialized");
     }
-    
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
-        
+
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
-        
-        String requestURI = httpRequest.getRequestURI();
-        String contextPath = httpRequest.getContextPath();
-        
-        logger.info("AuthenticationFilter: Processing request for " + requestURI);
-        
+
         // Check if user is authenticated
         HttpSession session = httpRequest.getSession(false);
-        User currentUser = null;
-        
+        UserPrincipal currentUser = null;
+
         if (session != null) {
-            currentUser = (User) session.getAttribute("currentUser");
+            currentUser = SessionUtil.principal(session);
+            if (currentUser != null && currentUser.getVersion() != CatalogVersion.USERS.getVersion()) {
+                currentUser = refresh(session, currentUser);
+            }
         }
-        
+
         if (currentUser == null) {
+            String requestURI = httpRequest.getRequestURI();
             logger.warning("Unauthenticated access attempt to: " + requestURI);
-            
+
             // Store the original request URL for redirect after login
             if (session == null) {
                 session = httpRequest.getSession(true);
             }
-            session.setAttribute("originalRequestURL", requestURI);
-            
+            session.setAttribute(SessionUtil.ORIGINAL_REQUEST_URL_ATTR, requestURI);
+
             // Redirect to login page with correct path
-            httpResponse.sendRedirect(contextPath + "/login?error=session_expired");
+            httpResponse.sendRedirect(httpRequest.getContextPath() + "/login?error=session_expired");
             return;
         }
-        
+
         // Check if user is active
         if (!currentUser.isActive()) {
             logger.warning("Inactive user access attempt: " + currentUser.getUsername());
-            
+
             // Invalidate session and redirect to login
             session.invalidate();
-            httpResponse.sendRedirect(contextPath + "/login?error=account_disabled");
+            httpResponse.sendRedirect(httpRequest.getContextPath() + "/login?error=account_disabled");
             return;
         }
-        
+
         // User is authenticated and active, proceed with request
-        logger.info("Authenticated user " + currentUser.getUsername() + " accessing " + requestURI);
-        
-        // Add user information to request attributes for easy access in JSPs
-        httpRequest.setAttribute("currentUser", currentUser);
-        httpRequest.setAttribute("userRole", currentUser.getRole().toString());
-        httpRequest.setAttribute("isAdmin", currentUser.isAdmin());
-        httpRequest.setAttribute("isOperator", currentUser.isOperator());
-        
-        chain.doFilter(request, response);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Authenticated user " + currentUser.getUsername() + " accessing " + httpRequest.getRequestURI());
+        }
+
+        chain.doFilter(new AuthenticatedRequest(httpRequest, currentUser), response);
+    }
+
+    /**
+     * Reload a user whose account may have changed since the principal was built
+     * @param session HTTP session
+     * @param stale Principal with an old version
+     * @return Fresh principal, or null if the user no longer exists
+     */
+    private UserPrincipal refresh(HttpSession session, UserPrincipal stale) {
+        // Read the version first: a change made while loading leaves the principal stale again
+        long version = CatalogVersion.USERS.getVersion();
+        Optional<User> user = ServiceFactory.getUserService().findByUsername(stale.getUsername());
+        if (!user.isPresent()) {
+            logger.warning("User no longer exists, ending session: " + stale.getUsername());
+            session.removeAttribute(SessionUtil.CURRENT_USER_ATTR);
+            return null;
+        }
+        UserPrincipal principal = UserPrincipal.of(user.get(), version);
+        session.setAttribute(SessionUtil.CURRENT_USER_ATTR, principal);
+        return principal;
     }
-    
+
+    /**
+     * Look up one of the user attributes the JSPs read
+     * @param principal Current user
+     * @param name Attribute name
+     * @return Attribute value, or null if the name is not a user attribute
+     */
+    static Object userAttribute(UserPrincipal principal, String name) {
+        if (name == null) {
+            return null;
+        }
+        switch (name) {
+            case SessionUtil.CURRENT_USER_ATTR:
+                return principal;
+            case "userRole":
+                return principal.getRoleName();
+            case "isAdmin":
+                return principal.isAdmin();
+            case "isOperator":
+                return principal.isOperator();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Request exposing the current user through getUserPrincipal() and the currentUser,
+     * userRole, isAdmin and isOperator attributes
+     * The attributes are answered when asked for instead of being set on every request;
+     * attributes a servlet sets itself take precedence
+     */
+    private static final class AuthenticatedRequest extends HttpServletRequestWrapper {
+
+        private final UserPrincipal principal;
+
+        AuthenticatedRequest(HttpServletRequest request, UserPrincipal principal) {
+            super(request);
+            this.principal = principal;
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            Object value = super.getAttribute(name);
+            return value != null ? value : userAttribute(principal, name);
+        }
+
+        @Override
+        public Principal getUserPrincipal() {
+            return principal;
+        }
+
+        @Override
+        public String getRemoteUser() {
+            return principal.getUsername();
+        }
+
+        @Override
+        public boolean isUserInRole(String role) {
+            return role != null && role.equals(principal.getRoleName());
+        }
+    }
+
     @Override
     public void destroy() {
         logger.info("AuthenticationFilter destroyed");
@@ -0,0 +1,34 @@
+package com.pahanaedu.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one bill mutation, from the start of its transaction to commit or
+ * rollback
+ * Raised by SimpleBillingServiceImpl
+ */
+@Name("com.pahanaedu.BillMutation")
+@Label("Bill Mutation")
+@Category({"Pahana Edu", "Billing"})
+@Description("A bill created, changed, paid, cancelled or deleted")
+@StackTrace(false)
+public class BillMutationEvent extends jdk.jfr.Event {
+
+    @Label("Bill ID")
+    public long billId;
+
+    @Label("Action")
+    @Description("BillingService method, e.g. addItemToBill")
+    public String action;
+
+    @Label("Line Count")
+    @Description("Lines on the bill afterwards, or -1 if unknown")
+    public int lineCount = -1;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
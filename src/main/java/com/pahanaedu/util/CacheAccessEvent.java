@@ -0,0 +1,28 @@
+package com.pahanaedu.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one application cache lookup, including the load on a miss
+ * Raised by CustomerCache
+ */
+@Name("com.pahanaedu.CacheAccess")
+@Label("Cache Access")
+@Category({"Pahana Edu", "Cache"})
+@Description("An application cache lookup and, on a miss, its load")
+@StackTrace(false)
+public class CacheAccessEvent extends jdk.jfr.Event {
+
+    @Label("Cache")
+    public String cache;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Hit")
+    public boolean hit;
+}
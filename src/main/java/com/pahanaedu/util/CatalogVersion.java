@@ -0,0 +1,153 @@
+package com.pahanaedu.util;
+
+import org.hibernate.engine.spi.SessionImplementor;
+
+import javax.persistence.EntityManager;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Change counters for the lists the billing screen polls, used for conditional GET
+ * Services call changed() on every write; the JSON endpoints call checkNotModified()
+ * before reading, and answer a matching If-None-Match or If-Modified-Since with 304
+ * without touching the database. USERS is only compared against the version held in
+ * each session's UserPrincipal
+ *
+ * Counters live in this JVM only: with several application nodes each node tags its
+ * own responses, and a write on another node is only seen there
+ */
+public enum CatalogVersion {
+
+    /**
+     * Items, including stock quantities
+     */
+    ITEMS("items"),
+
+    /**
+     * Customers
+     */
+    CUSTOMERS("customers"),
+
+    /**
+     * User accounts: role and active flag
+     */
+    USERS("users");
+
+    // Distinguishes tags from before a restart, when the counters start again from zero
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private final String name;
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastModified = System.currentTimeMillis();
+
+    CatalogVersion(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Record a change now, and again when the current transaction ends
+     * A request that reads the first new version before the commit may still see the old
+     * rows; the second bump makes sure that tag is never matched afterwards
+     */
+    public void changed() {
+        changed(EntityManagerHolder.isBound() ? EntityManagerHolder.get() : null);
+    }
+
+    /**
+     * Record a change made through the given EntityManager
+     * @param em EntityManager of the writing unit of work, or null
+     */
+    public void changed(EntityManager em) {
+        bump();
+        if (em != null && em.isOpen()) {
+            SessionImplementor session = em.unwrap(SessionImplementor.class);
+            if (session.isTransactionInProgress()) {
+                session.getActionQueue().registerProcess((success, completedSession) -> bump());
+            }
+        }
+    }
+
+    private void bump() {
+        version.incrementAndGet();
+        lastModified = System.currentTimeMillis();
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Get the weak entity tag for the current version
+     * @return ETag header value
+     */
+    public String getETag() {
+        return "W/\"" + name + "-" + EPOCH + "-" + version.get() + "\"";
+    }
+
+    /**
+     * Set ETag, Last-Modified and Cache-Control, and send 304 if the client's copy is current
+     * Call before loading the data, so the tag never claims newer data than the body holds
+     * @param request HTTP request
+     * @param response HTTP response
+     * @return true if 304 was sent and the caller must not write a body
+     */
+    public boolean checkNotModified(HttpServletRequest request, HttpServletResponse response) {
+        // Read both once; a concurrent bump may only make them newer than the body
+        String etag = getETag();
+        long modified = lastModified / 1000 * 1000;
+
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", modified);
+        response.setHeader("Cache-Control", "private, no-cache");
+
+        boolean notModified = isNotModified(etag, modified,
+                request.getHeader("If-None-Match"), ifModifiedSince(request));
+        if (notModified) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        }
+        return notModified;
+    }
+
+    /**
+     * Decide whether the client's copy is current; If-None-Match wins over If-Modified-Since
+     * @param etag Current entity tag
+     * @param modified Current Last-Modified time in whole seconds (epoch millis)
+     * @param ifNoneMatch If-None-Match header, or null
+     * @param ifModifiedSince If-Modified-Since time, or -1
+     * @return true if 304 applies
+     */
+    static boolean isNotModified(String etag, long modified, String ifNoneMatch, long ifModifiedSince) {
+        if (ifNoneMatch != null) {
+            String opaque = opaqueTag(etag);
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.equals("*") || opaqueTag(tag).equals(opaque)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return ifModifiedSince != -1 && modified <= ifModifiedSince;
+    }
+
+    /**
+     * Strip the weak prefix; If-None-Match uses weak comparison
+     */
+    private static String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static long ifModifiedSince(HttpServletRequest request) {
+        try {
+            return request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            // Unparseable date: ignore the header
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.pahanaedu.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Response body stream behind CompressionFilter, kept free of the servlet API
+ * Holds back the first minSize bytes. If the body ends before that it goes out as is;
+ * otherwise the Sink is asked once whether to compress, and the rest is deflated as it
+ * is written. Deflaters come from a small pool, since each one holds native buffers
+ */
+final class CompressingOutputStream extends OutputStream {
+
+    /**
+     * Content codings this stream can produce
+     */
+    enum Encoding {
+        GZIP("gzip", true),
+        DEFLATE("deflate", false);
+
+        private final String token;
+        // gzip wraps raw deflate data in its own header and trailer; "deflate" is the zlib format
+        private final boolean nowrap;
+
+        Encoding(String token, boolean nowrap) {
+            this.token = token;
+            this.nowrap = nowrap;
+        }
+
+        String token() {
+            return token;
+        }
+    }
+
+    /**
+     * The response the body goes to
+     */
+    interface Sink {
+
+        /**
+         * Whether the response, as set up so far, may be compressed (content type, status, existing coding)
+         */
+        boolean isCompressible();
+
+        /**
+         * Switch the response to compressed output, setting its headers
+         * @return false if the response turned out not to be compressible
+         */
+        boolean startCompressed();
+
+        /**
+         * Send the body as is
+         * @param contentLength Complete body length, or -1 if the body is still being written
+         */
+        void startIdentity(int contentLength);
+
+        OutputStream open() throws IOException;
+    }
+
+    private static final int CHUNK = 8192;
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final Sink sink;
+    private final Encoding encoding;
+    private final int minSize;
+    private final int level;
+
+    private byte[] pending;
+    private int pendingCount;
+    private OutputStream out;
+    private Deflater deflater;
+    private CRC32 crc;
+    private byte[] chunk;
+    private final byte[] single = new byte[1];
+    private boolean closed;
+
+    CompressingOutputStream(Sink sink, Encoding encoding, int minSize, int level) {
+        this.sink = sink;
+        this.encoding = encoding;
+        this.minSize = minSize;
+        this.level = level;
+        this.pending = new byte[Math.min(Math.max(minSize, 64), CHUNK)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return;
+        }
+        if (out == null) {
+            if (pendingCount + len < minSize) {
+                hold(b, off, len);
+                return;
+            }
+            start(false);
+        }
+        if (deflater != null) {
+            deflate(b, off, len);
+        } else {
+            out.write(b, off, len);
+        }
+    }
+
+    /**
+     * Flush what has been written so far
+     * A compressible body still under minSize stays held back: a servlet flushing a few
+     * bytes early should not decide the encoding, and close() will send them
+     */
+    @Override
+    public void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (out == null) {
+            if (sink.isCompressible()) {
+                return;
+            }
+            start(false);
+        }
+        if (deflater != null) {
+            drain(Deflater.SYNC_FLUSH);
+        }
+        out.flush();
+    }
+
+    /**
+     * Finish the body: send a short body as is with its length, or end the compressed stream
+     * The underlying stream is flushed but left open for the container
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (out == null) {
+                start(true);
+            }
+            if (deflater != null) {
+                deflater.finish();
+                drain(Deflater.NO_FLUSH);
+                if (encoding == Encoding.GZIP) {
+                    writeTrailer();
+                }
+            }
+            out.flush();
+        } finally {
+            closed = true;
+            release();
+        }
+    }
+
+    /**
+     * Drop a body that will not be completed, e.g. after an exception, returning the deflater
+     */
+    void abort() {
+        closed = true;
+        release();
+    }
+
+    /**
+     * Discard held-back bytes for a response reset
+     * @return false if output has already started and cannot be taken back
+     */
+    boolean clear() {
+        if (out != null) {
+            return false;
+        }
+        pendingCount = 0;
+        return true;
+    }
+
+    boolean isCompressing() {
+        return deflater != null;
+    }
+
+    private void hold(byte[] b, int off, int len) {
+        if (pendingCount + len > pending.length) {
+            byte[] larger = new byte[Math.max(pending.length * 2, pendingCount + len)];
+            System.arraycopy(pending, 0, larger, 0, pendingCount);
+            pending = larger;
+        }
+        System.arraycopy(b, off, pending, pendingCount, len);
+        pendingCount += len;
+    }
+
+    private void start(boolean complete) throws IOException {
+        boolean compress = !complete && sink.startCompressed();
+        if (!compress) {
+            sink.startIdentity(complete ? pendingCount : -1);
+        }
+        out = sink.open();
+        if (compress) {
+            deflater = DeflaterPool.acquire(level, encoding.nowrap);
+            chunk = new byte[CHUNK];
+            if (encoding == Encoding.GZIP) {
+                crc = new CRC32();
+                out.write(GZIP_HEADER);
+            }
+            if (pendingCount > 0) {
+                deflate(pending, 0, pendingCount);
+            }
+        } else if (pendingCount > 0) {
+            out.write(pending, 0, pendingCount);
+        }
+        pendingCount = 0;
+        pending = null;
+    }
+
+    private void deflate(byte[] b, int off, int len) throws IOException {
+        if (crc != null) {
+            crc.update(b, off, len);
+        }
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            int n = deflater.deflate(chunk, 0, chunk.length, Deflater.NO_FLUSH);
+            if (n > 0) {
+                out.write(chunk, 0, n);
+            }
+        }
+    }
+
+    /**
+     * Write out deflater output until it has nothing more for this flush mode
+     */
+    private void drain(int flush) throws IOException {
+        int n;
+        do {
+            n = deflater.deflate(chunk, 0, chunk.length, flush);
+            if (n > 0) {
+                out.write(chunk, 0, n);
+            }
+        } while (n == chunk.length || (flush == Deflater.NO_FLUSH && !deflater.finished()));
+    }
+
+    private void writeTrailer() throws IOException {
+        long value = crc.getValue();
+        long size = deflater.getBytesRead();
+        byte[] trailer = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            trailer[i] = (byte) (value >> (8 * i));
+            trailer[4 + i] = (byte) (size >> (8 * i));
+        }
+        out.write(trailer);
+    }
+
+    private void release() {
+        if (deflater != null) {
+            DeflaterPool.release(deflater, level, encoding.nowrap);
+            deflater = null;
+        }
+        pending = null;
+    }
+
+    /**
+     * Idle Deflaters per compression level and format
+     * Bounded, so a burst of parallel responses does not keep native memory around forever
+     */
+    static final class DeflaterPool {
+
+        static final int MAX_IDLE = 32;
+
+        private static final Queue<Deflater>[] idle = newQueues();
+        private static final AtomicInteger[] idleCounts = newCounts();
+        private static final AtomicInteger created = new AtomicInteger();
+
+        private DeflaterPool() {
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Queue<Deflater>[] newQueues() {
+            Queue<Deflater>[] queues = new Queue[22];
+            for (int i = 0; i < queues.length; i++) {
+                queues[i] = new ConcurrentLinkedQueue<>();
+            }
+            return queues;
+        }
+
+        private static AtomicInteger[] newCounts() {
+            AtomicInteger[] counts = new AtomicInteger[22];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new AtomicInteger();
+            }
+            return counts;
+        }
+
+        // Levels -1..9, times two formats
+        private static int slot(int level, boolean nowrap) {
+            return (level + 1) * 2 + (nowrap ? 1 : 0);
+        }
+
+        static Deflater acquire(int level, boolean nowrap) {
+            int slot = slot(level, nowrap);
+            Deflater deflater = idle[slot].poll();
+            if (deflater != null) {
+                idleCounts[slot].decrementAndGet();
+                return deflater;
+            }
+            created.incrementAndGet();
+            return new Deflater(level, nowrap);
+        }
+
+        static void release(Deflater deflater, int level, boolean nowrap) {
+            int slot = slot(level, nowrap);
+            if (idleCounts[slot].incrementAndGet() <= MAX_IDLE) {
+                deflater.reset();
+                idle[slot].offer(deflater);
+            } else {
+                idleCounts[slot].decrementAndGet();
+                deflater.end();
+            }
+        }
+
+        /**
+         * Number of Deflaters created since startup; stays flat while the pool is reused
+         */
+        static int createdCount() {
+            return created.get();
+        }
+    }
+}
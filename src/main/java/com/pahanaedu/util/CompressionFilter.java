@@ -0,0 +1,383 @@
+package com.pahanaedu.util;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.annotation.WebInitParam;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Compresses HTML, JSON and other text responses with gzip or deflate
+ * The coding is picked from Accept-Encoding (gzip preferred, q=0 honoured). Bodies below
+ * minSize, other content types and responses that already carry a Content-Encoding are
+ * sent unchanged, and event streams (Accept: text/event-stream) are not wrapped at all. Output
+ * is compressed while it is written, see CompressingOutputStream
+ *
+ * Init parameters: minSize (bytes, default 1024), level (1-9, default 6), mimeTypes
+ * (comma-separated, replaces the default list)
+ */
+@WebFilter(filterName = "CompressionFilter", asyncSupported = true,
+           initParams = {
+               @WebInitParam(name = "minSize", value = "1024"),
+               @WebInitParam(name = "level", value = "6")
+           })
+public class CompressionFilter implements Filter {
+
+    private static final Logger logger = Logger.getLogger(CompressionFilter.class.getName());
+
+    static final Set<String> DEFAULT_MIME_TYPES = new HashSet<>(Arrays.asList(
+            "text/html", "text/plain", "text/css", "text/javascript", "text/xml",
+            "application/javascript", "application/json", "application/xml", "image/svg+xml"));
+
+    private int minSize = 1024;
+    private int level = 6;
+    private Set<String> mimeTypes = DEFAULT_MIME_TYPES;
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        String value = filterConfig.getInitParameter("minSize");
+        if (value != null) {
+            minSize = Integer.parseInt(value.trim());
+        }
+        value = filterConfig.getInitParameter("level");
+        if (value != null) {
+            level = Integer.parseInt(value.trim());
+        }
+        value = filterConfig.getInitParameter("mimeTypes");
+        if (value != null) {
+            Set<String> types = new HashSet<>();
+            for (String type : value.split(",")) {
+                if (!type.trim().isEmpty()) {
+                    types.add(type.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+            mimeTypes = types;
+        }
+        logger.info("CompressionFilter initialized: minSize=" + minSize + ", level=" + level);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        CompressingOutputStream.Encoding encoding = negotiate(httpRequest.getHeader("Accept-Encoding"));
+        if (encoding == null || "HEAD".equals(httpRequest.getMethod()) || isEventStream(httpRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        CompressionResponse wrapped = new CompressionResponse((HttpServletResponse) response, encoding);
+        try {
+            chain.doFilter(request, wrapped);
+        } catch (IOException | ServletException | RuntimeException e) {
+            wrapped.abort();
+            throw e;
+        }
+
+        if (request.isAsyncStarted()) {
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) throws IOException {
+                    wrapped.finish();
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(AsyncEvent event) {
+                    wrapped.abort();
+                }
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        } else {
+            wrapped.finish();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        logger.info("CompressionFilter destroyed");
+    }
+
+    /**
+     * Whether the request is for Server-Sent Events, which must be sent as written
+     */
+    static boolean isEventStream(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.contains("text/event-stream");
+    }
+
+    /**
+     * Pick the content coding from an Accept-Encoding header
+     * @param acceptEncoding Header value, or null
+     * @return gzip or deflate, gzip when both are equally acceptable, or null for none
+     */
+    static CompressingOutputStream.Encoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        double gzip = 0;
+        double deflate = 0;
+        double wildcard = -1;
+        boolean gzipListed = false;
+        boolean deflateListed = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] pieces = part.split(";");
+            String coding = pieces[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < pieces.length; i++) {
+                String parameter = pieces[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = quality;
+                gzipListed = true;
+            } else if (coding.equals("deflate")) {
+                deflate = quality;
+                deflateListed = true;
+            } else if (coding.equals("*")) {
+                wildcard = quality;
+            }
+        }
+        if (!gzipListed && wildcard >= 0) {
+            gzip = wildcard;
+        }
+        if (!deflateListed && wildcard >= 0) {
+            deflate = wildcard;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return CompressingOutputStream.Encoding.GZIP;
+        }
+        return deflate > 0 ? CompressingOutputStream.Encoding.DEFLATE : null;
+    }
+
+    /**
+     * Response wrapper routing the body through a CompressingOutputStream
+     * Content-Length set by the servlet is held back and only passed on for uncompressed bodies
+     */
+    private final class CompressionResponse extends HttpServletResponseWrapper implements CompressingOutputStream.Sink {
+
+        private final CompressingOutputStream.Encoding encoding;
+        private CompressingOutputStream body;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+        private long contentLength = -1;
+
+        CompressionResponse(HttpServletResponse response, CompressingOutputStream.Encoding encoding) {
+            super(response);
+            this.encoding = encoding;
+        }
+
+        private CompressingOutputStream body() {
+            if (body == null) {
+                body = new CompressingOutputStream(this, encoding, minSize, level);
+            }
+            return body;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            if (outputStream == null) {
+                outputStream = new BodyOutputStream(body());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(body(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                contentLength = value != null ? Long.parseLong(value.trim()) : -1;
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            } else if (body != null) {
+                body.flush();
+            }
+            if (body == null || body.isCompressing() || !isCompressible()) {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void reset() {
+            if (body != null && !body.clear()) {
+                throw new IllegalStateException("Response output has already started");
+            }
+            contentLength = -1;
+            super.reset();
+        }
+
+        @Override
+        public void resetBuffer() {
+            if (body != null && !body.clear()) {
+                throw new IllegalStateException("Response output has already started");
+            }
+            super.resetBuffer();
+        }
+
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.close();
+            } else if (body != null) {
+                body.close();
+            } else if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+        }
+
+        void abort() {
+            if (body != null) {
+                body.abort();
+            }
+        }
+
+        @Override
+        public boolean isCompressible() {
+            String contentType = getContentType();
+            if (contentType == null || getHeader("Content-Encoding") != null) {
+                return false;
+            }
+            int status = getStatus();
+            if (status == SC_NO_CONTENT || status == SC_PARTIAL_CONTENT || status == SC_NOT_MODIFIED) {
+                return false;
+            }
+            int semicolon = contentType.indexOf(';');
+            String mimeType = (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim();
+            return mimeTypes.contains(mimeType.toLowerCase(Locale.ROOT));
+        }
+
+        @Override
+        public boolean startCompressed() {
+            if (!isCompressible()) {
+                return false;
+            }
+            super.setHeader("Content-Encoding", encoding.token());
+            addHeader("Vary", "Accept-Encoding");
+            return true;
+        }
+
+        @Override
+        public void startIdentity(int length) {
+            if (isCompressible()) {
+                addHeader("Vary", "Accept-Encoding");
+            }
+            if (length >= 0) {
+                super.setContentLength(length);
+            } else if (contentLength >= 0) {
+                super.setContentLengthLong(contentLength);
+            }
+        }
+
+        @Override
+        public OutputStream open() throws IOException {
+            return super.getOutputStream();
+        }
+    }
+
+    /**
+     * ServletOutputStream view of the compressing body
+     */
+    private static final class BodyOutputStream extends ServletOutputStream {
+
+        private final CompressingOutputStream body;
+
+        BodyOutputStream(CompressingOutputStream body) {
+            this.body = body;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            body.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            body.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            body.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new IllegalStateException("Non-blocking output is not supported on compressed responses");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.dao.Page;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Flight Recorder event for one DAO method call
+ * Raised by BaseDAOImpl.executeQuery and executeInTransaction, which every DAO method runs
+ * through, so DAOs are covered whether they are instrumented or built with new
+ */
+@Name("com.pahanaedu.DaoQuery")
+@Label("DAO Query")
+@Category({"Pahana Edu", "Persistence"})
+@Description("A DAO method call and the rows it returned")
+@StackTrace(false)
+public class DaoQueryEvent extends jdk.jfr.Event {
+
+    @Label("DAO Class")
+    public String daoClass;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Row Count")
+    @Description("Rows returned or updated, or -1 if the result is not a row count")
+    public int rowCount = -1;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+
+    /**
+     * Rows in a DAO result: list and page sizes, 0 or 1 for an Optional, update counts as is
+     */
+    public static int rowsOf(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        } else if (result instanceof Page) {
+            return ((Page<?>) result).getItems().size();
+        } else if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        } else if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,62 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.service.DashboardSnapshot;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads DashboardSnapshot at startup and reconciles it with the database periodically.
+ * The interval comes from the system property pahanaedu.dashboard.reconcile.interval.minutes
+ * (default 5, 0 disables the snapshot and the dashboard queries on every request)
+ */
+@WebListener
+public class DashboardSnapshotListener implements ServletContextListener {
+
+    private static final Logger logger = Logger.getLogger(DashboardSnapshotListener.class.getName());
+
+    public static final String INTERVAL_PROPERTY = "pahanaedu.dashboard.reconcile.interval.minutes";
+    private static final long DEFAULT_INTERVAL_MINUTES = 5;
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        long interval = Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL_MINUTES);
+        if (interval <= 0) {
+            logger.info("Dashboard snapshot disabled");
+            return;
+        }
+
+        DashboardSnapshot snapshot = ServiceFactory.getDashboardSnapshot();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-snapshot-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // First run loads the snapshot; until then the dashboard runs its queries
+        scheduler.scheduleWithFixedDelay(() -> reconcile(snapshot), 0, interval, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void reconcile(DashboardSnapshot snapshot) {
+        try {
+            EntityManagerHolder.inScope(EntityManagerUtil.getEntityManagerFactory(), snapshot::reconcile);
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next run retries
+            logger.log(Level.WARNING, "Dashboard snapshot reconcile failed", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.pahanaedu.util;
+
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Request-scoped EntityManager filter
+ * Binds one persistence context per HTTP request through EntityManagerHolder, so every
+ * DAO call in the request (including lazy loads while rendering JSPs) shares it and at
+ * most one connection is used. The EntityManager is closed when the request completes
+ *
+ * For async requests it is closed when the servlet returns; work done after that, such as
+ * writing to an event stream, must not use it
+ *
+ * The SQL statements of each request are counted through StatementCounter. A request over the
+ * statement budget, or one that runs the same SELECT more often than allowed (the N+1
+ * pattern), is logged at WARNING with its statements and counted in /metrics
+ *
+ * Settings (system properties, defaults in brackets): pahanaedu.sql.request.max_statements [100],
+ * pahanaedu.sql.request.max_same_select [20]
+ *
+ * Mapped in web.xml ahead of the other filters, so they run inside the request scope
+ */
+@WebFilter(filterName = "EntityManagerFilter", asyncSupported = true)
+public class EntityManagerFilter implements Filter {
+
+    private static final Logger logger = Logger.getLogger(EntityManagerFilter.class.getName());
+
+    private EntityManagerFactory entityManagerFactory;
+
+    private final int maxStatements = Integer.getInteger("pahanaedu.sql.request.max_statements", 100);
+    private final int maxSameSelect = Integer.getInteger("pahanaedu.sql.request.max_same_select", 20);
+    private final MetricsRegistry.Counter overBudget = ServiceFactory.getMetricsRegistry().counter(
+            "pahanaedu_sql_requests_over_budget_total", "Requests that ran more statements than the request budget");
+    private final MetricsRegistry.Counter repeatedSelects = ServiceFactory.getMetricsRegistry().counter(
+            "pahanaedu_sql_requests_repeated_select_total", "Requests that ran one SELECT more often than allowed (N+1)");
+
+    public EntityManagerFilter() {
+    }
+
+    /**
+     * Constructor for tests and embedded setups using their own persistence unit
+     * @param entityManagerFactory Factory to create request EntityManagers from
+     */
+    public EntityManagerFilter(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        if (entityManagerFactory == null) {
+            entityManagerFactory = EntityManagerUtil.getEntityManagerFactory();
+        }
+        logger.info("EntityManagerFilter initialized");
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        // Nested dispatches reuse the scope opened by the outer request
+        if (EntityManagerHolder.isBound()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        StatementCounter.Scope statements = StatementCounter.open();
+        EntityManagerHolder.bind(entityManagerFactory);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            try {
+                EntityManagerHolder.unbind();
+            } finally {
+                statements.close();
+            }
+            checkStatements(request, statements);
+        }
+    }
+
+    private void checkStatements(ServletRequest request, StatementCounter.Scope statements) {
+        Map<String, Integer> repeated = statements.getRepeatedSelects(maxSameSelect);
+        boolean over = statements.getStatements() > maxStatements;
+        if (!over && repeated.isEmpty()) {
+            return;
+        }
+        if (over) {
+            overBudget.increment();
+        }
+        if (!repeated.isEmpty()) {
+            repeatedSelects.increment();
+        }
+        String target = request instanceof HttpServletRequest
+                ? ((HttpServletRequest) request).getMethod() + " " + ((HttpServletRequest) request).getRequestURI()
+                : "request";
+        logger.warning(target + (repeated.isEmpty() ? "" : " repeated " + repeated.size() + " SELECT(s), possible N+1;")
+                + " ran " + statements.describe());
+    }
+
+    @Override
+    public void destroy() {
+        logger.info("EntityManagerFilter destroyed");
+    }
+}
@@ -0,0 +1,124 @@
+package com.pahanaedu.util;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Thread-bound holder for the current unit of work's EntityManager
+ * A scope is opened by EntityManagerFilter for each HTTP request (or by inScope for
+ * background work); the EntityManager itself is created lazily on first use so requests
+ * that never touch the database never open a persistence context or a connection
+ */
+public final class EntityManagerHolder {
+
+    private static final Logger logger = Logger.getLogger(EntityManagerHolder.class.getName());
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private EntityManagerHolder() {
+    }
+
+    /**
+     * Open a scope on the current thread
+     * @param emf Factory used to create the EntityManager on first use
+     * @throws IllegalStateException if a scope is already bound
+     */
+    public static void bind(EntityManagerFactory emf) {
+        if (emf == null) {
+            throw new IllegalArgumentException("EntityManagerFactory cannot be null");
+        }
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("An EntityManager scope is already bound to this thread");
+        }
+        CURRENT.set(new Scope(emf));
+    }
+
+    /**
+     * Check if a scope is bound to the current thread
+     * @return true if bound
+     */
+    public static boolean isBound() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Get the scoped EntityManager, creating it on first use
+     * @return EntityManager or null if no scope is bound
+     */
+    public static EntityManager get() {
+        Scope scope = CURRENT.get();
+        if (scope == null) {
+            return null;
+        }
+        if (scope.entityManager == null) {
+            scope.entityManager = scope.factory.createEntityManager();
+        }
+        return scope.entityManager;
+    }
+
+    /**
+     * Check if the given EntityManager is the one owned by the current scope
+     * @param em EntityManager to check
+     * @return true if the scope owns it (callers must not close it)
+     */
+    public static boolean isCurrent(EntityManager em) {
+        Scope scope = CURRENT.get();
+        return scope != null && em != null && scope.entityManager == em;
+    }
+
+    /**
+     * Close the scope on the current thread
+     * Rolls back any transaction left active, closes the EntityManager and always
+     * clears the thread-local, so pooled threads never carry state between requests
+     */
+    public static void unbind() {
+        Scope scope = CURRENT.get();
+        CURRENT.remove();
+        if (scope == null || scope.entityManager == null) {
+            return;
+        }
+
+        EntityManager em = scope.entityManager;
+        try {
+            if (em.isOpen() && em.getTransaction().isActive()) {
+                logger.warning("Rolling back transaction left open at end of EntityManager scope");
+                em.getTransaction().rollback();
+            }
+        } catch (RuntimeException e) {
+            logger.severe("Error rolling back scoped transaction: " + e.getMessage());
+        } finally {
+            if (em.isOpen()) {
+                em.close();
+            }
+        }
+    }
+
+    /**
+     * Run work inside its own scope, for code running outside an HTTP request
+     * @param emf Factory used to create the EntityManager
+     * @param work Work to run
+     * @return Result of the work
+     */
+    public static <T> T inScope(EntityManagerFactory emf, Supplier<T> work) {
+        bind(emf);
+        try {
+            return work.get();
+        } finally {
+            unbind();
+        }
+    }
+
+    /**
+     * Per-thread scope state
+     */
+    private static final class Scope {
+        private final EntityManagerFactory factory;
+        private EntityManager entityManager;
+
+        private Scope(EntityManagerFactory factory) {
+            this.factory = factory;
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package com.pahanaedu.util;
 
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Logger;
 
 /**
@@ -32,6 +38,40 @@ public class EntityManagerUtil {
         return emf.createEntityManager();
     }
     
+    /**
+     * Get the shared EntityManagerFactory
+     * @return EntityManagerFactory
+     */
+    public static EntityManagerFactory getEntityManagerFactory() {
+        return emf;
+    }
+    
+    /**
+     * Get statistics of the in-house connection pool
+     * @return Pool statistics, or null if another connection provider is configured
+     */
+    public static PooledConnectionProvider.Statistics getConnectionPoolStatistics() {
+        ConnectionProvider provider = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(ConnectionProvider.class);
+        if (provider instanceof PooledConnectionProvider) {
+            return ((PooledConnectionProvider) provider).getStatistics();
+        }
+        return null;
+    }
+    
+    /**
+     * Get statistics of the in-house second-level cache regions
+     * @return Region statistics, empty if another region factory or no cache is configured
+     */
+    public static List<InMemoryRegionFactory.RegionStatistics> getCacheStatistics() {
+        RegionFactory regionFactory = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(RegionFactory.class);
+        if (regionFactory instanceof InMemoryRegionFactory) {
+            return ((InMemoryRegionFactory) regionFactory).getStatistics();
+        }
+        return Collections.emptyList();
+    }
+    
     /**
      * Close EntityManagerFactory (for shutdown)
      */
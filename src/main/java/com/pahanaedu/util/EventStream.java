@@ -0,0 +1,282 @@
+package com.pahanaedu.util;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server-Sent Events hub holding one asynchronous response per connected browser
+ * open() starts async processing and hands the container thread back at once; broadcast()
+ * queues an event for every client and writes it with non-blocking I/O, so neither idle nor
+ * slow connections hold a thread. A client whose backlog reaches maxBacklog events is
+ * disconnected; EventSource reconnects by itself and is sent the current state again
+ *
+ * Event streams must not pass through CompressionFilter, which buffers and does not support
+ * non-blocking output; it skips requests that accept text/event-stream
+ */
+public class EventStream {
+
+    private static final Logger logger = Logger.getLogger(EventStream.class.getName());
+
+    /**
+     * Comment line that keeps proxies from closing an idle stream
+     */
+    public static final byte[] HEARTBEAT = ": keep-alive\n\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Output of one client, as written by the container or by tests
+     */
+    interface Channel {
+        boolean isReady();
+
+        void write(byte[] event) throws IOException;
+
+        void flush() throws IOException;
+
+        void close();
+    }
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final int maxClients;
+    private final int maxBacklog;
+
+    /**
+     * @param maxClients Connections accepted at once; further ones get 503
+     * @param maxBacklog Events queued for a client that is not reading before it is dropped
+     */
+    public EventStream(int maxClients, int maxBacklog) {
+        this.maxClients = maxClients;
+        this.maxBacklog = maxBacklog;
+    }
+
+    /**
+     * Format an event
+     * @param name Event name
+     * @param data Event data; each line becomes a data field
+     * @return Event bytes
+     */
+    public static byte[] event(String name, String data) {
+        StringBuilder event = new StringBuilder(data.length() + name.length() + 16);
+        event.append("event: ").append(name).append('\n');
+        for (String line : data.split("\n", -1)) {
+            event.append("data: ").append(line).append('\n');
+        }
+        return event.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Turn the request into an event stream and send it its first event
+     * The calling thread returns to the container as soon as this returns
+     * @param request HTTP request; the servlet and its filters must support async
+     * @param response HTTP response
+     * @param initialEvent Event sent first, usually the full current state
+     * @return false if the stream is full and 503 was sent
+     */
+    public boolean open(HttpServletRequest request, HttpServletResponse response, byte[] initialEvent) throws IOException {
+        if (clients.size() >= maxClients) {
+            response.setHeader("Retry-After", "30");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return false;
+        }
+
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        // Stop nginx and similar proxies from buffering the stream
+        response.setHeader("X-Accel-Buffering", "no");
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        ServletOutputStream out = response.getOutputStream();
+        Client client = new Client(new Channel() {
+            @Override
+            public boolean isReady() {
+                return out.isReady();
+            }
+
+            @Override
+            public void write(byte[] event) throws IOException {
+                out.write(event);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+
+            @Override
+            public void close() {
+                async.complete();
+            }
+        });
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                clients.remove(client);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                client.close();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                client.close();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        client.queue(initialEvent);
+        // The container calls onWritePossible once output is ready, which sends the first event;
+        // the client only joins broadcasts once the output is in non-blocking mode
+        out.setWriteListener(new WriteListener() {
+            @Override
+            public void onWritePossible() {
+                client.drain();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                client.close();
+            }
+        });
+        clients.add(client);
+        if (client.isClosed()) {
+            // Failed while joining; close() ran before there was anything to remove
+            clients.remove(client);
+        }
+        return true;
+    }
+
+    /**
+     * Add a client writing to the given channel and send it its first event
+     */
+    Client register(Channel channel, byte[] initialEvent) {
+        Client client = new Client(channel);
+        client.queue(initialEvent);
+        clients.add(client);
+        client.drain();
+        return client;
+    }
+
+    /**
+     * Queue an event for every connected client
+     * @param event Event bytes, see event()
+     * @return Number of clients the event was queued for
+     */
+    public int broadcast(byte[] event) {
+        int sent = 0;
+        for (Client client : clients) {
+            if (client.send(event)) {
+                sent++;
+            }
+        }
+        return sent;
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Close every stream, for shutdown
+     */
+    public void closeAll() {
+        for (Client client : clients) {
+            client.close();
+        }
+    }
+
+    /**
+     * One connected browser and the events not yet written to it
+     */
+    final class Client {
+
+        private final Channel channel;
+        private final ArrayDeque<byte[]> backlog = new ArrayDeque<>();
+        private boolean closed;
+
+        private Client(Channel channel) {
+            this.channel = channel;
+        }
+
+        private synchronized void queue(byte[] event) {
+            backlog.add(event);
+        }
+
+        /**
+         * Queue an event and write as much as the channel takes without blocking
+         * @return false if the client is closed or was dropped for falling behind
+         */
+        synchronized boolean send(byte[] event) {
+            if (closed) {
+                return false;
+            }
+            if (backlog.size() >= maxBacklog) {
+                logger.fine("Dropping event stream client with " + backlog.size() + " unsent events");
+                close();
+                return false;
+            }
+            backlog.add(event);
+            drain();
+            return !closed;
+        }
+
+        /**
+         * Write queued events while the channel is ready; called again by onWritePossible
+         */
+        synchronized void drain() {
+            try {
+                while (!closed && !backlog.isEmpty() && channel.isReady()) {
+                    channel.write(backlog.poll());
+                }
+                if (!closed && channel.isReady()) {
+                    channel.flush();
+                }
+            } catch (IOException | RuntimeException e) {
+                // Browser went away; EventSource reconnects if it is still open
+                logger.log(Level.FINE, "Event stream client disconnected", e);
+                close();
+            }
+        }
+
+        synchronized int getBacklog() {
+            return backlog.size();
+        }
+
+        synchronized boolean isClosed() {
+            return closed;
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                backlog.clear();
+            }
+            clients.remove(this);
+            try {
+                channel.close();
+            } catch (RuntimeException e) {
+                // Already completed by the container
+                logger.log(Level.FINE, "Event stream already closed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.pahanaedu.util;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * In-process second-level cache for Hibernate through hibernate.cache.region.factory_class
+ * Each region is a size-bounded, lock-striped LRU map; Hibernate's own access strategies
+ * (read-write, nonstrict, read-only) handle locking and invalidation on top of it. Every
+ * region counts hits, misses, puts and evictions
+ *
+ * Settings (defaults in brackets): pahanaedu.cache.max_entries [10000], and
+ * pahanaedu.cache.max_entries.&lt;region&gt; to size a single region. The update timestamps
+ * region is never bounded, since dropping a timestamp would let stale query results through
+ */
+public class InMemoryRegionFactory extends RegionFactoryTemplate {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = Logger.getLogger(InMemoryRegionFactory.class.getName());
+
+    public static final String MAX_ENTRIES = "pahanaedu.cache.max_entries";
+
+    private final Map<String, BoundedStorage> regions = new ConcurrentHashMap<>();
+    private Map configurationValues;
+    private int defaultMaxEntries;
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map configValues) {
+        configurationValues = configValues;
+        defaultMaxEntries = intValue(configValues, MAX_ENTRIES, 10000);
+        logger.info("Second-level cache started: max " + defaultMaxEntries + " entries per region");
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        regions.values().forEach(BoundedStorage::evictData);
+        regions.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+                                                                    DomainDataRegionBuildingContext buildingContext) {
+        return createStorage(regionConfig.getRegionName(), maxEntries(regionConfig.getRegionName()));
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+                                                                  SessionFactoryImplementor sessionFactory) {
+        return createStorage(regionName, maxEntries(regionName));
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+                                                                SessionFactoryImplementor sessionFactory) {
+        return createStorage(regionName, Integer.MAX_VALUE);
+    }
+
+    private BoundedStorage createStorage(String regionName, int maxEntries) {
+        BoundedStorage storage = new BoundedStorage(regionName, maxEntries);
+        regions.put(regionName, storage);
+        return storage;
+    }
+
+    private int maxEntries(String regionName) {
+        return intValue(configurationValues, MAX_ENTRIES + "." + regionName, defaultMaxEntries);
+    }
+
+    /**
+     * Get statistics of one region
+     * @param regionName Region name as given in @Cache(region = ...)
+     * @return Region statistics, or null if there is no such region
+     */
+    public RegionStatistics getStatistics(String regionName) {
+        BoundedStorage storage = regions.get(qualify(regionName));
+        return storage != null ? storage.statistics() : null;
+    }
+
+    /**
+     * Get statistics of all regions
+     * @return Region statistics
+     */
+    public List<RegionStatistics> getStatistics() {
+        List<RegionStatistics> statistics = new ArrayList<>();
+        regions.values().forEach(storage -> statistics.add(storage.statistics()));
+        return statistics;
+    }
+
+    private static int intValue(Map configurationValues, String key, int defaultValue) {
+        Object value = configurationValues != null ? configurationValues.get(key) : null;
+        if (value == null || value.toString().trim().isEmpty()) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value.toString().trim());
+    }
+
+    /**
+     * One region's entries, split by key hash into stripes that are each an LRU map in
+     * access order. An access-ordered map changes on every read, so each stripe is locked
+     * for reads too; striping spreads concurrent lookups over separate locks. Eviction is
+     * least recently used within the stripe, which approximates LRU over the region.
+     * Small regions get a single stripe and so an exact LRU
+     */
+    static final class BoundedStorage implements DomainDataStorageAccess {
+
+        private static final int MAX_STRIPES = 16;
+        private static final int MIN_ENTRIES_PER_STRIPE = 64;
+
+        private final String name;
+        private final int maxEntries;
+        private final Stripe[] stripes;
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder puts = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        BoundedStorage(String name, int maxEntries) {
+            this.name = name;
+            this.maxEntries = maxEntries;
+            int count = 1;
+            while (count < MAX_STRIPES && (long) count * 2 * MIN_ENTRIES_PER_STRIPE <= maxEntries) {
+                count <<= 1;
+            }
+            int stripeEntries = (int) (((long) maxEntries + count - 1) / count);
+            stripes = new Stripe[count];
+            for (int i = 0; i < count; i++) {
+                stripes[i] = new Stripe(stripeEntries);
+            }
+        }
+
+        /**
+         * Access-ordered map for one share of the keys; guarded by its own monitor
+         */
+        private final class Stripe extends LinkedHashMap<Object, Object> {
+            private static final long serialVersionUID = 1L;
+
+            private final int maxEntries;
+
+            Stripe(int maxEntries) {
+                super(16, 0.75f, true);
+                this.maxEntries = maxEntries;
+            }
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        }
+
+        private Stripe stripe(Object key) {
+            int hash = key.hashCode();
+            return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+        }
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            Stripe stripe = stripe(key);
+            Object value;
+            synchronized (stripe) {
+                value = stripe.get(key);
+            }
+            if (value != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+            return value;
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            Stripe stripe = stripe(key);
+            synchronized (stripe) {
+                stripe.put(key, value);
+            }
+            puts.increment();
+        }
+
+        @Override
+        public void removeFromCache(Object key, SharedSessionContractImplementor session) {
+            evictData(key);
+        }
+
+        @Override
+        public void clearCache(SharedSessionContractImplementor session) {
+            evictData();
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            Stripe stripe = stripe(key);
+            synchronized (stripe) {
+                return stripe.containsKey(key);
+            }
+        }
+
+        @Override
+        public void evictData() {
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.clear();
+                }
+            }
+        }
+
+        @Override
+        public void evictData(Object key) {
+            Stripe stripe = stripe(key);
+            synchronized (stripe) {
+                stripe.remove(key);
+            }
+        }
+
+        @Override
+        public void release() {
+            evictData();
+        }
+
+        int stripeCount() {
+            return stripes.length;
+        }
+
+        RegionStatistics statistics() {
+            int size = 0;
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    size += stripe.size();
+                }
+            }
+            return new RegionStatistics(name, size, maxEntries, hits.sum(), misses.sum(), puts.sum(), evictions.sum());
+        }
+    }
+
+    /**
+     * Point-in-time counters of one region
+     * Hits and misses count storage lookups: under read-write access a load also looks the
+     * key up again before its put, so one cold read shows as two misses and one put
+     */
+    public static final class RegionStatistics {
+        private final String regionName;
+        private final int size;
+        private final int maxEntries;
+        private final long hits;
+        private final long misses;
+        private final long puts;
+        private final long evictions;
+
+        RegionStatistics(String regionName, int size, int maxEntries, long hits, long misses, long puts, long evictions) {
+            this.regionName = regionName;
+            this.size = size;
+            this.maxEntries = maxEntries;
+            this.hits = hits;
+            this.misses = misses;
+            this.puts = puts;
+            this.evictions = evictions;
+        }
+
+        public String getRegionName() { return regionName; }
+        public int getSize() { return size; }
+        public int getMaxEntries() { return maxEntries; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getPuts() { return puts; }
+        public long getEvictions() { return evictions; }
+
+        public double getHitRatio() {
+            long lookups = hits + misses;
+            return lookups > 0 ? (double) hits / lookups : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("RegionStatistics{region=%s, size=%d/%d, hits=%d, misses=%d, hitRatio=%.2f, puts=%d, evictions=%d}",
+                    regionName, size, maxEntries, hits, misses, getHitRatio(), puts, evictions);
+        }
+    }
+}
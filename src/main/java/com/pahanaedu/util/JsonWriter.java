@@ -0,0 +1,275 @@
+package com.pahanaedu.util;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Minimal streaming JSON writer for servlet responses
+ * Writes straight to the given Writer, so a list is never held as one big string.
+ * Strings are escaped in one pass, including control characters. Commas and colons
+ * are added automatically; a structural mistake (e.g. a value without a name inside
+ * an object) throws IllegalStateException
+ *
+ * Typical use:
+ *   JsonWriter json = new JsonWriter(response.getWriter());
+ *   json.beginObject().name("billId").value(bill.getBillId()).endObject().flush();
+ */
+public final class JsonWriter implements Flushable {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Scope markers kept on a small stack
+    private static final byte EMPTY_ARRAY = 1;
+    private static final byte ARRAY = 2;
+    private static final byte EMPTY_OBJECT = 3;
+    private static final byte OBJECT = 4;
+    private static final byte NAME = 5;
+
+    private final Writer out;
+    private byte[] stack = new byte[8];
+    private int depth;
+
+    public JsonWriter(Writer out) {
+        if (out == null) {
+            throw new IllegalArgumentException("Writer cannot be null");
+        }
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        beforeValue();
+        push(EMPTY_OBJECT);
+        out.write('{');
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close(EMPTY_OBJECT, OBJECT, '}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        beforeValue();
+        push(EMPTY_ARRAY);
+        out.write('[');
+        return this;
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(EMPTY_ARRAY, ARRAY, ']');
+    }
+
+    /**
+     * Write a member name; the next call must write its value
+     * @param name Member name
+     * @return This writer
+     */
+    public JsonWriter name(String name) throws IOException {
+        if (name == null) {
+            throw new IllegalArgumentException("Name cannot be null");
+        }
+        byte scope = peek();
+        if (scope == OBJECT) {
+            out.write(',');
+        } else if (scope != EMPTY_OBJECT) {
+            throw new IllegalStateException("Name outside of an object");
+        }
+        stack[depth - 1] = NAME;
+        writeString(name);
+        out.write(':');
+        return this;
+    }
+
+    /**
+     * Write a string value, or null
+     * @param value Value
+     * @return This writer
+     */
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        writeString(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Write a number, or null
+     * @param value Value
+     * @return This writer
+     */
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof BigDecimal) {
+            return value((BigDecimal) value);
+        }
+        beforeValue();
+        out.write(value.toString());
+        return this;
+    }
+
+    /**
+     * Write a decimal in plain notation (never 1E+3), or null
+     * @param value Value
+     * @return This writer
+     */
+    public JsonWriter value(BigDecimal value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        out.write(value.toPlainString());
+        return this;
+    }
+
+    /**
+     * Write a date as an ISO-8601 string (yyyy-MM-dd), or null
+     * @param value Value
+     * @return This writer
+     */
+    public JsonWriter value(LocalDate value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        beforeValue();
+        out.write('"');
+        out.write(value.toString());
+        out.write('"');
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    /**
+     * Flush the underlying writer
+     * The writer is not closed: it usually belongs to the servlet response
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Write one object with a single "error" member, the shape all JSON endpoints use for failures
+     * @param out Writer
+     * @param message Error message
+     */
+    public static void writeError(Writer out, String message) throws IOException {
+        new JsonWriter(out).beginObject().name("error").value(message).endObject().flush();
+    }
+
+    private void beforeValue() throws IOException {
+        if (depth == 0) {
+            return;
+        }
+        switch (stack[depth - 1]) {
+            case EMPTY_ARRAY:
+                stack[depth - 1] = ARRAY;
+                break;
+            case ARRAY:
+                out.write(',');
+                break;
+            case NAME:
+                stack[depth - 1] = OBJECT;
+                break;
+            default:
+                throw new IllegalStateException("Value inside an object needs a name first");
+        }
+    }
+
+    private JsonWriter close(byte empty, byte nonEmpty, char bracket) throws IOException {
+        byte scope = peek();
+        if (scope != empty && scope != nonEmpty) {
+            throw new IllegalStateException("Nesting problem: cannot close " + bracket + " here");
+        }
+        depth--;
+        out.write(bracket);
+        return this;
+    }
+
+    private void push(byte scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    private byte peek() {
+        if (depth == 0) {
+            throw new IllegalStateException("JsonWriter is not inside an object or array");
+        }
+        return stack[depth - 1];
+    }
+
+    /**
+     * Write a quoted string, copying runs of safe characters in one write each
+     */
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c == '"') {
+                replacement = "\\\"";
+            } else if (c == '\\') {
+                replacement = "\\\\";
+            } else if (c >= 0x20 && c != '\u2028' && c != '\u2029') {
+                continue;
+            } else if (c == '\n') {
+                replacement = "\\n";
+            } else if (c == '\r') {
+                replacement = "\\r";
+            } else if (c == '\t') {
+                replacement = "\\t";
+            } else if (c == '\b') {
+                replacement = "\\b";
+            } else if (c == '\f') {
+                replacement = "\\f";
+            } else {
+                replacement = null;
+            }
+            if (i > start) {
+                out.write(value, start, i - start);
+            }
+            if (replacement != null) {
+                out.write(replacement);
+            } else {
+                // Other control characters, and the line separators JavaScript treats as newlines
+                out.write("\\u");
+                out.write(HEX[(c >> 12) & 0xF]);
+                out.write(HEX[(c >> 8) & 0xF]);
+                out.write(HEX[(c >> 4) & 0xF]);
+                out.write(HEX[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        if (length > start) {
+            out.write(value, start, length - start);
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,26 @@
+package com.pahanaedu.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one password check
+ * Raised by UserServiceImpl.authenticateUser around PasswordUtil.verifyPassword, whose hashing
+ * dominates a login
+ */
+@Name("com.pahanaedu.Login")
+@Label("Login")
+@Category({"Pahana Edu", "Security"})
+@Description("Password verification during a login")
+@StackTrace(false)
+public class LoginEvent extends jdk.jfr.Event {
+
+    @Label("Username")
+    public String username;
+
+    @Label("Succeeded")
+    public boolean succeeded;
+}
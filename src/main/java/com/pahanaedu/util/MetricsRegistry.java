@@ -0,0 +1,289 @@
+package com.pahanaedu.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-process counters, gauges and latency histograms, written out in the Prometheus text format
+ * Metrics are looked up by name and label values; callers on hot paths keep the returned
+ * Counter or LatencyHistogram rather than looking it up per call. instrument() wraps a DAO or
+ * service so every interface method is timed as an operation of its layer
+ *
+ * Settings (system properties, defaults in brackets): pahanaedu.metrics.enabled [true] -
+ * when false, instrument() returns the target unwrapped
+ */
+public class MetricsRegistry {
+
+    /**
+     * Quantiles written for every histogram
+     */
+    static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    public static final String METHOD_DURATION = "pahanaedu_method_duration_seconds";
+    public static final String METHOD_ERRORS = "pahanaedu_method_errors_total";
+
+    private final boolean instrumentationEnabled;
+
+    // Sorted so the output is stable between scrapes
+    private final Map<String, Family<?>> families = new ConcurrentSkipListMap<>();
+
+    public MetricsRegistry() {
+        this(Boolean.parseBoolean(System.getProperty("pahanaedu.metrics.enabled", "true")));
+    }
+
+    public MetricsRegistry(boolean instrumentationEnabled) {
+        this.instrumentationEnabled = instrumentationEnabled;
+    }
+
+    /**
+     * Monotonic count of events
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Get or create a counter
+     * @param name Metric name, ending in _total
+     * @param help Description written as # HELP
+     * @param labels Label names and values, alternating
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return this.<Counter>family(name, help, "counter").get(labels, Counter::new);
+    }
+
+    /**
+     * Register a counter kept elsewhere and read at each scrape, replacing an earlier one with
+     * the same name and labels
+     * @param name Metric name, ending in _total
+     * @param help Description written as # HELP
+     * @param value Supplier of the running total; it must never decrease, and be cheap and thread-safe
+     * @param labels Label names and values, alternating
+     */
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        this.<Object>family(name, help, "counter").put(labels, value);
+    }
+
+    /**
+     * Get or create a latency histogram, written as a summary in seconds
+     * @param name Metric name, ending in _seconds
+     * @param help Description written as # HELP
+     * @param labels Label names and values, alternating
+     */
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return this.<LatencyHistogram>family(name, help, "summary").get(labels, LatencyHistogram::new);
+    }
+
+    /**
+     * Register a value read at each scrape, replacing an earlier gauge with the same name and labels
+     * @param name Metric name
+     * @param help Description written as # HELP
+     * @param value Supplier of the current value; it must be cheap and thread-safe
+     * @param labels Label names and values, alternating
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        this.<DoubleSupplier>family(name, help, "gauge").put(labels, value);
+    }
+
+    /**
+     * Wrap an implementation so each call through the interface is timed
+     * Calls are recorded in pahanaedu_method_duration_seconds, and calls that throw also in
+     * pahanaedu_method_errors_total, labelled with the layer and Interface.method. Overloads
+     * share one series. Calls the implementation makes on itself are not seen
+     * @param type Interface to expose
+     * @param target Implementation
+     * @param layer Label value, e.g. "dao" or "service"
+     * @return Timed proxy, or the target itself when instrumentation is disabled
+     */
+    public <T> T instrument(Class<T> type, T target, String layer) {
+        if (!instrumentationEnabled || target == null || Proxy.isProxyClass(target.getClass())) {
+            return target;
+        }
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                new TimingHandler(target, type.getSimpleName(), layer));
+        return type.cast(proxy);
+    }
+
+    private final class TimingHandler implements InvocationHandler {
+        private final Object target;
+        private final String typeName;
+        private final String layer;
+        private final Map<Method, Operation> operations = new ConcurrentHashMap<>();
+
+        TimingHandler(Object target, String typeName, String layer) {
+            this.target = target;
+            this.typeName = typeName;
+            this.layer = layer;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return "equals".equals(method.getName()) ? proxy == args[0] : invokeTarget(method, args);
+            }
+            Operation operation = operations.computeIfAbsent(method, m -> new Operation(layer, typeName + "." + m.getName()));
+            long start = System.nanoTime();
+            try {
+                return invokeTarget(method, args);
+            } catch (Throwable t) {
+                operation.errors.increment();
+                throw t;
+            } finally {
+                operation.duration.recordSince(start);
+            }
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private final class Operation {
+        final LatencyHistogram duration;
+        final Counter errors;
+
+        Operation(String layer, String name) {
+            duration = histogram(METHOD_DURATION, "Time spent in DAO and service methods",
+                    "layer", layer, "operation", name);
+            errors = counter(METHOD_ERRORS, "DAO and service calls that threw", "layer", layer, "operation", name);
+        }
+    }
+
+    /**
+     * Write every metric in the Prometheus text exposition format, version 0.0.4
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        StringBuilder text = new StringBuilder(4096);
+        for (Map.Entry<String, Family<?>> entry : families.entrySet()) {
+            entry.getValue().write(entry.getKey(), text);
+        }
+        out.write(text.toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <M> Family<M> family(String name, String help, String type) {
+        Family<?> family = families.computeIfAbsent(name, n -> new Family<>(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return (Family<M>) family;
+    }
+
+    /**
+     * One metric name and its series, keyed by the rendered label set
+     */
+    private static final class Family<M> {
+        final String help;
+        final String type;
+        final Map<String, M> series = new ConcurrentSkipListMap<>();
+
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+
+        M get(String[] labels, Supplier<M> factory) {
+            return series.computeIfAbsent(labels(labels), k -> factory.get());
+        }
+
+        void put(String[] labels, M value) {
+            series.put(labels(labels), value);
+        }
+
+        void write(String name, StringBuilder out) {
+            out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            for (Map.Entry<String, M> entry : series.entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+                if (metric instanceof Counter) {
+                    sample(out, name, labels, null, ((Counter) metric).get());
+                } else if (metric instanceof LongSupplier) {
+                    sample(out, name, labels, null, ((LongSupplier) metric).getAsLong());
+                } else if (metric instanceof DoubleSupplier) {
+                    sample(out, name, labels, null, ((DoubleSupplier) metric).getAsDouble());
+                } else {
+                    LatencyHistogram.Snapshot snapshot = ((LatencyHistogram) metric).snapshot();
+                    for (double quantile : QUANTILES) {
+                        sample(out, name, labels, "quantile=\"" + quantile + "\"", seconds(snapshot.getValueAt(quantile)));
+                    }
+                    sample(out, name + "_sum", labels, null, seconds(snapshot.getSumNanos()));
+                    sample(out, name + "_count", labels, null, snapshot.getCount());
+                }
+            }
+        }
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String extraLabel, double value) {
+        out.append(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            out.append('{').append(labels);
+            if (extraLabel != null) {
+                out.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+            }
+            out.append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private static String labels(String[] pairs) {
+        if (pairs.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (i > 0) {
+                labels.append(',');
+            }
+            labels.append(pairs[i]).append("=\"")
+                  .append(pairs[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                  .append('"');
+        }
+        return labels.toString();
+    }
+}
@@ -0,0 +1,428 @@
+package com.pahanaedu.util;
+
+import org.hibernate.HibernateException;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * JDBC connection pool used by Hibernate through hibernate.connection.provider_class
+ * Replaces Hibernate's built-in pool (not meant for production) without adding a pooling dependency.
+ * Idle connections sit on a lock-free LIFO free-list; a semaphore bounds the total and the
+ * borrow wait. The pool opens min idle connections at start so the first requests do not pay
+ * for connecting. Connections idle longer than the validation window are checked with isValid
+ * on borrow, and connections idle past the idle timeout are evicted down to the minimum.
+ * Borrowers get the connection wrapped by SlowQueryLog, which times their statements
+ *
+ * Settings (defaults in brackets): hibernate.connection.pool_size [20],
+ * pahanaedu.pool.min_idle [2], pahanaedu.pool.borrow_timeout_ms [5000],
+ * pahanaedu.pool.idle_timeout_ms [600000], pahanaedu.pool.validation_window_ms [1000],
+ * pahanaedu.pool.validation_timeout_s [2]
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = Logger.getLogger(PooledConnectionProvider.class.getName());
+
+    public static final String MAX_SIZE = "hibernate.connection.pool_size";
+    public static final String MIN_IDLE = "pahanaedu.pool.min_idle";
+    public static final String BORROW_TIMEOUT_MS = "pahanaedu.pool.borrow_timeout_ms";
+    public static final String IDLE_TIMEOUT_MS = "pahanaedu.pool.idle_timeout_ms";
+    public static final String VALIDATION_WINDOW_MS = "pahanaedu.pool.validation_window_ms";
+    public static final String VALIDATION_TIMEOUT_S = "pahanaedu.pool.validation_timeout_s";
+
+    private String url;
+    private final Properties connectionProperties = new Properties();
+    private boolean autoCommit;
+    private Integer isolation;
+
+    private int maxSize;
+    private int minIdle;
+    private long borrowTimeoutNanos;
+    private long idleTimeoutNanos;
+    private long validationWindowNanos;
+    private int validationTimeoutSeconds;
+
+    // Free-list: most recently returned first, so warm connections are reused and the tail ages out
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Map<Connection, PooledConnection> borrowed = new ConcurrentHashMap<>();
+    private Semaphore permits;
+    private ScheduledExecutorService evictor;
+    private volatile boolean stopped;
+    private SlowQueryLog slowQueryLog;
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder validationFailureCount = new LongAdder();
+
+    /**
+     * Physical connection with the time it was last returned to the pool
+     */
+    private static final class PooledConnection {
+        final Connection connection;
+        // What borrowers get: the connection with its statements timed by SlowQueryLog
+        final Connection handle;
+        volatile long lastReturnedNanos;
+
+        PooledConnection(Connection connection, Connection handle) {
+            this.connection = connection;
+            this.handle = handle;
+            this.lastReturnedNanos = System.nanoTime();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void configure(Map configurationValues) {
+        url = stringValue(configurationValues, "hibernate.connection.url", "javax.persistence.jdbc.url");
+        if (url == null) {
+            throw new HibernateException("No JDBC URL configured for " + getClass().getSimpleName());
+        }
+
+        String driver = stringValue(configurationValues, "hibernate.connection.driver_class", "javax.persistence.jdbc.driver");
+        if (driver != null) {
+            try {
+                Class.forName(driver);
+            } catch (ClassNotFoundException e) {
+                throw new HibernateException("JDBC driver class not found: " + driver, e);
+            }
+        }
+
+        String user = stringValue(configurationValues, "hibernate.connection.username", "javax.persistence.jdbc.user");
+        String password = stringValue(configurationValues, "hibernate.connection.password", "javax.persistence.jdbc.password");
+        if (user != null) {
+            connectionProperties.setProperty("user", user);
+        }
+        if (password != null) {
+            connectionProperties.setProperty("password", password);
+        }
+
+        autoCommit = Boolean.parseBoolean(stringValue(configurationValues, "hibernate.connection.autocommit"));
+        String isolationValue = stringValue(configurationValues, "hibernate.connection.isolation");
+        isolation = isolationValue != null ? Integer.valueOf(isolationValue) : null;
+
+        maxSize = intValue(configurationValues, MAX_SIZE, 20);
+        minIdle = Math.min(intValue(configurationValues, MIN_IDLE, 2), maxSize);
+        borrowTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(intValue(configurationValues, BORROW_TIMEOUT_MS, 5000));
+        idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(intValue(configurationValues, IDLE_TIMEOUT_MS, 600000));
+        validationWindowNanos = TimeUnit.MILLISECONDS.toNanos(intValue(configurationValues, VALIDATION_WINDOW_MS, 1000));
+        validationTimeoutSeconds = intValue(configurationValues, VALIDATION_TIMEOUT_S, 2);
+        if (maxSize < 1) {
+            throw new HibernateException(MAX_SIZE + " must be at least 1");
+        }
+
+        slowQueryLog = ServiceFactory.getSlowQueryLog();
+        permits = new Semaphore(maxSize, true);
+        long evictionPeriod = Math.max(TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos) / 2, 1000);
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, evictionPeriod, evictionPeriod, TimeUnit.MILLISECONDS);
+        prefill();
+
+        logger.info("Connection pool configured: max " + maxSize + ", min idle " + minIdle +
+                    ", borrow timeout " + TimeUnit.NANOSECONDS.toMillis(borrowTimeoutNanos) + "ms");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (stopped) {
+            throw new SQLException("Connection pool is stopped");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        long waited = System.nanoTime() - start;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+        if (!acquired) {
+            timeoutCount.increment();
+            throw new SQLTimeoutException("No connection available within " +
+                    TimeUnit.NANOSECONDS.toMillis(borrowTimeoutNanos) + "ms (active " + borrowed.size() + ")");
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                Connection connection = createConnection();
+                pooled = new PooledConnection(connection, slowQueryLog.wrap(connection));
+            }
+            borrowed.put(pooled.handle, pooled);
+            borrowCount.increment();
+            return pooled.handle;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        PooledConnection pooled = borrowed.remove(connection);
+        if (pooled == null) {
+            // Not ours (or already returned); just close it
+            connection.close();
+            return;
+        }
+
+        try {
+            if (stopped || pooled.connection.isClosed()) {
+                destroy(pooled);
+                return;
+            }
+            // Do not hand an open implicit transaction to the next borrower
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+            }
+            pooled.lastReturnedNanos = System.nanoTime();
+            idle.offerFirst(pooled);
+            idleCount.incrementAndGet();
+        } catch (SQLException e) {
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            destroy(pooled);
+        }
+        logger.info("Connection pool stopped: " + getStatistics());
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class unwrapType) {
+        return ConnectionProvider.class.equals(unwrapType) ||
+               PooledConnectionProvider.class.isAssignableFrom(unwrapType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (isUnwrappableAs(unwrapType)) {
+            return (T) this;
+        }
+        throw new UnknownUnwrapTypeException(unwrapType);
+    }
+
+    /**
+     * Get a snapshot of the pool counters
+     * @return Pool statistics
+     */
+    public Statistics getStatistics() {
+        return new Statistics(borrowed.size(), idleCount.get(), maxSize, permits.getQueueLength(),
+                borrowCount.sum(), waitNanos.sum(), maxWaitNanos.get(), timeoutCount.sum(),
+                createdCount.sum(), destroyedCount.sum(), validationFailureCount.sum());
+    }
+
+    /**
+     * Pop idle connections until one is usable
+     * @return Usable connection or null if the free-list is empty
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            validationFailureCount.increment();
+            destroy(pooled);
+        }
+        return null;
+    }
+
+    /**
+     * Validate on borrow, skipping connections returned within the validation window
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.nanoTime() - pooled.lastReturnedNanos < validationWindowNanos) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection createConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, connectionProperties);
+        try {
+            connection.setAutoCommit(autoCommit);
+            if (isolation != null) {
+                connection.setTransactionIsolation(isolation);
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        createdCount.increment();
+        return connection;
+    }
+
+    private void destroy(PooledConnection pooled) {
+        destroyedCount.increment();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Error closing pooled connection", e);
+        }
+    }
+
+    /**
+     * Open min idle connections up front; a database that is not up yet only delays them to first use
+     */
+    private void prefill() {
+        for (int i = 0; i < minIdle; i++) {
+            try {
+                Connection connection = createConnection();
+                idle.offerLast(new PooledConnection(connection, slowQueryLog.wrap(connection)));
+                idleCount.incrementAndGet();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "Could not open idle connections at start: " + e.getMessage(), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Close connections idle past the idle timeout, oldest first, keeping min idle
+     */
+    void evictIdle() {
+        long now = System.nanoTime();
+        Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && idleCount.get() > minIdle) {
+            PooledConnection pooled = oldestFirst.next();
+            if (now - pooled.lastReturnedNanos < idleTimeoutNanos) {
+                break;
+            }
+            // A concurrent borrow may have taken it; only the remover owns the connection
+            if (idle.removeLastOccurrence(pooled)) {
+                idleCount.decrementAndGet();
+                destroy(pooled);
+            }
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static String stringValue(Map configurationValues, String... keys) {
+        for (String key : keys) {
+            Object value = configurationValues.get(key);
+            if (value != null && !value.toString().trim().isEmpty()) {
+                return value.toString().trim();
+            }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static int intValue(Map configurationValues, String key, int defaultValue) {
+        String value = stringValue(configurationValues, key);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    /**
+     * Immutable snapshot of pool counters
+     */
+    public static final class Statistics {
+        private final int active;
+        private final int idle;
+        private final int maxSize;
+        private final int waiting;
+        private final long borrows;
+        private final long totalWaitNanos;
+        private final long maxWaitNanos;
+        private final long timeouts;
+        private final long created;
+        private final long destroyed;
+        private final long validationFailures;
+
+        Statistics(int active, int idle, int maxSize, int waiting, long borrows, long totalWaitNanos,
+                   long maxWaitNanos, long timeouts, long created, long destroyed, long validationFailures) {
+            this.active = active;
+            this.idle = idle;
+            this.maxSize = maxSize;
+            this.waiting = waiting;
+            this.borrows = borrows;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+            this.timeouts = timeouts;
+            this.created = created;
+            this.destroyed = destroyed;
+            this.validationFailures = validationFailures;
+        }
+
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getMaxSize() { return maxSize; }
+        public int getWaiting() { return waiting; }
+        public long getBorrows() { return borrows; }
+        public long getTotalWaitNanos() { return totalWaitNanos; }
+        public long getMaxWaitNanos() { return maxWaitNanos; }
+        public long getTimeouts() { return timeouts; }
+        public long getCreated() { return created; }
+        public long getDestroyed() { return destroyed; }
+        public long getValidationFailures() { return validationFailures; }
+
+        public double getAverageWaitMillis() {
+            return borrows == 0 ? 0 : totalWaitNanos / 1_000_000.0 / borrows;
+        }
+
+        @Override
+        public String toString() {
+            return "active=" + active + ", idle=" + idle + ", max=" + maxSize + ", waiting=" + waiting +
+                   ", borrows=" + borrows + ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis()) +
+                   ", maxWaitMs=" + maxWaitNanos / 1_000_000 + ", timeouts=" + timeouts +
+                   ", created=" + created + ", destroyed=" + destroyed +
+                   ", validationFailures=" + validationFailures;
+        }
+    }
+}
@@ -8,6 +8,9 @@ import com.pahanaedu.service.UserService;
 import com.pahanaedu.service.CustomerService;
 import com.pahanaedu.service.ItemService;
 import com.pahanaedu.service.BillingService;
+import com.pahanaedu.service.CustomerCache;
+import com.pahanaedu.service.DashboardSnapshot;
+import com.pahanaedu.service.StockConsistencyChecker;
 import com.pahanaedu.service.impl.UserServiceImpl;
 import com.pahanaedu.service.impl.SimpleCustomerServiceImpl;
 import com.pahanaedu.service.impl.SimpleItemServiceImpl;
@@ -15,7 +18,8 @@ import com.pahanaedu.service.impl.SimpleBillingServiceImpl;
 
 /**
  * Simple service factory to replace EJB dependency injection
- * Provides singleton instances of services and DAOs
+ * Provides singleton instances of services and DAOs; DAOs and services are timed through
+ * the shared MetricsRegistry
  */
 public class ServiceFactory {
     
@@ -26,13 +30,18 @@ public class ServiceFactory {
     private static CustomerService customerService;
     private static ItemService itemService;
     private static BillingService billingService;
+    private static StockConsistencyChecker stockConsistencyChecker;
+    private static CustomerCache customerCache;
+    private static DashboardSnapshot dashboardSnapshot;
+    private static MetricsRegistry metricsRegistry;
+    private static SlowQueryLog slowQueryLog;
     
     /**
      * Get UserDAO instance
      */
     public static synchronized UserDAO getUserDAO() {
         if (userDAO == null) {
-            userDAO = new UserDAOImpl();
+            userDAO = getMetricsRegistry().instrument(UserDAO.class, new UserDAOImpl(), "dao");
         }
         return userDAO;
     }
@@ -42,7 +51,7 @@ public class ServiceFactory {
      */
     public static synchronized CustomerDAO getCustomerDAO() {
         if (customerDAO == null) {
-            customerDAO = new CustomerDAOImpl();
+            customerDAO = getMetricsRegistry().instrument(CustomerDAO.class, new CustomerDAOImpl(), "dao");
         }
         return customerDAO;
     }
@@ -52,7 +61,7 @@ public class ServiceFactory {
      */
     public static synchronized UserService getUserService() {
         if (userService == null) {
-            userService = new UserServiceImpl();
+            userService = getMetricsRegistry().instrument(UserService.class, new UserServiceImpl(), "service");
         }
         return userService;
     }
@@ -62,7 +71,7 @@ public class ServiceFactory {
      */
     public static synchronized CustomerService getCustomerService() {
         if (customerService == null) {
-            customerService = new SimpleCustomerServiceImpl();
+            customerService = getMetricsRegistry().instrument(CustomerService.class, new SimpleCustomerServiceImpl(), "service");
         }
         return customerService;
     }
@@ -72,7 +81,7 @@ public class ServiceFactory {
      */
     public static synchronized ItemService getItemService() {
         if (itemService == null) {
-            itemService = new SimpleItemServiceImpl();
+            itemService = getMetricsRegistry().instrument(ItemService.class, new SimpleItemServiceImpl(), "service");
         }
         return itemService;
     }
@@ -82,8 +91,58 @@ public class ServiceFactory {
      */
     public static synchronized BillingService getBillingService() {
         if (billingService == null) {
-            billingService = new SimpleBillingServiceImpl();
+            billingService = getMetricsRegistry().instrument(BillingService.class, new SimpleBillingServiceImpl(), "service");
         }
         return billingService;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Get StockConsistencyChecker instance
+     */
+    public static synchronized StockConsistencyChecker getStockConsistencyChecker() {
+        if (stockConsistencyChecker == null) {
+            stockConsistencyChecker = new StockConsistencyChecker();
+        }
+        return stockConsistencyChecker;
+    }
+    
+    /**
+     * Get CustomerCache instance, shared by the customer and billing services
+     */
+    public static synchronized CustomerCache getCustomerCache() {
+        if (customerCache == null) {
+            customerCache = new CustomerCache();
+        }
+        return customerCache;
+    }
+    
+    /**
+     * Get DashboardSnapshot instance, fed by the billing, item and customer services
+     */
+    public static synchronized DashboardSnapshot getDashboardSnapshot() {
+        if (dashboardSnapshot == null) {
+            dashboardSnapshot = new DashboardSnapshot();
+        }
+        return dashboardSnapshot;
+    }
+    
+    /**
+     * Get MetricsRegistry instance, served by MetricsServlet
+     */
+    public static synchronized MetricsRegistry getMetricsRegistry() {
+        if (metricsRegistry == null) {
+            metricsRegistry = new MetricsRegistry();
+        }
+        return metricsRegistry;
+    }
+    
+    /**
+     * Get SlowQueryLog instance, fed by PooledConnectionProvider
+     */
+    public static synchronized SlowQueryLog getSlowQueryLog() {
+        if (slowQueryLog == null) {
+            slowQueryLog = new SlowQueryLog();
+        }
+        return slowQueryLog;
+    }
+}
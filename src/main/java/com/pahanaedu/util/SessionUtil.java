@@ -1,9 +1,12 @@
 package com.pahanaedu.util;
 
+import com.pahanaedu.dto.UserPrincipal;
 import com.pahanaedu.model.User;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.logging.Logger;
 
 /**
@@ -16,11 +19,11 @@ public class SessionUtil {
     
     public static final String CURRENT_USER_ATTR = "currentUser";
     public static final String LOGIN_TIME_ATTR = "loginTime";
-    public static final String LAST_ACTIVITY_ATTR = "lastActivity";
     public static final String ORIGINAL_REQUEST_URL_ATTR = "originalRequestURL";
     
     /**
      * Create a new user session
+     * The session holds a UserPrincipal, not the entity
      * @param request HTTP request
      * @param user Authenticated user
      */
@@ -32,9 +35,8 @@ public class SessionUtil {
         HttpSession session = request.getSession(true);
         
         // Set user information
-        session.setAttribute(CURRENT_USER_ATTR, user);
+        session.setAttribute(CURRENT_USER_ATTR, UserPrincipal.of(user, CatalogVersion.USERS.getVersion()));
         session.setAttribute(LOGIN_TIME_ATTR, LocalDateTime.now());
-        session.setAttribute(LAST_ACTIVITY_ATTR, LocalDateTime.now());
         
         // Set session timeout (30 minutes)
         session.setMaxInactiveInterval(30 * 60);
@@ -47,7 +49,7 @@ public class SessionUtil {
      * @param request HTTP request
      * @return Current user or null if not authenticated
      */
-    public static User getCurrentUser(HttpServletRequest request) {
+    public static UserPrincipal getCurrentUser(HttpServletRequest request) {
         if (request == null) {
             return null;
         }
@@ -57,7 +59,17 @@ public class SessionUtil {
             return null;
         }
         
-        return (User) session.getAttribute(CURRENT_USER_ATTR);
+        return principal(session);
+    }
+    
+    /**
+     * Get the principal stored in a session
+     * @param session HTTP session
+     * @return Principal, or null if none (including sessions from before UserPrincipal)
+     */
+    static UserPrincipal principal(HttpSession session) {
+        Object value = session.getAttribute(CURRENT_USER_ATTR);
+        return value instanceof UserPrincipal ? (UserPrincipal) value : null;
     }
     
     /**
@@ -75,7 +87,7 @@ public class SessionUtil {
      * @return true if user is admin
      */
     public static boolean isCurrentUserAdmin(HttpServletRequest request) {
-        User user = getCurrentUser(request);
+        UserPrincipal user = getCurrentUser(request);
         return user != null && user.isAdmin();
     }
     
@@ -85,25 +97,10 @@ public class SessionUtil {
      * @return true if user is operator
      */
     public static boolean isCurrentUserOperator(HttpServletRequest request) {
-        User user = getCurrentUser(request);
+        UserPrincipal user = getCurrentUser(request);
         return user != null && user.isOperator();
     }
     
-    /**
-     * Update last activity time
-     * @param request HTTP request
-     */
-    public static void updateLastActivity(HttpServletRequest request) {
-        if (request == null) {
-            return;
-        }
-        
-        HttpSession session = request.getSession(false);
-        if (session != null) {
-            session.setAttribute(LAST_ACTIVITY_ATTR, LocalDateTime.now());
-        }
-    }
-    
     /**
      * Get login time
      * @param request HTTP request
@@ -123,7 +120,7 @@ public class SessionUtil {
     }
     
     /**
-     * Get last activity time
+     * Get last activity time, as tracked by the container for every request in the session
      * @param request HTTP request
      * @return Last activity time or null if not available
      */
@@ -137,7 +134,7 @@ public class SessionUtil {
             return null;
         }
         
-        return (LocalDateTime) session.getAttribute(LAST_ACTIVITY_ATTR);
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(session.getLastAccessedTime()), ZoneId.systemDefault());
     }
     
     /**
@@ -151,7 +148,7 @@ public class SessionUtil {
         
         HttpSession session = request.getSession(false);
         if (session != null) {
-            User user = getCurrentUser(request);
+            UserPrincipal user = getCurrentUser(request);
             session.invalidate();
             
             if (user != null) {
@@ -209,7 +206,7 @@ public class SessionUtil {
      * @return Current username or null if not authenticated
      */
     public static String getUsername(HttpServletRequest request) {
-        User user = getCurrentUser(request);
+        UserPrincipal user = getCurrentUser(request);
         return user != null ? user.getUsername() : null;
     }
     
@@ -228,7 +225,7 @@ public class SessionUtil {
             return "No session";
         }
         
-        User user = getCurrentUser(request);
+        UserPrincipal user = getCurrentUser(request);
         LocalDateTime loginTime = getLoginTime(request);
         LocalDateTime lastActivity = getLastActivity(request);
         
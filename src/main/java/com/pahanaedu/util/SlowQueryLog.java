@@ -0,0 +1,344 @@
+package com.pahanaedu.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Times every JDBC statement execution by fingerprint and logs the slow ones
+ * PooledConnectionProvider hands out connections wrapped by wrap(); their statements report
+ * each execute call here under the statement's fingerprint (StatementCounter.fingerprint, so
+ * literals never reach the log). Executions at or over the threshold are logged at WARNING
+ * with the DAO method that ran them; admins can change the threshold from the query
+ * statistics page. At most maxFingerprints are kept; when a new one
+ * arrives at the limit, the one with the least total time is dropped
+ *
+ * Settings (system properties, defaults in brackets): pahanaedu.sql.slow.threshold.ms [200],
+ * pahanaedu.sql.slow.max_fingerprints [200], pahanaedu.sql.slow.enabled [true]
+ */
+public class SlowQueryLog {
+
+    private static final Logger logger = Logger.getLogger(SlowQueryLog.class.getName());
+
+    private static final String DAO_PACKAGE = "com.pahanaedu.dao.";
+    private static final String APPLICATION_PACKAGE = "com.pahanaedu.";
+    private static final String UTIL_PACKAGE = "com.pahanaedu.util.";
+
+    private final boolean enabled;
+    private volatile long thresholdNanos;
+    private final int maxFingerprints;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+    private final LongAdder evictions = new LongAdder();
+    private volatile long sinceMillis = System.currentTimeMillis();
+
+    public SlowQueryLog() {
+        this(Boolean.parseBoolean(System.getProperty("pahanaedu.sql.slow.enabled", "true")),
+             Long.getLong("pahanaedu.sql.slow.threshold.ms", 200), TimeUnit.MILLISECONDS,
+             Integer.getInteger("pahanaedu.sql.slow.max_fingerprints", 200));
+    }
+
+    public SlowQueryLog(boolean enabled, long threshold, TimeUnit unit, int maxFingerprints) {
+        if (maxFingerprints <= 0) {
+            throw new IllegalArgumentException("Max fingerprints must be positive");
+        }
+        this.enabled = enabled;
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    /**
+     * Orders for getTop
+     */
+    public enum Order { TOTAL, P99 }
+
+    /**
+     * Wrap a connection so its statements are timed
+     * @param connection Physical connection
+     * @return Timing proxy, or the connection itself when the log is disabled
+     */
+    public Connection wrap(Connection connection) {
+        if (!enabled) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new ConnectionHandler(connection));
+    }
+
+    /**
+     * Record one execution
+     * @param sql Statement text
+     * @param nanos Execution time
+     */
+    public void record(String sql, long nanos) {
+        String fingerprint = StatementCounter.fingerprint(sql);
+        Entry entry = entries.get(fingerprint);
+        if (entry == null) {
+            entry = add(fingerprint);
+        }
+        entry.count.increment();
+        entry.totalNanos.add(nanos);
+        entry.duration.record(nanos);
+
+        if (nanos >= thresholdNanos) {
+            String caller = callerOf();
+            entry.slowCount.increment();
+            entry.lastSlowCaller = caller;
+            logger.warning("Slow query (" + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms) from " + caller + ": " + fingerprint);
+        }
+    }
+
+    private Entry add(String fingerprint) {
+        synchronized (evictionLock) {
+            Entry existing = entries.get(fingerprint);
+            if (existing != null) {
+                return existing;
+            }
+            if (entries.size() >= maxFingerprints) {
+                entries.entrySet().stream()
+                       .min(Comparator.comparingLong(e -> e.getValue().totalNanos.sum()))
+                       .ifPresent(e -> {
+                           entries.remove(e.getKey());
+                           evictions.increment();
+                       });
+            }
+            Entry entry = new Entry();
+            entries.put(fingerprint, entry);
+            return entry;
+        }
+    }
+
+    /**
+     * DAO method that ran the statement: the first concrete DAO frame, else a BaseDAOImpl frame,
+     * else the first application frame outside util (a lazy load from a model getter), else "unknown"
+     */
+    static String callerOf() {
+        StackWalker.StackFrame caller = StackWalker.getInstance().walk(frames -> {
+            StackWalker.StackFrame baseDao = null;
+            StackWalker.StackFrame fallback = null;
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String className = frame.getClassName();
+                if (className.startsWith(DAO_PACKAGE)) {
+                    // Query bodies run as lambdas under BaseDAOImpl.executeQuery; the DAO method is further down
+                    if (frame.getMethodName().startsWith("lambda$")) {
+                        continue;
+                    }
+                    // A generic BaseDAOImpl method is named only if no concrete DAO called it
+                    if (!className.endsWith(".BaseDAOImpl")) {
+                        return frame;
+                    }
+                    if (baseDao == null) {
+                        baseDao = frame;
+                    }
+                } else if (fallback == null && className.startsWith(APPLICATION_PACKAGE) && !className.startsWith(UTIL_PACKAGE)) {
+                    fallback = frame;
+                }
+            }
+            return baseDao != null ? baseDao : fallback;
+        });
+        if (caller == null) {
+            return "unknown";
+        }
+        return caller.getClassName().substring(caller.getClassName().lastIndexOf('.') + 1) + "." + caller.getMethodName();
+    }
+
+    /**
+     * Fingerprints ordered by total or p99 time, highest first
+     * @param order Sort order
+     * @param limit Most entries to return
+     */
+    public List<QueryStats> getTop(Order order, int limit) {
+        List<QueryStats> stats = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            stats.add(entry.getValue().stats(entry.getKey()));
+        }
+        stats.sort(order == Order.P99
+                ? Comparator.comparingLong(QueryStats::getP99Nanos).thenComparingLong(QueryStats::getTotalNanos).reversed()
+                : Comparator.comparingLong(QueryStats::getTotalNanos).reversed());
+        return stats.size() > limit ? new ArrayList<>(stats.subList(0, limit)) : stats;
+    }
+
+    /**
+     * Forget everything recorded so far
+     */
+    public void reset() {
+        synchronized (evictionLock) {
+            entries.clear();
+            evictions.reset();
+            sinceMillis = System.currentTimeMillis();
+        }
+    }
+
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    /**
+     * Change the slow query threshold until the next restart
+     * @param thresholdMillis New threshold; 0 logs every statement
+     */
+    public void setThresholdMillis(long thresholdMillis) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative");
+        }
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+
+    public int getMaxFingerprints() {
+        return maxFingerprints;
+    }
+
+    public int getFingerprintCount() {
+        return entries.size();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getSinceMillis() {
+        return sinceMillis;
+    }
+
+    private static final class Entry {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAdder slowCount = new LongAdder();
+        final LatencyHistogram duration = new LatencyHistogram();
+        volatile String lastSlowCaller;
+
+        QueryStats stats(String fingerprint) {
+            LatencyHistogram.Snapshot snapshot = duration.snapshot();
+            return new QueryStats(fingerprint, count.sum(), totalNanos.sum(), snapshot.getValueAt(0.5),
+                    snapshot.getValueAt(0.99), snapshot.getMaxNanos(), slowCount.sum(), lastSlowCaller);
+        }
+    }
+
+    /**
+     * Timings of one fingerprint
+     */
+    public static final class QueryStats {
+        private final String fingerprint;
+        private final long count;
+        private final long totalNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+        private final long slowCount;
+        private final String lastSlowCaller;
+
+        QueryStats(String fingerprint, long count, long totalNanos, long p50Nanos, long p99Nanos, long maxNanos,
+                   long slowCount, String lastSlowCaller) {
+            this.fingerprint = fingerprint;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+            this.slowCount = slowCount;
+            this.lastSlowCaller = lastSlowCaller;
+        }
+
+        public String getFingerprint() { return fingerprint; }
+        public long getCount() { return count; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getP99Nanos() { return p99Nanos; }
+        public long getSlowCount() { return slowCount; }
+        public String getLastSlowCaller() { return lastSlowCaller; }
+
+        public double getTotalMillis() { return totalNanos / 1e6; }
+        public double getMeanMillis() { return count > 0 ? totalNanos / 1e6 / count : 0; }
+        public double getP50Millis() { return p50Nanos / 1e6; }
+        public double getP99Millis() { return p99Nanos / 1e6; }
+        public double getMaxMillis() { return maxNanos / 1e6; }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name) && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            Object result = invokeOn(connection, method, args);
+            if (result instanceof CallableStatement && "prepareCall".equals(name)) {
+                return statement(CallableStatement.class, (Statement) result, (String) args[0], proxy);
+            } else if (result instanceof PreparedStatement && "prepareStatement".equals(name)) {
+                return statement(PreparedStatement.class, (Statement) result, (String) args[0], proxy);
+            } else if (result instanceof Statement && "createStatement".equals(name)) {
+                return statement(Statement.class, (Statement) result, null, proxy);
+            }
+            return result;
+        }
+
+        private Object statement(Class<? extends Statement> type, Statement statement, String sql, Object connectionProxy) {
+            return Proxy.newProxyInstance(SlowQueryLog.class.getClassLoader(), new Class<?>[] {type},
+                    new StatementHandler(statement, sql, connectionProxy));
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final Object connectionProxy;
+        // The prepared SQL, or for a plain statement the first SQL added to the batch
+        private String sql;
+
+        StatementHandler(Statement statement, String sql, Object connectionProxy) {
+            this.statement = statement;
+            this.sql = sql;
+            this.connectionProxy = connectionProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                String executed = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                long start = System.nanoTime();
+                try {
+                    return invokeOn(statement, method, args);
+                } finally {
+                    if (executed != null) {
+                        record(executed, System.nanoTime() - start);
+                    }
+                }
+            }
+            if ("addBatch".equals(name) && args != null && args.length == 1 && sql == null) {
+                sql = (String) args[0];
+            } else if ("getConnection".equals(name)) {
+                return connectionProxy;
+            } else if ("equals".equals(name) && method.getParameterCount() == 1) {
+                return proxy == args[0];
+            }
+            return invokeOn(statement, method, args);
+        }
+    }
+
+    private static Object invokeOn(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.pahanaedu.util;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the SQL statements Hibernate prepares, in total and per scope
+ * Registered as hibernate.session_factory.statement_inspector. A scope opened on a thread
+ * (one per request by EntityManagerFilter, one per test by StatementBudgetExtension) counts
+ * the statements that thread prepares by kind and by fingerprint, so a SELECT run once per
+ * row of an earlier result - the N+1 pattern of lazy associations - shows up as one
+ * fingerprint with a high count. A JDBC batch is prepared once and counts once
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Statement kinds, by leading keyword
+     */
+    public enum Kind { SELECT, INSERT, UPDATE, DELETE, OTHER }
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+    private static final LongAdder[] TOTALS = new LongAdder[Kind.values().length];
+
+    private static final int MAX_CACHED_FINGERPRINTS = 2000;
+    private static final Map<String, String> FINGERPRINTS = new ConcurrentHashMap<>();
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    static {
+        for (int i = 0; i < TOTALS.length; i++) {
+            TOTALS[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        String fingerprint = fingerprint(sql);
+        Kind kind = kindOf(fingerprint);
+        TOTALS[kind.ordinal()].increment();
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.add(kind, fingerprint, 1);
+        }
+        return sql;
+    }
+
+    /**
+     * Start counting this thread's statements; scopes nest, and an inner scope's counts are
+     * added to the outer one when it closes
+     * @return Scope to close when the unit being measured ends
+     */
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Statements prepared since start, across all threads
+     */
+    public static long getTotal(Kind kind) {
+        return TOTALS[kind.ordinal()].sum();
+    }
+
+    /**
+     * SQL with comments removed, literals and IN lists replaced by ? and whitespace collapsed,
+     * so statements that differ only in their values share a fingerprint
+     * @param sql Statement text
+     * @return Lower-case fingerprint
+     */
+    public static String fingerprint(String sql) {
+        String cached = FINGERPRINTS.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String fingerprint = COMMENT.matcher(sql).replaceAll(" ");
+        fingerprint = STRING_LITERAL.matcher(fingerprint).replaceAll("?");
+        fingerprint = NUMBER_LITERAL.matcher(fingerprint).replaceAll("?");
+        fingerprint = WHITESPACE.matcher(fingerprint).replaceAll(" ").trim().toLowerCase();
+        fingerprint = PARAMETER_LIST.matcher(fingerprint).replaceAll("(?+)");
+        // Hibernate reuses a few thousand statement texts; literal-bearing native SQL is not cached once full
+        if (FINGERPRINTS.size() < MAX_CACHED_FINGERPRINTS) {
+            FINGERPRINTS.put(sql, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    static Kind kindOf(String fingerprint) {
+        if (fingerprint.startsWith("select") || fingerprint.startsWith("with")) {
+            return Kind.SELECT;
+        } else if (fingerprint.startsWith("insert")) {
+            return Kind.INSERT;
+        } else if (fingerprint.startsWith("update")) {
+            return Kind.UPDATE;
+        } else if (fingerprint.startsWith("delete")) {
+            return Kind.DELETE;
+        }
+        return Kind.OTHER;
+    }
+
+    /**
+     * Statements prepared on one thread between open() and close()
+     * Not thread-safe: it is only written by the thread that opened it
+     */
+    public static final class Scope implements AutoCloseable {
+        private final Scope parent;
+        private final int[] counts = new int[Kind.values().length];
+        // Insertion order, so reports list statements in the order they first ran
+        private final Map<String, Integer> byFingerprint = new LinkedHashMap<>();
+        private boolean closed;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        private void add(Kind kind, String fingerprint, int count) {
+            counts[kind.ordinal()] += count;
+            byFingerprint.merge(fingerprint, count, Integer::sum);
+        }
+
+        public int getStatements() {
+            int total = 0;
+            for (int count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        public int getStatements(Kind kind) {
+            return counts[kind.ordinal()];
+        }
+
+        /**
+         * Executions per fingerprint, in order of first execution
+         */
+        public Map<String, Integer> getByFingerprint() {
+            return Collections.unmodifiableMap(byFingerprint);
+        }
+
+        /**
+         * SELECT fingerprints that ran more than the given number of times, most frequent first
+         * @param maxExecutions Executions allowed per fingerprint
+         */
+        public Map<String, Integer> getRepeatedSelects(int maxExecutions) {
+            List<Map.Entry<String, Integer>> repeated = new ArrayList<>();
+            for (Map.Entry<String, Integer> entry : byFingerprint.entrySet()) {
+                if (entry.getValue() > maxExecutions && kindOf(entry.getKey()) == Kind.SELECT) {
+                    repeated.add(entry);
+                }
+            }
+            repeated.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+            Map<String, Integer> result = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entry : repeated) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+            return result;
+        }
+
+        /**
+         * Counts by kind followed by each fingerprint, for logs and assertion messages
+         */
+        public String describe() {
+            StringBuilder text = new StringBuilder();
+            text.append(getStatements()).append(" statements (");
+            for (Kind kind : Kind.values()) {
+                text.append(kind.ordinal() > 0 ? ", " : "").append(counts[kind.ordinal()]).append(' ').append(kind.name().toLowerCase());
+            }
+            text.append(')');
+            for (Map.Entry<String, Integer> entry : byFingerprint.entrySet()) {
+                text.append("\n  ").append(entry.getValue()).append(" x ").append(entry.getKey());
+            }
+            return text.toString();
+        }
+
+        /**
+         * Stop counting and hand the counts to the enclosing scope, if any
+         * @throws IllegalStateException if an inner scope is still open
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            if (CURRENT.get() != this) {
+                throw new IllegalStateException("An inner statement scope is still open");
+            }
+            closed = true;
+            if (parent != null) {
+                CURRENT.set(parent);
+                for (Map.Entry<String, Integer> entry : byFingerprint.entrySet()) {
+                    parent.add(kindOf(entry.getKey()), entry.getKey(), entry.getValue());
+                }
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.dao.impl.ItemDAOImpl;
+import com.pahanaedu.service.StockConsistencyChecker;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Verifies the stock mutation mode against the database at startup and schedules
+ * StockConsistencyChecker. The interval comes from the system property
+ * pahanaedu.stock.check.interval.minutes (default 60, 0 disables the job)
+ */
+@WebListener
+public class StockConsistencyListener implements ServletContextListener {
+
+    private static final Logger logger = Logger.getLogger(StockConsistencyListener.class.getName());
+
+    public static final String INTERVAL_PROPERTY = "pahanaedu.stock.check.interval.minutes";
+    private static final long DEFAULT_INTERVAL_MINUTES = 60;
+
+    private ScheduledExecutorService scheduler;
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        StockMutationMode mode = StockMutationMode.current();
+        logger.info("Stock mutation mode: " + mode);
+        verifyTrigger(mode);
+
+        long interval = Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL_MINUTES);
+        if (interval <= 0) {
+            logger.info("Stock consistency check disabled");
+            return;
+        }
+
+        StockConsistencyChecker checker = ServiceFactory.getStockConsistencyChecker();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-consistency-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // First run records the baseline; drift is reported from the second run on
+        scheduler.scheduleWithFixedDelay(() -> runCheck(checker), 0, interval, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void runCheck(StockConsistencyChecker checker) {
+        try {
+            EntityManagerHolder.inScope(EntityManagerUtil.getEntityManagerFactory(), checker::check);
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next run retries
+            logger.log(Level.WARNING, "Stock consistency check failed", e);
+        }
+    }
+
+    /**
+     * Fail loudly when the database trigger and the configured mode disagree
+     */
+    private void verifyTrigger(StockMutationMode mode) {
+        try {
+            boolean installed = EntityManagerHolder.inScope(EntityManagerUtil.getEntityManagerFactory(),
+                    () -> new ItemDAOImpl().isStockTriggerInstalled());
+            if (installed && mode == StockMutationMode.APPLICATION) {
+                logger.severe("trigger_update_stock is installed but stock mode is APPLICATION; " +
+                              "stock will change twice per bill line. Drop the trigger or set " +
+                              StockMutationMode.PROPERTY + "=DATABASE_TRIGGER");
+            } else if (!installed && mode == StockMutationMode.DATABASE_TRIGGER) {
+                logger.severe("Stock mode is DATABASE_TRIGGER but trigger_update_stock is not installed; " +
+                              "bill lines will not change stock. Run stock-trigger.sql");
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Could not verify stock trigger", e);
+        }
+    }
+}
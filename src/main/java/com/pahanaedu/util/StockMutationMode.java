@@ -0,0 +1,39 @@
+package com.pahanaedu.util;
+
+/**
+ * Selects the single component allowed to change items.stock_quantity for bill lines
+ * Chosen at deploy time with the system property pahanaedu.stock.mode (or the environment
+ * variable PAHANAEDU_STOCK_MODE); defaults to APPLICATION
+ */
+public enum StockMutationMode {
+
+    /**
+     * SimpleBillingServiceImpl adjusts stock; trigger_update_stock must not be installed
+     */
+    APPLICATION,
+
+    /**
+     * trigger_update_stock (stock-trigger.sql) adjusts stock on bill_items writes;
+     * the application only restores stock for changes the trigger cannot see, such as cancellations
+     */
+    DATABASE_TRIGGER;
+
+    public static final String PROPERTY = "pahanaedu.stock.mode";
+    public static final String ENVIRONMENT_VARIABLE = "PAHANAEDU_STOCK_MODE";
+
+    /**
+     * Resolve the configured mode
+     * @return Configured mode, APPLICATION if none is set
+     * @throws IllegalArgumentException if the configured value is not a known mode
+     */
+    public static StockMutationMode current() {
+        String value = System.getProperty(PROPERTY);
+        if (value == null || value.trim().isEmpty()) {
+            value = System.getenv(ENVIRONMENT_VARIABLE);
+        }
+        if (value == null || value.trim().isEmpty()) {
+            return APPLICATION;
+        }
+        return valueOf(value.trim().toUpperCase());
+    }
+}
@@ -0,0 +1,63 @@
+package com.pahanaedu.util;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import java.util.function.Supplier;
+
+/**
+ * Unit-of-work helper running service logic in a single resource-local transaction
+ * Uses the EntityManager bound by EntityManagerHolder (opening a scope if none is bound),
+ * so every DAO call inside the work joins the same transaction instead of committing on its own
+ */
+public final class TransactionTemplate {
+
+    private TransactionTemplate() {
+    }
+
+    /**
+     * Run work in a transaction and return its result
+     * Joins the current transaction if one is already active; otherwise begins one,
+     * commits on success and rolls back (clearing the persistence context) on failure
+     * @param work Work to run
+     * @return Result of the work
+     */
+    public static <T> T inTransaction(Supplier<T> work) {
+        if (!EntityManagerHolder.isBound()) {
+            return EntityManagerHolder.inScope(EntityManagerUtil.getEntityManagerFactory(), () -> inTransaction(work));
+        }
+
+        EntityManager em = EntityManagerHolder.get();
+        EntityTransaction transaction = em.getTransaction();
+        if (transaction.isActive()) {
+            return work.get();
+        }
+
+        boolean committed = false;
+        transaction.begin();
+        try {
+            T result = work.get();
+            transaction.commit();
+            committed = true;
+            return result;
+        } finally {
+            if (!committed) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                // Entities touched by the failed unit of work no longer match the database
+                em.clear();
+            }
+        }
+    }
+
+    /**
+     * Run work without a result in a transaction
+     * @param work Work to run
+     */
+    public static void runInTransaction(Runnable work) {
+        inTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+}
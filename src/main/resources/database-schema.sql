@@ -57,9 +57,9 @@ CREATE TABLE bill_items (
 );
 
 -- Indexes for better performance
-CREATE INDEX idx_customers_name ON customers(name);
-CREATE INDEX idx_items_name ON items(item_name);
-CREATE INDEX idx_bills_date ON bills(bill_date);
+CREATE INDEX idx_customers_name ON customers(name, account_number);
+CREATE INDEX idx_items_name ON items(item_name, item_id);
+CREATE INDEX idx_bills_date ON bills(bill_date, bill_id);
 CREATE INDEX idx_bills_customer ON bills(account_number);
 
 -- Function to generate unique account numbers
@@ -87,52 +87,9 @@ BEGIN
 END;
 $$ LANGUAGE plpgsql;
 
--- Trigger to update stock quantity when items are sold
-CREATE OR REPLACE FUNCTION update_stock_on_bill_item()
-RETURNS TRIGGER AS $$
-BEGIN
-    IF TG_OP = 'INSERT' THEN
-        -- Decrease stock when bill item is added
-        UPDATE items 
-        SET stock_quantity = stock_quantity - NEW.quantity 
-        WHERE item_id = NEW.item_id;
-        
-        -- Check if stock goes negative
-        IF (SELECT stock_quantity FROM items WHERE item_id = NEW.item_id) < 0 THEN
-            RAISE EXCEPTION 'Insufficient stock for item ID %', NEW.item_id;
-        END IF;
-        
-        RETURN NEW;
-    ELSIF TG_OP = 'DELETE' THEN
-        -- Increase stock when bill item is removed
-        UPDATE items 
-        SET stock_quantity = stock_quantity + OLD.quantity 
-        WHERE item_id = OLD.item_id;
-        
-        RETURN OLD;
-    ELSIF TG_OP = 'UPDATE' THEN
-        -- Adjust stock based on quantity change
-        UPDATE items 
-        SET stock_quantity = stock_quantity + OLD.quantity - NEW.quantity 
-        WHERE item_id = NEW.item_id;
-        
-        -- Check if stock goes negative
-        IF (SELECT stock_quantity FROM items WHERE item_id = NEW.item_id) < 0 THEN
-            RAISE EXCEPTION 'Insufficient stock for item ID %', NEW.item_id;
-        END IF;
-        
-        RETURN NEW;
-    END IF;
-    
-    RETURN NULL;
-END;
-$$ LANGUAGE plpgsql;
-
--- Create trigger for stock updates
-CREATE TRIGGER trigger_update_stock
-    AFTER INSERT OR UPDATE OR DELETE ON bill_items
-    FOR EACH ROW
-    EXECUTE FUNCTION update_stock_on_bill_item();
+-- Stock for bill lines is adjusted by the application by default (pahanaedu.stock.mode=APPLICATION).
+-- For pahanaedu.stock.mode=DATABASE_TRIGGER run stock-trigger.sql after this script instead;
+-- never enable both, or every bill line changes stock twice
 
 -- Stored procedure to calculate bill total
 CREATE OR REPLACE FUNCTION calculate_bill_total(bill_id_param INTEGER)
@@ -189,6 +146,12 @@ INSERT INTO bill_items (bill_id, item_id, quantity, unit_price, total_price) VAL
 (3, 3, 1, 1800.00, 1800.00),
 (3, 4, 1, 2200.00, 2200.00);
 
+-- Hibernate reserves ids in blocks of 50 (pooled-lo sequence generators); the increment
+-- must match allocationSize on Item, Bill and BillItem. Also run these on existing databases
+ALTER SEQUENCE items_item_id_seq INCREMENT BY 50;
+ALTER SEQUENCE bills_bill_id_seq INCREMENT BY 50;
+ALTER SEQUENCE bill_items_bill_item_id_seq INCREMENT BY 50;
+
 -- Grant permissions to application user
 GRANT ALL PRIVILEGES ON ALL TABLES IN SCHEMA public TO pahanaedu_user;
 GRANT ALL PRIVILEGES ON ALL SEQUENCES IN SCHEMA public TO pahanaedu_user;
@@ -0,0 +1,52 @@
+-- Stock trigger for pahanaedu.stock.mode=DATABASE_TRIGGER
+-- Install after database-schema.sql only when the application runs in DATABASE_TRIGGER mode;
+-- in APPLICATION mode the trigger must be absent:
+--   DROP TRIGGER IF EXISTS trigger_update_stock ON bill_items;
+
+-- Trigger to update stock quantity when items are sold
+CREATE OR REPLACE FUNCTION update_stock_on_bill_item()
+RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        -- Decrease stock when bill item is added
+        UPDATE items 
+        SET stock_quantity = stock_quantity - NEW.quantity 
+        WHERE item_id = NEW.item_id;
+        
+        -- Check if stock goes negative
+        IF (SELECT stock_quantity FROM items WHERE item_id = NEW.item_id) < 0 THEN
+            RAISE EXCEPTION 'Insufficient stock for item ID %', NEW.item_id;
+        END IF;
+        
+        RETURN NEW;
+    ELSIF TG_OP = 'DELETE' THEN
+        -- Increase stock when bill item is removed
+        UPDATE items 
+        SET stock_quantity = stock_quantity + OLD.quantity 
+        WHERE item_id = OLD.item_id;
+        
+        RETURN OLD;
+    ELSIF TG_OP = 'UPDATE' THEN
+        -- Adjust stock based on quantity change
+        UPDATE items 
+        SET stock_quantity = stock_quantity + OLD.quantity - NEW.quantity 
+        WHERE item_id = NEW.item_id;
+        
+        -- Check if stock goes negative
+        IF (SELECT stock_quantity FROM items WHERE item_id = NEW.item_id) < 0 THEN
+            RAISE EXCEPTION 'Insufficient stock for item ID %', NEW.item_id;
+        END IF;
+        
+        RETURN NEW;
+    END IF;
+    
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Create trigger for stock updates
+DROP TRIGGER IF EXISTS trigger_update_stock ON bill_items;
+CREATE TRIGGER trigger_update_stock
+    AFTER INSERT OR UPDATE OR DELETE ON bill_items
+    FOR EACH ROW
+    EXECUTE FUNCTION update_stock_on_bill_item();
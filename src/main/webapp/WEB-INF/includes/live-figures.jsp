@@ -0,0 +1,24 @@
+<%-- Live dashboard figures: elements with data-figure="name" are updated from the dashboard event stream --%>
+<script>
+    (function() {
+        if (!window.EventSource) {
+            return;
+        }
+        const currency = new Intl.NumberFormat('en-US', { style: 'currency', currency: 'USD' });
+        const source = new EventSource('${pageContext.request.contextPath}/dashboard/events');
+        source.addEventListener('dashboard', function(event) {
+            const figures = JSON.parse(event.data);
+            Object.keys(figures).forEach(function(name) {
+                document.querySelectorAll('[data-figure="' + name + '"]').forEach(function(element) {
+                    const value = figures[name];
+                    element.textContent = element.dataset.format === 'currency' ? currency.format(value) : value;
+                });
+            });
+            document.dispatchEvent(new CustomEvent('dashboard-figures', { detail: figures }));
+        });
+        // EventSource reconnects by itself after errors; close it when the page goes away
+        window.addEventListener('beforeunload', function() {
+            source.close();
+        });
+    })();
+</script>
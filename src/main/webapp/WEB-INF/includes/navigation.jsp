@@ -49,11 +49,18 @@
                 <c:if test="${isAdmin == true}">
                     <li class="nav-item">
                         <a href="${pageContext.request.contextPath}/admin/users"
-                           class="nav-link dropdown-toggle ${pageContext.request.requestURI.contains('/admin') ? 'active' : ''}">
+                           class="nav-link dropdown-toggle ${pageContext.request.requestURI.contains('/admin/users') ? 'active' : ''}">
                             <i class="fas fa-cog"></i>
                             <span>Users</span>
                         </a>
                     </li>
+                    <li class="nav-item">
+                        <a href="${pageContext.request.contextPath}/admin/queries"
+                           class="nav-link ${pageContext.request.requestURI.contains('/admin/queries') ? 'active' : ''}">
+                            <i class="fas fa-database"></i>
+                            <span>Queries</span>
+                        </a>
+                    </li>
                 </c:if>
 
                 <li class="nav-item">
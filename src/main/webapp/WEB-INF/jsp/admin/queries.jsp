@@ -0,0 +1,226 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
+<!DOCTYPE html>
+<html lang="en">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <title>Query Statistics - Pahana Edu Bookshop</title>
+    <link rel="stylesheet" href="${pageContext.request.contextPath}/css/style.css">
+    <link rel="stylesheet" href="${pageContext.request.contextPath}/css/dashboard.css">
+    <link href="https://cdnjs.cloudflare.com/ajax/libs/font-awesome/6.0.0/css/all.min.css" rel="stylesheet">
+    <style>
+        .stats-grid {
+            display: grid;
+            grid-template-columns: repeat(auto-fit, minmax(200px, 1fr));
+            gap: 20px;
+            margin-bottom: 20px;
+        }
+
+        .stat-card {
+            background: white;
+            padding: 20px;
+            border-radius: 8px;
+            box-shadow: 0 2px 4px rgba(0, 0, 0, 0.1);
+            text-align: center;
+        }
+
+        .stat-number {
+            font-size: 2em;
+            font-weight: bold;
+            color: #007bff;
+        }
+
+        .stat-label {
+            color: #6c757d;
+            margin-top: 5px;
+        }
+
+        .query-grid {
+            background: white;
+            border-radius: 8px;
+            box-shadow: 0 2px 4px rgba(0, 0, 0, 0.1);
+            overflow-x: auto;
+        }
+
+        .query-header {
+            display: flex;
+            justify-content: space-between;
+            align-items: center;
+            padding: 20px;
+            border-bottom: 1px solid #dee2e6;
+            gap: 10px;
+            flex-wrap: wrap;
+        }
+
+        .query-table {
+            width: 100%;
+            border-collapse: collapse;
+        }
+
+        .query-table th,
+        .query-table td {
+            padding: 10px 12px;
+            text-align: left;
+            border-bottom: 1px solid #dee2e6;
+            vertical-align: top;
+        }
+
+        .query-table th {
+            background: #f8f9fa;
+            font-weight: 600;
+            color: #495057;
+            white-space: nowrap;
+        }
+
+        .query-table td.number {
+            text-align: right;
+            white-space: nowrap;
+        }
+
+        .fingerprint {
+            font-family: monospace;
+            font-size: 12px;
+            max-width: 640px;
+            word-break: break-word;
+        }
+
+        .btn {
+            padding: 8px 16px;
+            border: none;
+            border-radius: 5px;
+            cursor: pointer;
+            text-decoration: none;
+            display: inline-block;
+            font-size: 14px;
+        }
+
+        .btn-primary {
+            background: #007bff;
+            color: white;
+        }
+
+        .btn-secondary {
+            background: #6c757d;
+            color: white;
+        }
+
+        .btn-danger {
+            background: #dc3545;
+            color: white;
+        }
+
+        .no-queries {
+            text-align: center;
+            padding: 40px;
+            color: #6c757d;
+        }
+    </style>
+</head>
+<body>
+<!-- Include Navigation -->
+<%@ include file="../../includes/navigation.jsp" %>
+
+<div class="main-content">
+    <div class="container-fluid">
+        <h1><i class="fas fa-database"></i> Query Statistics</h1>
+
+        <c:if test="${param.success != null}">
+            <div class="alert alert-success">
+                <i class="fas fa-check-circle"></i> <c:out value="${param.success}"/>
+            </div>
+        </c:if>
+        <c:if test="${param.error != null}">
+            <div class="alert alert-danger">
+                <i class="fas fa-exclamation-circle"></i> <c:out value="${param.error}"/>
+            </div>
+        </c:if>
+
+        <div class="stats-grid">
+            <div class="stat-card">
+                <div class="stat-number">${fingerprintCount}</div>
+                <div class="stat-label">Statements tracked (max ${maxFingerprints})</div>
+            </div>
+            <div class="stat-card">
+                <div class="stat-number">${thresholdMillis} ms</div>
+                <div class="stat-label">Slow query threshold</div>
+                <form method="POST" action="${pageContext.request.contextPath}/admin/queries" style="margin-top: 10px;">
+                    <input type="hidden" name="action" value="threshold">
+                    <input type="number" name="thresholdMillis" min="0" value="${thresholdMillis}" style="width: 90px;">
+                    <button type="submit" class="btn btn-secondary">Set</button>
+                </form>
+            </div>
+            <div class="stat-card">
+                <div class="stat-number">${evictions}</div>
+                <div class="stat-label">Statements dropped</div>
+            </div>
+            <div class="stat-card">
+                <div class="stat-number" style="font-size: 1.2em;"><fmt:formatDate value="${since}" pattern="yyyy-MM-dd HH:mm"/></div>
+                <div class="stat-label">Recording since</div>
+            </div>
+        </div>
+
+        <div class="query-grid">
+            <div class="query-header">
+                <h3><i class="fas fa-list"></i> Top statements by ${order == 'p99' ? 'p99 time' : 'total time'}</h3>
+                <div>
+                    <a href="${pageContext.request.contextPath}/admin/queries?order=total"
+                       class="btn ${order == 'total' ? 'btn-primary' : 'btn-secondary'}">Total time</a>
+                    <a href="${pageContext.request.contextPath}/admin/queries?order=p99"
+                       class="btn ${order == 'p99' ? 'btn-primary' : 'btn-secondary'}">p99 time</a>
+                    <form method="POST" action="${pageContext.request.contextPath}/admin/queries" style="display: inline;"
+                          onsubmit="return confirm('Clear all query statistics?');">
+                        <input type="hidden" name="action" value="reset">
+                        <button type="submit" class="btn btn-danger"><i class="fas fa-eraser"></i> Clear</button>
+                    </form>
+                </div>
+            </div>
+
+            <c:choose>
+                <c:when test="${empty queries}">
+                    <div class="no-queries">
+                        <i class="fas fa-database fa-3x" style="color: #dee2e6; margin-bottom: 20px;"></i>
+                        <h4>No Statements Recorded</h4>
+                        <p>Statements appear here once the application has run queries.</p>
+                    </div>
+                </c:when>
+                <c:otherwise>
+                    <table class="query-table">
+                        <thead>
+                        <tr>
+                            <th>Statement</th>
+                            <th>Calls</th>
+                            <th>Total (ms)</th>
+                            <th>Mean (ms)</th>
+                            <th>p50 (ms)</th>
+                            <th>p99 (ms)</th>
+                            <th>Max (ms)</th>
+                            <th>Slow</th>
+                            <th>Last slow caller</th>
+                        </tr>
+                        </thead>
+                        <tbody>
+                        <c:forEach var="query" items="${queries}">
+                            <tr>
+                                <td class="fingerprint"><c:out value="${query.fingerprint}"/></td>
+                                <td class="number">${query.count}</td>
+                                <td class="number"><fmt:formatNumber value="${query.totalMillis}" maxFractionDigits="1"/></td>
+                                <td class="number"><fmt:formatNumber value="${query.meanMillis}" maxFractionDigits="2"/></td>
+                                <td class="number"><fmt:formatNumber value="${query.p50Millis}" maxFractionDigits="2"/></td>
+                                <td class="number"><fmt:formatNumber value="${query.p99Millis}" maxFractionDigits="2"/></td>
+                                <td class="number"><fmt:formatNumber value="${query.maxMillis}" maxFractionDigits="2"/></td>
+                                <td class="number">${query.slowCount}</td>
+                                <td><c:out value="${query.lastSlowCaller}" default="-"/></td>
+                            </tr>
+                        </c:forEach>
+                        </tbody>
+                    </table>
+                </c:otherwise>
+            </c:choose>
+        </div>
+    </div>
+</div>
+
+</body>
+</html>
@@ -1,6 +1,7 @@
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
 <%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
+<%@ taglib prefix="fn" uri="http://java.sun.com/jsp/jstl/functions" %>
 <!DOCTYPE html>
 <html lang="en">
 <head>
@@ -89,6 +90,12 @@
             justify-content: space-between;
             align-items: center;
         }
+        .bill-pagination {
+            padding: 15px 20px;
+            display: flex;
+            justify-content: flex-end;
+            gap: 10px;
+        }
         .bill-table {
             width: 100%;
             border-collapse: collapse;
@@ -323,16 +330,18 @@
 
             <!-- Search Bar -->
             <div class="search-bar">
-                <form class="search-form" action="${pageContext.request.contextPath}/billing/search" method="get">
-                    <input type="text" name="customerName" class="search-input" 
-                           placeholder="Search by customer name..." 
-                           value="${param.customerName}">
+                <form class="search-form" action="${pageContext.request.contextPath}/billing/manage" method="get">
+                    <input type="text" name="customer" class="search-input" 
+                           placeholder="Customer name or account..." 
+                           value="${fn:escapeXml(filter.customer)}">
                     <select name="status" class="search-input">
                         <option value="">All Status</option>
-                        <option value="PENDING" ${param.status == 'PENDING' ? 'selected' : ''}>Pending</option>
-                        <option value="PAID" ${param.status == 'PAID' ? 'selected' : ''}>Paid</option>
-                        <option value="CANCELLED" ${param.status == 'CANCELLED' ? 'selected' : ''}>Cancelled</option>
+                        <option value="PENDING" ${filter.status == 'PENDING' ? 'selected' : ''}>Pending</option>
+                        <option value="PAID" ${filter.status == 'PAID' ? 'selected' : ''}>Paid</option>
+                        <option value="CANCELLED" ${filter.status == 'CANCELLED' ? 'selected' : ''}>Cancelled</option>
                     </select>
+                    <input type="date" name="from" class="search-input" title="From date" value="${filter.fromDate}">
+                    <input type="date" name="to" class="search-input" title="To date" value="${filter.toDate}">
                     <button type="submit" class="btn btn-primary">
                         <i class="fas fa-search"></i> Search
                     </button>
@@ -352,7 +361,7 @@
                     <span class="text-muted">
                         <c:choose>
                             <c:when test="${not empty bills}">
-                                ${bills.size()} bill(s) found
+                                ${bills.size()} bill(s) on this page
                             </c:when>
                             <c:otherwise>
                                 No bills found
@@ -387,7 +396,7 @@
                                             <fmt:formatDate value="${billDatesMap[bill.billId]}" pattern="MMM dd, yyyy"/>
                                         </td>
                                         <td>
-                                            <span class="text-muted">${bill.totalItemCount} item(s)</span>
+                                            <span class="text-muted">${empty billItemCounts[bill.billId] ? 0 : billItemCounts[bill.billId]} item(s)</span>
                                         </td>
                                         <td class="price-display">
                                             <fmt:formatNumber value="${bill.totalAmount}" type="currency" currencySymbol="Rs. " maxFractionDigits="2"/>
@@ -435,6 +444,25 @@
                                 </c:forEach>
                             </tbody>
                         </table>
+                        <div class="bill-pagination">
+                            <c:url var="firstPageUrl" value="/billing/manage">
+                                <c:if test="${not empty filter.status}"><c:param name="status" value="${filter.status}"/></c:if>
+                                <c:if test="${not empty filter.fromDate}"><c:param name="from" value="${filter.fromDate}"/></c:if>
+                                <c:if test="${not empty filter.toDate}"><c:param name="to" value="${filter.toDate}"/></c:if>
+                                <c:if test="${not empty filter.customer}"><c:param name="customer" value="${filter.customer}"/></c:if>
+                                <c:param name="size" value="${pageSize}"/>
+                            </c:url>
+                            <c:if test="${not empty param.after}">
+                                <a href="${firstPageUrl}" class="btn btn-secondary">
+                                    <i class="fas fa-angle-double-left"></i> First page
+                                </a>
+                            </c:if>
+                            <c:if test="${not empty nextPageToken}">
+                                <a href="${firstPageUrl}&amp;after=${nextPageToken}" class="btn btn-primary">
+                                    Next page <i class="fas fa-angle-right"></i>
+                                </a>
+                            </c:if>
+                        </div>
                     </c:when>
                     <c:otherwise>
                         <div class="no-bills">
@@ -465,9 +493,6 @@
                         <label for="modalCustomerSelect">Select Customer <span style="color: red;">*</span></label>
                         <select class="form-control" id="modalCustomerSelect" name="accountNumber" required>
                             <option value="">-- Select Customer --</option>
-                            <c:forEach var="customer" items="${customers}">
-                                <option value="${customer.accountNumber}">${customer.name} (${customer.accountNumber})</option>
-                            </c:forEach>
                         </select>
                     </div>
                     
@@ -487,13 +512,6 @@
                                             <label style="font-size: 12px; font-weight: 600;">Item</label>
                                             <select name="items[0].itemId" class="form-control modal-item-dropdown" onchange="updateModalItemPrice(this, 0)" required style="font-size: 14px;">
                                                 <option value="">-- Select Item --</option>
-                                                <c:forEach var="item" items="${availableItems}">
-                                                    <option value="${item.itemId}" 
-                                                            data-price="${item.unitPrice}" 
-                                                            data-stock="${item.stockQuantity}">
-                                                        ${item.itemName} - Rs. <fmt:formatNumber value="${item.unitPrice}" pattern="#,##0.00"/>
-                                                    </option>
-                                                </c:forEach>
                                             </select>
                                         </div>
                                         <div style="flex: 1;">
@@ -576,14 +594,6 @@
                         <label for="itemSelect">Select Item:</label>
                         <select class="form-control" id="itemSelect">
                             <option value="">-- Select Item --</option>
-                            <c:forEach var="item" items="${availableItems}">
-                                <option value="${item.itemId}" 
-                                        data-price="${item.unitPrice}"
-                                        data-stock="${item.stockQuantity}">
-                                    ${item.itemName} - Rs. <fmt:formatNumber value="${item.unitPrice}" maxFractionDigits="2"/> 
-                                    (Stock: ${item.stockQuantity})
-                                </option>
-                            </c:forEach>
                         </select>
                     </div>
                     <div class="form-group">
@@ -710,6 +720,7 @@
 
         function manageBillItems(billId) {
             currentBillId = billId;
+            loadItemOptions();
             
             fetch('${pageContext.request.contextPath}/billing/view?billId=' + billId)
                 .then(response => response.json())
@@ -1014,20 +1025,67 @@
         
         // Modal Create Bill Functions
         let modalItemRowCount = 0;
-        const modalAvailableItems = [
-            <c:forEach var="item" items="${availableItems}" varStatus="status">
-                {
-                    id: ${item.itemId},
-                    name: "${item.itemName}",
-                    price: ${item.unitPrice},
-                    stock: ${item.stockQuantity}
-                }<c:if test="${!status.last}">,</c:if>
-            </c:forEach>
-        ];
+        // Filled from /billing/items when a modal opens; the lists answer 304 while unchanged
+        let modalAvailableItems = [];
+
+        function fetchJson(url) {
+            return fetch(url).then(response => {
+                if (!response.ok) {
+                    throw new Error('Failed to load ' + url);
+                }
+                return response.json();
+            });
+        }
+
+        function loadCustomerOptions() {
+            return fetchJson('${pageContext.request.contextPath}/billing/customers')
+                .then(customers => {
+                    const select = document.getElementById('modalCustomerSelect');
+                    const selected = select.value;
+                    select.length = 1;
+                    customers.forEach(customer => {
+                        select.add(new Option(customer.name + ' (' + customer.accountNumber + ')', customer.accountNumber));
+                    });
+                    select.value = selected;
+                })
+                .catch(error => {
+                    console.error('Error loading customers:', error);
+                    alert('Error loading customers. Please try again.');
+                });
+        }
+
+        function loadItemOptions() {
+            return fetchJson('${pageContext.request.contextPath}/billing/items')
+                .then(items => {
+                    modalAvailableItems = items;
+                    document.querySelectorAll('.modal-item-dropdown').forEach(select => fillItemOptions(select, false));
+                    fillItemOptions(document.getElementById('itemSelect'), true);
+                })
+                .catch(error => {
+                    console.error('Error loading items:', error);
+                    alert('Error loading items. Please try again.');
+                });
+        }
+
+        function fillItemOptions(select, showStock) {
+            const selected = select.value;
+            select.length = 1;
+            modalAvailableItems.forEach(item => {
+                const label = item.itemName + ' - Rs. ' + Number(item.unitPrice).toFixed(2) +
+                              (showStock ? ' (Stock: ' + item.stockQuantity + ')' : '');
+                const option = new Option(label, item.itemId);
+                option.dataset.price = item.unitPrice;
+                option.dataset.stock = item.stockQuantity;
+                select.add(option);
+            });
+            select.value = selected;
+        }
 
         function showCreateBillModal() {
             document.getElementById('createBillModal').style.display = 'block';
             resetModalForm();
+            loadCustomerOptions();
+            loadItemOptions();
         }
 
         function closeCreateModal() {
@@ -1069,12 +1127,6 @@
             newRow.className = 'modal-item-row';
             newRow.setAttribute('data-row', modalItemRowCount);
             
-            let optionsHtml = '<option value="">-- Select Item --</option>';
-            modalAvailableItems.forEach(item => {
-                optionsHtml += '<option value="' + item.id + '" data-price="' + item.price + '" data-stock="' + item.stock + '">' +
-                              item.name + ' - Rs. ' + item.price.toFixed(2) + '</option>';
-            });
-            
             // Build HTML with proper string concatenation for dynamic row indices
             const rowIndex = modalItemRowCount;
             newRow.innerHTML = 
@@ -1083,7 +1135,7 @@
                         '<div style="flex: 2;">' +
                             '<label style="font-size: 12px; font-weight: 600;">Item</label>' +
                             '<select name="items[' + rowIndex + '].itemId" class="form-control modal-item-dropdown" onchange="updateModalItemPrice(this, ' + rowIndex + ')" required style="font-size: 14px;">' +
-                                optionsHtml +
+                                '<option value="">-- Select Item --</option>' +
                             '</select>' +
                         '</div>' +
                         '<div style="flex: 1;">' +
@@ -1110,6 +1162,7 @@
                 '</div>';
             
             container.appendChild(newRow);
+            fillItemOptions(newRow.querySelector('.modal-item-dropdown'), false);
             updateModalRemoveButtons();
         }
 
@@ -19,8 +19,16 @@
         <div class="container-fluid">
             <h1>Pending Bills</h1>
             <p>This is a placeholder page for viewing pending bills.</p>
+            <p>
+                <i class="fas fa-clock"></i>
+                <span data-figure="pendingBills">&hellip;</span> pending bills,
+                <span data-figure="customersWithPendingBills">&hellip;</span> customers waiting
+                (updated live)
+            </p>
             <!-- Add pending bills UI here -->
         </div>
     </div>
+    
+    <%@ include file="../../includes/live-figures.jsp" %>
 </body>
 </html>
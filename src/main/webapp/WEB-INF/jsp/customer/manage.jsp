@@ -316,8 +316,8 @@
                                         <td>${customer.telephoneNumber}</td>
                                         <td>
                                             <c:choose>
-                                                <c:when test="${not empty customer.address}">
-                                                    ${customer.address.length() > 30 ? customer.address.substring(0, 30).concat('...') : customer.address}
+                                                <c:when test="${not empty customer.addressPreview}">
+                                                    ${customer.addressPreview}
                                                 </c:when>
                                                 <c:otherwise>
                                                     <span class="text-muted">Not provided</span>
@@ -57,12 +57,12 @@
                         <i class="fas fa-book"></i>
                     </div>
                     <div class="stat-content">
-                        <h3>${totalItems}</h3>
+                        <h3 data-figure="totalItems">${totalItems}</h3>
                         <p>Total Items</p>
                         <div class="stat-detail">
                             <span class="text-warning">
                                 <i class="fas fa-exclamation-triangle"></i>
-                                ${lowStockItems} Low Stock
+                                <span data-figure="lowStockItems">${lowStockItems}</span> Low Stock
                             </span>
                         </div>
                     </div>
@@ -74,12 +74,12 @@
                         <i class="fas fa-file-invoice"></i>
                     </div>
                     <div class="stat-content">
-                        <h3>${totalBills}</h3>
+                        <h3 data-figure="totalBills">${totalBills}</h3>
                         <p>Total Bills</p>
                         <div class="stat-detail">
                             <span class="text-danger">
                                 <i class="fas fa-clock"></i>
-                                ${pendingBills} Pending
+                                <span data-figure="pendingBills">${pendingBills}</span> Pending
                             </span>
                         </div>
                     </div>
@@ -91,14 +91,14 @@
                         <i class="fas fa-dollar-sign"></i>
                     </div>
                     <div class="stat-content">
-                        <h3>
+                        <h3 data-figure="monthlyRevenue" data-format="currency">
                             <fmt:formatNumber value="${monthlyRevenue}" type="currency" currencySymbol="$" />
                         </h3>
                         <p>Monthly Revenue</p>
                         <div class="stat-detail">
                             <span class="text-success">
                                 <i class="fas fa-calendar-day"></i>
-                                Today: <fmt:formatNumber value="${todaysRevenue}" type="currency" currencySymbol="$" />
+                                Today: <span data-figure="todaysRevenue" data-format="currency"><fmt:formatNumber value="${todaysRevenue}" type="currency" currencySymbol="$" /></span>
                             </span>
                         </div>
                     </div>
@@ -288,6 +288,9 @@
     <!-- Include Footer -->
     <%@ include file="../includes/footer.jsp" %>
     
+    <!-- Live figures, pushed by the server instead of reloading the page -->
+    <%@ include file="../includes/live-figures.jsp" %>
+    
     <script>
         // Update current time
         function updateTime() {
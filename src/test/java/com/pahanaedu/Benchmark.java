@@ -0,0 +1,197 @@
+package com.pahanaedu;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Small in-process benchmark harness for the *BenchmarkTest classes
+ * Each benchmark warms up, then runs the operation for a fixed time and reports the average
+ * wall time and heap allocation per operation next to the figure recorded in
+ * benchmark-baseline.properties. Results go to the test output; they do not fail the build
+ * unless a maximum ratio to the baseline is set
+ *
+ * Settings (system properties, defaults in brackets):
+ *   pahanaedu.benchmark.warmup.ms [300], pahanaedu.benchmark.measure.ms [500]
+ *   pahanaedu.benchmark.max.ratio [none] - fail a benchmark this many times slower than its baseline
+ *   pahanaedu.benchmark.output [none] - append results to this file in baseline format
+ *
+ * The default test run leaves the benchmarks out; run them with: mvn test -Pbenchmark
+ */
+public final class Benchmark {
+
+    private static final Properties BASELINE = loadBaseline();
+
+    private static final long WARMUP_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("pahanaedu.benchmark.warmup.ms", 300));
+    private static final long MEASURE_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("pahanaedu.benchmark.measure.ms", 500));
+
+    // Results are stored here so the JIT cannot drop the work that produced them
+    private static volatile Object sink;
+
+    private Benchmark() {
+    }
+
+    /**
+     * Average cost of one operation
+     */
+    public static final class Result {
+        private final String name;
+        private final long operations;
+        private final double nanosPerOp;
+        private final long bytesPerOp;
+
+        private Result(String name, long operations, double nanosPerOp, long bytesPerOp) {
+            this.name = name;
+            this.operations = operations;
+            this.nanosPerOp = nanosPerOp;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getOperations() {
+            return operations;
+        }
+
+        public double getNanosPerOp() {
+            return nanosPerOp;
+        }
+
+        public long getBytesPerOp() {
+            return bytesPerOp;
+        }
+    }
+
+    /**
+     * Measure an operation with the configured warm-up and measurement times
+     * @param name Benchmark name, the key in benchmark-baseline.properties
+     * @param operation Operation to measure; its result is kept so it is not optimized away
+     * @return Result, already reported
+     */
+    public static Result run(String name, Callable<?> operation) {
+        return measure(name, WARMUP_NANOS, MEASURE_NANOS, operation);
+    }
+
+    /**
+     * Measure an operation that takes long enough to need fewer, longer runs (queries, hashing)
+     * @param name Benchmark name
+     * @param warmupMillis Warm-up time
+     * @param measureMillis Measurement time
+     * @param operation Operation to measure
+     * @return Result, already reported
+     */
+    public static Result run(String name, long warmupMillis, long measureMillis, Callable<?> operation) {
+        return measure(name, TimeUnit.MILLISECONDS.toNanos(warmupMillis), TimeUnit.MILLISECONDS.toNanos(measureMillis), operation);
+    }
+
+    /**
+     * Report the p50 and p99 of latencies collected by the caller (concurrent runs, where
+     * the harness cannot time a single thread); allocation is not measured
+     * @param name Benchmark name; reported as name.p50 and name.p99
+     * @param latencyNanos Latencies in nanoseconds, sorted in place
+     * @return The p99 result, already reported
+     */
+    public static Result latency(String name, long[] latencyNanos) {
+        Arrays.sort(latencyNanos);
+        int count = latencyNanos.length;
+        report(new Result(name + ".p50", count, latencyNanos[count / 2], -1));
+        Result p99 = new Result(name + ".p99", count, latencyNanos[(int) (count * 0.99)], -1);
+        report(p99);
+        return p99;
+    }
+
+    private static Result measure(String name, long warmupNanos, long measureNanos, Callable<?> operation) {
+        try {
+            loop(operation, warmupNanos);
+
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            long operations = loop(operation, measureNanos);
+            long elapsed = System.nanoTime() - start;
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+            Result result = new Result(name, operations, (double) elapsed / operations, allocated / operations);
+            report(result);
+            return result;
+        } catch (Exception e) {
+            throw new IllegalStateException("Benchmark " + name + " failed", e);
+        }
+    }
+
+    /**
+     * Run the operation in growing batches until the time is up, reading the clock once per batch
+     * @return Operations run
+     */
+    private static long loop(Callable<?> operation, long nanos) throws Exception {
+        long operations = 0;
+        int batch = 1;
+        long deadline = System.nanoTime() + nanos;
+        do {
+            for (int i = 0; i < batch; i++) {
+                sink = operation.call();
+            }
+            operations += batch;
+            if (batch < 1 << 16) {
+                batch <<= 1;
+            }
+        } while (System.nanoTime() < deadline);
+        return operations;
+    }
+
+    private static void report(Result result) {
+        String baseline = BASELINE.getProperty(result.name + ".ns");
+        double ratio = baseline != null ? result.nanosPerOp / Double.parseDouble(baseline) : 0;
+        System.out.printf(Locale.ROOT, "Benchmark %-45s %,14.1f ns/op %10s B/op  (%s)%n",
+                result.name, result.nanosPerOp,
+                result.bytesPerOp >= 0 ? String.format(Locale.ROOT, "%,d", result.bytesPerOp) : "-",
+                baseline != null ? String.format(Locale.ROOT, "baseline %s ns/op, %.2fx", baseline, ratio) : "no baseline");
+
+        String output = System.getProperty("pahanaedu.benchmark.output");
+        if (output != null) {
+            record(output, result);
+        }
+
+        double maxRatio = Double.parseDouble(System.getProperty("pahanaedu.benchmark.max.ratio", "0"));
+        if (maxRatio > 0 && ratio > maxRatio) {
+            fail(String.format(Locale.ROOT, "%s took %.1f ns/op, %.2fx its baseline of %s ns/op",
+                    result.name, result.nanosPerOp, ratio, baseline));
+        }
+    }
+
+    private static synchronized void record(String file, Result result) {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+            out.printf(Locale.ROOT, "%s.ns=%.1f%n", result.name, result.nanosPerOp);
+            if (result.bytesPerOp >= 0) {
+                out.printf(Locale.ROOT, "%s.bytes=%d%n", result.name, result.bytesPerOp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Properties loadBaseline() {
+        Properties baseline = new Properties();
+        try (InputStream in = Benchmark.class.getResourceAsStream("/benchmark-baseline.properties")) {
+            if (in != null) {
+                baseline.load(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return baseline;
+    }
+}
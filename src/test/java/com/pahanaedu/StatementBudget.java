@@ -0,0 +1,31 @@
+package com.pahanaedu;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fail a test that runs more SQL statements than its budget
+ * Counts the statements the test method prepares on its own thread through StatementCounter;
+ * set-up in @BeforeEach methods is not counted. On a class it applies to every test method
+ * that has no budget of its own. The persistence unit must register StatementCounter as its
+ * statement inspector, as the test unit does
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(StatementBudgetExtension.class)
+public @interface StatementBudget {
+
+    /**
+     * Most statements the test may run
+     */
+    int value();
+
+    /**
+     * Most times any one SELECT fingerprint may run; more suggests a query per row (N+1)
+     */
+    int maxSameSelect() default 2;
+}
@@ -0,0 +1,64 @@
+package com.pahanaedu;
+
+import com.pahanaedu.util.StatementCounter;
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Counts each test's SQL statements and checks them against its @StatementBudget
+ * The counts are also published as a report entry, so they show in the test output
+ */
+public class StatementBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(StatementBudgetExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), StatementCounter.open());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        StatementCounter.Scope statements = context.getStore(NAMESPACE).remove(context.getUniqueId(), StatementCounter.Scope.class);
+        if (statements == null) {
+            return;
+        }
+        statements.close();
+        context.publishReportEntry("statements", Integer.toString(statements.getStatements()));
+
+        Optional<StatementBudget> budget = budgetOf(context);
+        if (!budget.isPresent() || context.getExecutionException().isPresent()) {
+            return;
+        }
+        if (statements.getStatements() > budget.get().value()) {
+            fail("Ran " + statements.describe() + "\nbudget is " + budget.get().value());
+        }
+        Map<String, Integer> repeated = statements.getRepeatedSelects(budget.get().maxSameSelect());
+        if (!repeated.isEmpty()) {
+            fail("Ran the same SELECT more than " + budget.get().maxSameSelect() + " times (N+1): " + repeated
+                    + "\nAll statements: " + statements.describe());
+        }
+    }
+
+    private static Optional<StatementBudget> budgetOf(ExtensionContext context) {
+        Optional<StatementBudget> onMethod = AnnotationSupport.findAnnotation(context.getTestMethod(), StatementBudget.class);
+        if (onMethod.isPresent()) {
+            return onMethod;
+        }
+        // The nearest enclosing class with a budget, for @Nested test classes
+        for (Optional<ExtensionContext> c = Optional.of(context); c.isPresent(); c = c.get().getParent()) {
+            Optional<StatementBudget> onClass = AnnotationSupport.findAnnotation(c.get().getTestClass(), StatementBudget.class);
+            if (onClass.isPresent()) {
+                return onClass;
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,137 @@
+package com.pahanaedu;
+
+import com.pahanaedu.util.EntityManagerHolder;
+import com.pahanaedu.util.TransactionTemplate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Per-class in-memory H2 database for tests that run DAOs and services through EntityManagerHolder
+ * The test persistence unit is opened on jdbc:h2:mem:<name> with Hibernate statistics on, before
+ * the class's own @BeforeAll methods (which can seed it), and closed after the class and its
+ * nested classes. Statistics are cleared before each test; with bindEachTest() every test also
+ * runs inside a request-style EntityManager scope
+ *
+ *   @RegisterExtension
+ *   static final TestDatabase database = TestDatabase.named("mytest").bindEachTest();
+ *
+ * BaseTestCase remains the fixture for tests that use one shared EntityManager directly
+ */
+public final class TestDatabase implements BeforeAllCallback, AfterAllCallback, BeforeEachCallback, AfterEachCallback {
+
+    private final String name;
+    private final Map<String, Object> properties = new HashMap<>();
+    private boolean bindEachTest;
+
+    private Class<?> owner;
+    private EntityManagerFactory entityManagerFactory;
+    private Statistics statistics;
+
+    private TestDatabase(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param name Database name, unique per test class
+     * @return Database to register with @RegisterExtension
+     */
+    public static TestDatabase named(String name) {
+        return new TestDatabase(name);
+    }
+
+    /**
+     * Set a persistence unit property, e.g. hibernate.connection.pool_size
+     * @param key Property name
+     * @param value Property value
+     * @return This database
+     */
+    public TestDatabase property(String key, Object value) {
+        properties.put(key, value);
+        return this;
+    }
+
+    /**
+     * Bind an EntityManager through EntityManagerHolder around each test
+     * @return This database
+     */
+    public TestDatabase bindEachTest() {
+        this.bindEachTest = true;
+        return this;
+    }
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        // Nested classes inherit the extension; they share the outer class's database
+        if (entityManagerFactory != null) {
+            return;
+        }
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("javax.persistence.jdbc.url", "jdbc:h2:mem:" + name + ";MODE=LEGACY;DB_CLOSE_DELAY=-1");
+        settings.put("hibernate.generate_statistics", "true");
+        settings.putAll(properties);
+        entityManagerFactory = Persistence.createEntityManagerFactory("pahanaedu-test-pu", settings);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        owner = context.getRequiredTestClass();
+    }
+
+    @Override
+    public void afterAll(ExtensionContext context) {
+        if (context.getRequiredTestClass() != owner) {
+            return;
+        }
+        if (entityManagerFactory.isOpen()) {
+            entityManagerFactory.close();
+        }
+        entityManagerFactory = null;
+        statistics = null;
+        owner = null;
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        if (bindEachTest) {
+            EntityManagerHolder.bind(entityManagerFactory);
+        }
+        statistics.clear();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        if (bindEachTest && EntityManagerHolder.isBound()) {
+            EntityManagerHolder.unbind();
+        }
+    }
+
+    public EntityManagerFactory getEntityManagerFactory() {
+        return entityManagerFactory;
+    }
+
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Run work inside an EntityManager scope on this database
+     */
+    public <T> T inScope(Supplier<T> work) {
+        return EntityManagerHolder.inScope(entityManagerFactory, work);
+    }
+
+    /**
+     * Run work in one transaction on this database, e.g. to seed it from @BeforeAll
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        return inScope(() -> TransactionTemplate.inTransaction(work));
+    }
+}
@@ -0,0 +1,47 @@
+package com.pahanaedu.controller;
+
+import com.pahanaedu.util.MetricsRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Action Metrics Tests")
+class ActionMetricsTest {
+
+    @Test
+    @DisplayName("Should time requests by method and action, with unknown actions grouped")
+    void testRecord() {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        ActionMetrics metrics = new ActionMetrics(registry, "billing", "manage", "add-item", "complete");
+
+        long start = System.nanoTime();
+        metrics.record("POST", "/add-item", start, false);
+        metrics.record("POST", "/add-item", start, true);
+        metrics.record("GET", null, start, false);
+        metrics.record("GET", "/../../etc/passwd", start, false);
+        metrics.record("GET", "/random-1", start, false);
+        metrics.record("PROPFIND", "/complete", start, false);
+
+        assertEquals(2, duration(registry, "POST", "add-item"));
+        assertEquals(1, registry.counter(ActionMetrics.REQUEST_ERRORS, "", "servlet", "billing", "method", "POST", "action", "add-item").get());
+        assertEquals(1, duration(registry, "GET", "manage"));
+        assertEquals(2, duration(registry, "GET", "other"));
+        assertEquals(1, duration(registry, "other", "complete"));
+    }
+
+    @Test
+    @DisplayName("Should name actions with the servlets' defaults")
+    void testActionOf() {
+        ActionMetrics metrics = new ActionMetrics(new MetricsRegistry(true), "item", "manage", "add");
+        assertEquals("manage", metrics.actionOf("GET", null));
+        assertEquals("manage", metrics.actionOf("GET", "/"));
+        assertEquals("other", metrics.actionOf("POST", null));
+        assertEquals("add", metrics.actionOf("POST", "/add"));
+        assertEquals("other", metrics.actionOf("POST", "/add/1"));
+    }
+
+    private static long duration(MetricsRegistry registry, String method, String action) {
+        return registry.histogram(ActionMetrics.REQUEST_DURATION, "", "servlet", "billing", "method", method, "action", action).getCount();
+    }
+}
@@ -0,0 +1,126 @@
+package com.pahanaedu.controller;
+
+import com.pahanaedu.Benchmark;
+import com.pahanaedu.dto.CustomerSummary;
+import com.pahanaedu.dto.ItemSummary;
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.BillItem;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.util.JsonWriter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cost of the JSON bodies the servlets write, at the sizes the tills and modals see
+ */
+@DisplayName("JSON Views Benchmark Tests")
+class JsonViewsBenchmarkTest {
+
+    /**
+     * Counts characters instead of keeping them, like a response writer that has already flushed
+     */
+    private static final class CountingWriter extends Writer {
+        private long count;
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private interface View {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    private static long measure(String name, View view) {
+        StringWriter sample = new StringWriter();
+        try {
+            view.write(new JsonWriter(sample));
+        } catch (IOException e) {
+            fail(e);
+        }
+        Benchmark.run(name, () -> {
+            CountingWriter out = new CountingWriter();
+            view.write(new JsonWriter(out));
+            return out.count;
+        });
+        return sample.toString().length();
+    }
+
+    private static Bill bill(int lines) {
+        Bill bill = new Bill(new Customer("ACC001", "Nimal \"Books\" Perera"));
+        bill.setBillId(1042L);
+        bill.setBillDate(LocalDate.of(2024, 3, 14));
+        for (int i = 0; i < lines; i++) {
+            Item item = new Item("Grade " + (i % 13) + " Mathematics Workbook", new BigDecimal("1250.00"));
+            item.setItemId((long) i + 1);
+            bill.addBillItem(new BillItem(bill, item, 1 + i % 3, item.getUnitPrice()));
+        }
+        return bill;
+    }
+
+    @Test
+    @DisplayName("Should measure the bill details modal")
+    void testBill() {
+        Bill small = bill(5);
+        Bill large = bill(100);
+
+        long smallLength = measure("json.bill.5", json -> JsonViews.bill(json, small));
+        long largeLength = measure("json.bill.100", json -> JsonViews.bill(json, large));
+        assertTrue(largeLength > smallLength * 10);
+    }
+
+    @Test
+    @DisplayName("Should measure the item modal")
+    void testItem() {
+        Item item = new Item("Sinhala Dictionary", "Pocket edition\twith\nnotes", new BigDecimal("2400.00"), 12, "Reference");
+        item.setItemId(7L);
+
+        assertTrue(measure("json.item", json -> JsonViews.item(json, item)) > 0);
+    }
+
+    @Test
+    @DisplayName("Should measure the till customer and item lists")
+    void testTillLists() {
+        List<CustomerSummary> customers = new ArrayList<>();
+        List<ItemSummary> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            customers.add(new CustomerSummary(String.format("ACC%05d", i), "Customer " + i, "No. " + i + ", Galle Road, Colombo",
+                    "07712" + String.format("%05d", i), LocalDate.of(2023, 1, 1).plusDays(i), true));
+            items.add(new ItemSummary((long) i, "Item " + i, new BigDecimal("450.00").add(BigDecimal.valueOf(i)), i % 50,
+                    i % 4 == 0 ? null : "Stationery"));
+        }
+
+        assertTrue(measure("json.customers.1000", json -> JsonViews.customerSummaries(json, customers)) > 50_000);
+        assertTrue(measure("json.items.1000", json -> JsonViews.itemSummaries(json, items)) > 50_000);
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Nested;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,6 +27,11 @@ class BaseDAOImplTest extends BaseTestCase {
             userDAO = new TestUserDAOImpl();
             userDAO.setEntityManager(entityManager);
             
+            // Nested classes share the database; start each test without users
+            beginTransaction();
+            entityManager.createQuery("DELETE FROM User").executeUpdate();
+            commitTransaction();
+            
             testUser = new User();
             testUser.setUsername("testuser");
             testUser.setPasswordHash("hashedpassword");
@@ -52,6 +58,33 @@ class BaseDAOImplTest extends BaseTestCase {
             assertEquals(testUser.getPasswordHash(), savedUser.getPasswordHash());
         }
         
+        @Test
+        @DisplayName("Should save in chunks, detaching only the flushed chunks")
+        void testSaveAll() {
+            if (!isTestEnvironmentReady()) return;
+            
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < 70; i++) {
+                users.add(new User("bulkuser" + i, "hashedpassword", User.UserRole.OPERATOR));
+            }
+            
+            beginTransaction();
+            User loaded = userDAO.save(testUser);
+            userDAO.saveAll(users);
+            
+            // The caller's entity stays managed; chunks of 30 before the last are detached
+            assertTrue(entityManager.contains(loaded));
+            assertFalse(entityManager.contains(users.get(0)));
+            assertFalse(entityManager.contains(users.get(59)));
+            assertTrue(entityManager.contains(users.get(60)));
+            loaded.setPasswordHash("changedInSameTransaction");
+            commitTransaction();
+            
+            clearEntityManager();
+            assertEquals(71L, userDAO.count());
+            assertEquals("changedInSameTransaction", userDAO.findById("testuser").get().getPasswordHash());
+        }
+        
         @Test
         @DisplayName("Should update entity successfully")
         void testUpdate() {
@@ -0,0 +1,134 @@
+package com.pahanaedu.dao.impl;
+
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.BillItem;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.util.EntityManagerHolder;
+import com.pahanaedu.util.TransactionTemplate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Statements and wall time for bulk inserts with JDBC batching off and on
+ */
+@DisplayName("Batch Insert Benchmark Tests")
+class BatchInsertBenchmarkTest {
+
+    private static final int BILL_LINES = 30;
+    private static final int IMPORTED_ITEMS = 50_000;
+
+    private static EntityManagerFactory createFactory(String name, int batchSize) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:" + name + ";MODE=LEGACY;DB_CLOSE_DELAY=-1");
+        properties.put("hibernate.jdbc.batch_size", String.valueOf(batchSize));
+        properties.put("hibernate.generate_statistics", "true");
+        return Persistence.createEntityManagerFactory("pahanaedu-test-pu", properties);
+    }
+
+    /**
+     * Persist one bill with BILL_LINES lines in a single unit of work
+     * @return [prepared statements, elapsed nanos]
+     */
+    private static long[] createBill(EntityManagerFactory emf) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < BILL_LINES; i++) {
+            items.add(new Item("Bench Item " + i, null, new BigDecimal("10.00"), 100, "Bench"));
+        }
+        Customer customer = new Customer("ACC800", "Bench Customer");
+        EntityManagerHolder.inScope(emf, () -> TransactionTemplate.inTransaction(() -> {
+            EntityManagerHolder.get().persist(customer);
+            return new ItemDAOImpl().saveAll(items);
+        }));
+
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        EntityManagerHolder.inScope(emf, () -> TransactionTemplate.inTransaction(() -> {
+            EntityManager em = EntityManagerHolder.get();
+            Bill bill = new Bill(em.find(Customer.class, customer.getAccountNumber()));
+            List<Item> catalog = em.createQuery("SELECT i FROM Item i WHERE i.category = 'Bench'", Item.class)
+                    .getResultList();
+            for (Item item : catalog) {
+                bill.addBillItem(new BillItem(bill, item, 1, item.getUnitPrice()));
+            }
+            bill.recalculateTotal();
+            em.persist(bill);
+            return bill;
+        }));
+        return new long[] { statistics.getPrepareStatementCount(), System.nanoTime() - start };
+    }
+
+    /**
+     * Import IMPORTED_ITEMS items through ItemDAO.saveAll
+     * @return [prepared statements, elapsed nanos]
+     */
+    private static long[] importItems(EntityManagerFactory emf) {
+        List<Item> items = new ArrayList<>(IMPORTED_ITEMS);
+        for (int i = 0; i < IMPORTED_ITEMS; i++) {
+            items.add(new Item("Imported Item " + i, "Imported", new BigDecimal("5.00"), 10, "Import"));
+        }
+
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        long start = System.nanoTime();
+        EntityManagerHolder.inScope(emf, () -> new ItemDAOImpl().saveAll(items));
+        return new long[] { statistics.getPrepareStatementCount(), System.nanoTime() - start };
+    }
+
+    private static void report(String scenario, long[] unbatched, long[] batched) {
+        System.out.printf("%s: batching off %d statements %.1fms, batching on %d statements %.1fms%n",
+                scenario, unbatched[0], unbatched[1] / 1e6, batched[0], batched[1] / 1e6);
+    }
+
+    @Test
+    @DisplayName("Should batch the lines of a 30-line bill")
+    void testThirtyLineBill() {
+        EntityManagerFactory unbatchedEmf = createFactory("batchbench_bill_off", 0);
+        EntityManagerFactory batchedEmf = createFactory("batchbench_bill_on", 30);
+        try {
+            long[] unbatched = createBill(unbatchedEmf);
+            long[] batched = createBill(batchedEmf);
+            report("30-line bill", unbatched, batched);
+
+            assertTrue(batched[0] < unbatched[0]);
+            // Lookups, sequence calls, bill insert and one line batch; not one statement per line
+            assertTrue(batched[0] <= 6);
+        } finally {
+            unbatchedEmf.close();
+            batchedEmf.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should batch a 50k item import")
+    void testItemImport() {
+        EntityManagerFactory unbatchedEmf = createFactory("batchbench_import_off", 0);
+        EntityManagerFactory batchedEmf = createFactory("batchbench_import_on", 50);
+        try {
+            long[] unbatched = importItems(unbatchedEmf);
+            long[] batched = importItems(batchedEmf);
+            report("50k item import", unbatched, batched);
+
+            assertTrue(batched[0] * 10 < unbatched[0]);
+            long count = EntityManagerHolder.inScope(batchedEmf, () -> new ItemDAOImpl().count());
+            assertEquals(IMPORTED_ITEMS, count);
+        } finally {
+            unbatchedEmf.close();
+            batchedEmf.close();
+        }
+    }
+}
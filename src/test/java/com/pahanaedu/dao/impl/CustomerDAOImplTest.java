@@ -3,6 +3,7 @@ package com.pahanaedu.dao.impl;
 import com.pahanaedu.BaseTestCase;
 import com.pahanaedu.model.Customer;
 import com.pahanaedu.model.Bill;
+import com.pahanaedu.dto.CustomerStatistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -391,13 +392,12 @@ class CustomerDAOImplTest extends BaseTestCase {
         void testGetCustomerStatistics() {
             if (!isTestEnvironmentReady()) return;
             
-            long[] stats = customerDAO.getCustomerStatistics();
+            CustomerStatistics stats = customerDAO.getCustomerStatistics();
             
             assertNotNull(stats);
-            assertEquals(3, stats.length);
-            assertTrue(stats[0] >= 3); // Total customers
-            assertTrue(stats[1] >= 2); // Active customers
-            assertTrue(stats[2] >= 0); // Customers with pending bills
+            assertTrue(stats.getTotalCustomers() >= 3);
+            assertTrue(stats.getActiveCustomers() >= 2);
+            assertTrue(stats.getCustomersWithPendingBills() >= 0);
         }
     }
     
@@ -5,13 +5,16 @@ import com.pahanaedu.model.Item;
 import com.pahanaedu.model.BillItem;
 import com.pahanaedu.model.Bill;
 import com.pahanaedu.model.Customer;
+import com.pahanaedu.dto.ItemStatistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Nested;
 
 import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -388,6 +391,99 @@ class ItemDAOImplTest extends BaseTestCase {
         }
     }
     
+    @Nested
+    @DisplayName("Atomic Stock Update Tests")
+    class AtomicStockUpdateTests {
+        
+        @Test
+        @DisplayName("Should decrement stock with a guarded update")
+        void testDecrementStock() {
+            if (!isTestEnvironmentReady()) return;
+            
+            beginTransaction();
+            Item savedItem = itemDAO.save(testItem1); // Stock = 10
+            int updated = itemDAO.decrementStock(savedItem.getItemId(), 4);
+            commitTransaction();
+            
+            assertEquals(1, updated);
+            clearEntityManager();
+            assertEquals(Integer.valueOf(6), itemDAO.findById(savedItem.getItemId()).get().getStockQuantity());
+        }
+        
+        @Test
+        @DisplayName("Should fail fast without changing stock when insufficient")
+        void testDecrementStockInsufficient() {
+            if (!isTestEnvironmentReady()) return;
+            
+            beginTransaction();
+            Item savedItem = itemDAO.save(testItem3); // Stock = 3
+            commitTransaction();
+            
+            beginTransaction();
+            IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                    () -> itemDAO.decrementStock(savedItem.getItemId(), 4));
+            commitTransaction();
+            
+            assertEquals("Insufficient stock. Available: 3, Required: 4", exception.getMessage());
+            clearEntityManager();
+            assertEquals(Integer.valueOf(3), itemDAO.findById(savedItem.getItemId()).get().getStockQuantity());
+        }
+        
+        @Test
+        @DisplayName("Should report missing items on atomic updates")
+        void testAtomicUpdateMissingItem() {
+            if (!isTestEnvironmentReady()) return;
+            
+            beginTransaction();
+            assertThrows(IllegalArgumentException.class, () -> itemDAO.decrementStock(999L, 1));
+            assertThrows(IllegalArgumentException.class, () -> itemDAO.incrementStock(999L, 1));
+            commitTransaction();
+        }
+        
+        @Test
+        @DisplayName("Should apply several deltas in one statement")
+        void testAdjustStock() {
+            if (!isTestEnvironmentReady()) return;
+            
+            beginTransaction();
+            Item item1 = itemDAO.save(testItem1); // Stock = 10
+            Item item3 = itemDAO.save(testItem3); // Stock = 3
+            Item item4 = itemDAO.save(testItem4); // Stock = 25
+            Map<Long, Integer> deltas = new HashMap<>();
+            deltas.put(item1.getItemId(), 5);
+            deltas.put(item3.getItemId(), -3);
+            deltas.put(item4.getItemId(), 1);
+            int updated = itemDAO.adjustStock(deltas);
+            commitTransaction();
+            
+            assertEquals(3, updated);
+            clearEntityManager();
+            assertEquals(Integer.valueOf(15), itemDAO.findById(item1.getItemId()).get().getStockQuantity());
+            assertEquals(Integer.valueOf(0), itemDAO.findById(item3.getItemId()).get().getStockQuantity());
+            assertEquals(Integer.valueOf(26), itemDAO.findById(item4.getItemId()).get().getStockQuantity());
+        }
+        
+        @Test
+        @DisplayName("Should apply no delta when one item would go negative")
+        void testAdjustStockAllOrNothing() {
+            if (!isTestEnvironmentReady()) return;
+            
+            beginTransaction();
+            Item item1 = itemDAO.save(testItem1); // Stock = 10
+            Item item3 = itemDAO.save(testItem3); // Stock = 3
+            commitTransaction();
+            
+            Map<Long, Integer> deltas = new HashMap<>();
+            deltas.put(item1.getItemId(), 5);
+            deltas.put(item3.getItemId(), -4);
+            assertThrows(IllegalArgumentException.class, () -> itemDAO.adjustStock(deltas));
+            
+            clearEntityManager();
+            assertEquals(Integer.valueOf(10), itemDAO.findById(item1.getItemId()).get().getStockQuantity());
+            assertEquals(Integer.valueOf(3), itemDAO.findById(item3.getItemId()).get().getStockQuantity());
+        }
+    }
+    
     @Nested
     @DisplayName("Advanced Search Tests")
     class AdvancedSearchTests {
@@ -510,14 +606,13 @@ class ItemDAOImplTest extends BaseTestCase {
         void testGetItemStatistics() {
             if (!isTestEnvironmentReady()) return;
             
-            long[] stats = itemDAO.getItemStatistics(5); // Low stock threshold = 5
+            ItemStatistics stats = itemDAO.getItemStatistics(5); // Low stock threshold = 5
             
             assertNotNull(stats);
-            assertEquals(4, stats.length);
-            assertTrue(stats[0] >= 4); // Total items
-            assertTrue(stats[1] >= 3); // Items in stock
-            assertTrue(stats[2] >= 1); // Out of stock items
-            assertTrue(stats[3] >= 1); // Low stock items (testItem3)
+            assertTrue(stats.getTotalItems() >= 4);
+            assertTrue(stats.getItemsInStock() >= 3);
+            assertTrue(stats.getOutOfStockItems() >= 1);
+            assertTrue(stats.getLowStockItems() >= 1); // testItem3
         }
         
         @Test
@@ -609,9 +704,9 @@ class ItemDAOImplTest extends BaseTestCase {
             if (!isTestEnvironmentReady()) return;
             
             assertDoesNotThrow(() -> {
-                long[] stats = itemDAO.getItemStatistics(-1);
+                ItemStatistics stats = itemDAO.getItemStatistics(-1);
                 assertNotNull(stats);
-                assertEquals(4, stats.length);
+                assertEquals(0, stats.getLowStockItems());
             });
         }
         
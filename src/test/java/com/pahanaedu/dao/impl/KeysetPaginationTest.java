@@ -0,0 +1,266 @@
+package com.pahanaedu.dao.impl;
+
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.dao.Cursor;
+import com.pahanaedu.dao.Page;
+import com.pahanaedu.dao.SortSpec;
+import com.pahanaedu.dto.BillFilter;
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.BillItem;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.util.EntityManagerHolder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Keyset Pagination Tests")
+class KeysetPaginationTest {
+
+    private static final int BILLS = 25;
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("keysetpaginationtest").bindEachTest();
+
+    @BeforeAll
+    static void seed() {
+        database.inTransaction(() -> {
+            EntityManager em = EntityManagerHolder.get();
+            // Duplicate names and dates, so the id tie-breaker matters
+            List<Customer> customers = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                Customer customer = new Customer(String.format("ACC6%02d", i), "Customer " + (i % 4));
+                em.persist(customer);
+                customers.add(customer);
+            }
+            List<Bill> bills = new ArrayList<>();
+            for (int i = 0; i < BILLS; i++) {
+                Bill bill = new Bill(customers.get(i % customers.size()));
+                bill.setBillDate(LocalDate.of(2024, 1, 1).plusDays(i / 3));
+                if (i % 4 == 0) {
+                    bill.markAsPaid();
+                }
+                em.persist(bill);
+                bills.add(bill);
+            }
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                Item item = new Item("Item " + (i % 5), null, new BigDecimal("1.00"), i, "Paging");
+                em.persist(item);
+                items.add(item);
+            }
+            // Two lines on the first bill, one on the second
+            em.persist(new BillItem(bills.get(0), items.get(0), 2, items.get(0).getUnitPrice()));
+            em.persist(new BillItem(bills.get(0), items.get(1), 3, items.get(1).getUnitPrice()));
+            em.persist(new BillItem(bills.get(1), items.get(2), 1, items.get(2).getUnitPrice()));
+            return null;
+        });
+    }
+
+    /**
+     * Walk every page, round-tripping the cursor through its token each time
+     */
+    private static <T> List<T> walk(BaseDAOImpl<T, ?> dao, int pageSize, SortSpec sort) {
+        List<T> all = new ArrayList<>();
+        Cursor cursor = null;
+        do {
+            Page<T> page = dao.findPage(cursor, pageSize, sort);
+            assertTrue(page.getItems().size() <= pageSize);
+            all.addAll(page.getItems());
+            cursor = page.hasNext() ? Cursor.decode(page.getNextToken()) : null;
+        } while (cursor != null);
+        return all;
+    }
+
+    private static <T, K> List<K> keys(List<T> rows, Function<T, K> key) {
+        List<K> keys = new ArrayList<>();
+        rows.forEach(row -> keys.add(key.apply(row)));
+        return keys;
+    }
+
+    @Nested
+    @DisplayName("Page Walk Tests")
+    class PageWalkTests {
+
+        @Test
+        @DisplayName("Should list bills newest first without gaps or duplicates")
+        void testBillPages() {
+            BillDAOImpl billDAO = new BillDAOImpl();
+            List<Bill> walked = walk(billDAO, 7, null);
+
+            List<Bill> expected = new ArrayList<>(billDAO.findAll());
+            expected.sort(Comparator.comparing(Bill::getBillDate).thenComparing(Bill::getBillId).reversed());
+            assertEquals(BILLS, walked.size());
+            assertEquals(keys(expected, Bill::getBillId), keys(walked, Bill::getBillId));
+        }
+
+        @Test
+        @DisplayName("Should list customers and items by name with id tie-breaker")
+        void testCustomerAndItemPages() {
+            List<Customer> customers = walk(new CustomerDAOImpl(), 3, null);
+            List<Customer> expectedCustomers = new ArrayList<>(customers);
+            expectedCustomers.sort(Comparator.comparing(Customer::getName).thenComparing(Customer::getAccountNumber));
+            assertEquals(10, customers.size());
+            assertEquals(keys(expectedCustomers, Customer::getAccountNumber), keys(customers, Customer::getAccountNumber));
+
+            List<Item> items = walk(new ItemDAOImpl(), 5, null);
+            List<Item> expectedItems = new ArrayList<>(items);
+            expectedItems.sort(Comparator.comparing(Item::getItemName).thenComparing(Item::getItemId));
+            assertEquals(12, items.size());
+            assertEquals(keys(expectedItems, Item::getItemId), keys(items, Item::getItemId));
+        }
+
+        @Test
+        @DisplayName("Should honour an explicit sort and append the id")
+        void testExplicitSort() {
+            SortSpec byStock = SortSpec.of(SortSpec.Direction.DESC, "stockQuantity");
+            List<Item> items = walk(new ItemDAOImpl(), 4, byStock);
+
+            for (int i = 1; i < items.size(); i++) {
+                assertTrue(items.get(i - 1).getStockQuantity() >= items.get(i).getStockQuantity());
+            }
+            assertEquals(12, items.size());
+        }
+
+        @Test
+        @DisplayName("Should bound the seek on the leading sort key")
+        void testLeadingBound() {
+            Page<Bill> first = new BillDAOImpl().findPage(null, 5, null);
+            database.getStatistics().clear();
+            new BillDAOImpl().findPage(first.getNext(), 5, null);
+
+            // billDate <= v1 AND (billDate < v1 OR (billDate = v1 AND billId < v2)), newest first
+            String[] queries = database.getStatistics().getQueries();
+            assertEquals(1, queries.length);
+            String where = queries[0].substring(queries[0].indexOf(" where "));
+            assertTrue(where.matches(" where \\( \\w+\\.billDate<=:\\w+ \\) and \\( \\( \\w+\\.billDate<:.* or .*"), where);
+        }
+
+        @Test
+        @DisplayName("Should fetch a bill page with its customers in one statement")
+        void testSingleStatementPerPage() {
+            Page<Bill> first = new BillDAOImpl().findPage(null, 5, null);
+            Page<Bill> second = new BillDAOImpl().findPage(first.getNext(), 5, null);
+
+            second.getItems().forEach(bill -> assertNotNull(bill.getCustomer().getName()));
+            assertEquals(2, database.getStatistics().getPrepareStatementCount());
+        }
+    }
+
+    @Nested
+    @DisplayName("Filtered Bill Page Tests")
+    class FilteredBillPageTests {
+
+        private List<Bill> walkFiltered(BillFilter filter, int pageSize) {
+            BillDAOImpl billDAO = new BillDAOImpl();
+            List<Bill> all = new ArrayList<>();
+            Cursor cursor = null;
+            do {
+                Page<Bill> page = billDAO.findPage(filter, cursor, pageSize);
+                all.addAll(page.getItems());
+                cursor = page.hasNext() ? Cursor.decode(page.getNextToken()) : null;
+            } while (cursor != null);
+            return all;
+        }
+
+        @Test
+        @DisplayName("Should page bills by status and date range")
+        void testStatusAndDateFilter() {
+            List<Bill> paid = walkFiltered(new BillFilter(Bill.BillStatus.PAID, null, null, null), 2);
+            assertEquals(7, paid.size());
+            paid.forEach(bill -> assertEquals(Bill.BillStatus.PAID, bill.getStatus()));
+
+            LocalDate from = LocalDate.of(2024, 1, 3);
+            LocalDate to = LocalDate.of(2024, 1, 5);
+            List<Bill> ranged = walkFiltered(new BillFilter(null, from, to, null), 4);
+            assertEquals(9, ranged.size());
+            ranged.forEach(bill -> assertFalse(bill.getBillDate().isBefore(from) || bill.getBillDate().isAfter(to)));
+        }
+
+        @Test
+        @DisplayName("Should match customers by account number or name")
+        void testCustomerFilter() {
+            List<Bill> byAccount = walkFiltered(new BillFilter(null, null, null, "ACC601"), 5);
+            assertEquals(3, byAccount.size());
+            byAccount.forEach(bill -> assertEquals("ACC601", bill.getCustomer().getAccountNumber()));
+
+            // "Customer 1" covers ACC601, ACC605 and ACC609
+            List<Bill> byName = walkFiltered(new BillFilter(null, null, null, "customer 1"), 5);
+            assertEquals(7, byName.size());
+
+            // Wildcards in the search text are matched literally
+            assertTrue(walkFiltered(new BillFilter(null, null, null, "%"), 5).isEmpty());
+            assertTrue(walkFiltered(new BillFilter(null, null, null, "customer_1"), 5).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should count items per bill without loading lines")
+        void testItemCounts() {
+            Page<Bill> page = new BillDAOImpl().findPage(BillFilter.none(), null, BILLS);
+            List<Long> billIds = keys(page.getItems(), Bill::getBillId);
+            database.getStatistics().clear();
+
+            Map<Long, Long> counts = new BillDAOImpl().getItemCounts(billIds);
+
+            assertEquals(2, counts.size());
+            assertTrue(counts.containsValue(5L));
+            assertTrue(counts.containsValue(1L));
+            assertEquals(1, database.getStatistics().getPrepareStatementCount());
+            assertEquals(0, database.getStatistics().getCollectionFetchCount());
+        }
+
+        @Test
+        @DisplayName("Should reject a start date after the end date")
+        void testInvalidRange() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> new BillFilter(null, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1), null));
+        }
+    }
+
+    @Nested
+    @DisplayName("Cursor Tests")
+    class CursorTests {
+
+        @Test
+        @DisplayName("Should round-trip cursor values through the token")
+        void testTokenRoundTrip() {
+            Cursor cursor = Cursor.of(LocalDate.of(2024, 2, 29), 42L, "Café & Co", 7, new BigDecimal("12.50"));
+            assertEquals(cursor, Cursor.decode(cursor.encode()));
+            assertFalse(cursor.encode().contains("/"));
+        }
+
+        @Test
+        @DisplayName("Should reject malformed tokens and cursors for another sort")
+        void testInvalidCursors() {
+            assertThrows(IllegalArgumentException.class, () -> Cursor.decode("not a cursor"));
+            assertThrows(IllegalArgumentException.class, () -> Cursor.decode(""));
+
+            BillDAOImpl billDAO = new BillDAOImpl();
+            assertThrows(IllegalArgumentException.class, () -> billDAO.findPage(Cursor.of(1L), 5, null));
+            assertThrows(IllegalArgumentException.class, () -> billDAO.findPage(Cursor.of("x", 1L), 5, null));
+            assertThrows(IllegalArgumentException.class, () -> billDAO.findPage(null, 0, null));
+        }
+
+        @Test
+        @DisplayName("Should return no cursor on the last page")
+        void testLastPage() {
+            Page<Item> page = new ItemDAOImpl().findPage(null, 12, null);
+            assertEquals(12, page.getItems().size());
+            assertFalse(page.hasNext());
+            assertNull(page.getNextToken());
+        }
+    }
+}
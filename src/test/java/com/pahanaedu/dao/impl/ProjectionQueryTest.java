@@ -0,0 +1,98 @@
+package com.pahanaedu.dao.impl;
+
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.dto.CustomerSummary;
+import com.pahanaedu.dto.ItemSummary;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.util.EntityManagerHolder;
+import com.pahanaedu.util.TransactionTemplate;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Projection Query Tests")
+class ProjectionQueryTest {
+
+    private static final int ITEMS = 2000;
+    private static final String LONG_ADDRESS = "123 A Very Long Street Name, Colombo 07, Western Province";
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("projectionquerytest").bindEachTest();
+
+    @BeforeAll
+    static void seed() {
+        database.inTransaction(() -> {
+            EntityManager em = EntityManagerHolder.get();
+            em.persist(new Customer("ACC900", "Long Address", LONG_ADDRESS, "0771234567"));
+            em.persist(new Customer("ACC901", "Short Address", "Kandy", "0777654321"));
+            Customer inactive = new Customer("ACC902", "No Address");
+            inactive.setActive(false);
+            em.persist(inactive);
+            for (int i = 0; i < ITEMS; i++) {
+                em.persist(new Item(String.format("Projected Item %04d", i),
+                        "A description that list pages never show " + i,
+                        new BigDecimal("2.50"), i % 10, "Projection"));
+            }
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("Should read item summaries without loading entities")
+    void testItemSummaries() {
+        List<ItemSummary> inStock = new ItemDAOImpl().findSummaries(null, "projection", true);
+
+        assertEquals(ITEMS - ITEMS / 10, inStock.size());
+        assertTrue(inStock.stream().allMatch(ItemSummary::isInStock));
+        assertEquals("Projected Item 0001", inStock.get(0).getItemName());
+        assertEquals(0, new BigDecimal("2.50").compareTo(inStock.get(0).getUnitPrice()));
+        assertEquals(0, database.getStatistics().getEntityLoadCount());
+        assertEquals(1, database.getStatistics().getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should read customer summaries with a shortened address")
+    void testCustomerSummaries() {
+        List<CustomerSummary> customers = new CustomerDAOImpl().findSummaries(null, null, null);
+
+        assertEquals(3, customers.size());
+        CustomerSummary longAddress = customers.get(0);
+        assertEquals("ACC900", longAddress.getAccountNumber());
+        assertEquals(LONG_ADDRESS.substring(0, CustomerSummary.PREVIEW_LENGTH) + "...", longAddress.getAddressPreview());
+        assertEquals("Kandy", customers.get(2).getAddressPreview());
+        assertNull(customers.get(1).getAddressPreview());
+        assertNotNull(longAddress.getRegistrationDateAsDate());
+
+        List<CustomerSummary> inactive = new CustomerDAOImpl().findSummaries(null, null, false);
+        assertEquals(1, inactive.size());
+        assertFalse(inactive.get(0).isActive());
+        assertEquals(0, database.getStatistics().getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("Should not flush pending changes before a projection query")
+    void testNoAutoFlush() {
+        TransactionTemplate.inTransaction(() -> {
+            Item item = EntityManagerHolder.get()
+                    .createQuery("SELECT i FROM Item i WHERE i.itemName = 'Projected Item 0000'", Item.class)
+                    .getSingleResult();
+            item.setItemName("Renamed Item");
+            database.getStatistics().clear();
+
+            new ItemDAOImpl().findSummaries("Projected", null, false);
+            assertEquals(0, database.getStatistics().getFlushCount());
+
+            // Leave the data as seeded
+            item.setItemName("Projected Item 0000");
+            return null;
+        });
+    }
+}
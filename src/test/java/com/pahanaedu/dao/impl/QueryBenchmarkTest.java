@@ -0,0 +1,219 @@
+package com.pahanaedu.dao.impl;
+
+import com.pahanaedu.Benchmark;
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.dao.Page;
+import com.pahanaedu.dto.BillFilter;
+import com.pahanaedu.dto.BillStatistics;
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.BillItem;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.util.EntityManagerHolder;
+import com.pahanaedu.util.TransactionTemplate;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cost of the DAO queries behind the busiest pages, against a year of trading for a mid-sized shop
+ * Each operation opens its own persistence context, as a request does
+ */
+@DisplayName("Query Benchmark Tests")
+class QueryBenchmarkTest {
+
+    private static final int CUSTOMERS = 5_000;
+    private static final int ITEMS = 2_000;
+    private static final int BILLS = 20_000;
+    private static final int BILLS_PER_TRANSACTION = 1_000;
+
+    private static final long WARMUP_MILLIS = 200;
+    private static final long MEASURE_MILLIS = 1000;
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("querybenchmarktest")
+            .property("hibernate.jdbc.batch_size", "50");
+
+    private static List<Long> billIds;
+
+    @BeforeAll
+    static void setUpClass() {
+        long start = System.nanoTime();
+        billIds = seed(new Random(42));
+        System.out.printf("Seeded %,d customers, %,d items and %,d bills in %d ms%n",
+                CUSTOMERS, ITEMS, BILLS, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Customers, a catalogue across a few categories, and bills of 1 to 5 lines over the last year:
+     * most paid, a quarter pending, a few cancelled
+     * @return Ids of the bills created
+     */
+    private static List<Long> seed(Random random) {
+        database.inTransaction(() -> {
+            EntityManager em = EntityManagerHolder.get();
+            for (int i = 0; i < CUSTOMERS; i++) {
+                Customer customer = new Customer(accountNumber(i), "Customer " + i, i + " Galle Road, Colombo",
+                        String.format("0771%06d", i));
+                customer.setActive(i % 20 != 0);
+                em.persist(customer);
+            }
+            String[] categories = {"Textbooks", "Stationery", "Fiction", "Reference", "Children"};
+            for (int i = 0; i < ITEMS; i++) {
+                em.persist(new Item("Item " + i, null, BigDecimal.valueOf(100 + random.nextInt(4900)),
+                        random.nextInt(200), categories[i % categories.length]));
+            }
+            return null;
+        });
+
+        List<Long> itemIds = database.inScope(() -> EntityManagerHolder.get()
+                .createQuery("SELECT i.itemId FROM Item i", Long.class).getResultList());
+        List<Long> ids = new ArrayList<>(BILLS);
+        for (int created = 0; created < BILLS; created += BILLS_PER_TRANSACTION) {
+            database.inScope(() -> TransactionTemplate.inTransaction(() -> {
+                EntityManager em = EntityManagerHolder.get();
+                List<Bill> bills = new ArrayList<>(BILLS_PER_TRANSACTION);
+                for (int b = 0; b < BILLS_PER_TRANSACTION; b++) {
+                    Bill bill = new Bill(em.getReference(Customer.class, accountNumber(random.nextInt(CUSTOMERS))));
+                    bill.setBillDate(TODAY.minusDays(random.nextInt(365)));
+                    int lines = 1 + random.nextInt(5);
+                    for (int l = 0; l < lines; l++) {
+                        Item item = em.getReference(Item.class, itemIds.get(random.nextInt(itemIds.size())));
+                        BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(4900));
+                        bill.getBillItems().add(new BillItem(bill, item, 1 + random.nextInt(3), price));
+                    }
+                    bill.recalculateTotal();
+                    int status = random.nextInt(100);
+                    if (status < 70) {
+                        bill.markAsPaid();
+                    } else if (status < 75) {
+                        bill.markAsCancelled();
+                    }
+                    em.persist(bill);
+                    bills.add(bill);
+                }
+                em.flush();
+                for (Bill bill : bills) {
+                    ids.add(bill.getBillId());
+                }
+                return null;
+            }));
+        }
+        return ids;
+    }
+
+    private static String accountNumber(int i) {
+        return String.format("ACC%05d", i);
+    }
+
+    /**
+     * Measure a query, each run in its own persistence context
+     * @return Result of one more run, for the caller's checks
+     */
+    private static <T> T measure(String name, Supplier<T> query) {
+        Benchmark.run(name, WARMUP_MILLIS, MEASURE_MILLIS, () -> database.inScope(query));
+        return database.inScope(query);
+    }
+
+    @Nested
+    @DisplayName("Bill Query Benchmarks")
+    class BillQueryBenchmarks {
+
+        @Test
+        @DisplayName("Should measure loading one bill with its lines")
+        void testFindByBillId() {
+            AtomicInteger next = new AtomicInteger();
+            Bill bill = measure("dao.bill.findByBillId", () -> {
+                Bill found = new BillDAOImpl().findByBillId(billIds.get(next.getAndIncrement() % billIds.size())).orElseThrow();
+                found.getBillItems().size();
+                return found;
+            });
+            assertFalse(bill.getBillItems().isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should measure the dashboard bill statistics")
+        void testStatistics() {
+            BillStatistics stats = measure("dao.bill.getBillStatistics", () -> new BillDAOImpl().getBillStatistics());
+            assertEquals(BILLS, stats.getTotalBills());
+        }
+
+        @Test
+        @DisplayName("Should measure the revenue reports")
+        void testRevenue() {
+            BigDecimal monthly = measure("dao.bill.calculateRevenueForPeriod.month",
+                    () -> new BillDAOImpl().calculateRevenueForPeriod(TODAY.withDayOfMonth(1), TODAY));
+            List<Object[]> daily = measure("dao.bill.getDailyRevenue.30days",
+                    () -> new BillDAOImpl().getDailyRevenue(TODAY.minusDays(29), TODAY));
+            List<Object[]> top = measure("dao.bill.getTopCustomersByRevenue.10",
+                    () -> new BillDAOImpl().getTopCustomersByRevenue(10));
+
+            assertTrue(monthly.signum() > 0);
+            assertFalse(daily.isEmpty());
+            assertEquals(10, top.size());
+        }
+
+        @Test
+        @DisplayName("Should measure the first page of pending bills and a customer's history")
+        void testListings() {
+            Page<Bill> page = measure("dao.bill.findPage.pending.20", () -> new BillDAOImpl()
+                    .findPage(new BillFilter(Bill.BillStatus.PENDING, null, null, null), null, 20));
+            List<Bill> history = measure("dao.bill.findByCustomerAccountNumber",
+                    () -> new BillDAOImpl().findByCustomerAccountNumber(accountNumber(1234)));
+
+            assertEquals(20, page.getItems().size());
+            assertFalse(history.isEmpty());
+        }
+    }
+
+    @Nested
+    @DisplayName("Catalogue Query Benchmarks")
+    class CatalogueQueryBenchmarks {
+
+        @Test
+        @DisplayName("Should measure customer lookups and search")
+        void testCustomers() {
+            AtomicInteger next = new AtomicInteger();
+            Customer customer = measure("dao.customer.findByAccountNumber", () -> new CustomerDAOImpl()
+                    .findByAccountNumber(accountNumber(next.getAndIncrement() % CUSTOMERS)).orElseThrow());
+            int matches = measure("dao.customer.findSummaries.name",
+                    () -> new CustomerDAOImpl().findSummaries("Customer 12", null, null).size());
+
+            assertNotNull(customer.getName());
+            assertEquals(111, matches);
+        }
+
+        @Test
+        @DisplayName("Should measure the till item list and stock statistics")
+        void testItems() {
+            // The entity list the summaries replaced, for the allocation comparison
+            Benchmark.Result entities = Benchmark.run("dao.item.searchItems.inStock", WARMUP_MILLIS, MEASURE_MILLIS,
+                    () -> database.inScope(() -> new ItemDAOImpl().searchItems(null, null, null, null, true).size()));
+            Benchmark.Result summaries = Benchmark.run("dao.item.findSummaries.inStock", WARMUP_MILLIS, MEASURE_MILLIS,
+                    () -> database.inScope(() -> new ItemDAOImpl().findSummaries(null, null, true).size()));
+            int inStock = database.inScope(() -> new ItemDAOImpl().findSummaries(null, null, true).size());
+            long total = measure("dao.item.getItemStatistics",
+                    () -> new ItemDAOImpl().getItemStatistics(10).getTotalItems());
+
+            assertTrue(inStock > 0);
+            assertEquals(ITEMS, total);
+            assertTrue(summaries.getBytesPerOp() < entities.getBytesPerOp(),
+                    "Summaries allocated " + summaries.getBytesPerOp() + " bytes vs " + entities.getBytesPerOp());
+        }
+    }
+}
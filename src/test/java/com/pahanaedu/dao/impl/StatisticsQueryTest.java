@@ -0,0 +1,90 @@
+package com.pahanaedu.dao.impl;
+
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.dto.BillStatistics;
+import com.pahanaedu.dto.CustomerStatistics;
+import com.pahanaedu.dto.ItemStatistics;
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.util.EntityManagerHolder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Single-Scan Statistics Query Tests")
+class StatisticsQueryTest {
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("statisticsquerytest").bindEachTest();
+
+    @BeforeAll
+    static void seed() {
+        database.inTransaction(() -> {
+            EntityManager em = EntityManagerHolder.get();
+            Customer withTwoPending = new Customer("ACC700", "Two Pending");
+            Customer withOnePending = new Customer("ACC701", "One Pending");
+            Customer inactive = new Customer("ACC702", "Inactive Paid");
+            inactive.setActive(false);
+            em.persist(withTwoPending);
+            em.persist(withOnePending);
+            em.persist(inactive);
+
+            em.persist(new Bill(withTwoPending));
+            em.persist(new Bill(withTwoPending));
+            em.persist(new Bill(withOnePending));
+            Bill paid = new Bill(inactive);
+            paid.markAsPaid();
+            em.persist(paid);
+            Bill cancelled = new Bill(withOnePending);
+            cancelled.markAsCancelled();
+            em.persist(cancelled);
+
+            em.persist(new Item("Out Of Stock", null, new BigDecimal("1.00"), 0, "Stats"));
+            em.persist(new Item("Low Stock", null, new BigDecimal("1.00"), 3, "Stats"));
+            em.persist(new Item("Well Stocked", null, new BigDecimal("1.00"), 50, "Stats"));
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("Should count bills by status in one statement")
+    void testBillStatistics() {
+        BillStatistics stats = new BillDAOImpl().getBillStatistics();
+
+        assertEquals(5, stats.getTotalBills());
+        assertEquals(3, stats.getPendingBills());
+        assertEquals(1, stats.getPaidBills());
+        assertEquals(1, stats.getCancelledBills());
+        assertEquals(1, database.getStatistics().getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should count item stock buckets in one statement")
+    void testItemStatistics() {
+        ItemStatistics stats = new ItemDAOImpl().getItemStatistics(5);
+
+        assertEquals(3, stats.getTotalItems());
+        assertEquals(2, stats.getItemsInStock());
+        assertEquals(1, stats.getOutOfStockItems());
+        assertEquals(1, stats.getLowStockItems());
+        assertEquals(1, database.getStatistics().getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should count customers with pending bills once each in one statement")
+    void testCustomerStatistics() {
+        CustomerStatistics stats = new CustomerDAOImpl().getCustomerStatistics();
+
+        assertEquals(3, stats.getTotalCustomers());
+        assertEquals(2, stats.getActiveCustomers());
+        assertEquals(2, stats.getCustomersWithPendingBills());
+        assertEquals(1, database.getStatistics().getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,63 @@
+package com.pahanaedu.model;
+
+import com.pahanaedu.Benchmark;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cost of the bill totals recomputed on every line change, by number of lines
+ */
+@DisplayName("Bill Benchmark Tests")
+class BillBenchmarkTest {
+
+    private static final int[] LINE_COUNTS = {1, 10, 100, 1000};
+
+    private static Bill bill(int lines) {
+        Bill bill = new Bill(new Customer("ACC001", "Bench Customer"));
+        for (int i = 0; i < lines; i++) {
+            Item item = new Item("Bench Item " + i, new BigDecimal("125.50"));
+            item.setItemId((long) i);
+            bill.getBillItems().add(new BillItem(bill, item, 1 + i % 4, item.getUnitPrice()));
+        }
+        return bill;
+    }
+
+    @Test
+    @DisplayName("Should measure recalculateTotal")
+    void testRecalculateTotal() {
+        for (int lines : LINE_COUNTS) {
+            Bill bill = bill(lines);
+
+            Benchmark.run("bill.recalculateTotal." + lines, () -> {
+                bill.recalculateTotal();
+                return bill.getTotalAmount();
+            });
+
+            BigDecimal expected = BigDecimal.ZERO;
+            for (BillItem line : bill.getBillItems()) {
+                expected = expected.add(line.getTotalPrice());
+            }
+            assertEquals(0, expected.compareTo(bill.getTotalAmount()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should measure getTotalItemCount")
+    void testTotalItemCount() {
+        for (int lines : LINE_COUNTS) {
+            Bill bill = bill(lines);
+
+            Benchmark.run("bill.getTotalItemCount." + lines, bill::getTotalItemCount);
+
+            int expected = 0;
+            for (int i = 0; i < lines; i++) {
+                expected += 1 + i % 4;
+            }
+            assertEquals(expected, bill.getTotalItemCount());
+        }
+    }
+}
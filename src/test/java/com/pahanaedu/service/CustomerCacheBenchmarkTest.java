@@ -0,0 +1,60 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.Benchmark;
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.dao.impl.CustomerDAOImpl;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.util.EntityManagerHolder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hot lookups served by CustomerCache
+ */
+@DisplayName("Customer Cache Benchmark Tests")
+class CustomerCacheBenchmarkTest {
+
+    private static final int CUSTOMERS = 20;
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("customercachebenchmark");
+
+    @BeforeAll
+    static void seed() {
+        database.inTransaction(() -> {
+            EntityManager em = EntityManagerHolder.get();
+            for (int i = 0; i < CUSTOMERS; i++) {
+                em.persist(new Customer(String.format("ACC8%02d", i), "Cached Customer " + i));
+            }
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("Hot lookup of a cached customer")
+    void testHotLookup() {
+        CustomerCache cache = new CustomerCache(new CustomerDAOImpl(), 5, TimeUnit.MINUTES, 100);
+        String[] accounts = new String[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++) {
+            accounts[i] = String.format("ACC8%02d", i);
+        }
+        database.inScope(() -> {
+            for (String account : accounts) {
+                cache.get(account);
+            }
+            return null;
+        });
+
+        int[] next = new int[1];
+        Benchmark.run("customer.cache.hit", () -> cache.get(accounts[next[0]++ % CUSTOMERS]));
+
+        assertEquals(CUSTOMERS, cache.getStatistics().getMisses());
+    }
+}
@@ -0,0 +1,195 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.dao.CustomerDAO;
+import com.pahanaedu.dao.impl.CustomerDAOImpl;
+import com.pahanaedu.dto.CustomerDetails;
+import com.pahanaedu.dto.CustomerSummary;
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.service.impl.SimpleBillingServiceImpl;
+import com.pahanaedu.service.impl.SimpleCustomerServiceImpl;
+import com.pahanaedu.util.EntityManagerHolder;
+import com.pahanaedu.util.StockMutationMode;
+import com.pahanaedu.util.TransactionTemplate;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Customer Cache Tests")
+class CustomerCacheTest {
+
+    private static final int CUSTOMERS = 20;
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("customercachetest").bindEachTest();
+
+    @BeforeAll
+    static void seed() {
+        database.inTransaction(() -> {
+            EntityManager em = EntityManagerHolder.get();
+            for (int i = 0; i < CUSTOMERS; i++) {
+                em.persist(new Customer(String.format("ACC8%02d", i), "Cached Customer " + i));
+            }
+            return null;
+        });
+    }
+
+    private static CustomerCache newCache(long ttl, TimeUnit unit, int maxEntries) {
+        return new CustomerCache(new CustomerDAOImpl(), ttl, unit, maxEntries);
+    }
+
+    @Test
+    @DisplayName("Should load a customer once and serve repeats from memory")
+    void testReadThrough() {
+        CustomerCache cache = newCache(5, TimeUnit.MINUTES, 100);
+
+        Optional<CustomerDetails> first = cache.get("ACC801");
+        Optional<CustomerDetails> second = cache.get("ACC801");
+
+        assertTrue(first.isPresent());
+        assertSame(first.get(), second.get());
+        assertEquals("Cached Customer 1", second.get().getName());
+        assertEquals(1, database.getStatistics().getPrepareStatementCount());
+
+        CustomerCache.Statistics stats = cache.getStatistics();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    @DisplayName("Should not cache unknown account numbers")
+    void testUnknownCustomer() {
+        CustomerCache cache = newCache(5, TimeUnit.MINUTES, 100);
+
+        assertFalse(cache.get("ACC899").isPresent());
+        assertFalse(cache.get("ACC899").isPresent());
+        assertFalse(cache.get(null).isPresent());
+
+        assertEquals(2, database.getStatistics().getPrepareStatementCount());
+        assertEquals(0, cache.getStatistics().getSize());
+    }
+
+    @Test
+    @DisplayName("Should reload a customer after the TTL")
+    void testExpiry() throws InterruptedException {
+        CustomerCache cache = newCache(20, TimeUnit.MILLISECONDS, 100);
+
+        cache.get("ACC802");
+        cache.get("ACC802");
+        Thread.sleep(40);
+        cache.get("ACC802");
+
+        assertEquals(1, cache.getStatistics().getHits());
+        assertEquals(2, cache.getStatistics().getMisses());
+    }
+
+    @Test
+    @DisplayName("Should drop the oldest entries past the size bound")
+    void testSizeBound() {
+        CustomerCache cache = newCache(5, TimeUnit.MINUTES, 5);
+
+        for (int i = 0; i < 8; i++) {
+            cache.get(String.format("ACC8%02d", i));
+        }
+        assertEquals(3, cache.getStatistics().getEvictions());
+
+        // The newest entry is still cached, the oldest has to be loaded again
+        cache.get("ACC807");
+        cache.get("ACC800");
+
+        CustomerCache.Statistics stats = cache.getStatistics();
+        assertEquals(5, stats.getSize());
+        assertEquals(1, stats.getHits());
+        assertEquals(9, stats.getMisses());
+    }
+
+    @Test
+    @DisplayName("Should drop cached customers and the list when a customer changes")
+    void testWriteThroughInvalidation() {
+        CustomerCache cache = newCache(5, TimeUnit.MINUTES, 100);
+        SimpleCustomerServiceImpl customerService = new SimpleCustomerServiceImpl(new CustomerDAOImpl(), cache);
+
+        assertTrue(customerService.getCustomerDetails("ACC803").get().isActive());
+        List<CustomerSummary> before = customerService.getCustomerSummaries(null, null, null);
+        assertSame(before, customerService.getCustomerSummaries(null, null, null));
+
+        TransactionTemplate.runInTransaction(() -> customerService.updateActiveStatus("ACC803", false));
+
+        assertFalse(customerService.getCustomerDetails("ACC803").get().isActive());
+        List<CustomerSummary> after = customerService.getCustomerSummaries(null, null, null);
+        assertNotSame(before, after);
+        assertFalse(after.stream().filter(c -> c.getAccountNumber().equals("ACC803")).findFirst().get().isActive());
+        assertEquals(1, cache.getStatistics().getInvalidations());
+
+        TransactionTemplate.runInTransaction(() -> customerService.updateActiveStatus("ACC803", true));
+    }
+
+    @Test
+    @DisplayName("Should not store a load that raced an invalidation")
+    void testStaleLoad() {
+        CustomerCache[] cache = new CustomerCache[1];
+        CustomerDAO customerDAO = new CustomerDAOImpl();
+        CustomerDAO racingDAO = (CustomerDAO) Proxy.newProxyInstance(CustomerDAO.class.getClassLoader(),
+                new Class<?>[] { CustomerDAO.class }, (proxy, method, args) -> {
+                    Object result = method.invoke(customerDAO, args);
+                    if (method.getName().equals("findByAccountNumber")) {
+                        // A write lands between the read and the cache put
+                        cache[0].invalidate((String) args[0]);
+                    }
+                    return result;
+                });
+        cache[0] = new CustomerCache(racingDAO, 5, TimeUnit.MINUTES, 100);
+
+        assertTrue(cache[0].get("ACC804").isPresent());
+        assertEquals(0, cache[0].getStatistics().getSize());
+    }
+
+    @Test
+    @DisplayName("Should open bills by account number without loading the customer")
+    void testCreateBillFromCache() {
+        CustomerCache cache = newCache(5, TimeUnit.MINUTES, 100);
+        SimpleBillingServiceImpl billingService =
+                new SimpleBillingServiceImpl(StockMutationMode.APPLICATION, new StockConsistencyChecker(), cache);
+
+        cache.get("ACC805");
+        database.getStatistics().clear();
+        Bill bill = billingService.createBill("ACC805");
+
+        assertNotNull(bill.getBillId());
+        assertEquals("ACC805", bill.getCustomer().getAccountNumber());
+        assertEquals(0, database.getStatistics().getEntityLoadCount());
+        assertThrows(IllegalArgumentException.class, () -> billingService.createBill("ACC899"));
+    }
+
+    @Test
+    @DisplayName("Should serve repeat lookups from memory without statements")
+    void testRepeatLookups() {
+        CustomerCache cache = newCache(5, TimeUnit.MINUTES, 100);
+        for (int i = 0; i < CUSTOMERS; i++) {
+            cache.get(String.format("ACC8%02d", i));
+        }
+
+        int found = 0;
+        for (int i = 0; i < 10_000; i++) {
+            found += cache.get(String.format("ACC8%02d", i % CUSTOMERS)).isPresent() ? 1 : 0;
+        }
+
+        assertEquals(10_000, found);
+        assertEquals(CUSTOMERS, database.getStatistics().getPrepareStatementCount());
+        CustomerCache.Statistics stats = cache.getStatistics();
+        assertEquals(10_000, stats.getHits());
+        assertEquals(CUSTOMERS, stats.getMisses());
+        assertEquals(CUSTOMERS, stats.getSize());
+    }
+}
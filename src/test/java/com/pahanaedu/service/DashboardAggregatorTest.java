@@ -0,0 +1,240 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.dao.impl.CustomerDAOImpl;
+import com.pahanaedu.dao.impl.ItemDAOImpl;
+import com.pahanaedu.dto.CustomerStatistics;
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.service.impl.SimpleBillingServiceImpl;
+import com.pahanaedu.service.impl.SimpleCustomerServiceImpl;
+import com.pahanaedu.service.impl.SimpleItemServiceImpl;
+import com.pahanaedu.util.EntityManagerHolder;
+import com.pahanaedu.util.StockMutationMode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Dashboard Aggregator Tests")
+class DashboardAggregatorTest {
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("dashboardtest")
+            // One connection per widget thread, plus one for the requesting thread
+            .property("hibernate.connection.pool_size", "8");
+
+    @BeforeAll
+    static void seed() {
+        database.inTransaction(() -> {
+            EntityManager em = EntityManagerHolder.get();
+            for (int i = 0; i < 8; i++) {
+                em.persist(new Customer(String.format("ACC97%d", i), "Dashboard Customer " + i));
+            }
+            em.persist(new Item("Dashboard Pen", null, new BigDecimal("25.00"), 100, "Stationery"));
+            em.persist(new Item("Dashboard Ruler", null, new BigDecimal("40.00"), 3, "Stationery"));
+            return null;
+        });
+        database.inScope(() -> {
+            SimpleBillingServiceImpl billingService = new SimpleBillingServiceImpl(
+                    StockMutationMode.APPLICATION, new StockConsistencyChecker(), new CustomerCache());
+            Item pen = new ItemDAOImpl().findAll().stream()
+                    .filter(item -> item.getItemName().equals("Dashboard Pen")).findFirst().orElseThrow();
+            Long billId = billingService.createBill("ACC970").getBillId();
+            return billingService.addItemToBill(billId, pen.getItemId(), 4);
+        });
+    }
+
+    private static Map<String, Object> value(String name, Object value) {
+        return Collections.singletonMap(name, value);
+    }
+
+    private static Map<String, Object> awaitThen(CountDownLatch latch, String name, Object value) throws InterruptedException {
+        return value(name, latch.await(5, TimeUnit.SECONDS) ? value : null);
+    }
+
+    @Nested
+    @DisplayName("Service Widget Tests")
+    class ServiceWidgetTests {
+
+        @Test
+        @DisplayName("Should load every widget, each in its own EntityManager")
+        @SuppressWarnings("unchecked")
+        void testLoad() {
+            ExecutorService executor = DashboardAggregator.newExecutor(4);
+            try {
+                DashboardAggregator aggregator = DashboardAggregator.forServices(
+                        new SimpleCustomerServiceImpl(new CustomerDAOImpl(), new CustomerCache()),
+                        new SimpleItemServiceImpl(new ItemDAOImpl(), new StockConsistencyChecker()),
+                        new SimpleBillingServiceImpl(StockMutationMode.APPLICATION, new StockConsistencyChecker(), new CustomerCache()),
+                        database.getEntityManagerFactory(), executor);
+                database.getStatistics().clear();
+
+                DashboardAggregator.Result result = aggregator.load();
+
+                assertEquals(Collections.emptyList(), result.getDegraded());
+                Map<String, Object> attributes = result.getAttributes();
+                assertEquals(8L, ((Number) attributes.get("totalCustomers")).longValue());
+                assertEquals(2L, ((Number) attributes.get("totalItems")).longValue());
+                assertEquals(1L, ((Number) attributes.get("lowStockItems")).longValue());
+                assertEquals(1L, ((Number) attributes.get("pendingBills")).longValue());
+                assertEquals(5, ((List<Customer>) attributes.get("recentCustomers")).size());
+                assertEquals(1, ((List<Item>) attributes.get("lowStockItemsList")).size());
+                assertNotNull(attributes.get("todaysRevenue"));
+                assertNotNull(attributes.get("monthlyRevenue"));
+
+                // Rendered after the widget's EntityManager is closed
+                List<Bill> todaysBills = (List<Bill>) attributes.get("todaysBills");
+                assertEquals(1, todaysBills.size());
+                assertEquals("Dashboard Customer 0", todaysBills.get(0).getCustomer().getName());
+                List<Bill> pendingBills = (List<Bill>) attributes.get("pendingBillsList");
+                assertEquals("Dashboard Customer 0", pendingBills.get(0).getCustomer().getName());
+
+                assertEquals(9, database.getStatistics().getSessionOpenCount());
+                assertEquals(database.getStatistics().getSessionOpenCount(), database.getStatistics().getSessionCloseCount());
+                assertFalse(EntityManagerHolder.isBound());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Fan-Out Tests")
+    class FanOutTests {
+
+        @Test
+        @DisplayName("Should load every widget at the same time")
+        void testParallel() {
+            ExecutorService executor = DashboardAggregator.newExecutor(6);
+            try {
+                // Each widget waits until all six have started, which only happens when they run side by side
+                CountDownLatch started = new CountDownLatch(6);
+                DashboardAggregator aggregator = new DashboardAggregator(null, executor);
+                for (int i = 0; i < 6; i++) {
+                    String name = "widget" + i;
+                    aggregator.widget(name, 10_000, () -> {
+                        started.countDown();
+                        return awaitThen(started, name, 1L);
+                    }, value(name, 0L));
+                }
+
+                DashboardAggregator.Result result = aggregator.load();
+
+                assertTrue(result.getDegraded().isEmpty());
+                assertEquals(6, result.getAttributes().size());
+                for (int i = 0; i < 6; i++) {
+                    assertEquals(1L, result.getAttributes().get("widget" + i));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        @DisplayName("Should show fallbacks for slow and failing widgets without waiting for them")
+        void testDegradedWidgets() {
+            ExecutorService executor = DashboardAggregator.newExecutor(4);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicBoolean slowFinished = new AtomicBoolean();
+            try {
+                DashboardAggregator aggregator = new DashboardAggregator(null, executor)
+                        .widget("fast", 1000, () -> value("fast", 1L), value("fast", 0L))
+                        .widget("slow", 100, () -> {
+                            Map<String, Object> loaded = awaitThen(release, "slow", 1L);
+                            slowFinished.set(true);
+                            return loaded;
+                        }, value("slow", 0L))
+                        .widget("broken", 1000, () -> {
+                            throw new IllegalStateException("Database unavailable");
+                        }, value("broken", 0L));
+
+                DashboardAggregator.Result result = aggregator.load();
+
+                // The slow widget is still blocked, so the page did not wait for it
+                assertFalse(slowFinished.get());
+                assertEquals(1L, result.getAttributes().get("fast"));
+                assertEquals(0L, result.getAttributes().get("slow"));
+                assertEquals(0L, result.getAttributes().get("broken"));
+                assertEquals(List.of("slow", "broken"), result.getDegraded());
+            } finally {
+                release.countDown();
+                executor.shutdownNow();
+            }
+        }
+
+        @Test
+        @DisplayName("Should show fallbacks for widgets the saturated executor rejects")
+        void testRejectedWhenSaturated() {
+            ExecutorService executor = DashboardAggregator.newExecutor(1);
+            try {
+                Thread requester = Thread.currentThread();
+                AtomicInteger inline = new AtomicInteger();
+                DashboardAggregator aggregator = new DashboardAggregator(database.getEntityManagerFactory(), executor);
+                for (int i = 0; i < 40; i++) {
+                    String name = "count" + i;
+                    aggregator.widget(name, 5000, () -> {
+                        if (Thread.currentThread() == requester) {
+                            inline.incrementAndGet();
+                        }
+                        return value(name, ((Number) EntityManagerHolder.get()
+                                .createQuery("SELECT COUNT(c) FROM Customer c").getSingleResult()).longValue());
+                    }, value(name, 0L));
+                }
+
+                EntityManagerHolder.bind(database.getEntityManagerFactory());
+                try {
+                    DashboardAggregator.Result result = aggregator.load();
+                    // One running and 16 queued at most are accepted
+                    assertFalse(result.getDegraded().isEmpty());
+                    assertTrue(result.getDegraded().size() <= 23);
+                    assertEquals(0, inline.get());
+                    for (int i = 0; i < 40; i++) {
+                        String name = "count" + i;
+                        assertEquals(result.getDegraded().contains(name) ? 0L : 8L, result.getAttributes().get(name));
+                    }
+                } finally {
+                    EntityManagerHolder.unbind();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should match the statistics the servlet used to load in series")
+    void testSameAsSerial() {
+        CustomerService customerService = new SimpleCustomerServiceImpl(new CustomerDAOImpl(), new CustomerCache());
+        CustomerStatistics serial = database.inScope(customerService::getCustomerStatistics);
+
+        ExecutorService executor = DashboardAggregator.newExecutor(2);
+        try {
+            Map<String, Object> attributes = DashboardAggregator.forServices(customerService,
+                    new SimpleItemServiceImpl(new ItemDAOImpl(), new StockConsistencyChecker()),
+                    new SimpleBillingServiceImpl(StockMutationMode.APPLICATION, new StockConsistencyChecker(), new CustomerCache()),
+                    database.getEntityManagerFactory(), executor).load().getAttributes();
+
+            assertEquals(serial.getTotalCustomers(), attributes.get("totalCustomers"));
+            assertEquals(serial.getActiveCustomers(), attributes.get("activeCustomers"));
+            assertEquals(serial.getCustomersWithPendingBills(), attributes.get("customersWithPendingBills"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
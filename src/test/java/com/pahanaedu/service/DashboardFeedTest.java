@@ -0,0 +1,79 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.dto.BillStatistics;
+import com.pahanaedu.dto.CustomerStatistics;
+import com.pahanaedu.dto.ItemStatistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Dashboard Feed Tests")
+class DashboardFeedTest {
+
+    private static Map<String, Object> figures(long pendingBills, String todaysRevenue) {
+        return DashboardFeed.figures(new BillStatistics(10, pendingBills, 10 - pendingBills, 0),
+                new ItemStatistics(5, 4, 1, 2), new CustomerStatistics(8, 7, pendingBills),
+                new BigDecimal(todaysRevenue), new BigDecimal("900.00"));
+    }
+
+    @Test
+    @DisplayName("Should send everything first, then only what changed")
+    void testChanges() {
+        AtomicInteger pending = new AtomicInteger(3);
+        DashboardFeed feed = new DashboardFeed(null, () -> figures(pending.get(), "150.00"), 0);
+
+        assertEquals(9, feed.poll().size());
+        assertTrue(feed.poll().isEmpty());
+
+        pending.set(2);
+        Map<String, Object> changed = feed.poll();
+        assertEquals("{\"pendingBills\":2,\"paidBills\":8,\"customersWithPendingBills\":2}", DashboardFeed.toJson(changed));
+        assertEquals(2L, feed.getCurrent().get("pendingBills"));
+    }
+
+    @Test
+    @DisplayName("Should compare revenue by value, not scale")
+    void testDecimalScale() {
+        Map<String, Object> changed = DashboardFeed.changes(figures(3, "150.00"), figures(3, "150.0"));
+        assertTrue(changed.isEmpty());
+        assertEquals("{\"todaysRevenue\":150.01}",
+                DashboardFeed.toJson(DashboardFeed.changes(figures(3, "150.00"), figures(3, "150.01"))));
+    }
+
+    @Test
+    @DisplayName("Should run the query at most once per interval")
+    void testQueryInterval() {
+        AtomicInteger queries = new AtomicInteger();
+        DashboardFeed feed = new DashboardFeed(null, () -> {
+            queries.incrementAndGet();
+            return figures(3, "150.00");
+        }, 60_000);
+
+        for (int i = 0; i < 100; i++) {
+            feed.poll();
+        }
+        assertEquals(1, queries.get());
+        assertEquals(9, feed.getCurrent().size());
+    }
+
+    @Test
+    @DisplayName("Should keep the last figures when the query fails")
+    void testQueryFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        DashboardFeed feed = new DashboardFeed(null, () -> {
+            if (calls.incrementAndGet() > 1) {
+                throw new IllegalStateException("Database unavailable");
+            }
+            return figures(3, "150.00");
+        }, 0);
+
+        feed.poll();
+        assertTrue(feed.poll().isEmpty());
+        assertEquals(3L, feed.getCurrent().get("pendingBills"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.Benchmark;
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.dao.impl.BillDAOImpl;
+import com.pahanaedu.dao.impl.CustomerDAOImpl;
+import com.pahanaedu.dao.impl.ItemDAOImpl;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.util.EntityManagerHolder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dashboard figures read from DashboardSnapshot against the queries it replaces
+ */
+@DisplayName("Dashboard Snapshot Benchmark Tests")
+class DashboardSnapshotBenchmarkTest {
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("dashboardsnapshotbenchmark");
+
+    @BeforeAll
+    static void seed() {
+        database.inTransaction(() -> {
+            for (int i = 0; i < 4; i++) {
+                EntityManagerHolder.get().persist(new Customer(String.format("ACC96%d", i), "Snapshot Customer " + i));
+            }
+            EntityManagerHolder.get().persist(new Item("Snapshot Pen", null, new BigDecimal("25.00"), 100, "Stationery"));
+            return null;
+        });
+    }
+
+    /**
+     * Add 100,000 items, 100,000 customer records and 100,000 bills to a loaded snapshot
+     */
+    static void grow(DashboardSnapshot snapshot) {
+        for (long itemId = 1_000_000; itemId < 1_100_000; itemId++) {
+            snapshot.stockSet(itemId, (int) (itemId % 40));
+        }
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 100_000; i++) {
+            String account = "BENCH" + (i % 20_000);
+            snapshot.customerAdded(account, i % 7 != 0);
+            snapshot.billCreated(account);
+            if (i % 3 == 0) {
+                snapshot.billPaid(account, today.withDayOfMonth(1 + i % today.getDayOfMonth()), new BigDecimal("125.50"));
+            }
+        }
+    }
+
+    /**
+     * Read the five figures the dashboard shows
+     */
+    static Object readFigures(DashboardSnapshot snapshot, LocalDate today) {
+        snapshot.getCustomerStatistics().orElseThrow();
+        snapshot.getItemStatistics().orElseThrow();
+        snapshot.getBillStatistics().orElseThrow();
+        snapshot.getRevenue(today, today).orElseThrow();
+        return snapshot.getRevenue(today.withDayOfMonth(1), today).orElseThrow();
+    }
+
+    @Test
+    @DisplayName("Dashboard figures from the snapshot against the same five queries")
+    void testReadLatency() {
+        DashboardSnapshot snapshot = new DashboardSnapshot();
+        assertTrue(database.inScope(snapshot::reconcile));
+        grow(snapshot);
+        LocalDate today = LocalDate.now();
+
+        Benchmark.Result fromSnapshot = Benchmark.run("dashboard.figures.snapshot", () -> readFigures(snapshot, today));
+        Benchmark.Result fromQueries = Benchmark.run("dashboard.figures.queries", 200, 1000, () ->
+                database.inScope(() -> {
+                    new CustomerDAOImpl().getCustomerStatistics();
+                    new ItemDAOImpl().getItemStatistics(DashboardAggregator.LOW_STOCK_THRESHOLD);
+                    new BillDAOImpl().getBillStatistics();
+                    new BillDAOImpl().calculateRevenueForPeriod(today, today);
+                    return new BillDAOImpl().calculateRevenueForPeriod(today.withDayOfMonth(1), today);
+                }));
+
+        assertTrue(fromSnapshot.getNanosPerOp() < fromQueries.getNanosPerOp());
+    }
+}
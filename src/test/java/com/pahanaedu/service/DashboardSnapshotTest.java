@@ -0,0 +1,259 @@
+package com.pahanaedu.service;
+
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.dao.impl.BillDAOImpl;
+import com.pahanaedu.dao.impl.CustomerDAOImpl;
+import com.pahanaedu.dao.impl.ItemDAOImpl;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.service.impl.SimpleBillingServiceImpl;
+import com.pahanaedu.service.impl.SimpleCustomerServiceImpl;
+import com.pahanaedu.service.impl.SimpleItemServiceImpl;
+import com.pahanaedu.util.EntityManagerHolder;
+import com.pahanaedu.util.StockMutationMode;
+import com.pahanaedu.util.TransactionTemplate;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Dashboard Snapshot Tests")
+class DashboardSnapshotTest {
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("dashboardsnapshottest")
+            .property("hibernate.connection.pool_size", "8");
+
+    private DashboardSnapshot snapshot;
+    private SimpleBillingServiceImpl billingService;
+    private SimpleItemServiceImpl itemService;
+    private SimpleCustomerServiceImpl customerService;
+
+    @BeforeAll
+    static void seed() {
+        database.inTransaction(() -> {
+            for (int i = 0; i < 4; i++) {
+                EntityManagerHolder.get().persist(new Customer(String.format("ACC96%d", i), "Snapshot Customer " + i));
+            }
+            EntityManagerHolder.get().persist(new Item("Snapshot Pen", null, new BigDecimal("25.00"), 100, "Stationery"));
+            EntityManagerHolder.get().persist(new Item("Snapshot Ruler", null, new BigDecimal("40.00"), 12, "Stationery"));
+            return null;
+        });
+    }
+
+    @BeforeEach
+    void setUp() {
+        snapshot = new DashboardSnapshot();
+        CustomerCache customerCache = new CustomerCache();
+        StockConsistencyChecker checker = new StockConsistencyChecker();
+        billingService = new SimpleBillingServiceImpl(StockMutationMode.APPLICATION, checker, customerCache, snapshot);
+        itemService = new SimpleItemServiceImpl(new ItemDAOImpl(), checker, snapshot);
+        customerService = new SimpleCustomerServiceImpl(new CustomerDAOImpl(), customerCache, snapshot);
+    }
+
+    private static void run(Runnable work) {
+        database.inScope(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private Long itemId(String name) {
+        return database.inScope(() -> new ItemDAOImpl().findAll().stream()
+                .filter(item -> item.getItemName().equals(name)).findFirst().orElseThrow().getItemId());
+    }
+
+    private void assertMatchesDatabase() {
+        run(() -> {
+            LocalDate today = LocalDate.now();
+            assertEquals(new BillDAOImpl().getBillStatistics().toString(),
+                         snapshot.getBillStatistics().orElseThrow().toString());
+            assertEquals(new ItemDAOImpl().getItemStatistics(DashboardAggregator.LOW_STOCK_THRESHOLD).toString(),
+                         snapshot.getItemStatistics().orElseThrow().toString());
+            assertEquals(new CustomerDAOImpl().getCustomerStatistics().toString(),
+                         snapshot.getCustomerStatistics().orElseThrow().toString());
+            assertEquals(0, new BillDAOImpl().calculateRevenueForPeriod(today.withDayOfMonth(1), today)
+                    .compareTo(snapshot.getRevenue(today.withDayOfMonth(1), today).orElseThrow()));
+            assertEquals(0, new BillDAOImpl().calculateRevenueForPeriod(today, today)
+                    .compareTo(snapshot.getRevenue(today, today).orElseThrow()));
+        });
+    }
+
+    @Nested
+    @DisplayName("Event Tests")
+    class EventTests {
+
+        @Test
+        @DisplayName("Should be empty and ignore changes until loaded")
+        void testNotLoaded() {
+            run(() -> billingService.createBill("ACC960"));
+
+            assertFalse(snapshot.isLoaded());
+            assertFalse(snapshot.getBillStatistics().isPresent());
+            assertFalse(snapshot.getRevenue(LocalDate.now(), LocalDate.now()).isPresent());
+
+            database.inScope(snapshot::reconcile);
+            assertTrue(snapshot.isLoaded());
+            assertMatchesDatabase();
+        }
+
+        @Test
+        @DisplayName("Should follow bill and stock changes without querying")
+        void testBillAndStockChanges() {
+            assertTrue(database.inScope(snapshot::reconcile));
+            Long pen = itemId("Snapshot Pen");
+            Long ruler = itemId("Snapshot Ruler");
+
+            Long paid = database.inScope(() -> billingService.createBill("ACC961").getBillId());
+            run(() -> billingService.addItemToBill(paid, pen, 3));
+            run(() -> billingService.addItemToBill(paid, ruler, 4));
+            run(() -> billingService.updateItemQuantityInBill(paid, pen, 2));
+            run(() -> billingService.markBillAsPaid(paid));
+
+            Long cancelled = database.inScope(() -> billingService.createBill("ACC962").getBillId());
+            run(() -> billingService.addItemToBill(cancelled, ruler, 5));
+            run(() -> billingService.cancelBill(cancelled));
+
+            Long pending = database.inScope(() -> billingService.createBill("ACC962").getBillId());
+            run(() -> billingService.addItemToBill(pending, ruler, 7));
+            run(() -> billingService.addItemToBill(pending, pen, 1));
+            run(() -> billingService.removeItemFromBill(pending, pen));
+            assertMatchesDatabase();
+
+            Long deleted = database.inScope(() -> billingService.createBill("ACC963").getBillId());
+            run(() -> billingService.addItemToBill(deleted, pen, 10));
+            run(() -> billingService.deleteBill(deleted));
+            run(() -> billingService.deleteBill(paid));
+            assertMatchesDatabase();
+        }
+
+        @Test
+        @DisplayName("Should follow item and customer changes")
+        void testItemAndCustomerChanges() {
+            assertTrue(database.inScope(snapshot::reconcile));
+
+            Long eraser = database.inScope(() -> itemService.createItem("Snapshot Eraser", null, new BigDecimal("5.00"), 0, "Stationery").getItemId());
+            assertMatchesDatabase();
+            run(() -> itemService.increaseStock(eraser, 8));
+            assertMatchesDatabase();
+            run(() -> itemService.updateStockQuantity(eraser, 30));
+            run(() -> itemService.decreaseStock(eraser, 25));
+            assertMatchesDatabase();
+            run(() -> itemService.deleteItem(eraser));
+
+            run(() -> customerService.registerCustomerWithAccount("ACC969", "Snapshot Newcomer", null, "0771234567"));
+            run(() -> customerService.updateActiveStatus("ACC969", false));
+            assertMatchesDatabase();
+            run(() -> customerService.updateActiveStatus("ACC969", true));
+            assertMatchesDatabase();
+        }
+
+        @Test
+        @DisplayName("Should drop the changes of a rolled back transaction")
+        void testRollback() {
+            assertTrue(database.inScope(snapshot::reconcile));
+            String before = snapshot.getBillStatistics().orElseThrow().toString();
+
+            assertThrows(IllegalStateException.class, () -> run(() -> TransactionTemplate.runInTransaction(() -> {
+                billingService.createBill("ACC960");
+                throw new IllegalStateException("Rolled back");
+            })));
+
+            assertEquals(before, snapshot.getBillStatistics().orElseThrow().toString());
+            assertMatchesDatabase();
+        }
+
+        @Test
+        @DisplayName("Should correct drift from changes made behind the services")
+        void testReconcileCorrectsDrift() {
+            assertTrue(database.inScope(snapshot::reconcile));
+            Long ruler = itemId("Snapshot Ruler");
+
+            run(() -> TransactionTemplate.runInTransaction(() -> EntityManagerHolder.get()
+                    .createQuery("UPDATE Item i SET i.stockQuantity = 0 WHERE i.itemId = :itemId")
+                    .setParameter("itemId", ruler).executeUpdate()));
+            long outOfStock = database.inScope(() -> new ItemDAOImpl().getItemStatistics(DashboardAggregator.LOW_STOCK_THRESHOLD))
+                    .getOutOfStockItems();
+            assertNotEquals(outOfStock, snapshot.getItemStatistics().orElseThrow().getOutOfStockItems());
+
+            assertTrue(database.inScope(snapshot::reconcile));
+            assertMatchesDatabase();
+
+            run(() -> TransactionTemplate.runInTransaction(() -> EntityManagerHolder.get()
+                    .createQuery("UPDATE Item i SET i.stockQuantity = 12 WHERE i.itemId = :itemId")
+                    .setParameter("itemId", ruler).executeUpdate()));
+            assertTrue(database.inScope(snapshot::reconcile));
+        }
+    }
+
+    @Nested
+    @DisplayName("Dashboard Tests")
+    class DashboardTests {
+
+        @Test
+        @DisplayName("Should serve counts and revenue from the snapshot and query only the lists")
+        void testAggregatorUsesSnapshot() {
+            ExecutorService executor = DashboardAggregator.newExecutor(4);
+            try {
+                DashboardAggregator aggregator = DashboardAggregator.forServices(customerService, itemService,
+                        billingService, snapshot, database.getEntityManagerFactory(), executor);
+
+                database.getStatistics().clear();
+                Map<String, Object> queried = aggregator.load().getAttributes();
+                assertEquals(9, database.getStatistics().getSessionOpenCount());
+
+                assertTrue(database.inScope(snapshot::reconcile));
+                database.getStatistics().clear();
+                DashboardAggregator.Result result = aggregator.load();
+                assertEquals(4, database.getStatistics().getSessionOpenCount());
+                assertTrue(result.getDegraded().isEmpty());
+
+                for (String name : new String[] {"totalCustomers", "activeCustomers", "customersWithPendingBills",
+                        "totalItems", "itemsInStock", "outOfStockItems", "lowStockItems",
+                        "totalBills", "pendingBills", "paidBills", "cancelledBills"}) {
+                    assertEquals(queried.get(name), result.getAttributes().get(name), name);
+                }
+                assertEquals(0, ((BigDecimal) queried.get("monthlyRevenue"))
+                        .compareTo((BigDecimal) result.getAttributes().get("monthlyRevenue")));
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Scale Tests")
+    class ScaleTests {
+
+        @Test
+        @DisplayName("Should answer the dashboard figures from memory at any size")
+        void testReadsWithoutStatements() {
+            assertTrue(database.inScope(snapshot::reconcile));
+            long items = snapshot.getItemStatistics().orElseThrow().getTotalItems();
+            long customers = snapshot.getCustomerStatistics().orElseThrow().getTotalCustomers();
+
+            // Grow the figures far past the test data; changes outside a transaction apply at once
+            DashboardSnapshotBenchmarkTest.grow(snapshot);
+
+            database.getStatistics().clear();
+            LocalDate today = LocalDate.now();
+            for (int i = 0; i < 1000; i++) {
+                DashboardSnapshotBenchmarkTest.readFigures(snapshot, today);
+            }
+
+            assertEquals(0, database.getStatistics().getPrepareStatementCount());
+            assertEquals(items + 100_000, snapshot.getItemStatistics().orElseThrow().getTotalItems());
+            assertEquals(customers + 100_000, snapshot.getCustomerStatistics().orElseThrow().getTotalCustomers());
+            assertTrue(snapshot.getRevenue(today.withDayOfMonth(1), today).orElseThrow().signum() > 0);
+        }
+    }
+}
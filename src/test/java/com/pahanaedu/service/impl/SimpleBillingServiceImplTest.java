@@ -0,0 +1,314 @@
+package com.pahanaedu.service.impl;
+
+import com.pahanaedu.StatementBudget;
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.BillItem;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.dao.impl.ItemDAOImpl;
+import com.pahanaedu.service.StockConsistencyChecker;
+import com.pahanaedu.util.EntityManagerHolder;
+import com.pahanaedu.util.StockMutationMode;
+import com.pahanaedu.util.TransactionTemplate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Simple Billing Service Implementation Tests")
+class SimpleBillingServiceImplTest {
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("billingservicetest");
+
+    private SimpleBillingServiceImpl billingService;
+    private Long billId;
+    private Long itemId;
+
+    @BeforeEach
+    void setUp() {
+        billingService = new SimpleBillingServiceImpl();
+
+        database.inTransaction(() -> {
+            EntityManager em = EntityManagerHolder.get();
+            em.createQuery("DELETE FROM BillItem").executeUpdate();
+            em.createQuery("DELETE FROM Bill").executeUpdate();
+            em.createQuery("DELETE FROM Item").executeUpdate();
+            em.createQuery("DELETE FROM Customer").executeUpdate();
+
+            Customer customer = new Customer("ACC900", "Till Customer");
+            em.persist(customer);
+            Item item = new Item("Grade 5 Workbook", "Workbook", new BigDecimal("12.50"), 10, "Books");
+            em.persist(item);
+            Bill bill = new Bill(customer);
+            em.persist(bill);
+
+            itemId = item.getItemId();
+            billId = bill.getBillId();
+            return null;
+        });
+
+        // Each test method runs as one request
+        EntityManagerHolder.bind(database.getEntityManagerFactory());
+        database.getStatistics().clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (EntityManagerHolder.isBound()) {
+            EntityManagerHolder.unbind();
+        }
+    }
+
+    private int stockOf(Long id) {
+        return database.inScope(() -> EntityManagerHolder.get().find(Item.class, id).getStockQuantity());
+    }
+
+    private void endRequest() {
+        EntityManagerHolder.unbind();
+    }
+
+    @Nested
+    @DisplayName("Unit of Work Tests")
+    class UnitOfWorkTests {
+
+        @Test
+        @DisplayName("Should add an item to a bill in a single transaction")
+        void testAddItemSingleTransaction() {
+            Bill bill = billingService.addItemToBill(billId, itemId, 3);
+
+            assertEquals(1, database.getStatistics().getTransactionCount());
+            assertEquals(1, database.getStatistics().getSuccessfulTransactionCount());
+            assertEquals(new BigDecimal("37.50"), bill.getTotalAmount());
+            assertEquals(1, bill.getBillItems().size());
+
+            endRequest();
+            assertEquals(7, stockOf(itemId));
+        }
+
+        @Test
+        @DisplayName("Should merge repeated adds of the same item into one line")
+        void testAddExistingItem() {
+            billingService.addItemToBill(billId, itemId, 2);
+            Bill bill = billingService.addItemToBill(billId, itemId, 1);
+
+            assertEquals(2, database.getStatistics().getTransactionCount());
+            assertEquals(1, bill.getBillItems().size());
+            assertEquals(3, bill.getBillItems().get(0).getQuantity());
+
+            endRequest();
+            assertEquals(7, stockOf(itemId));
+        }
+
+        @Test
+        @DisplayName("Should roll back the whole unit of work on failure")
+        void testRollbackOnInsufficientStock() {
+            assertThrows(IllegalArgumentException.class, () -> billingService.addItemToBill(billId, itemId, 11));
+
+            assertEquals(1, database.getStatistics().getTransactionCount());
+            assertEquals(0, database.getStatistics().getSuccessfulTransactionCount());
+            assertFalse(EntityManagerHolder.get().getTransaction().isActive());
+
+            endRequest();
+            assertEquals(10, stockOf(itemId));
+        }
+
+        @Test
+        @DisplayName("Should update quantity and restore stock on removal")
+        void testUpdateAndRemove() {
+            billingService.addItemToBill(billId, itemId, 4);
+            Bill updated = billingService.updateItemQuantityInBill(billId, itemId, 2);
+            assertEquals(new BigDecimal("25.00"), updated.getTotalAmount());
+
+            Bill removed = billingService.removeItemFromBill(billId, itemId);
+            assertTrue(removed.getBillItems().isEmpty());
+            assertEquals(3, database.getStatistics().getSuccessfulTransactionCount());
+
+            endRequest();
+            assertEquals(10, stockOf(itemId));
+        }
+
+        @Test
+        @DisplayName("Should keep the original error messages for missing items")
+        void testMissingItemMessages() {
+            IllegalArgumentException notFound = assertThrows(IllegalArgumentException.class,
+                    () -> billingService.removeItemFromBill(billId, -1L));
+            assertEquals("Item not found: -1", notFound.getMessage());
+
+            IllegalArgumentException notInBill = assertThrows(IllegalArgumentException.class,
+                    () -> billingService.removeItemFromBill(billId, itemId));
+            assertEquals("Item not found in bill", notInBill.getMessage());
+        }
+
+        @Test
+        @DisplayName("Should cancel a bill and restore stock in one transaction")
+        void testCancelBill() {
+            billingService.addItemToBill(billId, itemId, 5);
+            database.getStatistics().clear();
+
+            Bill cancelled = billingService.cancelBill(billId);
+
+            assertTrue(cancelled.isCancelled());
+            assertEquals(1, database.getStatistics().getTransactionCount());
+
+            endRequest();
+            assertEquals(10, stockOf(itemId));
+        }
+    }
+
+    @Nested
+    @DisplayName("Stock Mode Tests")
+    class StockModeTests {
+
+        private StockConsistencyChecker checker;
+
+        @BeforeEach
+        void setUpChecker() {
+            checker = new StockConsistencyChecker(new ItemDAOImpl());
+        }
+
+        @Test
+        @DisplayName("Should report no drift when the application owns stock")
+        void testApplicationModeConsistent() {
+            SimpleBillingServiceImpl service = new SimpleBillingServiceImpl(StockMutationMode.APPLICATION, checker);
+            SimpleItemServiceImpl itemService = new SimpleItemServiceImpl(new ItemDAOImpl(), checker);
+            assertTrue(checker.check().isEmpty());
+
+            service.addItemToBill(billId, itemId, 4);
+            service.updateItemQuantityInBill(billId, itemId, 6);
+            itemService.increaseStock(itemId, 5);
+            service.markBillAsPaid(billId);
+
+            assertTrue(checker.check().isEmpty());
+
+            endRequest();
+            assertEquals(9, stockOf(itemId));
+        }
+
+        @Test
+        @DisplayName("Should report stock changed outside bills and recorded adjustments")
+        void testDriftDetected() {
+            checker.check();
+
+            // Simulates the trigger and the application both decrementing for one line
+            TransactionTemplate.runInTransaction(() -> EntityManagerHolder.get()
+                    .createQuery("UPDATE Item i SET i.stockQuantity = i.stockQuantity - 2 WHERE i.itemId = :id")
+                    .setParameter("id", itemId)
+                    .executeUpdate());
+
+            Map<Long, Long> drift = checker.check();
+            assertEquals(Long.valueOf(-2), drift.get(itemId));
+            assertTrue(checker.check().isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should leave line stock changes to the trigger in trigger mode")
+        void testTriggerModeSkipsLineStock() {
+            SimpleBillingServiceImpl service = new SimpleBillingServiceImpl(StockMutationMode.DATABASE_TRIGGER, checker);
+
+            // No trigger on H2, so stock stays where it was
+            service.addItemToBill(billId, itemId, 3);
+            endRequest();
+            assertEquals(10, stockOf(itemId));
+        }
+
+        @Test
+        @DisplayName("Should expect paid lines to leave the ledger when a bill is deleted")
+        void testDeletePaidBillRecordsAdjustment() {
+            SimpleBillingServiceImpl service = new SimpleBillingServiceImpl(StockMutationMode.APPLICATION, checker);
+            service.addItemToBill(billId, itemId, 3);
+            service.markBillAsPaid(billId);
+            checker.check();
+
+            service.deleteBill(billId);
+
+            assertTrue(checker.check().isEmpty());
+
+            endRequest();
+            assertEquals(7, stockOf(itemId));
+        }
+    }
+
+    @Nested
+    @DisplayName("Statement Budget Tests")
+    class StatementBudgetTests {
+
+        private final List<Long> itemIds = new ArrayList<>();
+
+        @BeforeEach
+        void setUpBills() {
+            // Four more bills for the till customer, each with three lines of different items
+            TransactionTemplate.runInTransaction(() -> {
+                EntityManager em = EntityManagerHolder.get();
+                Customer customer = em.find(Customer.class, "ACC900");
+                for (int i = 0; i < 3; i++) {
+                    Item item = new Item("Exercise Book " + i, null, new BigDecimal("2.00"), 100, "Stationery");
+                    em.persist(item);
+                    itemIds.add(item.getItemId());
+                }
+                for (int b = 0; b < 4; b++) {
+                    Bill bill = new Bill(customer);
+                    for (Long id : itemIds) {
+                        Item item = em.find(Item.class, id);
+                        bill.addBillItem(new BillItem(bill, item, 1, item.getUnitPrice()));
+                    }
+                    em.persist(bill);
+                }
+            });
+            endRequest();
+            EntityManagerHolder.bind(database.getEntityManagerFactory());
+        }
+
+        // Bill and lines, item, stock, line insert and bill total; one more when a new block of ids is fetched
+        @Test
+        @StatementBudget(7)
+        @DisplayName("Should add a new line with a bounded number of statements")
+        void testAddItemToBill() {
+            Bill bill = billingService.addItemToBill(billId, itemId, 1);
+            assertEquals(1, bill.getBillItems().size());
+        }
+
+        // The second add finds the item on the bill: bill and lines, stock, line and bill total
+        @Test
+        @StatementBudget(12)
+        @DisplayName("Should add to an existing line without looking the item up again")
+        void testAddToExistingLine() {
+            billingService.addItemToBill(billId, itemId, 1);
+            endRequest();
+            EntityManagerHolder.bind(database.getEntityManagerFactory());
+
+            Bill bill = billingService.addItemToBill(billId, itemId, 2);
+            assertEquals(3, bill.getBillItems().get(0).getQuantity());
+        }
+
+        @Test
+        @StatementBudget(value = 2, maxSameSelect = 1)
+        @DisplayName("Should list bills with their customers, lines and items in two queries")
+        void testGetAllBills() {
+            List<Bill> bills = billingService.getAllBills();
+
+            // What the bill list renders, all of which must already be loaded
+            int lines = 0;
+            for (Bill bill : bills) {
+                assertEquals("Till Customer", bill.getCustomer().getName());
+                lines += bill.getTotalItemCount();
+                for (BillItem line : bill.getBillItems()) {
+                    assertNotNull(line.getItem().getItemName());
+                }
+            }
+            assertEquals(5, bills.size());
+            assertEquals(12, lines);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.pahanaedu.BaseTestCase;
 import com.pahanaedu.dao.CustomerDAO;
 import com.pahanaedu.model.Customer;
 import com.pahanaedu.service.CustomerService;
+import com.pahanaedu.dto.CustomerStatistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -466,18 +467,17 @@ class SimpleCustomerServiceImplTest extends BaseTestCase {
         @DisplayName("Should get customer statistics")
         void testGetCustomerStatistics() {
             // Arrange
-            long[] stats = {100L, 80L, 5L};
+            CustomerStatistics stats = new CustomerStatistics(100L, 80L, 5L);
             when(customerDAO.getCustomerStatistics()).thenReturn(stats);
             
             // Act
-            long[] result = customerService.getCustomerStatistics();
+            CustomerStatistics result = customerService.getCustomerStatistics();
             
             // Assert
             assertNotNull(result);
-            assertEquals(3, result.length);
-            assertEquals(100L, result[0]);
-            assertEquals(80L, result[1]);
-            assertEquals(5L, result[2]);
+            assertEquals(100L, result.getTotalCustomers());
+            assertEquals(80L, result.getActiveCustomers());
+            assertEquals(5L, result.getCustomersWithPendingBills());
             verify(customerDAO).getCustomerStatistics();
         }
         
@@ -0,0 +1,169 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.dto.UserPrincipal;
+import com.pahanaedu.model.User;
+import com.pahanaedu.service.impl.UserServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Authentication Filter Tests")
+class AuthenticationFilterTest {
+
+    /**
+     * Map-backed session; only the calls the filter makes
+     */
+    static HttpSession session(Map<String, Object> attributes, AtomicInteger writes) {
+        return (HttpSession) Proxy.newProxyInstance(AuthenticationFilterTest.class.getClassLoader(),
+                new Class<?>[] { HttpSession.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            writes.incrementAndGet();
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        case "removeAttribute":
+                            writes.incrementAndGet();
+                            attributes.remove(args[0]);
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    static HttpServletRequest request(HttpSession session, Map<String, Object> attributes) {
+        return (HttpServletRequest) Proxy.newProxyInstance(AuthenticationFilterTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getSession":
+                            return session;
+                        case "getRequestURI":
+                            return "/pahana-edu/billing/manage";
+                        case "getContextPath":
+                            return "/pahana-edu";
+                        case "getAttribute":
+                            return attributes.get(args[0]);
+                        case "setAttribute":
+                            attributes.put((String) args[0], args[1]);
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    static User user(String username, User.UserRole role) {
+        User user = new User(username, PasswordUtil.hashPassword("secret123"), role);
+        user.setActive(true);
+        return user;
+    }
+
+    @Nested
+    @DisplayName("Request Tests")
+    class RequestTests {
+
+        @Test
+        @DisplayName("Should pass the principal on without writing to the session or request")
+        void testAuthenticated() throws IOException, ServletException {
+            Map<String, Object> sessionAttributes = new HashMap<>();
+            AtomicInteger sessionWrites = new AtomicInteger();
+            sessionAttributes.put(SessionUtil.CURRENT_USER_ATTR,
+                    UserPrincipal.of(user("admin", User.UserRole.ADMIN), CatalogVersion.USERS.getVersion()));
+            Map<String, Object> requestAttributes = new HashMap<>();
+            HttpServletRequest request = request(session(sessionAttributes, sessionWrites), requestAttributes);
+
+            AtomicReference<ServletRequest> seen = new AtomicReference<>();
+            new AuthenticationFilter().doFilter(request, null, (req, resp) -> seen.set(req));
+
+            HttpServletRequest passed = (HttpServletRequest) seen.get();
+            assertNotNull(passed);
+            assertEquals(0, sessionWrites.get());
+            assertTrue(requestAttributes.isEmpty());
+
+            assertEquals("admin", passed.getUserPrincipal().getName());
+            assertEquals("admin", passed.getRemoteUser());
+            assertTrue(passed.isUserInRole("ADMIN"));
+            assertEquals("ADMIN", passed.getAttribute("userRole"));
+            assertEquals(Boolean.TRUE, passed.getAttribute("isAdmin"));
+            assertEquals(Boolean.FALSE, passed.getAttribute("isOperator"));
+            assertSame(sessionAttributes.get(SessionUtil.CURRENT_USER_ATTR), passed.getAttribute("currentUser"));
+            assertNull(passed.getAttribute("other"));
+
+            // A servlet's own attribute wins
+            passed.setAttribute("userRole", "Administrator");
+            assertEquals("Administrator", passed.getAttribute("userRole"));
+        }
+
+        @Test
+        @DisplayName("Should reload the user after an account change")
+        void testReloadAfterChange() throws IOException, ServletException {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:authfiltertest;MODE=LEGACY;DB_CLOSE_DELAY=-1");
+            EntityManagerFactory emf = Persistence.createEntityManagerFactory("pahanaedu-test-pu", properties);
+            EntityManagerHolder.bind(emf);
+            try {
+                UserServiceImpl userService = new UserServiceImpl();
+                User operator = user("promoted", User.UserRole.OPERATOR);
+                TransactionTemplate.runInTransaction(() -> userService.createUser(operator));
+
+                Map<String, Object> sessionAttributes = new HashMap<>();
+                AtomicInteger sessionWrites = new AtomicInteger();
+                UserPrincipal before = UserPrincipal.of(operator, CatalogVersion.USERS.getVersion());
+                sessionAttributes.put(SessionUtil.CURRENT_USER_ATTR, before);
+
+                operator.setRole(User.UserRole.ADMIN);
+                TransactionTemplate.runInTransaction(() -> userService.updateUser(operator));
+                assertNotEquals(before.getVersion(), CatalogVersion.USERS.getVersion());
+
+                AtomicReference<ServletRequest> seen = new AtomicReference<>();
+                FilterChain chain = (req, resp) -> seen.set(req);
+                new AuthenticationFilter().doFilter(request(session(sessionAttributes, sessionWrites), new HashMap<>()), null, chain);
+
+                UserPrincipal after = (UserPrincipal) sessionAttributes.get(SessionUtil.CURRENT_USER_ATTR);
+                assertTrue(after.isAdmin());
+                assertEquals(CatalogVersion.USERS.getVersion(), after.getVersion());
+                assertEquals(Boolean.TRUE, seen.get().getAttribute("isAdmin"));
+
+                // Current again: no further reloads or session writes
+                new AuthenticationFilter().doFilter(request(session(sessionAttributes, sessionWrites), new HashMap<>()), null, chain);
+                assertEquals(1, sessionWrites.get());
+            } finally {
+                EntityManagerHolder.unbind();
+                emf.close();
+            }
+        }
+
+        @Test
+        @DisplayName("Should build a principal without the password hash")
+        void testPrincipal() {
+            User user = user("operator", User.UserRole.OPERATOR);
+            UserPrincipal principal = UserPrincipal.of(user, 7);
+
+            assertEquals("operator", principal.getName());
+            assertEquals("OPERATOR", principal.getRoleName());
+            assertTrue(principal.isOperator());
+            assertFalse(principal.isAdmin());
+            assertTrue(principal.isActive());
+            assertEquals(7, principal.getVersion());
+            assertFalse(principal.toString().contains(user.getPasswordHash()));
+        }
+    }
+}
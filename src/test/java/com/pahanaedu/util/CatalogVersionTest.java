@@ -0,0 +1,130 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.dao.impl.ItemDAOImpl;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.service.CustomerCache;
+import com.pahanaedu.service.StockConsistencyChecker;
+import com.pahanaedu.service.impl.SimpleBillingServiceImpl;
+import com.pahanaedu.service.impl.SimpleItemServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Catalog Version Tests")
+class CatalogVersionTest {
+
+    @Nested
+    @DisplayName("Conditional GET Tests")
+    class ConditionalGetTests {
+
+        @Test
+        @DisplayName("Should match the current ETag and nothing older")
+        void testETag() {
+            String etag = CatalogVersion.CUSTOMERS.getETag();
+            long modified = CatalogVersion.CUSTOMERS.getLastModified();
+            assertTrue(etag.startsWith("W/\"customers-"));
+
+            assertTrue(CatalogVersion.isNotModified(etag, modified, etag, -1));
+            // Weak comparison, lists and wildcards
+            assertTrue(CatalogVersion.isNotModified(etag, modified, etag.substring(2), -1));
+            assertTrue(CatalogVersion.isNotModified(etag, modified, "\"x\", " + etag, -1));
+            assertTrue(CatalogVersion.isNotModified(etag, modified, "*", -1));
+
+            CatalogVersion.CUSTOMERS.changed();
+            String changed = CatalogVersion.CUSTOMERS.getETag();
+            assertNotEquals(etag, changed);
+            assertFalse(CatalogVersion.isNotModified(changed, modified, etag, -1));
+        }
+
+        @Test
+        @DisplayName("Should keep item and customer versions apart")
+        void testSeparateVersions() {
+            String customersTag = CatalogVersion.CUSTOMERS.getETag();
+            CatalogVersion.ITEMS.changed();
+            assertEquals(customersTag, CatalogVersion.CUSTOMERS.getETag());
+            assertNotEquals(customersTag, CatalogVersion.ITEMS.getETag());
+        }
+
+        @Test
+        @DisplayName("Should honour If-Modified-Since only without If-None-Match")
+        void testIfModifiedSince() {
+            long modified = 1_700_000_000_000L;
+            String etag = CatalogVersion.ITEMS.getETag();
+
+            assertTrue(CatalogVersion.isNotModified(etag, modified, null, modified));
+            assertTrue(CatalogVersion.isNotModified(etag, modified, null, modified + 60_000));
+            assertFalse(CatalogVersion.isNotModified(etag, modified, null, modified - 1000));
+            assertFalse(CatalogVersion.isNotModified(etag, modified, null, -1));
+            assertFalse(CatalogVersion.isNotModified(etag, modified, "\"stale\"", modified + 60_000));
+        }
+    }
+
+    @Nested
+    @DisplayName("Write Tracking Tests")
+    class WriteTrackingTests {
+
+        @Test
+        @DisplayName("Should move the item version on item writes and bill stock changes")
+        void testWrites() {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:catalogversiontest;MODE=LEGACY;DB_CLOSE_DELAY=-1");
+            EntityManagerFactory emf = Persistence.createEntityManagerFactory("pahanaedu-test-pu", properties);
+            try {
+                EntityManagerHolder.inScope(emf, () -> TransactionTemplate.inTransaction(() -> {
+                    EntityManagerHolder.get().persist(new Customer("ACC960", "Version Customer"));
+                    return null;
+                }));
+
+                long before = CatalogVersion.ITEMS.getVersion();
+                Item item = EntityManagerHolder.inScope(emf, () -> new SimpleItemServiceImpl(new ItemDAOImpl(), new StockConsistencyChecker())
+                        .createItem("Versioned Pen", null, new BigDecimal("10.00"), 50, "Version"));
+                long afterCreate = CatalogVersion.ITEMS.getVersion();
+                assertTrue(afterCreate > before);
+
+                EntityManagerHolder.inScope(emf, () -> {
+                    SimpleBillingServiceImpl billingService = new SimpleBillingServiceImpl(
+                            StockMutationMode.APPLICATION, new StockConsistencyChecker(), new CustomerCache());
+                    Long billId = billingService.createBill("ACC960").getBillId();
+                    return billingService.addItemToBill(billId, item.getItemId(), 2);
+                });
+                assertTrue(CatalogVersion.ITEMS.getVersion() > afterCreate);
+            } finally {
+                emf.close();
+            }
+        }
+
+        @Test
+        @DisplayName("Should move the version again when the writing transaction ends")
+        void testAfterCommit() {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:catalogversioncommittest;MODE=LEGACY;DB_CLOSE_DELAY=-1");
+            EntityManagerFactory emf = Persistence.createEntityManagerFactory("pahanaedu-test-pu", properties);
+            try {
+                long[] duringTransaction = new long[1];
+                long before = CatalogVersion.CUSTOMERS.getVersion();
+                EntityManagerHolder.inScope(emf, () -> TransactionTemplate.inTransaction(() -> {
+                    EntityManager em = EntityManagerHolder.get();
+                    em.persist(new Customer("ACC961", "Committed Customer"));
+                    CatalogVersion.CUSTOMERS.changed();
+                    duringTransaction[0] = CatalogVersion.CUSTOMERS.getVersion();
+                    return null;
+                }));
+
+                assertEquals(before + 1, duringTransaction[0]);
+                assertEquals(before + 2, CatalogVersion.CUSTOMERS.getVersion());
+            } finally {
+                emf.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.Benchmark;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CPU time against bytes saved for each gzip level, on a JSON list and on the bill management page
+ */
+@DisplayName("Compression Filter Benchmark Tests")
+class CompressionFilterBenchmarkTest {
+
+    private static final int[] LEVELS = { 1, 6, 9 };
+
+    private static byte[] jsonPayload(int rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStreamWriter writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        JsonWriter json = new JsonWriter(writer);
+        json.beginArray();
+        BigDecimal price = new BigDecimal("125.50");
+        for (int i = 0; i < rows; i++) {
+            json.beginObject()
+                .name("itemId").value((long) i)
+                .name("itemName").value("Exercise Book No. " + i)
+                .name("unitPrice").value(price)
+                .name("stockQuantity").value(i % 200)
+                .name("category").value(i % 3 == 0 ? "Stationery" : "Books")
+                .endObject();
+        }
+        json.endArray().flush();
+        return bytes.toByteArray();
+    }
+
+    private static int compress(byte[] data, int level) throws IOException {
+        CompressionFilterTest.RecordingSink sink = new CompressionFilterTest.RecordingSink();
+        try (CompressingOutputStream out = new CompressingOutputStream(sink, CompressingOutputStream.Encoding.GZIP, 1024, level)) {
+            for (int i = 0; i < data.length; i += 8192) {
+                out.write(data, i, Math.min(8192, data.length - i));
+            }
+        }
+        return sink.body.size();
+    }
+
+    /**
+     * Time every level on one payload
+     * @return Compressed size per entry of LEVELS
+     */
+    private static int[] sweep(String name, byte[] payload) throws IOException {
+        int[] sizes = new int[LEVELS.length];
+        for (int i = 0; i < LEVELS.length; i++) {
+            int level = LEVELS[i];
+            sizes[i] = compress(payload, level);
+            Benchmark.run("gzip." + name + ".level" + level, 200, 1000, () -> compress(payload, level));
+            System.out.printf(Locale.ROOT, "gzip level %d, %s: %,d -> %,d bytes (%.1f%%)%n",
+                    level, name, payload.length, sizes[i], 100.0 * sizes[i] / payload.length);
+        }
+        return sizes;
+    }
+
+    @Test
+    @DisplayName("Should report CPU time against bytes saved per level")
+    void testCostPerLevel() throws IOException {
+        byte[] json = jsonPayload(2000);
+        int[] jsonSizes = sweep("json2000", json);
+        int[] pageSizes = sweep("manageJsp", Files.readAllBytes(Paths.get("src/main/webapp/WEB-INF/jsp/billing/manage.jsp")));
+
+        assertTrue(jsonSizes[1] < json.length / 2, "JSON compressed to " + jsonSizes[1] + " bytes");
+        assertTrue(jsonSizes[2] <= jsonSizes[0]);
+        assertTrue(pageSizes[2] <= pageSizes[0]);
+    }
+}
@@ -0,0 +1,253 @@
+package com.pahanaedu.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Compression Filter Tests")
+class CompressionFilterTest {
+
+    /**
+     * Sink recording what CompressingOutputStream asks of the response
+     */
+    static final class RecordingSink implements CompressingOutputStream.Sink {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        boolean compressible = true;
+        String contentEncoding;
+        int contentLength = -2;
+        int flushes;
+
+        @Override
+        public boolean isCompressible() {
+            return compressible;
+        }
+
+        @Override
+        public boolean startCompressed() {
+            if (compressible) {
+                contentEncoding = "on";
+            }
+            return compressible;
+        }
+
+        @Override
+        public void startIdentity(int length) {
+            contentLength = length;
+        }
+
+        @Override
+        public OutputStream open() {
+            return new OutputStream() {
+                @Override
+                public void write(int b) {
+                    body.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    body.write(b, off, len);
+                }
+
+                @Override
+                public void flush() {
+                    flushes++;
+                }
+            };
+        }
+    }
+
+    private static byte[] text(int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; builder.length() < length; i++) {
+            builder.append("<tr><td>Exercise Book No. ").append(i).append("</td><td>125.50</td></tr>\n");
+        }
+        return builder.substring(0, length).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            return input.readAllBytes();
+        }
+    }
+
+    @Nested
+    @DisplayName("Negotiation Tests")
+    class NegotiationTests {
+
+        @Test
+        @DisplayName("Should prefer gzip and honour q-values")
+        void testNegotiate() {
+            assertEquals(CompressingOutputStream.Encoding.GZIP, CompressionFilter.negotiate("gzip, deflate, br"));
+            assertEquals(CompressingOutputStream.Encoding.GZIP, CompressionFilter.negotiate("deflate, gzip"));
+            assertEquals(CompressingOutputStream.Encoding.GZIP, CompressionFilter.negotiate("x-gzip"));
+            assertEquals(CompressingOutputStream.Encoding.DEFLATE, CompressionFilter.negotiate("deflate"));
+            assertEquals(CompressingOutputStream.Encoding.DEFLATE, CompressionFilter.negotiate("gzip;q=0.2, deflate;q=0.8"));
+            assertEquals(CompressingOutputStream.Encoding.DEFLATE, CompressionFilter.negotiate("gzip;q=0, *"));
+            assertEquals(CompressingOutputStream.Encoding.GZIP, CompressionFilter.negotiate("*"));
+        }
+
+        @Test
+        @DisplayName("Should not compress without an acceptable coding")
+        void testNoCoding() {
+            assertNull(CompressionFilter.negotiate(null));
+            assertNull(CompressionFilter.negotiate(""));
+            assertNull(CompressionFilter.negotiate("identity"));
+            assertNull(CompressionFilter.negotiate("br"));
+            assertNull(CompressionFilter.negotiate("gzip;q=0, deflate;q=0"));
+            assertNull(CompressionFilter.negotiate("*;q=0"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Stream Tests")
+    class StreamTests {
+
+        @Test
+        @DisplayName("Should gzip a large body as it is written")
+        void testGzip() throws IOException {
+            RecordingSink sink = new RecordingSink();
+            byte[] data = text(100_000);
+            try (CompressingOutputStream out = new CompressingOutputStream(sink, CompressingOutputStream.Encoding.GZIP, 1024, 6)) {
+                for (int i = 0; i < data.length; i += 700) {
+                    out.write(data, i, Math.min(700, data.length - i));
+                }
+                // Output starts long before the end of the body
+                assertTrue(out.isCompressing());
+                assertTrue(sink.body.size() > 0);
+            }
+
+            assertEquals("on", sink.contentEncoding);
+            assertArrayEquals(data, readAll(new GZIPInputStream(new ByteArrayInputStream(sink.body.toByteArray()))));
+            assertTrue(sink.body.size() < data.length / 4);
+        }
+
+        @Test
+        @DisplayName("Should write zlib data for deflate")
+        void testDeflate() throws IOException {
+            RecordingSink sink = new RecordingSink();
+            byte[] data = text(20_000);
+            try (CompressingOutputStream out = new CompressingOutputStream(sink, CompressingOutputStream.Encoding.DEFLATE, 1024, 6)) {
+                out.write(data);
+            }
+
+            assertArrayEquals(data, readAll(new InflaterInputStream(new ByteArrayInputStream(sink.body.toByteArray()))));
+        }
+
+        @Test
+        @DisplayName("Should send a body under the threshold as is with its length")
+        void testSmallBody() throws IOException {
+            RecordingSink sink = new RecordingSink();
+            byte[] data = text(500);
+            try (CompressingOutputStream out = new CompressingOutputStream(sink, CompressingOutputStream.Encoding.GZIP, 1024, 6)) {
+                out.write(data, 0, 200);
+                out.flush();
+                assertEquals(0, sink.body.size());
+                out.write(data, 200, 300);
+            }
+
+            assertNull(sink.contentEncoding);
+            assertEquals(500, sink.contentLength);
+            assertArrayEquals(data, sink.body.toByteArray());
+        }
+
+        @Test
+        @DisplayName("Should pass other content types through unchanged")
+        void testNotCompressible() throws IOException {
+            RecordingSink sink = new RecordingSink();
+            sink.compressible = false;
+            byte[] data = text(10_000);
+            try (CompressingOutputStream out = new CompressingOutputStream(sink, CompressingOutputStream.Encoding.GZIP, 1024, 6)) {
+                out.write(data, 0, 100);
+                // Not compressible: a flush sends the bytes straight away
+                out.flush();
+                assertEquals(100, sink.body.size());
+                assertEquals(-1, sink.contentLength);
+                out.write(data, 100, data.length - 100);
+            }
+
+            assertNull(sink.contentEncoding);
+            assertArrayEquals(data, sink.body.toByteArray());
+        }
+
+        @Test
+        @DisplayName("Should make flushed data decodable before the body ends")
+        void testSyncFlush() throws IOException {
+            RecordingSink sink = new RecordingSink();
+            byte[] data = text(4000);
+            CompressingOutputStream out = new CompressingOutputStream(sink, CompressingOutputStream.Encoding.DEFLATE, 1024, 6);
+            out.write(data);
+            out.flush();
+
+            byte[] partial = new byte[data.length];
+            int read = 0;
+            try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(sink.body.toByteArray()))) {
+                while (read < partial.length) {
+                    int n = in.read(partial, read, partial.length - read);
+                    if (n < 0) {
+                        break;
+                    }
+                    read += n;
+                }
+            } catch (IOException e) {
+                // Unexpected end of the still open stream once everything flushed was read
+            }
+            assertEquals(data.length, read);
+            assertArrayEquals(data, partial);
+            out.close();
+        }
+
+        @Test
+        @DisplayName("Should drop held bytes on reset until output starts")
+        void testClear() throws IOException {
+            RecordingSink sink = new RecordingSink();
+            CompressingOutputStream out = new CompressingOutputStream(sink, CompressingOutputStream.Encoding.GZIP, 1024, 6);
+            out.write("discarded".getBytes(StandardCharsets.UTF_8));
+            assertTrue(out.clear());
+            out.write("kept".getBytes(StandardCharsets.UTF_8));
+            out.close();
+            assertEquals("kept", sink.body.toString(StandardCharsets.UTF_8));
+
+            RecordingSink started = new RecordingSink();
+            CompressingOutputStream large = new CompressingOutputStream(started, CompressingOutputStream.Encoding.GZIP, 1024, 6);
+            large.write(text(2000));
+            assertFalse(large.clear());
+            large.abort();
+        }
+
+        @Test
+        @DisplayName("Should reuse pooled deflaters across responses")
+        void testDeflaterReuse() throws IOException {
+            byte[] data = text(5000);
+            for (int i = 0; i < 5; i++) {
+                try (CompressingOutputStream out = new CompressingOutputStream(new RecordingSink(), CompressingOutputStream.Encoding.GZIP, 1024, 6)) {
+                    out.write(data);
+                }
+            }
+            int created = CompressingOutputStream.DeflaterPool.createdCount();
+            for (int i = 0; i < 200; i++) {
+                RecordingSink sink = new RecordingSink();
+                try (CompressingOutputStream out = new CompressingOutputStream(sink, CompressingOutputStream.Encoding.GZIP, 1024, 6)) {
+                    out.write(data);
+                }
+                if (i % 50 == 0) {
+                    // A reset deflater must not carry state into the next response
+                    assertArrayEquals(data, readAll(new GZIPInputStream(new ByteArrayInputStream(sink.body.toByteArray()))));
+                }
+            }
+            // Other tests may run in parallel on other levels; this slot is only ever topped up
+            assertTrue(CompressingOutputStream.DeflaterPool.createdCount() - created <= 1,
+                    "Created " + (CompressingOutputStream.DeflaterPool.createdCount() - created) + " deflaters");
+        }
+    }
+}
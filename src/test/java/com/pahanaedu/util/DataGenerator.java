@@ -0,0 +1,390 @@
+package com.pahanaedu.util;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Synthetic data generator for load and performance testing
+ * Appends customers, items and bills to an existing schema (database-schema.sql on PostgreSQL,
+ * or the one Hibernate creates on H2) with batched JDBC inserts, then moves the id sequences
+ * past the new rows so the application keeps allocating free ids. The same seed always
+ * produces the same data.
+ *
+ * Distributions:
+ *   customers - registered over the last five years, 3% inactive; a fifth of them place
+ *               about 80% of the bills
+ *   items     - prices from 150 to 15,000, a long tail of slow sellers, 5% out of stock and
+ *               10% low on stock
+ *   bills     - spread over the last two years; 1 to 10 lines, most with one to three;
+ *               quantity mostly 1; older bills nearly all paid, recent ones often pending
+ *
+ * Run against a stopped application (the dashboard snapshot and stock checks reload on start):
+ *   mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.pahanaedu.util.DataGenerator \
+ *     -Dexec.args="--url jdbc:postgresql://localhost:5432/pahanaedu_bookshop?reWriteBatchedInserts=true
+ *     --user pahanaedu_user --password secret --customers 200000 --items 50000 --bills 5000000"
+ */
+public class DataGenerator {
+
+    private static final Logger logger = Logger.getLogger(DataGenerator.class.getName());
+
+    private static final String[] FIRST_NAMES = {
+        "Nimal", "Kamala", "Sunil", "Chathura", "Dilani", "Ruwan", "Sanduni", "Kasun", "Ishara", "Tharindu",
+        "Nadeesha", "Pradeep", "Harsha", "Anoma", "Mahesh", "Fathima", "Mohamed", "Priya", "Ravi", "Shanthi"
+    };
+    private static final String[] LAST_NAMES = {
+        "Perera", "Fernando", "Silva", "Jayasinghe", "Bandara", "Wickramasinghe", "Rajapaksa", "Dissanayake",
+        "Gunawardena", "Herath", "Kumara", "Rathnayake", "Senanayake", "Weerasinghe", "Nazeer", "Sivakumar"
+    };
+    private static final String[] STREETS = {
+        "Galle Road", "Kandy Road", "Main Street", "Temple Road", "Station Road", "Lake Drive", "Hill Street"
+    };
+    private static final String[] CITIES = {
+        "Colombo 03", "Colombo 07", "Dehiwala", "Nugegoda", "Kandy", "Galle", "Negombo", "Kurunegala", "Jaffna"
+    };
+    private static final String[] CATEGORIES = {
+        "Programming", "Mathematics", "Science", "Language", "History", "Fiction", "Children", "Reference",
+        "Stationery", "Exam Papers"
+    };
+    private static final String[] LEVELS = {
+        "Introductory", "Grade 6", "Grade 9", "O/L", "A/L", "Advanced", "University", "Practical", "Illustrated"
+    };
+    private static final String[] FORMATS = {"Textbook", "Workbook", "Guide", "Reader", "Past Papers", "Handbook"};
+
+    private static final int MAX_LINES = 10;
+    private static final int BILL_HISTORY_DAYS = 730;
+    private static final int PENDING_WINDOW_DAYS = 3;
+
+    private final Connection connection;
+    private final Random random;
+    private final int batchSize;
+    private final LocalDate today;
+
+    // Current prices of the items bills may use, indexed from 0
+    private long[] itemIds;
+    private BigDecimal[] itemPrices;
+    private String[] accountNumbers;
+
+    /**
+     * @param connection Open connection; the generator commits as it goes
+     * @param seed Random seed
+     * @param batchSize Rows per JDBC batch
+     */
+    public DataGenerator(Connection connection, long seed, int batchSize) {
+        this(connection, seed, batchSize, LocalDate.now());
+    }
+
+    DataGenerator(Connection connection, long seed, int batchSize, LocalDate today) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.connection = connection;
+        this.random = new Random(seed);
+        this.batchSize = batchSize;
+        this.today = today;
+    }
+
+    /**
+     * Insert the given numbers of customers, items and bills
+     * @param customers Customers to add
+     * @param items Items to add
+     * @param bills Bills to add, with their lines; they use the new customers and items
+     * @return Rows inserted per table
+     */
+    public Map<String, Long> generate(int customers, int items, int bills) throws SQLException {
+        if (bills > 0 && (customers < 1 || items < 1)) {
+            throw new IllegalArgumentException("Bills need at least one new customer and one new item");
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            Map<String, Long> inserted = new HashMap<>();
+            inserted.put("customers", (long) insertCustomers(customers));
+            inserted.put("items", (long) insertItems(items));
+            inserted.put("bill_items", insertBills(bills));
+            inserted.put("bills", (long) bills);
+
+            restartSequence("items_item_id_seq", "items", "item_id");
+            restartSequence("bills_bill_id_seq", "bills", "bill_id");
+            restartSequence("bill_items_bill_item_id_seq", "bill_items", "bill_item_id");
+            connection.commit();
+            return inserted;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private int insertCustomers(int count) throws SQLException {
+        long first = 1;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT MAX(account_number) FROM customers WHERE account_number LIKE 'ACC______'")) {
+            if (rs.next() && rs.getString(1) != null) {
+                first = Long.parseLong(rs.getString(1).substring(3)) + 1;
+            }
+        }
+        if (first + count > 1_000_000) {
+            throw new IllegalArgumentException("Account numbers ACC000001-ACC999999 would run out");
+        }
+
+        accountNumbers = new String[count];
+        long start = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO customers (account_number, name, address, telephone_number, registration_date, active) " +
+                "VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                String accountNumber = String.format("ACC%06d", first + i);
+                accountNumbers[i] = accountNumber;
+                insert.setString(1, accountNumber);
+                insert.setString(2, pick(FIRST_NAMES) + " " + pick(LAST_NAMES));
+                insert.setString(3, (1 + random.nextInt(400)) + " " + pick(STREETS) + ", " + pick(CITIES));
+                insert.setString(4, String.format("+9477%07d", random.nextInt(10_000_000)));
+                insert.setDate(5, Date.valueOf(today.minusDays(random.nextInt(5 * 365))));
+                insert.setBoolean(6, random.nextInt(100) >= 3);
+                insert.addBatch();
+                flushBatch(insert, i + 1, count, "customers", start);
+            }
+        }
+        return count;
+    }
+
+    private int insertItems(int count) throws SQLException {
+        long first = nextId("items", "item_id");
+        itemIds = new long[count];
+        itemPrices = new BigDecimal[count];
+        long start = System.nanoTime();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO items (item_id, item_name, description, unit_price, stock_quantity, category) " +
+                "VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                String category = pick(CATEGORIES);
+                // Skewed towards cheaper items: 150 to about 15,000 in steps of 10
+                BigDecimal price = BigDecimal.valueOf(15 + (long) (1485 * Math.pow(random.nextDouble(), 2.5)), -1)
+                        .setScale(2);
+                int stockBand = random.nextInt(100);
+                int stock = stockBand < 5 ? 0 : stockBand < 15 ? 1 + random.nextInt(9) : 10 + random.nextInt(491);
+
+                itemIds[i] = first + i;
+                itemPrices[i] = price;
+                insert.setLong(1, first + i);
+                insert.setString(2, pick(LEVELS) + " " + category + " " + pick(FORMATS) + " " + (i + 1));
+                insert.setString(3, random.nextInt(4) == 0 ? null : "Synthetic " + category.toLowerCase() + " title");
+                insert.setBigDecimal(4, price);
+                insert.setInt(5, stock);
+                insert.setString(6, category);
+                insert.addBatch();
+                flushBatch(insert, i + 1, count, "items", start);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Bill lines inserted
+     */
+    private long insertBills(int count) throws SQLException {
+        long firstBill = nextId("bills", "bill_id");
+        long lineId = nextId("bill_items", "bill_item_id");
+        long lines = 0;
+        int pendingLines = 0;
+        long start = System.nanoTime();
+        try (PreparedStatement billInsert = connection.prepareStatement(
+                "INSERT INTO bills (bill_id, account_number, bill_date, total_amount, status) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement lineInsert = connection.prepareStatement(
+                "INSERT INTO bill_items (bill_item_id, bill_id, item_id, quantity, unit_price, total_price) " +
+                "VALUES (?, ?, ?, ?, ?, ?)")) {
+            int[] billItems = new int[MAX_LINES];
+            for (int b = 0; b < count; b++) {
+                long billId = firstBill + b;
+                int age = random.nextInt(BILL_HISTORY_DAYS);
+                int lineCount = lineCount();
+                BigDecimal total = BigDecimal.ZERO;
+
+                for (int l = 0; l < lineCount; l++) {
+                    int item = distinctItem(billItems, l);
+                    billItems[l] = item;
+                    int quantity = quantity();
+                    BigDecimal lineTotal = itemPrices[item].multiply(BigDecimal.valueOf(quantity));
+                    total = total.add(lineTotal);
+
+                    lineInsert.setLong(1, lineId++);
+                    lineInsert.setLong(2, billId);
+                    lineInsert.setLong(3, itemIds[item]);
+                    lineInsert.setInt(4, quantity);
+                    lineInsert.setBigDecimal(5, itemPrices[item]);
+                    lineInsert.setBigDecimal(6, lineTotal);
+                    lineInsert.addBatch();
+                    lines++;
+                    pendingLines++;
+                }
+
+                billInsert.setLong(1, billId);
+                billInsert.setString(2, accountNumbers[customer()]);
+                billInsert.setDate(3, Date.valueOf(today.minusDays(age)));
+                billInsert.setBigDecimal(4, total);
+                billInsert.setString(5, status(age));
+                billInsert.addBatch();
+
+                // Bills go first so the lines' foreign keys resolve
+                if ((b + 1) % batchSize == 0 || b + 1 == count) {
+                    billInsert.executeBatch();
+                    lineInsert.executeBatch();
+                    pendingLines = 0;
+                    if ((b + 1) % (batchSize * 20) == 0 || b + 1 == count) {
+                        connection.commit();
+                        logProgress("bills", b + 1, count, start);
+                    }
+                } else if (pendingLines >= batchSize * 4) {
+                    billInsert.executeBatch();
+                    lineInsert.executeBatch();
+                    pendingLines = 0;
+                }
+            }
+        }
+        return lines;
+    }
+
+    private void flushBatch(PreparedStatement insert, int done, int count, String table, long start) throws SQLException {
+        if (done % batchSize == 0 || done == count) {
+            insert.executeBatch();
+            if (done % (batchSize * 20) == 0 || done == count) {
+                connection.commit();
+                logProgress(table, done, count, start);
+            }
+        }
+    }
+
+    private void logProgress(String table, int done, int count, long start) {
+        double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-3);
+        logger.info(String.format("%s: %,d of %,d (%.0f rows/s)", table, done, count, done / seconds));
+    }
+
+    private long nextId(String table, String column) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(" + column + "), 0) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1) + 1;
+        }
+    }
+
+    /**
+     * Start the sequence after the highest id; Hibernate's pooled-lo optimizer uses the value
+     * it reads as the first id of its block
+     */
+    private void restartSequence(String sequence, String table, String column) throws SQLException {
+        long next = nextId(table, column);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + next);
+        }
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * 1 to 10 lines: about a third of bills have one line, and fewer than one in six more than four
+     */
+    private int lineCount() {
+        int roll = random.nextInt(100);
+        if (roll < 35) {
+            return 1;
+        } else if (roll < 60) {
+            return 2;
+        } else if (roll < 75) {
+            return 3;
+        } else if (roll < 85) {
+            return 4;
+        }
+        return 5 + random.nextInt(MAX_LINES - 4);
+    }
+
+    private int quantity() {
+        int roll = random.nextInt(100);
+        return roll < 70 ? 1 : roll < 90 ? 2 : 3 + random.nextInt(3);
+    }
+
+    /**
+     * A fifth of the customers place about 80% of the bills
+     */
+    private int customer() {
+        int regulars = Math.max(1, accountNumbers.length / 5);
+        if (random.nextInt(100) < 80) {
+            return random.nextInt(regulars);
+        }
+        return random.nextInt(accountNumbers.length);
+    }
+
+    /**
+     * Popular items sell far more often than the long tail
+     */
+    private int item() {
+        return (int) (itemIds.length * Math.pow(random.nextDouble(), 3));
+    }
+
+    private int distinctItem(int[] chosen, int count) {
+        // A bill holds each item once; give up on distinctness only for tiny catalogues
+        for (int attempt = 0; attempt < 20; attempt++) {
+            int item = item();
+            boolean taken = false;
+            for (int i = 0; i < count && !taken; i++) {
+                taken = chosen[i] == item;
+            }
+            if (!taken) {
+                return item;
+            }
+        }
+        return item();
+    }
+
+    private String status(int age) {
+        int roll = random.nextInt(100);
+        if (age < PENDING_WINDOW_DAYS) {
+            return roll < 40 ? "PENDING" : roll < 95 ? "PAID" : "CANCELLED";
+        }
+        return roll < 2 ? "PENDING" : roll < 94 ? "PAID" : "CANCELLED";
+    }
+
+    public static void main(String[] args) throws SQLException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        String url = options.get("url");
+        if (url == null) {
+            System.err.println("Usage: DataGenerator --url <jdbc url> [--user u] [--password p] [--customers 200000]"
+                    + " [--items 50000] [--bills 5000000] [--batch 1000] [--seed 42]");
+            System.exit(2);
+        }
+
+        int customers = Integer.parseInt(options.getOrDefault("customers", "200000"));
+        int items = Integer.parseInt(options.getOrDefault("items", "50000"));
+        int bills = Integer.parseInt(options.getOrDefault("bills", "5000000"));
+        long start = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(url, options.get("user"), options.get("password"))) {
+            Map<String, Long> inserted = new DataGenerator(connection,
+                    Long.parseLong(options.getOrDefault("seed", "42")),
+                    Integer.parseInt(options.getOrDefault("batch", "1000")))
+                    .generate(customers, items, bills);
+            System.out.printf("Inserted %,d customers, %,d items, %,d bills and %,d bill lines in %d s%n",
+                    inserted.get("customers"), inserted.get("items"), inserted.get("bills"), inserted.get("bill_items"),
+                    (System.nanoTime() - start) / 1_000_000_000L);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.BillItem;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Data Generator Tests")
+class DataGeneratorTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 30);
+
+    private static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";MODE=LEGACY;DB_CLOSE_DELAY=-1";
+    }
+
+    /**
+     * Create the schema through Hibernate, as the application does on H2
+     */
+    private static EntityManagerFactory createFactory(String name) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.url", url(name));
+        return Persistence.createEntityManagerFactory("pahanaedu-test-pu", properties);
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should insert consistent bills with realistic line counts")
+    void testGenerate() throws SQLException {
+        EntityManagerFactory emf = createFactory("datageneratortest");
+        try (Connection connection = DriverManager.getConnection(url("datageneratortest"), "sa", "")) {
+            Map<String, Long> inserted = new DataGenerator(connection, 42, 100, TODAY).generate(500, 200, 5000);
+
+            assertEquals(500L, inserted.get("customers"));
+            assertEquals(5000L, queryLong(connection, "SELECT COUNT(*) FROM bills"));
+            assertEquals(inserted.get("bill_items").longValue(), queryLong(connection, "SELECT COUNT(*) FROM bill_items"));
+            assertEquals(0, queryLong(connection, "SELECT COUNT(*) FROM bills b WHERE b.total_amount <> "
+                    + "(SELECT SUM(bi.total_price) FROM bill_items bi WHERE bi.bill_id = b.bill_id)"));
+            assertEquals(0, queryLong(connection, "SELECT COUNT(*) FROM (SELECT bill_id, item_id FROM bill_items "
+                    + "GROUP BY bill_id, item_id HAVING COUNT(*) > 1) d"));
+            assertEquals(0, queryLong(connection, "SELECT COUNT(*) FROM bills WHERE bill_date > DATE '2024-06-30' "
+                    + "OR bill_date <= DATE '2022-06-30'"));
+
+            long singleLine = queryLong(connection, "SELECT COUNT(*) FROM (SELECT bill_id FROM bill_items "
+                    + "GROUP BY bill_id HAVING COUNT(*) = 1) s");
+            assertTrue(singleLine > 1500 && singleLine < 2000, "Single-line bills: " + singleLine);
+            double linesPerBill = inserted.get("bill_items") / 5000.0;
+            assertTrue(linesPerBill > 2.3 && linesPerBill < 3.2, "Lines per bill: " + linesPerBill);
+            long paid = queryLong(connection, "SELECT COUNT(*) FROM bills WHERE status = 'PAID'");
+            assertTrue(paid > 4400, "Paid bills: " + paid);
+            // The regular fifth of customers place most bills
+            long regularBills = queryLong(connection, "SELECT COUNT(*) FROM bills WHERE account_number <= 'ACC000100'");
+            assertTrue(regularBills > 3500, "Bills of regular customers: " + regularBills);
+        }
+
+        // The application keeps allocating free ids after the generated rows
+        try {
+            Bill bill = EntityManagerHolder.inScope(emf, () -> TransactionTemplate.inTransaction(() -> {
+                EntityManager em = EntityManagerHolder.get();
+                Item item = new Item("After Generation", null, new BigDecimal("10.00"), 5, "Test");
+                em.persist(item);
+                Bill created = new Bill(em.find(Customer.class, "ACC000001"));
+                created.addBillItem(new BillItem(created, item, 1, item.getUnitPrice()));
+                em.persist(created);
+                return created;
+            }));
+            assertEquals(5001L, bill.getBillId());
+            assertEquals(201L, bill.getBillItems().get(0).getItem().getItemId());
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should produce the same data for the same seed and append on a second run")
+    void testReproducible() throws SQLException {
+        EntityManagerFactory first = createFactory("datageneratortest_a");
+        EntityManagerFactory second = createFactory("datageneratortest_b");
+        try (Connection a = DriverManager.getConnection(url("datageneratortest_a"), "sa", "");
+             Connection b = DriverManager.getConnection(url("datageneratortest_b"), "sa", "")) {
+            new DataGenerator(a, 7, 50, TODAY).generate(100, 50, 300);
+            new DataGenerator(b, 7, 50, TODAY).generate(100, 50, 300);
+
+            String fingerprint = "SELECT SUM(total_amount * bill_id), COUNT(DISTINCT account_number) FROM bills";
+            assertEquals(queryLong(a, fingerprint), queryLong(b, fingerprint));
+
+            new DataGenerator(a, 8, 50, TODAY).generate(100, 50, 300);
+            assertEquals(200, queryLong(a, "SELECT COUNT(*) FROM customers"));
+            assertEquals(600, queryLong(a, "SELECT MAX(bill_id) FROM bills"));
+            assertEquals(300, queryLong(a, "SELECT COUNT(*) FROM bills WHERE account_number > 'ACC000100'"));
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.dao.impl.ItemDAOImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import javax.persistence.EntityManager;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebFilter;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Request-Scoped EntityManager Filter Tests")
+class EntityManagerFilterTest {
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("emfiltertest")
+            .property("hibernate.connection.handling_mode", "DELAYED_ACQUISITION_AND_HOLD");
+
+    @AfterEach
+    void tearDown() {
+        if (EntityManagerHolder.isBound()) {
+            EntityManagerHolder.unbind();
+        }
+    }
+
+    private static long openDatabaseSessions() {
+        return database.inScope(() -> ((Number) EntityManagerHolder.get()
+                .createNativeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS")
+                .getSingleResult()).longValue());
+    }
+
+    @Nested
+    @DisplayName("Holder Tests")
+    class HolderTests {
+
+        @Test
+        @DisplayName("Should create EntityManager lazily and reuse it within a scope")
+        void testLazyCreationAndReuse() {
+            EntityManagerHolder.bind(database.getEntityManagerFactory());
+
+            assertEquals(0, database.getStatistics().getSessionOpenCount());
+            EntityManager first = EntityManagerHolder.get();
+            EntityManager second = EntityManagerHolder.get();
+
+            assertSame(first, second);
+            assertTrue(EntityManagerHolder.isCurrent(first));
+            assertEquals(1, database.getStatistics().getSessionOpenCount());
+
+            EntityManagerHolder.unbind();
+
+            assertFalse(first.isOpen());
+            assertFalse(EntityManagerHolder.isBound());
+            assertNull(EntityManagerHolder.get());
+        }
+
+        @Test
+        @DisplayName("Should reject binding twice on the same thread")
+        void testDoubleBind() {
+            EntityManagerHolder.bind(database.getEntityManagerFactory());
+            assertThrows(IllegalStateException.class, () -> EntityManagerHolder.bind(database.getEntityManagerFactory()));
+        }
+
+        @Test
+        @DisplayName("Should roll back a transaction left open at unbind")
+        void testRollbackOnUnbind() {
+            EntityManagerHolder.bind(database.getEntityManagerFactory());
+            EntityManager em = EntityManagerHolder.get();
+            em.getTransaction().begin();
+
+            EntityManagerHolder.unbind();
+
+            assertFalse(em.isOpen());
+            assertFalse(EntityManagerHolder.isBound());
+        }
+    }
+
+    @Nested
+    @DisplayName("Filter Tests")
+    class FilterTests {
+
+        @Test
+        @DisplayName("Should route DAO calls through the request EntityManager and close it")
+        void testDaoUsesRequestEntityManager() throws IOException, ServletException {
+            EntityManagerFilter filter = new EntityManagerFilter(database.getEntityManagerFactory());
+            ItemDAOImpl itemDAO = new ItemDAOImpl();
+            AtomicReference<EntityManager> requestEm = new AtomicReference<>();
+
+            filter.doFilter(null, null, (req, res) -> {
+                itemDAO.count();
+                itemDAO.findAll();
+                itemDAO.findOutOfStockItems();
+                requestEm.set(EntityManagerHolder.get());
+            });
+
+            assertEquals(1, database.getStatistics().getSessionOpenCount());
+            assertEquals(1, database.getStatistics().getSessionCloseCount());
+            assertFalse(requestEm.get().isOpen());
+            assertFalse(EntityManagerHolder.isBound());
+        }
+
+        @Test
+        @DisplayName("Should not open an EntityManager for requests that never use one")
+        void testNoDatabaseAccess() throws IOException, ServletException {
+            new EntityManagerFilter(database.getEntityManagerFactory()).doFilter(null, null, (req, res) -> { });
+
+            assertEquals(0, database.getStatistics().getSessionOpenCount());
+            assertEquals(0, database.getStatistics().getConnectCount());
+        }
+
+        @Test
+        @DisplayName("Should close the EntityManager when the request fails")
+        void testCloseOnException() {
+            EntityManagerFilter filter = new EntityManagerFilter(database.getEntityManagerFactory());
+
+            assertThrows(ServletException.class, () -> filter.doFilter(null, null, (req, res) -> {
+                EntityManagerHolder.get().getTransaction().begin();
+                throw new ServletException("boom");
+            }));
+
+            assertEquals(database.getStatistics().getSessionOpenCount(), database.getStatistics().getSessionCloseCount());
+            assertFalse(EntityManagerHolder.isBound());
+        }
+
+        @Test
+        @DisplayName("Should reuse the outer scope on nested dispatch")
+        void testNestedDispatch() throws IOException, ServletException {
+            EntityManagerFilter filter = new EntityManagerFilter(database.getEntityManagerFactory());
+            AtomicReference<EntityManager> inner = new AtomicReference<>();
+
+            filter.doFilter(null, null, (req, res) -> {
+                EntityManager outer = EntityManagerHolder.get();
+                filter.doFilter(req, res, (req2, res2) -> inner.set(EntityManagerHolder.get()));
+                assertSame(outer, inner.get());
+                assertTrue(outer.isOpen());
+            });
+
+            assertEquals(1, database.getStatistics().getSessionOpenCount());
+        }
+
+        @Test
+        @DisplayName("Should keep connection count flat across 10k requests")
+        void testNoLeakAcross10kRequests() throws IOException, ServletException {
+            EntityManagerFilter filter = new EntityManagerFilter(database.getEntityManagerFactory());
+            ItemDAOImpl itemDAO = new ItemDAOImpl();
+            long sessionsBefore = openDatabaseSessions();
+            database.getStatistics().clear();
+
+            int requests = 10_000;
+            for (int i = 0; i < requests; i++) {
+                filter.doFilter(null, null, (req, res) -> {
+                    itemDAO.count();
+                    itemDAO.findLowStockItems(5);
+                });
+            }
+
+            assertEquals(requests, database.getStatistics().getSessionOpenCount());
+            assertEquals(requests, database.getStatistics().getSessionCloseCount());
+            // At most one connection acquisition per request
+            assertTrue(database.getStatistics().getConnectCount() <= requests);
+            assertEquals(sessionsBefore, openDatabaseSessions());
+        }
+
+        @Test
+        @DisplayName("Should count requests that repeat one SELECT past the limit")
+        void testRepeatedSelectReported() throws IOException, ServletException {
+            EntityManagerFilter filter = new EntityManagerFilter(database.getEntityManagerFactory());
+            ItemDAOImpl itemDAO = new ItemDAOImpl();
+            MetricsRegistry.Counter repeated = ServiceFactory.getMetricsRegistry().counter(
+                    "pahanaedu_sql_requests_repeated_select_total", "");
+            long before = repeated.get();
+
+            filter.doFilter(null, null, (req, res) -> itemDAO.findById(1L));
+            assertEquals(before, repeated.get());
+
+            filter.doFilter(null, null, (req, res) -> {
+                for (long id = 1; id <= 21; id++) {
+                    itemDAO.findById(id);
+                }
+            });
+            assertEquals(before + 1, repeated.get());
+        }
+
+        @Test
+        @DisplayName("Should be mapped in web.xml ahead of the authentication filter")
+        void testMappingOrder() throws Exception {
+            Document webXml = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new File("src/main/webapp/WEB-INF/web.xml"));
+            NodeList mappings = webXml.getElementsByTagName("filter-name");
+            List<String> order = new ArrayList<>();
+            for (int i = 0; i < mappings.getLength(); i++) {
+                order.add(mappings.item(i).getTextContent().trim());
+            }
+
+            assertEquals(0, order.indexOf("EntityManagerFilter"));
+            assertTrue(order.indexOf("AuthenticationFilter") > 0, "Mapped " + order);
+            // Annotation URL patterns would add mappings in no defined order
+            for (Class<?> filter : List.of(EntityManagerFilter.class, CompressionFilter.class, AuthenticationFilter.class)) {
+                WebFilter annotation = filter.getAnnotation(WebFilter.class);
+                assertEquals(0, annotation.urlPatterns().length + annotation.value().length, filter.getSimpleName());
+            }
+        }
+    }
+}
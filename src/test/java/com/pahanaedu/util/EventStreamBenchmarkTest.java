@@ -0,0 +1,68 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.Benchmark;
+import com.pahanaedu.service.DashboardFeed;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Broadcasting one dashboard tick to 500 connected browsers
+ */
+@DisplayName("Event Stream Benchmark Tests")
+class EventStreamBenchmarkTest {
+
+    /**
+     * Browser connection that takes every event and keeps nothing
+     */
+    private static final class DiscardingChannel implements EventStream.Channel {
+        long events;
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void write(byte[] event) {
+            events++;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    @DisplayName("Should broadcast a tick to 500 browsers on the polling thread")
+    void testBroadcast() {
+        int clientCount = 500;
+        EventStream stream = new EventStream(1000, 64);
+        DiscardingChannel[] channels = new DiscardingChannel[clientCount];
+        for (int i = 0; i < clientCount; i++) {
+            channels[i] = new DiscardingChannel();
+            stream.register(channels[i], EventStream.HEARTBEAT);
+        }
+
+        long[] tick = new long[1];
+        Benchmark.Result result = Benchmark.run("eventstream.broadcast.clients500", () -> {
+            Map<String, Object> figures = new LinkedHashMap<>();
+            figures.put("todaysRevenue", new BigDecimal("125.50"));
+            figures.put("pendingBills", ++tick[0]);
+            return stream.broadcast(EventStream.event("dashboard", DashboardFeed.toJson(figures)));
+        });
+
+        assertEquals(clientCount, stream.getClientCount());
+        assertEquals(channels[0].events, channels[clientCount - 1].events);
+        assertTrue(result.getOperations() > 0);
+    }
+}
@@ -0,0 +1,224 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.service.DashboardFeed;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Event Stream Tests")
+class EventStreamTest {
+
+    private static final byte[] HELLO = EventStream.event("dashboard", "{\"pendingBills\":1}");
+
+    /**
+     * Browser connection that records what was written and can stop taking output
+     */
+    private static final class RecordingChannel implements EventStream.Channel {
+        private final StringBuilder written = new StringBuilder();
+        private final AtomicBoolean ready = new AtomicBoolean(true);
+        private final AtomicInteger events = new AtomicInteger();
+        private volatile boolean closed;
+
+        @Override
+        public boolean isReady() {
+            return ready.get();
+        }
+
+        @Override
+        public synchronized void write(byte[] event) throws IOException {
+            if (closed) {
+                throw new IOException("Broken pipe");
+            }
+            written.append(new String(event, StandardCharsets.UTF_8));
+            events.incrementAndGet();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        synchronized String written() {
+            return written.toString();
+        }
+    }
+
+    @Nested
+    @DisplayName("Stream Tests")
+    class StreamTests {
+
+        @Test
+        @DisplayName("Should format events with one data field per line")
+        void testEventFormat() {
+            assertEquals("event: dashboard\ndata: {\"a\":1}\n\n",
+                    new String(EventStream.event("dashboard", "{\"a\":1}"), StandardCharsets.UTF_8));
+            assertEquals("event: note\ndata: one\ndata: two\n\n",
+                    new String(EventStream.event("note", "one\ntwo"), StandardCharsets.UTF_8));
+        }
+
+        @Test
+        @DisplayName("Should send the first event on connect and broadcasts in order")
+        void testBroadcast() {
+            EventStream stream = new EventStream(10, 4);
+            RecordingChannel channel = new RecordingChannel();
+            stream.register(channel, HELLO);
+
+            assertEquals(1, stream.broadcast(EventStream.event("dashboard", "{\"pendingBills\":2}")));
+            assertEquals(1, stream.broadcast(EventStream.HEARTBEAT));
+
+            assertEquals("event: dashboard\ndata: {\"pendingBills\":1}\n\n"
+                    + "event: dashboard\ndata: {\"pendingBills\":2}\n\n"
+                    + ": keep-alive\n\n", channel.written());
+        }
+
+        @Test
+        @DisplayName("Should queue while a client is not ready and write when it is again")
+        void testBacklog() {
+            EventStream stream = new EventStream(10, 4);
+            RecordingChannel channel = new RecordingChannel();
+            EventStream.Client client = stream.register(channel, HELLO);
+
+            channel.ready.set(false);
+            stream.broadcast(EventStream.event("dashboard", "{\"pendingBills\":2}"));
+            stream.broadcast(EventStream.event("dashboard", "{\"pendingBills\":3}"));
+            assertEquals(2, client.getBacklog());
+            assertEquals(1, channel.events.get());
+
+            // What the container's onWritePossible does
+            channel.ready.set(true);
+            client.drain();
+            assertEquals(0, client.getBacklog());
+            assertTrue(channel.written().endsWith("{\"pendingBills\":2}\n\nevent: dashboard\ndata: {\"pendingBills\":3}\n\n"));
+        }
+
+        @Test
+        @DisplayName("Should drop a client that falls too far behind or goes away")
+        void testDropClients() {
+            EventStream stream = new EventStream(10, 3);
+            RecordingChannel stalled = new RecordingChannel();
+            RecordingChannel gone = new RecordingChannel();
+            RecordingChannel reading = new RecordingChannel();
+            stream.register(stalled, HELLO);
+            stream.register(gone, HELLO);
+            stream.register(reading, HELLO);
+
+            stalled.ready.set(false);
+            gone.close();
+            for (int i = 0; i < 4; i++) {
+                stream.broadcast(EventStream.HEARTBEAT);
+            }
+
+            assertTrue(stalled.closed);
+            assertEquals(1, stream.getClientCount());
+            assertEquals(5, reading.events.get());
+            assertEquals(1, stream.broadcast(EventStream.HEARTBEAT));
+        }
+    }
+
+    @Nested
+    @DisplayName("Load Tests")
+    class LoadTests {
+
+        @Test
+        @DisplayName("Should push figure changes to 500 connected browsers from one thread")
+        void testFiveHundredClients() throws InterruptedException {
+            int clientCount = 500;
+            int ticks = 1000;
+            EventStream stream = new EventStream(1000, 64);
+
+            // Pending bills change on every tick; revenue on every tenth
+            AtomicInteger tick = new AtomicInteger();
+            DashboardFeed feed = new DashboardFeed(null, () -> {
+                int n = tick.get();
+                Map<String, Object> figures = new LinkedHashMap<>();
+                figures.put("todaysRevenue", new BigDecimal("125.50").multiply(BigDecimal.valueOf(n / 10)));
+                figures.put("pendingBills", (long) n);
+                figures.put("lowStockItems", 3L);
+                return figures;
+            }, 0);
+            feed.poll();
+
+            // Every tenth browser is on a slow link: it stops taking output after each event
+            // until the container's I/O threads report it writable again
+            List<RecordingChannel> channels = new ArrayList<>();
+            List<EventStream.Client> slow = new ArrayList<>();
+            for (int i = 0; i < clientCount; i++) {
+                RecordingChannel channel = new RecordingChannel();
+                channels.add(channel);
+                EventStream.Client client = stream.register(channel,
+                        EventStream.event("dashboard", DashboardFeed.toJson(feed.getCurrent())));
+                if (i % 10 == 0) {
+                    channel.ready.set(false);
+                    slow.add(client);
+                }
+            }
+            ExecutorService ioThreads = Executors.newFixedThreadPool(2);
+            AtomicBoolean running = new AtomicBoolean(true);
+            for (int t = 0; t < 2; t++) {
+                int offset = t;
+                ioThreads.submit(() -> {
+                    while (running.get()) {
+                        for (int i = offset; i < slow.size(); i += 2) {
+                            RecordingChannel channel = channels.get(i * 10);
+                            channel.ready.set(true);
+                            slow.get(i).drain();
+                            channel.ready.set(false);
+                        }
+                        Thread.onSpinWait();
+                    }
+                });
+            }
+
+            int delivered = 0;
+            for (int i = 1; i <= ticks; i++) {
+                tick.set(i);
+                Map<String, Object> changed = feed.poll();
+                delivered += stream.broadcast(EventStream.event("dashboard", DashboardFeed.toJson(changed)));
+            }
+
+            // Let the I/O threads catch up with the slow browsers
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (slow.stream().anyMatch(client -> client.getBacklog() > 0) && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            running.set(false);
+            ioThreads.shutdown();
+            assertTrue(ioThreads.awaitTermination(5, TimeUnit.SECONDS));
+
+            int dropped = 0;
+            for (int i = 0; i < clientCount; i++) {
+                RecordingChannel channel = channels.get(i);
+                if (channel.closed) {
+                    dropped++;
+                    continue;
+                }
+                assertEquals(ticks + 1, channel.events.get(), "Browser " + i);
+                assertTrue(channel.written().endsWith("data: {\"todaysRevenue\":12550.00,\"pendingBills\":1000}\n\n"),
+                        "Browser " + i);
+            }
+            assertTrue(dropped <= slow.size(), "Dropped " + dropped + " browsers");
+            // Every browser still connected was sent or queued every tick
+            assertTrue(delivered >= ticks * (clientCount - dropped), "Delivered " + delivered + " events");
+            assertEquals(clientCount - dropped, stream.getClientCount());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.dao.CustomerDAO;
+import com.pahanaedu.dao.impl.CustomerDAOImpl;
+import com.pahanaedu.dao.impl.ItemDAOImpl;
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.model.User;
+import com.pahanaedu.service.CustomerCache;
+import com.pahanaedu.service.impl.SimpleBillingServiceImpl;
+import com.pahanaedu.service.impl.UserServiceImpl;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Flight Recorder Event Tests")
+class FlightRecorderEventsTest {
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("flightrecordertest");
+
+    private Recording recording;
+    private Long billId;
+    private Long itemId;
+
+    @BeforeEach
+    void setUp() {
+        database.inTransaction(() -> {
+            EntityManager em = EntityManagerHolder.get();
+            em.createQuery("DELETE FROM BillItem").executeUpdate();
+            em.createQuery("DELETE FROM Bill").executeUpdate();
+            em.createQuery("DELETE FROM Item").executeUpdate();
+            em.createQuery("DELETE FROM Customer").executeUpdate();
+            em.createQuery("DELETE FROM User").executeUpdate();
+
+            Customer customer = new Customer("ACC950", "Recorded Customer");
+            em.persist(customer);
+            Item item = new Item("Atlas", null, new BigDecimal("30.00"), 10, "Books");
+            em.persist(item);
+            Bill bill = new Bill(customer);
+            em.persist(bill);
+            em.persist(new User("recorded", PasswordUtil.hashPassword("s3cret!Pass"), User.UserRole.OPERATOR));
+
+            itemId = item.getItemId();
+            billId = bill.getBillId();
+            return null;
+        });
+
+        recording = new Recording();
+        recording.enable(BillMutationEvent.class);
+        recording.enable(DaoQueryEvent.class);
+        recording.enable(LoginEvent.class);
+        recording.enable(CacheAccessEvent.class);
+        recording.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        recording.close();
+    }
+
+    @Test
+    @DisplayName("Should record a bill mutation and the DAO calls it made")
+    void testBillMutation() throws Exception {
+        database.inScope(() -> new SimpleBillingServiceImpl().addItemToBill(billId, itemId, 2));
+        assertThrows(IllegalArgumentException.class, () ->
+                database.inScope(() -> new SimpleBillingServiceImpl().markBillAsPaid(-1L)));
+
+        List<RecordedEvent> mutations = events("com.pahanaedu.BillMutation");
+        assertEquals(2, mutations.size());
+        RecordedEvent added = mutations.get(0);
+        assertEquals("addItemToBill", added.getString("action"));
+        assertEquals(billId.longValue(), added.getLong("billId"));
+        assertEquals(1, added.getInt("lineCount"));
+        assertTrue(added.getBoolean("succeeded"));
+        assertFalse(mutations.get(1).getBoolean("succeeded"));
+        assertEquals(-1L, mutations.get(1).getLong("billId"));
+
+        RecordedEvent find = events("com.pahanaedu.DaoQuery").stream()
+                .filter(e -> "findByBillId".equals(e.getString("method")))
+                .findFirst().orElseThrow(AssertionError::new);
+        assertEquals("BillDAOImpl", find.getString("daoClass"));
+        assertEquals(1, find.getInt("rowCount"));
+        assertTrue(find.getBoolean("succeeded"));
+        // The paid-bill lookup found nothing
+        assertTrue(events("com.pahanaedu.DaoQuery").stream()
+                .anyMatch(e -> "findByBillId".equals(e.getString("method")) && e.getInt("rowCount") == 0));
+    }
+
+    @Test
+    @DisplayName("Should record calls on DAOs that are not instrumented")
+    void testUninstrumentedDao() throws Exception {
+        database.inScope(() -> new CustomerDAOImpl().findByNameContaining("Recorded"));
+        assertThrows(IllegalArgumentException.class, () ->
+                database.inScope(() -> new ItemDAOImpl().decrementStock(itemId, 11)));
+
+        List<RecordedEvent> queries = events("com.pahanaedu.DaoQuery");
+        RecordedEvent search = queries.stream()
+                .filter(e -> "findByNameContaining".equals(e.getString("method")))
+                .findFirst().orElseThrow(AssertionError::new);
+        assertEquals("CustomerDAOImpl", search.getString("daoClass"));
+        assertEquals(1, search.getInt("rowCount"));
+        assertTrue(search.getBoolean("succeeded"));
+        RecordedEvent decrement = queries.stream()
+                .filter(e -> "decrementStock".equals(e.getString("method")))
+                .findFirst().orElseThrow(AssertionError::new);
+        assertEquals("ItemDAOImpl", decrement.getString("daoClass"));
+        assertFalse(decrement.getBoolean("succeeded"));
+    }
+
+    @Test
+    @DisplayName("Should record cache misses and hits")
+    void testCacheAccess() throws Exception {
+        CustomerDAO customerDAO = ServiceFactory.getMetricsRegistry().instrument(CustomerDAO.class, new CustomerDAOImpl(), "dao");
+        CustomerCache cache = new CustomerCache(customerDAO, 1, TimeUnit.MINUTES, 10);
+        database.inScope(() -> {
+            cache.get("ACC950");
+            cache.get("ACC950");
+            return cache.getSummaries();
+        });
+
+        List<RecordedEvent> accesses = events("com.pahanaedu.CacheAccess");
+        assertEquals(3, accesses.size());
+        assertEquals("ACC950", accesses.get(0).getString("key"));
+        assertFalse(accesses.get(0).getBoolean("hit"));
+        assertTrue(accesses.get(1).getBoolean("hit"));
+        assertEquals("customerList", accesses.get(2).getString("cache"));
+        assertNull(accesses.get(2).getString("key"));
+    }
+
+    @Test
+    @DisplayName("Should record password checks")
+    void testLogin() throws Exception {
+        UserServiceImpl userService = new UserServiceImpl();
+        database.inScope(() -> {
+            assertTrue(userService.authenticateUser("recorded", "s3cret!Pass").isPresent());
+            assertFalse(userService.authenticateUser("recorded", "wrong").isPresent());
+            return null;
+        });
+
+        List<RecordedEvent> logins = events("com.pahanaedu.Login");
+        assertEquals(2, logins.size());
+        assertEquals("recorded", logins.get(0).getString("username"));
+        assertTrue(logins.get(0).getBoolean("succeeded"));
+        assertFalse(logins.get(1).getBoolean("succeeded"));
+    }
+
+    private List<RecordedEvent> events(String name) throws Exception {
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        Path file = Files.createTempFile("pahanaedu", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().equals(name))
+                    .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
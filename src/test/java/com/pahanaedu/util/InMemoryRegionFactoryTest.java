@@ -0,0 +1,245 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.dao.impl.ItemDAOImpl;
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import com.pahanaedu.service.CustomerCache;
+import com.pahanaedu.service.StockConsistencyChecker;
+import com.pahanaedu.service.impl.SimpleBillingServiceImpl;
+import com.pahanaedu.service.impl.SimpleItemServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("In-Memory Region Factory Tests")
+class InMemoryRegionFactoryTest {
+
+    @Nested
+    @DisplayName("Storage Tests")
+    class StorageTests {
+
+        @Test
+        @DisplayName("Should evict the least recently used entry")
+        void testLruEviction() {
+            InMemoryRegionFactory.BoundedStorage storage = new InMemoryRegionFactory.BoundedStorage("test", 2);
+            storage.putIntoCache("a", 1, null);
+            storage.putIntoCache("b", 2, null);
+            // Touch "a" so "b" is the eldest
+            assertEquals(1, storage.getFromCache("a", null));
+            storage.putIntoCache("c", 3, null);
+
+            assertTrue(storage.contains("a"));
+            assertFalse(storage.contains("b"));
+            assertTrue(storage.contains("c"));
+            assertNull(storage.getFromCache("b", null));
+
+            InMemoryRegionFactory.RegionStatistics stats = storage.statistics();
+            assertEquals(2, stats.getSize());
+            assertEquals(1, stats.getHits());
+            assertEquals(1, stats.getMisses());
+            assertEquals(3, stats.getPuts());
+            assertEquals(1, stats.getEvictions());
+        }
+
+        @Test
+        @DisplayName("Should remove single entries and clear the region")
+        void testEviction() {
+            InMemoryRegionFactory.BoundedStorage storage = new InMemoryRegionFactory.BoundedStorage("test", 10);
+            storage.putIntoCache("a", 1, null);
+            storage.putIntoCache("b", 2, null);
+
+            storage.evictData("a");
+            assertFalse(storage.contains("a"));
+            assertTrue(storage.contains("b"));
+
+            storage.evictData();
+            assertEquals(0, storage.statistics().getSize());
+        }
+
+        @Test
+        @DisplayName("Should stripe large regions and keep them within the bound")
+        void testStripes() {
+            assertEquals(1, new InMemoryRegionFactory.BoundedStorage("small", 100).stripeCount());
+            InMemoryRegionFactory.BoundedStorage storage = new InMemoryRegionFactory.BoundedStorage("large", 10000);
+            assertEquals(16, storage.stripeCount());
+
+            for (int i = 0; i < 30000; i++) {
+                storage.putIntoCache(i, i, null);
+            }
+
+            InMemoryRegionFactory.RegionStatistics stats = storage.statistics();
+            assertTrue(stats.getSize() <= 10000);
+            assertTrue(stats.getSize() > 9000);
+            assertEquals(30000 - stats.getSize(), stats.getEvictions());
+            // The most recent entries survive, the oldest are gone
+            assertEquals(29999, storage.getFromCache(29999, null));
+            assertFalse(storage.contains(0));
+        }
+    }
+
+    @Nested
+    @DisplayName("Item Cache Tests")
+    class ItemCacheTests {
+
+        private static final int CATALOG = 20;
+
+        private EntityManagerFactory emf;
+        private Statistics statistics;
+        private InMemoryRegionFactory regionFactory;
+        private List<Long> itemIds;
+
+        @BeforeEach
+        void setUp() {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:itemcachetest;MODE=LEGACY;DB_CLOSE_DELAY=-1");
+            properties.put("javax.persistence.sharedCache.mode", "ENABLE_SELECTIVE");
+            properties.put("hibernate.cache.use_second_level_cache", "true");
+            properties.put("hibernate.cache.region.factory_class", InMemoryRegionFactory.class.getName());
+            properties.put("hibernate.generate_statistics", "true");
+            emf = Persistence.createEntityManagerFactory("pahanaedu-test-pu", properties);
+            statistics = emf.unwrap(SessionFactory.class).getStatistics();
+            regionFactory = (InMemoryRegionFactory) emf.unwrap(SessionFactoryImplementor.class)
+                    .getServiceRegistry().getService(RegionFactory.class);
+
+            itemIds = EntityManagerHolder.inScope(emf, () -> TransactionTemplate.inTransaction(() -> {
+                EntityManager em = EntityManagerHolder.get();
+                em.persist(new Customer("ACC950", "Cache Customer"));
+                List<Long> ids = new ArrayList<>();
+                for (int i = 0; i < CATALOG; i++) {
+                    Item item = new Item("Cached Item " + i, null, new BigDecimal("3.00"), 100, "Cache");
+                    em.persist(item);
+                    ids.add(item.getItemId());
+                }
+                return ids;
+            }));
+            emf.getCache().evictAll();
+        }
+
+        @AfterEach
+        void tearDown() {
+            emf.close();
+        }
+
+        private Item find(Long itemId) {
+            return EntityManagerHolder.inScope(emf, () -> new ItemDAOImpl().findByItemId(itemId).orElse(null));
+        }
+
+        private InMemoryRegionFactory.RegionStatistics itemRegion() {
+            return regionFactory.getStatistics(Item.CACHE_REGION);
+        }
+
+        @Test
+        @DisplayName("Should serve repeated item reads from the cache")
+        void testCatalogReadsHitCache() {
+            InMemoryRegionFactory.RegionStatistics before = itemRegion();
+            itemIds.forEach(this::find);
+            statistics.clear();
+
+            for (int round = 0; round < 5; round++) {
+                itemIds.forEach(id -> assertNotNull(find(id)));
+            }
+
+            assertEquals(0, statistics.getPrepareStatementCount());
+            assertEquals(5L * CATALOG, itemRegion().getHits() - before.getHits());
+            // One load and one put per item; nothing after the first round
+            assertEquals(CATALOG, itemRegion().getPuts() - before.getPuts());
+        }
+
+        @Test
+        @DisplayName("Should evict only the item whose stock changed and reload it on the next read")
+        void testStockUpdateEvictsOneItem() {
+            itemIds.forEach(this::find);
+            Long sold = itemIds.get(0);
+            InMemoryRegionFactory.RegionStatistics before = itemRegion();
+
+            EntityManagerHolder.inScope(emf, () -> new ItemDAOImpl().decrementStock(sold, 3));
+
+            assertFalse(emf.getCache().contains(Item.class, sold));
+            assertTrue(itemIds.stream().skip(1).allMatch(id -> emf.getCache().contains(Item.class, id)));
+            assertEquals(0, itemRegion().getPuts() - before.getPuts());
+            statistics.clear();
+            assertEquals(97, find(sold).getStockQuantity());
+            assertEquals(1, statistics.getPrepareStatementCount());
+            assertTrue(emf.getCache().contains(Item.class, sold));
+        }
+
+        @Test
+        @DisplayName("Should serve the in-stock list from the item cache until the catalog changes")
+        void testItemsInStock() {
+            SimpleItemServiceImpl itemService = new SimpleItemServiceImpl(new ItemDAOImpl(), new StockConsistencyChecker());
+            assertEquals(CATALOG, EntityManagerHolder.inScope(emf, itemService::getItemsInStock).size());
+
+            statistics.clear();
+            List<Item> again = EntityManagerHolder.inScope(emf, itemService::getItemsInStock);
+            assertEquals(CATALOG, again.size());
+            assertEquals(0, statistics.getPrepareStatementCount());
+
+            EntityManagerHolder.inScope(emf, () -> new ItemDAOImpl().decrementStock(itemIds.get(0), 100));
+            List<Item> inStock = EntityManagerHolder.inScope(emf, itemService::getItemsInStock);
+            assertEquals(CATALOG - 1, inStock.size());
+            assertTrue(inStock.stream().noneMatch(item -> item.getItemId().equals(itemIds.get(0))));
+        }
+
+        @Test
+        @DisplayName("Should keep cached stock current through a checkout in both stock modes")
+        void testCheckoutKeepsStockCurrent() {
+            for (StockMutationMode mode : StockMutationMode.values()) {
+                Long itemId = itemIds.get(mode.ordinal() + 2);
+                find(itemId);
+                if (mode == StockMutationMode.DATABASE_TRIGGER) {
+                    // Stand-in for the trigger: the database changes stock without Hibernate
+                    EntityManagerHolder.inScope(emf, () -> TransactionTemplate.inTransaction(() ->
+                            EntityManagerHolder.get().createNativeQuery(
+                                    "UPDATE items SET stock_quantity = stock_quantity - 4 WHERE item_id = " + itemId)
+                                    .unwrap(org.hibernate.query.NativeQuery.class)
+                                    .addSynchronizedQuerySpace("none")
+                                    .executeUpdate()));
+                }
+
+                SimpleBillingServiceImpl billingService = EntityManagerHolder.inScope(emf,
+                        () -> new SimpleBillingServiceImpl(mode, new StockConsistencyChecker(), new CustomerCache()));
+                EntityManagerHolder.inScope(emf, () -> {
+                    Bill bill = billingService.createBill("ACC950");
+                    return billingService.addItemToBill(bill.getBillId(), itemId, 4);
+                });
+
+                assertEquals(96, find(itemId).getStockQuantity(), "Stock after checkout in " + mode);
+            }
+        }
+
+        @Test
+        @DisplayName("Should report region statistics through the factory")
+        void testStatistics() {
+            InMemoryRegionFactory.RegionStatistics before = itemRegion();
+            find(itemIds.get(0));
+            find(itemIds.get(0));
+
+            InMemoryRegionFactory.RegionStatistics stats = itemRegion();
+            assertEquals(1, stats.getHits() - before.getHits());
+            assertTrue(stats.getMisses() > before.getMisses());
+            assertEquals(1, stats.getSize());
+            assertTrue(stats.getHitRatio() > 0 && stats.getHitRatio() < 1);
+            assertNull(regionFactory.getStatistics("no-such-region"));
+        }
+    }
+}
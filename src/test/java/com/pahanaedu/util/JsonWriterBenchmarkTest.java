@@ -0,0 +1,66 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.Benchmark;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.Writer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Writing a large JSON list with JsonWriter against the StringBuilder code it replaced
+ */
+@DisplayName("JSON Writer Benchmark Tests")
+class JsonWriterBenchmarkTest {
+
+    private static final int ROWS = 20_000;
+
+    /**
+     * Writer that only counts characters, standing in for the response stream
+     */
+    private static final class CountingWriter extends Writer {
+        long chars;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            chars += length;
+        }
+
+        @Override
+        public void write(int c) {
+            chars++;
+        }
+
+        @Override
+        public void write(String str, int offset, int length) {
+            chars += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    @DisplayName("Should write a large list faster and without building it in memory")
+    void testLargeList() {
+        Benchmark.Result legacy = Benchmark.run("json.writer.legacy." + ROWS, 500, 1000, () -> {
+            CountingWriter out = new CountingWriter();
+            JsonWriterTest.writeLegacy(out, ROWS);
+            return out;
+        });
+        Benchmark.Result streaming = Benchmark.run("json.writer.streaming." + ROWS, 500, 1000, () -> {
+            CountingWriter out = new CountingWriter();
+            JsonWriterTest.writeStreaming(out, ROWS);
+            return out;
+        });
+
+        assertTrue(streaming.getBytesPerOp() < legacy.getBytesPerOp() / 2,
+                "JsonWriter allocated " + streaming.getBytesPerOp() + " bytes vs " + legacy.getBytesPerOp());
+    }
+}
@@ -0,0 +1,158 @@
+package com.pahanaedu.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JSON Writer Tests")
+class JsonWriterTest {
+
+    private interface JsonWork {
+        void write(JsonWriter json) throws IOException;
+    }
+
+    private static String write(JsonWork work) throws IOException {
+        StringWriter out = new StringWriter();
+        work.write(new JsonWriter(out));
+        return out.toString();
+    }
+
+    @Nested
+    @DisplayName("Output Tests")
+    class OutputTests {
+
+        @Test
+        @DisplayName("Should write nested objects and arrays with separators")
+        void testStructure() throws IOException {
+            String json = write(w -> w.beginObject()
+                    .name("billId").value(7L)
+                    .name("paid").value(false)
+                    .name("lines").beginArray()
+                        .beginObject().name("qty").value(2).endObject()
+                        .beginObject().name("qty").value(3).endObject()
+                    .endArray()
+                    .name("empty").beginArray().endArray()
+                    .name("note").nullValue()
+                    .endObject());
+
+            assertEquals("{\"billId\":7,\"paid\":false,\"lines\":[{\"qty\":2},{\"qty\":3}],\"empty\":[],\"note\":null}", json);
+        }
+
+        @Test
+        @DisplayName("Should write decimals in plain notation and dates as ISO strings")
+        void testTypedValues() throws IOException {
+            String json = write(w -> w.beginArray()
+                    .value(new BigDecimal("1E+3"))
+                    .value(new BigDecimal("12.50"))
+                    .value(LocalDate.of(2024, 2, 29))
+                    .value((BigDecimal) null)
+                    .value((LocalDate) null)
+                    .value(Integer.valueOf(5))
+                    .value((Long) null)
+                    .endArray());
+
+            assertEquals("[1000,12.50,\"2024-02-29\",null,null,5,null]", json);
+        }
+
+        @Test
+        @DisplayName("Should escape quotes, backslashes and control characters")
+        void testEscaping() throws IOException {
+            String json = write(w -> w.value("a\"b\\c\nd\re\tf\bg\fh\u0001i\u001fj\u2028k/\u00e9"));
+
+            assertEquals("\"a\\\"b\\\\c\\nd\\re\\tf\\bg\\fh\\u0001i\\u001fj\\u2028k/\u00e9\"", json);
+        }
+
+        @Test
+        @DisplayName("Should write error objects")
+        void testError() throws IOException {
+            StringWriter out = new StringWriter();
+            JsonWriter.writeError(out, "Quantity \"x\" is invalid");
+            assertEquals("{\"error\":\"Quantity \\\"x\\\" is invalid\"}", out.toString());
+        }
+    }
+
+    @Nested
+    @DisplayName("Structure Check Tests")
+    class StructureCheckTests {
+
+        @Test
+        @DisplayName("Should reject values without names and mismatched brackets")
+        void testMisuse() throws IOException {
+            JsonWriter object = new JsonWriter(new StringWriter()).beginObject();
+            assertThrows(IllegalStateException.class, () -> object.value("no name"));
+            assertThrows(IllegalStateException.class, object::endArray);
+
+            JsonWriter array = new JsonWriter(new StringWriter()).beginArray();
+            assertThrows(IllegalStateException.class, () -> array.name("x"));
+            assertThrows(IllegalStateException.class, () -> new JsonWriter(new StringWriter()).endObject());
+        }
+    }
+
+    /**
+     * The replaced servlet code: five String.replace passes, whole document in a StringBuilder
+     */
+    private static String legacyEscapeJson(String input) {
+        if (input == null) return "";
+        return input.replace("\\", "\\\\")
+                   .replace("\"", "\\\"")
+                   .replace("\n", "\\n")
+                   .replace("\r", "\\r")
+                   .replace("\t", "\\t");
+    }
+
+    static void writeLegacy(Writer out, int rows) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) json.append(",");
+            json.append("{");
+            json.append("\"itemId\":").append((long) i).append(",");
+            json.append("\"itemName\":\"").append(legacyEscapeJson("Exercise Book \"A4\" No. " + i)).append("\",");
+            json.append("\"unitPrice\":").append(new BigDecimal("125.50")).append(",");
+            json.append("\"stockQuantity\":").append(i % 200).append(",");
+            json.append("\"category\":\"").append(legacyEscapeJson("Stationery")).append("\"");
+            json.append("}");
+        }
+        json.append("]");
+        out.write(json.toString());
+    }
+
+    static void writeStreaming(Writer out, int rows) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.beginArray();
+        BigDecimal price = new BigDecimal("125.50");
+        for (int i = 0; i < rows; i++) {
+            json.beginObject()
+                .name("itemId").value((long) i)
+                .name("itemName").value("Exercise Book \"A4\" No. " + i)
+                .name("unitPrice").value(price)
+                .name("stockQuantity").value(i % 200)
+                .name("category").value("Stationery")
+                .endObject();
+        }
+        json.endArray().flush();
+    }
+
+    @Nested
+    @DisplayName("Legacy Comparison Tests")
+    class LegacyComparisonTests {
+
+        @Test
+        @DisplayName("Should produce the same document as the legacy builder")
+        void testSameOutput() throws IOException {
+            StringWriter legacy = new StringWriter();
+            StringWriter streaming = new StringWriter();
+            writeLegacy(legacy, 50);
+            writeStreaming(streaming, 50);
+            assertEquals(legacy.toString(), streaming.toString());
+        }
+    }
+}
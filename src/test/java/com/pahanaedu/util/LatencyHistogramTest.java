@@ -0,0 +1,95 @@
+package com.pahanaedu.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Latency Histogram Tests")
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Should place every value in a bucket no more than 1/16 wide")
+    void testBuckets() {
+        int previous = -1;
+        for (long value = 0; value < 1L << 20; value++) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket == previous || bucket == previous + 1, "Buckets are contiguous at " + value);
+            assertTrue(LatencyHistogram.highestValueOf(bucket) >= value);
+            assertTrue(LatencyHistogram.highestValueOf(bucket) - value <= value / 16, "Bucket width at " + value);
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(TimeUnit.SECONDS.toNanos(600)));
+    }
+
+    @Test
+    @DisplayName("Should report percentiles within the bucket precision")
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            // Mostly fast calls with a slow tail, like a query
+            long value = random.nextInt(100) < 95 ? 200_000 + random.nextInt(800_000) : 5_000_000 + random.nextInt(50_000_000);
+            values.add(value);
+            histogram.record(value);
+        }
+        values.sort(null);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(values.stream().mapToLong(Long::longValue).sum(), snapshot.getSumNanos());
+        assertEquals(values.get(values.size() - 1).longValue(), snapshot.getMaxNanos());
+        for (double quantile : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            long exact = values.get((int) Math.ceil(quantile * values.size()) - 1);
+            long reported = snapshot.getValueAt(quantile);
+            assertTrue(reported >= exact && reported <= exact + exact / 16,
+                    "p" + quantile + ": exact " + exact + ", reported " + reported);
+        }
+        assertEquals(snapshot.getMaxNanos(), snapshot.getValueAt(1.0));
+    }
+
+    @Test
+    @DisplayName("Should report nothing for an empty histogram and clamp negative values")
+    void testEdges() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.snapshot().getValueAt(0.99));
+
+        histogram.record(-5);
+        histogram.record(3);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.snapshot().getValueAt(0.5));
+        assertEquals(3, histogram.snapshot().getValueAt(0.99));
+    }
+
+    @Test
+    @DisplayName("Should not lose records made concurrently")
+    void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long value = (t + 1) * 1000L;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(value);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(400_000, snapshot.getCount());
+        assertEquals(100_000L * (1000 + 2000 + 3000 + 4000), snapshot.getSumNanos());
+        assertEquals(4000, snapshot.getMaxNanos());
+        assertTrue(snapshot.getValueAt(0.25) >= 1000 && snapshot.getValueAt(0.25) < 1000 + 1000 / 16);
+    }
+}
@@ -0,0 +1,373 @@
+package com.pahanaedu.util;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scripted HTTP load driver for a running instance of the application
+ * Each virtual user is a till repeating: log in, create a bill with one line, add more lines,
+ * complete the bill, log out. Before its first iteration it loads the till's customer and
+ * item lists, and it only bills items that have stock. At the end the driver reports
+ * throughput and latency percentiles per endpoint.
+ *
+ * Start the application with mvn jetty:run (embedded Jetty from the Maven plugin), ideally on a
+ * database filled by DataGenerator, then:
+ *   mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.pahanaedu.util.LoadDriver \
+ *     -Dexec.args="--url http://localhost:8080/pahana-edu-bookshop --users 20 --duration 120"
+ * Options: --username operator, --password operator123, --users 10, --duration 60 (seconds),
+ * --iterations (per user, instead of a duration), --lines 3 (maximum per bill), --seed 42
+ */
+public class LoadDriver {
+
+    private static final Logger logger = Logger.getLogger(LoadDriver.class.getName());
+
+    private static final Pattern FIELD = Pattern.compile("\"(itemId|accountNumber|billId|stockQuantity)\"\\s*:\\s*\"?([^,\"}]+)");
+
+    // Items with less stock are left out, so concurrent tills rarely run them out
+    private static final int MIN_STOCK = 10;
+
+    /**
+     * Latencies of one endpoint
+     */
+    public static final class EndpointStats {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        synchronized void record(long nanos, boolean ok) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        public synchronized int getRequests() {
+            return count;
+        }
+
+        public synchronized long getErrors() {
+            return errors;
+        }
+
+        /**
+         * @param percentile 0 to 100
+         * @return Latency in nanoseconds at the percentile, 0 without requests
+         */
+        public synchronized long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+    }
+
+    /**
+     * Outcome of a run
+     */
+    public static final class Report {
+        private final Map<String, EndpointStats> endpoints;
+        private final long iterations;
+        private final long elapsedNanos;
+
+        private Report(Map<String, EndpointStats> endpoints, long iterations, long elapsedNanos) {
+            this.endpoints = endpoints;
+            this.iterations = iterations;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Map<String, EndpointStats> getEndpoints() {
+            return endpoints;
+        }
+
+        public long getIterations() {
+            return iterations;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            StringBuilder table = new StringBuilder(String.format(Locale.ROOT,
+                    "%,d bills completed in %.1f s (%.1f bills/s)%n%-24s %9s %7s %9s %9s %9s %9s %9s%n",
+                    iterations, seconds, iterations / seconds,
+                    "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+            for (Map.Entry<String, EndpointStats> endpoint : endpoints.entrySet()) {
+                EndpointStats stats = endpoint.getValue();
+                table.append(String.format(Locale.ROOT, "%-24s %,9d %,7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                        endpoint.getKey(), stats.getRequests(), stats.getErrors(), stats.getRequests() / seconds,
+                        stats.percentile(50) / 1e6, stats.percentile(90) / 1e6,
+                        stats.percentile(99) / 1e6, stats.percentile(100) / 1e6));
+            }
+            return table.toString();
+        }
+    }
+
+    private final URI baseUrl;
+    private final String username;
+    private final String password;
+    private final int maxLines;
+    private final long seed;
+    private final Map<String, EndpointStats> endpoints = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final AtomicLong iterations = new AtomicLong();
+
+    /**
+     * @param baseUrl Application URL including the context path
+     * @param username Till user
+     * @param password Till user's password
+     * @param maxLines Most lines per bill
+     * @param seed Random seed; each virtual user derives its own
+     */
+    public LoadDriver(String baseUrl, String username, String password, int maxLines, long seed) {
+        this.baseUrl = URI.create(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/");
+        this.username = username;
+        this.password = password;
+        this.maxLines = Math.max(1, maxLines);
+        this.seed = seed;
+        for (String endpoint : new String[] {"POST /login", "GET /billing/customers", "GET /billing/items",
+                "POST /billing/create", "POST /billing/add-item", "POST /billing/complete", "POST /logout"}) {
+            endpoints.put(endpoint, new EndpointStats());
+        }
+    }
+
+    /**
+     * Run virtual users until the duration is up or each has done its iterations
+     * @param users Concurrent virtual users
+     * @param duration Run time, or null to stop after the iterations
+     * @param iterationsPerUser Iterations per user, or 0 to run for the duration
+     * @return Report of the run
+     */
+    public Report run(int users, Duration duration, int iterationsPerUser) throws InterruptedException {
+        if (duration == null && iterationsPerUser <= 0) {
+            throw new IllegalArgumentException("Give a duration or a number of iterations");
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        long start = System.nanoTime();
+        long deadline = duration != null ? start + duration.toNanos() : Long.MAX_VALUE;
+        List<Future<?>> running = new ArrayList<>();
+        for (int u = 0; u < users; u++) {
+            Random random = new Random(seed + u);
+            running.add(pool.submit(() -> runUser(random, deadline, iterationsPerUser)));
+        }
+        pool.shutdown();
+        for (Future<?> user : running) {
+            try {
+                user.get();
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Virtual user stopped", e);
+            }
+        }
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        return new Report(new LinkedHashMap<>(endpoints), iterations.get(), System.nanoTime() - start);
+    }
+
+    private void runUser(Random random, long deadline, int iterationsPerUser) {
+        HttpClient client = client();
+        if (!login(client)) {
+            throw new IllegalStateException("Login failed for " + username);
+        }
+        List<String> customers = values(get(client, "GET /billing/customers", "billing/customers"), "accountNumber", null);
+        List<String> items = values(get(client, "GET /billing/items", "billing/items"), "itemId", "stockQuantity");
+        post(client, "POST /logout", "logout", Collections.emptyMap());
+        if (customers.isEmpty() || items.isEmpty()) {
+            throw new IllegalStateException("No customers or stocked items to bill");
+        }
+
+        for (int i = 0; iterationsPerUser <= 0 || i < iterationsPerUser; i++) {
+            if (System.nanoTime() >= deadline) {
+                return;
+            }
+            // A fresh session per iteration, like a till signing in for a customer
+            client = client();
+            if (login(client) && bill(client, random, customers, items)) {
+                iterations.incrementAndGet();
+            }
+            post(client, "POST /logout", "logout", Collections.emptyMap());
+        }
+    }
+
+    private boolean login(HttpClient client) {
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("username", username);
+        form.put("password", password);
+        HttpResponse<String> response = send(client, "POST /login", request("login").POST(form(form)).build(), r -> {
+            String location = r.headers().firstValue("Location").orElse("");
+            return r.statusCode() == 302 && !location.contains("login");
+        });
+        return response != null;
+    }
+
+    private boolean bill(HttpClient client, Random random, List<String> customers, List<String> items) {
+        int lines = 1 + random.nextInt(maxLines);
+        List<String> picked = new ArrayList<>(items);
+        Collections.shuffle(picked, random);
+
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("accountNumber", customers.get(random.nextInt(customers.size())));
+        form.put("items[0].itemId", picked.get(0));
+        form.put("items[0].quantity", "1");
+        HttpResponse<String> created = post(client, "POST /billing/create", "billing/create", form);
+        List<String> billIds = created != null ? values(created.body(), "billId", null) : Collections.emptyList();
+        if (billIds.isEmpty()) {
+            return false;
+        }
+        String billId = billIds.get(0);
+
+        for (int line = 1; line < lines && line < picked.size(); line++) {
+            Map<String, String> item = new LinkedHashMap<>();
+            item.put("billId", billId);
+            item.put("itemId", picked.get(line));
+            item.put("quantity", String.valueOf(1 + random.nextInt(2)));
+            if (post(client, "POST /billing/add-item", "billing/add-item", item) == null) {
+                return false;
+            }
+        }
+        return post(client, "POST /billing/complete", "billing/complete", Collections.singletonMap("billId", billId)) != null;
+    }
+
+    private String get(HttpClient client, String endpoint, String path) {
+        HttpResponse<String> response = send(client, endpoint, request(path).GET().build(), r -> r.statusCode() == 200);
+        return response != null ? response.body() : "";
+    }
+
+    private HttpResponse<String> post(HttpClient client, String endpoint, String path, Map<String, String> form) {
+        return send(client, endpoint, request(path).POST(form(form)).build(),
+                r -> r.statusCode() < 300 || endpoint.equals("POST /logout") && r.statusCode() == 302);
+    }
+
+    private interface Check {
+        boolean ok(HttpResponse<String> response);
+    }
+
+    /**
+     * Send a request and record its latency
+     * @return Response, or null if it failed the check or could not be sent
+     */
+    private HttpResponse<String> send(HttpClient client, String endpoint, HttpRequest request, Check check) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            boolean ok = check.ok(response);
+            endpoints.get(endpoint).record(System.nanoTime() - start, ok);
+            if (!ok && logger.isLoggable(Level.FINE)) {
+                logger.fine(endpoint + " answered " + response.statusCode() + ": " + response.body());
+            }
+            return ok ? response : null;
+        } catch (IOException e) {
+            endpoints.get(endpoint).record(System.nanoTime() - start, false);
+            logger.log(Level.FINE, endpoint + " failed", e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+
+    private HttpClient client() {
+        return HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(baseUrl.resolve(path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json")
+                .header("Content-Type", "application/x-www-form-urlencoded");
+    }
+
+    private static HttpRequest.BodyPublisher form(Map<String, String> fields) {
+        StringBuilder body = new StringBuilder();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (body.length() > 0) {
+                body.append('&');
+            }
+            body.append(URLEncoder.encode(field.getKey(), StandardCharsets.UTF_8)).append('=')
+                .append(URLEncoder.encode(field.getValue(), StandardCharsets.UTF_8));
+        }
+        return HttpRequest.BodyPublishers.ofString(body.toString());
+    }
+
+    /**
+     * Pull one field out of each object of a flat JSON list the application writes
+     * @param json JSON text
+     * @param field Field to collect
+     * @param stockField If set, only collect from objects whose value of this later field is at least MIN_STOCK
+     * @return Values in order
+     */
+    static List<String> values(String json, String field, String stockField) {
+        List<String> values = new ArrayList<>();
+        String current = null;
+        Matcher matcher = FIELD.matcher(json);
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            String value = matcher.group(2).trim();
+            if (name.equals(field)) {
+                if (stockField == null) {
+                    values.add(value);
+                } else {
+                    current = value;
+                }
+            } else if (name.equals(stockField) && current != null) {
+                if (Integer.parseInt(value) >= MIN_STOCK) {
+                    values.add(current);
+                }
+                current = null;
+            }
+        }
+        return values;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "0"));
+        LoadDriver driver = new LoadDriver(
+                options.getOrDefault("url", "http://localhost:8080/pahana-edu-bookshop"),
+                options.getOrDefault("username", "operator"),
+                options.getOrDefault("password", "operator123"),
+                Integer.parseInt(options.getOrDefault("lines", "3")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+        Report report = driver.run(Integer.parseInt(options.getOrDefault("users", "10")),
+                iterations > 0 ? null : Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "60"))),
+                iterations);
+        System.out.print(report);
+    }
+}
@@ -0,0 +1,223 @@
+package com.pahanaedu.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Load Driver Tests")
+class LoadDriverTest {
+
+    static {
+        // The JDK server otherwise waits on delayed ACKs, adding ~40 ms to every response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private String baseUrl;
+
+    // Stand-in for the application: sessions by cookie, bills by id
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<String>> bills = new ConcurrentHashMap<>();
+    private final Set<String> billedItems = ConcurrentHashMap.newKeySet();
+    private final AtomicLong nextBillId = new AtomicLong(1000);
+    private final AtomicInteger completed = new AtomicInteger();
+    private volatile int failEveryNthCompletion;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.createContext("/app/", this::handle);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/app";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath().substring("/app".length());
+        Map<String, String> form = form(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+        String session = cookie != null ? cookie.replaceFirst(".*JSESSIONID=([^;]+).*", "$1") : null;
+        boolean signedIn = session != null && sessions.contains(session);
+        boolean json = String.valueOf(exchange.getRequestHeaders().getFirst("Accept")).contains("application/json");
+
+        if (path.equals("/login")) {
+            if ("operator".equals(form.get("username")) && "operator123".equals(form.get("password"))) {
+                String id = UUID.randomUUID().toString();
+                sessions.add(id);
+                exchange.getResponseHeaders().add("Set-Cookie", "JSESSIONID=" + id + "; Path=/app");
+                redirect(exchange, "/app/dashboard");
+            } else {
+                respond(exchange, 200, "<html>Invalid username or password</html>");
+            }
+            return;
+        }
+        if (!signedIn) {
+            redirect(exchange, "/app/login.jsp");
+            return;
+        }
+        switch (path) {
+            case "/logout":
+                sessions.remove(session);
+                redirect(exchange, "/app/login.jsp?message=logged_out");
+                break;
+            case "/billing/customers":
+                respond(exchange, 200, "[{\"accountNumber\":\"ACC000001\",\"name\":\"A\",\"telephoneNumber\":\"\"},"
+                        + "{\"accountNumber\":\"ACC000002\",\"name\":\"B, \\\"Jr\\\"\",\"telephoneNumber\":\"\"}]");
+                break;
+            case "/billing/items":
+                StringBuilder items = new StringBuilder("[");
+                for (int i = 1; i <= 6; i++) {
+                    items.append(i > 1 ? "," : "").append("{\"itemId\":").append(i).append(",\"itemName\":\"Item ").append(i)
+                         .append("\",\"unitPrice\":10.00,\"stockQuantity\":").append(i == 3 ? 2 : 50)
+                         .append(",\"category\":\"\"}");
+                }
+                respond(exchange, 200, items.append(']').toString());
+                break;
+            case "/billing/create":
+                assertTrue(json, "Create must ask for JSON");
+                long billId = nextBillId.incrementAndGet();
+                bills.put(billId, ConcurrentHashMap.newKeySet());
+                bills.get(billId).add(form.get("items[0].itemId"));
+                billedItems.add(form.get("items[0].itemId"));
+                respond(exchange, 201, "{\"billId\":" + billId + ",\"itemCount\":1}");
+                break;
+            case "/billing/add-item":
+                Set<String> lines = bills.get(Long.parseLong(form.get("billId")));
+                if (lines == null || !lines.add(form.get("itemId"))) {
+                    respond(exchange, 500, "{\"error\":\"Item already on bill\"}");
+                } else {
+                    billedItems.add(form.get("itemId"));
+                    respond(exchange, 200, "{\"success\": true}");
+                }
+                break;
+            case "/billing/complete":
+                int n = completed.incrementAndGet();
+                if (failEveryNthCompletion > 0 && n % failEveryNthCompletion == 0) {
+                    respond(exchange, 500, "{\"error\":\"Bill is not pending\"}");
+                } else {
+                    respond(exchange, 200, "{\"success\": true}");
+                }
+                break;
+            default:
+                respond(exchange, 404, "");
+        }
+    }
+
+    private static Map<String, String> form(String body) {
+        Map<String, String> form = new HashMap<>();
+        for (String pair : body.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                form.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                         URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return form;
+    }
+
+    private static void redirect(HttpExchange exchange, String location) throws IOException {
+        exchange.getResponseHeaders().add("Location", location);
+        exchange.sendResponseHeaders(302, -1);
+        exchange.close();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    @DisplayName("Should run the till script and report every endpoint")
+    void testScript() throws InterruptedException {
+        LoadDriver.Report report = new LoadDriver(baseUrl, "operator", "operator123", 4, 42).run(3, null, 20);
+
+        Map<String, LoadDriver.EndpointStats> endpoints = report.getEndpoints();
+        assertEquals(60, report.getIterations());
+        // One sign-in per iteration plus one per user to load the till lists
+        assertEquals(63, endpoints.get("POST /login").getRequests());
+        assertEquals(63, endpoints.get("POST /logout").getRequests());
+        assertEquals(3, endpoints.get("GET /billing/items").getRequests());
+        assertEquals(60, endpoints.get("POST /billing/create").getRequests());
+        assertEquals(60, endpoints.get("POST /billing/complete").getRequests());
+        int added = endpoints.get("POST /billing/add-item").getRequests();
+        assertTrue(added > 30 && added <= 180, "Lines added: " + added);
+        for (LoadDriver.EndpointStats stats : endpoints.values()) {
+            assertEquals(0, stats.getErrors());
+            assertTrue(stats.percentile(50) <= stats.percentile(99));
+        }
+        assertFalse(billedItems.contains("3"), "Billed an item without stock");
+        assertTrue(sessions.isEmpty(), "Every session logged out");
+        assertTrue(report.toString().contains("POST /billing/complete"));
+    }
+
+    @Test
+    @DisplayName("Should count failures and run for a fixed time")
+    void testFailuresAndDuration() throws InterruptedException {
+        failEveryNthCompletion = 4;
+
+        LoadDriver.Report report = new LoadDriver(baseUrl, "operator", "operator123", 2, 1)
+                .run(2, Duration.ofSeconds(1), 0);
+
+        LoadDriver.EndpointStats completions = report.getEndpoints().get("POST /billing/complete");
+        assertTrue(completions.getRequests() >= 4, "Completions: " + completions.getRequests());
+        assertEquals(completions.getRequests() / 4, completions.getErrors());
+        assertEquals(completions.getRequests() - completions.getErrors(), report.getIterations());
+        // Users finish the iteration under way at the deadline, then sign out
+        assertEquals(completions.getRequests() + 2, report.getEndpoints().get("POST /login").getRequests());
+        assertEquals(completions.getRequests() + 2, report.getEndpoints().get("POST /logout").getRequests());
+        assertTrue(sessions.isEmpty(), "Every session logged out");
+    }
+
+    @Test
+    @DisplayName("Should stop a user whose login is refused")
+    void testBadLogin() throws InterruptedException {
+        LoadDriver.Report report = new LoadDriver(baseUrl, "operator", "wrong", 2, 1).run(1, null, 5);
+
+        assertEquals(0, report.getIterations());
+        assertEquals(1, report.getEndpoints().get("POST /login").getErrors());
+        assertEquals(0, report.getEndpoints().get("POST /billing/create").getRequests());
+    }
+
+    @Test
+    @DisplayName("Should read ids from the till lists")
+    void testValues() {
+        String items = "[{\"itemId\":1,\"itemName\":\"A \\\"itemId\\\": 9\",\"stockQuantity\":12},"
+                + "{\"itemId\":2,\"itemName\":\"B\",\"stockQuantity\":0}]";
+        assertEquals(List.of("1"), LoadDriver.values(items, "itemId", "stockQuantity"));
+        assertEquals(List.of("ACC000001"), LoadDriver.values("[{\"accountNumber\":\"ACC000001\"}]", "accountNumber", null));
+        assertEquals(List.of("1004"), LoadDriver.values("{\"billId\":1004,\"itemCount\":1}", "billId", null));
+    }
+}
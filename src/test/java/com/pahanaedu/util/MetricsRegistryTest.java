@@ -0,0 +1,127 @@
+package com.pahanaedu.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Metrics Registry Tests")
+class MetricsRegistryTest {
+
+    interface Lookup {
+        Optional<String> find(String key);
+
+        List<String> findAll();
+    }
+
+    private static final class SlowLookup implements Lookup {
+        int calls;
+
+        @Override
+        public Optional<String> find(String key) {
+            calls++;
+            if (key == null) {
+                throw new IllegalArgumentException("Key cannot be null");
+            }
+            return Optional.of(key.toUpperCase());
+        }
+
+        @Override
+        public List<String> findAll() {
+            calls++;
+            return List.of("a", "b");
+        }
+    }
+
+    private static String scrape(MetricsRegistry registry) throws IOException {
+        StringWriter out = new StringWriter();
+        registry.writePrometheus(out);
+        return out.toString();
+    }
+
+    @Test
+    @DisplayName("Should time interface calls and count the ones that throw")
+    void testInstrument() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        SlowLookup target = new SlowLookup();
+        Lookup lookup = registry.instrument(Lookup.class, target, "dao");
+
+        assertEquals(Optional.of("X"), lookup.find("x"));
+        assertEquals(Optional.of("Y"), lookup.find("y"));
+        assertEquals(2, lookup.findAll().size());
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> lookup.find(null));
+        assertEquals("Key cannot be null", e.getMessage());
+        assertEquals(4, target.calls);
+
+        assertEquals(3, registry.histogram(MetricsRegistry.METHOD_DURATION, "", "layer", "dao", "operation", "Lookup.find").getCount());
+        assertEquals(1, registry.counter(MetricsRegistry.METHOD_ERRORS, "", "layer", "dao", "operation", "Lookup.find").get());
+        assertEquals(0, registry.counter(MetricsRegistry.METHOD_ERRORS, "", "layer", "dao", "operation", "Lookup.findAll").get());
+
+        String text = scrape(registry);
+        assertTrue(text.contains("# TYPE pahanaedu_method_duration_seconds summary\n"));
+        assertTrue(text.contains("pahanaedu_method_duration_seconds{layer=\"dao\",operation=\"Lookup.find\",quantile=\"0.99\"} "));
+        assertTrue(text.contains("pahanaedu_method_duration_seconds_count{layer=\"dao\",operation=\"Lookup.find\"} 3\n"));
+        assertTrue(text.contains("pahanaedu_method_errors_total{layer=\"dao\",operation=\"Lookup.find\"} 1\n"));
+    }
+
+    @Test
+    @DisplayName("Should leave Object methods alone and not wrap twice")
+    void testProxyIdentity() {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        SlowLookup target = new SlowLookup();
+        Lookup lookup = registry.instrument(Lookup.class, target, "dao");
+
+        assertEquals(lookup, lookup);
+        assertNotEquals(lookup, registry.instrument(Lookup.class, target, "dao"));
+        assertEquals(target.toString(), lookup.toString());
+        assertSame(lookup, registry.instrument(Lookup.class, lookup, "service"));
+        assertSame(target, new MetricsRegistry(false).instrument(Lookup.class, target, "dao"));
+    }
+
+    @Test
+    @DisplayName("Should write counters, gauges and summaries in the text format")
+    void testExposition() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        registry.counter("test_logins_total", "Logins", "result", "ok").add(5);
+        registry.counter("test_logins_total", "Logins", "result", "bad \"quoted\"\n").increment();
+        registry.counter("test_hits_total", "Hits", () -> 7L);
+        registry.gauge("test_ratio", "Ratio", () -> 0.25);
+        registry.gauge("test_ratio", "Ratio", () -> 0.5);
+        LatencyHistogram histogram = registry.histogram("test_duration_seconds", "Duration");
+        histogram.record(2_000_000);
+        histogram.record(4_000_000);
+
+        String expected = "# HELP test_duration_seconds Duration\n"
+                + "# TYPE test_duration_seconds summary\n"
+                + "test_duration_seconds{quantile=\"0.5\"} 0.002031615\n"
+                + "test_duration_seconds{quantile=\"0.9\"} 0.004\n"
+                + "test_duration_seconds{quantile=\"0.99\"} 0.004\n"
+                + "test_duration_seconds_sum 0.006\n"
+                + "test_duration_seconds_count 2\n"
+                + "# HELP test_hits_total Hits\n"
+                + "# TYPE test_hits_total counter\n"
+                + "test_hits_total 7\n"
+                + "# HELP test_logins_total Logins\n"
+                + "# TYPE test_logins_total counter\n"
+                + "test_logins_total{result=\"bad \\\"quoted\\\"\\n\"} 1\n"
+                + "test_logins_total{result=\"ok\"} 5\n"
+                + "# HELP test_ratio Ratio\n"
+                + "# TYPE test_ratio gauge\n"
+                + "test_ratio 0.5\n";
+        assertEquals(expected, scrape(registry));
+    }
+
+    @Test
+    @DisplayName("Should reject a name registered with another type")
+    void testTypeClash() {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        registry.counter("test_events_total", "Events");
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("test_events_total", "Events"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("test_other_total", "Other", "odd"));
+    }
+}
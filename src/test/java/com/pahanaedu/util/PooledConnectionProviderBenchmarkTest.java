@@ -0,0 +1,34 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.Benchmark;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Pooled Connection Provider Benchmarks")
+class PooledConnectionProviderBenchmarkTest {
+
+    @Test
+    @DisplayName("Borrow latency with 200 threads sharing a pool of 20")
+    void testContention() throws Exception {
+        PooledConnectionProvider provider = PooledConnectionProviderTest.createProvider("poolbenchmark_contention",
+                PooledConnectionProviderTest.settings(
+                        PooledConnectionProvider.MAX_SIZE, "20",
+                        PooledConnectionProvider.BORROW_TIMEOUT_MS, "5000"));
+        try {
+            // Warm up, then measure
+            PooledConnectionProviderTest.borrowConcurrently(provider, 200, 20);
+            long[] latencies = PooledConnectionProviderTest.borrowConcurrently(provider, 200, 50);
+
+            Benchmark.Result p99 = Benchmark.latency("pool.borrow.threads200", latencies);
+            System.out.println("Pool after contention: " + provider.getStatistics());
+            assertEquals(0, provider.getStatistics().getTimeouts());
+            assertTrue(p99.getNanosPerOp() < TimeUnit.MILLISECONDS.toNanos(5000));
+        } finally {
+            provider.stop();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.pahanaedu.util;
+
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Pooled Connection Provider Tests")
+class PooledConnectionProviderTest {
+
+    private PooledConnectionProvider provider;
+
+    @AfterEach
+    void tearDown() {
+        if (provider != null) {
+            provider.stop();
+        }
+    }
+
+    static PooledConnectionProvider createProvider(String name, Map<String, Object> overrides) {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("javax.persistence.jdbc.driver", "org.h2.Driver");
+        settings.put("javax.persistence.jdbc.url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        settings.put("javax.persistence.jdbc.user", "sa");
+        settings.put("javax.persistence.jdbc.password", "");
+        settings.put(PooledConnectionProvider.MIN_IDLE, "0");
+        settings.putAll(overrides);
+        PooledConnectionProvider pool = new PooledConnectionProvider();
+        pool.configure(settings);
+        return pool;
+    }
+
+    static Map<String, Object> settings(Object... keyValues) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+
+    private static void selectOne(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT 1")) {
+            assertTrue(rs.next());
+        }
+    }
+
+    /**
+     * Borrow, use and return a connection from each thread, all threads starting together
+     * @return Borrow latencies in nanoseconds
+     */
+    static long[] borrowConcurrently(PooledConnectionProvider pool, int threads, int iterations) throws Exception {
+        long[] latencies = new long[threads * iterations];
+        AtomicInteger slot = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < iterations; i++) {
+                        long borrowStart = System.nanoTime();
+                        Connection connection = pool.getConnection();
+                        latencies[slot.getAndIncrement()] = System.nanoTime() - borrowStart;
+                        try {
+                            selectOne(connection);
+                        } finally {
+                            pool.closeConnection(connection);
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return latencies;
+    }
+
+    @Nested
+    @DisplayName("Borrow and Return Tests")
+    class BorrowReturnTests {
+
+        @Test
+        @DisplayName("Should reuse a returned connection")
+        void testReuse() throws SQLException {
+            provider = createProvider("pooltest_reuse", settings());
+
+            Connection first = provider.getConnection();
+            assertEquals(1, provider.getStatistics().getActive());
+            provider.closeConnection(first);
+            Connection second = provider.getConnection();
+
+            assertSame(first, second);
+            assertEquals(1, provider.getStatistics().getCreated());
+            provider.closeConnection(second);
+            assertEquals(0, provider.getStatistics().getActive());
+            assertEquals(1, provider.getStatistics().getIdle());
+        }
+
+        @Test
+        @DisplayName("Should time out when the pool is exhausted")
+        void testBorrowTimeout() throws SQLException {
+            provider = createProvider("pooltest_timeout", settings(
+                    PooledConnectionProvider.MAX_SIZE, "2",
+                    PooledConnectionProvider.BORROW_TIMEOUT_MS, "100"));
+
+            Connection a = provider.getConnection();
+            Connection b = provider.getConnection();
+            long start = System.nanoTime();
+            assertThrows(SQLTimeoutException.class, () -> provider.getConnection());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+            assertEquals(1, provider.getStatistics().getTimeouts());
+
+            provider.closeConnection(a);
+            Connection c = provider.getConnection();
+            assertSame(a, c);
+            provider.closeConnection(b);
+            provider.closeConnection(c);
+        }
+
+        @Test
+        @DisplayName("Should replace a connection that fails validation on borrow")
+        void testValidationOnBorrow() throws SQLException {
+            provider = createProvider("pooltest_validation", settings(
+                    PooledConnectionProvider.VALIDATION_WINDOW_MS, "0"));
+
+            Connection broken = provider.getConnection();
+            provider.closeConnection(broken);
+            broken.close();
+
+            Connection replacement = provider.getConnection();
+            assertNotSame(broken, replacement);
+            selectOne(replacement);
+            assertEquals(1, provider.getStatistics().getValidationFailures());
+            provider.closeConnection(replacement);
+        }
+
+        @Test
+        @DisplayName("Should roll back work left uncommitted on return")
+        void testRollbackOnReturn() throws SQLException {
+            provider = createProvider("pooltest_rollback", settings("hibernate.connection.autocommit", "false"));
+
+            Connection connection = provider.getConnection();
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS pool_probe (id INT)");
+                connection.commit();
+                statement.execute("INSERT INTO pool_probe VALUES (1)");
+            }
+            provider.closeConnection(connection);
+
+            Connection next = provider.getConnection();
+            try (Statement statement = next.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM pool_probe")) {
+                rs.next();
+                assertEquals(0, rs.getInt(1));
+            }
+            provider.closeConnection(next);
+        }
+
+        @Test
+        @DisplayName("Should open min idle connections at start")
+        void testPrefill() throws SQLException {
+            provider = createProvider("pooltest_prefill", settings(PooledConnectionProvider.MIN_IDLE, "3"));
+
+            assertEquals(3, provider.getStatistics().getIdle());
+            assertEquals(3, provider.getStatistics().getCreated());
+            Connection connection = provider.getConnection();
+            selectOne(connection);
+            provider.closeConnection(connection);
+            assertEquals(3, provider.getStatistics().getCreated());
+        }
+
+        @Test
+        @DisplayName("Should evict connections idle past the timeout down to min idle")
+        void testIdleEviction() throws Exception {
+            provider = createProvider("pooltest_evict", settings(
+                    PooledConnectionProvider.MIN_IDLE, "1",
+                    PooledConnectionProvider.IDLE_TIMEOUT_MS, "1"));
+
+            Connection a = provider.getConnection();
+            Connection b = provider.getConnection();
+            Connection c = provider.getConnection();
+            provider.closeConnection(a);
+            provider.closeConnection(b);
+            provider.closeConnection(c);
+            assertEquals(3, provider.getStatistics().getIdle());
+
+            Thread.sleep(5);
+            provider.evictIdle();
+
+            assertEquals(1, provider.getStatistics().getIdle());
+            assertEquals(2, provider.getStatistics().getDestroyed());
+            // The most recently returned connection is the one kept
+            assertSame(c, provider.getConnection());
+        }
+    }
+
+    @Nested
+    @DisplayName("Integration Tests")
+    class IntegrationTests {
+
+        @Test
+        @DisplayName("Should serve Hibernate through provider_class")
+        void testHibernateIntegration() {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:pooltest_hibernate;MODE=LEGACY;DB_CLOSE_DELAY=-1");
+            properties.put("hibernate.connection.provider_class", PooledConnectionProvider.class.getName());
+            EntityManagerFactory emf = Persistence.createEntityManagerFactory("pahanaedu-test-pu", properties);
+            try {
+                EntityManager em = emf.createEntityManager();
+                em.createQuery("SELECT COUNT(i) FROM Item i").getSingleResult();
+                em.close();
+
+                ConnectionProvider connectionProvider = emf.unwrap(SessionFactoryImplementor.class)
+                        .getServiceRegistry().getService(ConnectionProvider.class);
+                assertTrue(connectionProvider instanceof PooledConnectionProvider);
+                PooledConnectionProvider.Statistics stats = ((PooledConnectionProvider) connectionProvider).getStatistics();
+                assertEquals(0, stats.getActive());
+                assertTrue(stats.getBorrows() > 0);
+            } finally {
+                emf.close();
+            }
+        }
+
+        @Test
+        @DisplayName("Should serve 200 concurrent borrowers within the pool size and borrow timeout")
+        void testContention() throws Exception {
+            provider = createProvider("pooltest_contention", settings(
+                    PooledConnectionProvider.MAX_SIZE, "20",
+                    PooledConnectionProvider.BORROW_TIMEOUT_MS, "5000"));
+
+            borrowConcurrently(provider, 200, 10);
+
+            PooledConnectionProvider.Statistics stats = provider.getStatistics();
+            assertEquals(2000, stats.getBorrows());
+            assertEquals(0, stats.getTimeouts());
+            assertEquals(0, stats.getActive());
+            assertTrue(stats.getCreated() <= 20);
+            assertTrue(stats.getMaxWaitNanos() < TimeUnit.MILLISECONDS.toNanos(5000));
+        }
+    }
+}
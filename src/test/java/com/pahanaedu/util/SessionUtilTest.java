@@ -1,6 +1,7 @@
 package com.pahanaedu.util;
 
 import com.pahanaedu.BaseTestCase;
+import com.pahanaedu.dto.UserPrincipal;
 import com.pahanaedu.model.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,7 +12,9 @@ import org.mockito.MockitoAnnotations;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -28,6 +31,8 @@ class SessionUtilTest extends BaseTestCase {
     
     private User adminUser;
     private User operatorUser;
+    private UserPrincipal adminPrincipal;
+    private UserPrincipal operatorPrincipal;
     
     @BeforeEach
     protected void setUp() {
@@ -44,6 +49,9 @@ class SessionUtilTest extends BaseTestCase {
         operatorUser.setUsername("operator");
         operatorUser.setRole(User.UserRole.OPERATOR);
         operatorUser.setPasswordHash("hashedpassword");
+        
+        adminPrincipal = UserPrincipal.of(adminUser, CatalogVersion.USERS.getVersion());
+        operatorPrincipal = UserPrincipal.of(operatorUser, CatalogVersion.USERS.getVersion());
     }
     
     @Nested
@@ -60,9 +68,9 @@ class SessionUtilTest extends BaseTestCase {
             SessionUtil.createUserSession(request, adminUser);
             
             // Assert
-            verify(session).setAttribute(SessionUtil.CURRENT_USER_ATTR, adminUser);
+            verify(session).setAttribute(eq(SessionUtil.CURRENT_USER_ATTR), argThat(value -> value instanceof UserPrincipal
+                    && "admin".equals(((UserPrincipal) value).getUsername()) && ((UserPrincipal) value).isAdmin()));
             verify(session).setAttribute(eq(SessionUtil.LOGIN_TIME_ATTR), any(LocalDateTime.class));
-            verify(session).setAttribute(eq(SessionUtil.LAST_ACTIVITY_ATTR), any(LocalDateTime.class));
             verify(session).setMaxInactiveInterval(30 * 60); // 30 minutes
         }
         
@@ -98,14 +106,14 @@ class SessionUtilTest extends BaseTestCase {
         void testGetCurrentUser() {
             // Arrange
             when(request.getSession(false)).thenReturn(session);
-            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminUser);
+            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminPrincipal);
             
             // Act
-            User result = SessionUtil.getCurrentUser(request);
+            UserPrincipal result = SessionUtil.getCurrentUser(request);
             
             // Assert
             assertNotNull(result);
-            assertEquals(adminUser, result);
+            assertEquals("admin", result.getUsername());
         }
         
         @Test
@@ -115,7 +123,7 @@ class SessionUtilTest extends BaseTestCase {
             when(request.getSession(false)).thenReturn(null);
             
             // Act
-            User result = SessionUtil.getCurrentUser(request);
+            UserPrincipal result = SessionUtil.getCurrentUser(request);
             
             // Assert
             assertNull(result);
@@ -125,7 +133,7 @@ class SessionUtilTest extends BaseTestCase {
         @DisplayName("Should return null for null request")
         void testGetCurrentUserNullRequest() {
             // Act
-            User result = SessionUtil.getCurrentUser(null);
+            UserPrincipal result = SessionUtil.getCurrentUser(null);
             
             // Assert
             assertNull(result);
@@ -136,7 +144,7 @@ class SessionUtilTest extends BaseTestCase {
         void testGetUsername() {
             // Arrange
             when(request.getSession(false)).thenReturn(session);
-            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminUser);
+            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminPrincipal);
             
             // Act
             String result = SessionUtil.getUsername(request);
@@ -169,7 +177,7 @@ class SessionUtilTest extends BaseTestCase {
         void testIsUserAuthenticated() {
             // Arrange - User is authenticated
             when(request.getSession(false)).thenReturn(session);
-            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminUser);
+            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminPrincipal);
             
             // Act & Assert
             assertTrue(SessionUtil.isUserAuthenticated(request));
@@ -191,7 +199,7 @@ class SessionUtilTest extends BaseTestCase {
         void testIsCurrentUserAdmin() {
             // Arrange
             when(request.getSession(false)).thenReturn(session);
-            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminUser);
+            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminPrincipal);
             
             // Act & Assert
             assertTrue(SessionUtil.isCurrentUserAdmin(request));
@@ -203,7 +211,7 @@ class SessionUtilTest extends BaseTestCase {
         void testIsCurrentUserNotAdmin() {
             // Arrange
             when(request.getSession(false)).thenReturn(session);
-            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(operatorUser);
+            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(operatorPrincipal);
             
             // Act & Assert
             assertFalse(SessionUtil.isCurrentUserAdmin(request));
@@ -215,7 +223,7 @@ class SessionUtilTest extends BaseTestCase {
         void testIsCurrentUserOperator() {
             // Arrange
             when(request.getSession(false)).thenReturn(session);
-            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(operatorUser);
+            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(operatorPrincipal);
             
             // Act & Assert
             assertTrue(SessionUtil.isCurrentUserOperator(request));
@@ -226,7 +234,7 @@ class SessionUtilTest extends BaseTestCase {
         void testIsCurrentUserNotOperator() {
             // Arrange
             when(request.getSession(false)).thenReturn(session);
-            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminUser);
+            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminPrincipal);
             
             // Act & Assert
             assertFalse(SessionUtil.isCurrentUserOperator(request));
@@ -250,40 +258,6 @@ class SessionUtilTest extends BaseTestCase {
     @DisplayName("Session Activity Tests")
     class SessionActivityTests {
         
-        @Test
-        @DisplayName("Should update last activity time")
-        void testUpdateLastActivity() {
-            // Arrange
-            when(request.getSession(false)).thenReturn(session);
-            
-            // Act
-            SessionUtil.updateLastActivity(request);
-            
-            // Assert
-            verify(session).setAttribute(eq(SessionUtil.LAST_ACTIVITY_ATTR), any(LocalDateTime.class));
-        }
-        
-        @Test
-        @DisplayName("Should handle update last activity with null request")
-        void testUpdateLastActivityNullRequest() {
-            // Act & Assert
-            assertDoesNotThrow(() -> {
-                SessionUtil.updateLastActivity(null);
-            });
-        }
-        
-        @Test
-        @DisplayName("Should handle update last activity with no session")
-        void testUpdateLastActivityNoSession() {
-            // Arrange
-            when(request.getSession(false)).thenReturn(null);
-            
-            // Act & Assert
-            assertDoesNotThrow(() -> {
-                SessionUtil.updateLastActivity(request);
-            });
-        }
-        
         @Test
         @DisplayName("Should get login time")
         void testGetLoginTime() {
@@ -316,9 +290,10 @@ class SessionUtilTest extends BaseTestCase {
         @DisplayName("Should get last activity time")
         void testGetLastActivity() {
             // Arrange
-            LocalDateTime lastActivity = LocalDateTime.now();
+            long lastAccessed = System.currentTimeMillis();
+            LocalDateTime lastActivity = LocalDateTime.ofInstant(Instant.ofEpochMilli(lastAccessed), ZoneId.systemDefault());
             when(request.getSession(false)).thenReturn(session);
-            when(session.getAttribute(SessionUtil.LAST_ACTIVITY_ATTR)).thenReturn(lastActivity);
+            when(session.getLastAccessedTime()).thenReturn(lastAccessed);
             
             // Act
             LocalDateTime result = SessionUtil.getLastActivity(request);
@@ -350,7 +325,7 @@ class SessionUtilTest extends BaseTestCase {
         void testInvalidateSession() {
             // Arrange
             when(request.getSession(false)).thenReturn(session);
-            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminUser);
+            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminPrincipal);
             
             // Act
             SessionUtil.invalidateSession(request);
@@ -470,9 +445,9 @@ class SessionUtilTest extends BaseTestCase {
             String sessionId = "SESSION123";
             
             when(request.getSession(false)).thenReturn(session);
-            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminUser);
+            when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(adminPrincipal);
             when(session.getAttribute(SessionUtil.LOGIN_TIME_ATTR)).thenReturn(loginTime);
-            when(session.getAttribute(SessionUtil.LAST_ACTIVITY_ATTR)).thenReturn(lastActivity);
+            when(session.getLastAccessedTime()).thenReturn(lastActivity.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
             when(session.getId()).thenReturn(sessionId);
             
             // Act
@@ -495,7 +470,6 @@ class SessionUtilTest extends BaseTestCase {
             when(request.getSession(false)).thenReturn(session);
             when(session.getAttribute(SessionUtil.CURRENT_USER_ATTR)).thenReturn(null);
             when(session.getAttribute(SessionUtil.LOGIN_TIME_ATTR)).thenReturn(null);
-            when(session.getAttribute(SessionUtil.LAST_ACTIVITY_ATTR)).thenReturn(null);
             when(session.getId()).thenReturn(sessionId);
             
             // Act
@@ -541,7 +515,6 @@ class SessionUtilTest extends BaseTestCase {
         void testSessionAttributeConstants() {
             assertEquals("currentUser", SessionUtil.CURRENT_USER_ATTR);
             assertEquals("loginTime", SessionUtil.LOGIN_TIME_ATTR);
-            assertEquals("lastActivity", SessionUtil.LAST_ACTIVITY_ATTR);
             assertEquals("originalRequestURL", SessionUtil.ORIGINAL_REQUEST_URL_ATTR);
         }
     }
@@ -0,0 +1,211 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.dao.impl.ItemDAOImpl;
+import com.pahanaedu.model.Item;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Slow Query Log Tests")
+class SlowQueryLogTest {
+
+    private SlowQueryLog log;
+
+    @BeforeEach
+    void setUp() {
+        log = new SlowQueryLog(true, 1, TimeUnit.HOURS, 3);
+    }
+
+    @Nested
+    @DisplayName("Statistics Tests")
+    class StatisticsTests {
+
+        @Test
+        @DisplayName("Should group executions by fingerprint")
+        void testFingerprints() {
+            log.record("SELECT * FROM items WHERE item_id = 1", 1_000_000);
+            log.record("select *  from items where item_id = 2", 3_000_000);
+
+            List<SlowQueryLog.QueryStats> top = log.getTop(SlowQueryLog.Order.TOTAL, 10);
+            assertEquals(1, top.size());
+            assertEquals("select * from items where item_id = ?", top.get(0).getFingerprint());
+            assertEquals(2, top.get(0).getCount());
+            assertEquals(4.0, top.get(0).getTotalMillis(), 0.001);
+            assertEquals(2.0, top.get(0).getMeanMillis(), 0.001);
+            assertEquals(0, top.get(0).getSlowCount());
+            assertNull(top.get(0).getLastSlowCaller());
+        }
+
+        @Test
+        @DisplayName("Should order by total or p99 time")
+        void testOrder() {
+            // Many quick executions versus one slow one
+            for (int i = 0; i < 100; i++) {
+                log.record("select * from customers where account_number = 'A" + i + "'", 1_000_000);
+            }
+            log.record("select count(*) from bills", 50_000_000);
+
+            assertEquals("select * from customers where account_number = ?",
+                    log.getTop(SlowQueryLog.Order.TOTAL, 10).get(0).getFingerprint());
+            assertEquals("select count(*) from bills",
+                    log.getTop(SlowQueryLog.Order.P99, 10).get(0).getFingerprint());
+            assertEquals(1, log.getTop(SlowQueryLog.Order.TOTAL, 1).size());
+        }
+
+        @Test
+        @DisplayName("Should drop the fingerprint with the least total time at the limit")
+        void testEviction() {
+            log.record("select 1 from a", 5_000_000);
+            log.record("select 1 from b", 1_000_000);
+            log.record("select 1 from c", 3_000_000);
+            log.record("select 1 from d", 2_000_000);
+
+            assertEquals(3, log.getFingerprintCount());
+            assertEquals(1, log.getEvictions());
+            assertTrue(log.getTop(SlowQueryLog.Order.TOTAL, 10).stream()
+                    .noneMatch(stats -> stats.getFingerprint().equals("select ? from b")));
+
+            log.reset();
+            assertEquals(0, log.getFingerprintCount());
+            assertEquals(0, log.getEvictions());
+        }
+
+        @Test
+        @DisplayName("Should log executions over the threshold")
+        void testThreshold() {
+            List<LogRecord> records = capture(() -> {
+                log.record("select * from bills where bill_id = 7", TimeUnit.HOURS.toNanos(2));
+                log.setThresholdMillis(0);
+                log.record("select * from items where item_id = 9", 1);
+            });
+
+            assertEquals(2, records.size());
+            assertTrue(records.get(0).getMessage().startsWith("Slow query (7200000 ms) from "));
+            assertTrue(records.get(0).getMessage().endsWith(": select * from bills where bill_id = ?"));
+            assertEquals(1, log.getTop(SlowQueryLog.Order.TOTAL, 10).get(0).getSlowCount());
+            assertThrows(IllegalArgumentException.class, () -> log.setThresholdMillis(-1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Connection Tests")
+    class ConnectionTests {
+
+        @Test
+        @DisplayName("Should time statements run through a wrapped connection")
+        void testWrap() throws Exception {
+            try (Connection raw = DriverManager.getConnection("jdbc:h2:mem:slowquerytest_wrap");
+                 Connection connection = log.wrap(raw)) {
+                assertNotEquals(raw, connection);
+                assertEquals(connection, connection);
+
+                try (Statement statement = connection.createStatement()) {
+                    assertSame(connection, statement.getConnection());
+                    statement.execute("create table notes (id int, body varchar(20))");
+                    statement.addBatch("insert into notes values (1, 'one')");
+                    statement.addBatch("insert into notes values (2, 'two')");
+                    statement.executeBatch();
+                }
+                for (int id = 1; id <= 2; id++) {
+                    try (PreparedStatement statement = connection.prepareStatement("select body from notes where id = ?")) {
+                        statement.setInt(1, id);
+                        try (ResultSet rs = statement.executeQuery()) {
+                            assertTrue(rs.next());
+                        }
+                    }
+                }
+            }
+
+            Map<String, Long> counts = new HashMap<>();
+            for (SlowQueryLog.QueryStats stats : log.getTop(SlowQueryLog.Order.TOTAL, 10)) {
+                counts.put(stats.getFingerprint(), stats.getCount());
+            }
+            assertEquals(2L, counts.get("select body from notes where id = ?"));
+            assertEquals(1L, counts.get("insert into notes values (?+)"));
+            assertEquals(3, counts.size());
+        }
+
+        @Test
+        @DisplayName("Should hand back the connection itself when disabled")
+        void testDisabled() throws Exception {
+            try (Connection raw = DriverManager.getConnection("jdbc:h2:mem:slowquerytest_disabled")) {
+                assertSame(raw, new SlowQueryLog(false, 0, TimeUnit.MILLISECONDS, 10).wrap(raw));
+            }
+        }
+
+        @Test
+        @DisplayName("Should name the DAO method behind a slow statement from the pool")
+        void testDaoCaller() {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:slowquerytest_dao;MODE=LEGACY;DB_CLOSE_DELAY=-1");
+            properties.put("hibernate.connection.provider_class", PooledConnectionProvider.class.getName());
+            EntityManagerFactory emf = Persistence.createEntityManagerFactory("pahanaedu-test-pu", properties);
+            SlowQueryLog shared = ServiceFactory.getSlowQueryLog();
+            long threshold = shared.getThresholdMillis();
+            try {
+                EntityManagerHolder.inScope(emf, () -> TransactionTemplate.inTransaction(() -> {
+                    EntityManagerHolder.get().persist(new Item("Eraser", null, new BigDecimal("0.50"), 3, "Stationery"));
+                    return null;
+                }));
+                shared.reset();
+                shared.setThresholdMillis(0);
+                List<LogRecord> records = capture(() ->
+                        EntityManagerHolder.inScope(emf, () -> new ItemDAOImpl().findLowStockItems(5)));
+
+                assertTrue(records.stream().anyMatch(r -> r.getMessage().contains(" from ItemDAOImpl.findLowStockItems: select ")));
+                SlowQueryLog.QueryStats stats = shared.getTop(SlowQueryLog.Order.TOTAL, 1).get(0);
+                assertEquals("ItemDAOImpl.findLowStockItems", stats.getLastSlowCaller());
+            } finally {
+                shared.setThresholdMillis(threshold);
+                shared.reset();
+                emf.close();
+            }
+        }
+    }
+
+    private static List<LogRecord> capture(Runnable action) {
+        Logger logger = Logger.getLogger(SlowQueryLog.class.getName());
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.addHandler(handler);
+        try {
+            action.run();
+        } finally {
+            logger.removeHandler(handler);
+        }
+        return records;
+    }
+}
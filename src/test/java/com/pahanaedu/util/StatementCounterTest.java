@@ -0,0 +1,103 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.TestDatabase;
+import com.pahanaedu.model.Bill;
+import com.pahanaedu.model.BillItem;
+import com.pahanaedu.model.Customer;
+import com.pahanaedu.model.Item;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Statement Counter Tests")
+class StatementCounterTest {
+
+    @RegisterExtension
+    static final TestDatabase database = TestDatabase.named("statementcountertest");
+
+    @BeforeAll
+    static void seed() {
+        database.inTransaction(() -> {
+            EntityManager em = EntityManagerHolder.get();
+            Customer customer = new Customer("ACC700", "Counted Customer");
+            em.persist(customer);
+            Item item = new Item("Ruler", null, new BigDecimal("1.50"), 100, "Stationery");
+            em.persist(item);
+            for (int i = 0; i < 5; i++) {
+                Bill bill = new Bill(customer);
+                bill.addBillItem(new BillItem(bill, item, i + 1, item.getUnitPrice()));
+                em.persist(bill);
+            }
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("Should give statements that differ only in values one fingerprint")
+    void testFingerprint() {
+        assertEquals("select * from bills where bill_id = ? and status = ?",
+                StatementCounter.fingerprint("/* load Bill */ SELECT *\n  FROM bills WHERE bill_id = 42 AND status = 'PAID'"));
+        assertEquals("select a from t where id in (?+) and x = ?",
+                StatementCounter.fingerprint("select a from t where id in (?, ?, ?) and x = -1.5"));
+        assertEquals("select bill0_.bill_id from bills bill0_ where bill0_.note = ?",
+                StatementCounter.fingerprint("select bill0_.bill_id from bills bill0_ where bill0_.note = 'it''s 3'"));
+        assertEquals(StatementCounter.Kind.OTHER, StatementCounter.kindOf("call next value for bills_bill_id_seq"));
+        assertEquals(StatementCounter.Kind.SELECT, StatementCounter.kindOf("with x as (select 1) select * from x"));
+    }
+
+    @Test
+    @DisplayName("Should spot a lazy collection loaded once per bill")
+    void testRepeatedSelects() {
+        StatementCounter.Scope statements = StatementCounter.open();
+        int quantity = database.inScope(() -> {
+            List<Bill> bills = EntityManagerHolder.get()
+                    .createQuery("SELECT b FROM Bill b WHERE b.customer.accountNumber = 'ACC700'", Bill.class)
+                    .getResultList();
+            int total = 0;
+            for (Bill bill : bills) {
+                total += bill.getTotalItemCount();
+            }
+            return total;
+        });
+        statements.close();
+
+        assertEquals(15, quantity);
+        assertEquals(6, statements.getStatements(StatementCounter.Kind.SELECT));
+        Map<String, Integer> repeated = statements.getRepeatedSelects(2);
+        assertEquals(1, repeated.size());
+        assertEquals(5, repeated.values().iterator().next());
+        assertTrue(repeated.keySet().iterator().next().contains("from bill_items"));
+        assertTrue(statements.describe().startsWith("6 statements (6 select, 0 insert, 0 update, 0 delete, 0 other)\n  1 x select"));
+    }
+
+    @Test
+    @DisplayName("Should add an inner scope's statements to the outer one")
+    void testNestedScopes() {
+        long before = StatementCounter.getTotal(StatementCounter.Kind.SELECT);
+        StatementCounter.Scope outer = StatementCounter.open();
+        StatementCounter.Scope inner = StatementCounter.open();
+        database.inScope(() -> EntityManagerHolder.get().find(Customer.class, "ACC700"));
+
+        assertThrows(IllegalStateException.class, outer::close);
+        inner.close();
+        database.inScope(() -> EntityManagerHolder.get().find(Item.class, -1L));
+        outer.close();
+        outer.close();
+
+        assertEquals(1, inner.getStatements());
+        assertEquals(2, outer.getStatements());
+        assertEquals(2, StatementCounter.getTotal(StatementCounter.Kind.SELECT) - before);
+
+        // Closed scopes no longer count
+        database.inScope(() -> EntityManagerHolder.get().find(Item.class, -2L));
+        assertEquals(2, outer.getStatements());
+    }
+}
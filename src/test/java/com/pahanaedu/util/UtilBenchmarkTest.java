@@ -0,0 +1,92 @@
+package com.pahanaedu.util;
+
+import com.pahanaedu.Benchmark;
+import com.pahanaedu.dto.UserPrincipal;
+import com.pahanaedu.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cost of the password and session helpers every login and request goes through
+ */
+@DisplayName("Utility Benchmark Tests")
+class UtilBenchmarkTest {
+
+    @Nested
+    @DisplayName("Password Benchmarks")
+    class PasswordBenchmarks {
+
+        @Test
+        @DisplayName("Should measure hashing and verifying a password")
+        void testPasswords() {
+            String hash = PasswordUtil.hashPassword("operator123");
+
+            Benchmark.run("password.hash", 200, 1000, () -> PasswordUtil.hashPassword("operator123"));
+            Benchmark.run("password.verify.match", 200, 1000, () -> PasswordUtil.verifyPassword("operator123", hash));
+            Benchmark.run("password.verify.mismatch", 200, 1000, () -> PasswordUtil.verifyPassword("operator124", hash));
+
+            assertTrue(PasswordUtil.verifyPassword("operator123", hash));
+            assertFalse(PasswordUtil.verifyPassword("operator124", hash));
+        }
+    }
+
+    @Nested
+    @DisplayName("Session Benchmarks")
+    class SessionBenchmarks {
+
+        // Proxy dispatch adds a few tens of nanoseconds per call that a container's own
+        // request and session objects do not; compare these figures with each other and with
+        // their baseline, not with other benchmarks
+        private HttpSession session(Map<String, Object> attributes) {
+            return (HttpSession) Proxy.newProxyInstance(UtilBenchmarkTest.class.getClassLoader(),
+                    new Class<?>[] { HttpSession.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getAttribute":
+                                return attributes.get(args[0]);
+                            case "getId":
+                                return "F1A9C3";
+                            case "getLastAccessedTime":
+                                return 1_700_000_000_000L;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private HttpServletRequest request(HttpSession session) {
+            return (HttpServletRequest) Proxy.newProxyInstance(UtilBenchmarkTest.class.getClassLoader(),
+                    new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) ->
+                            "getSession".equals(method.getName()) ? session : null);
+        }
+
+        @Test
+        @DisplayName("Should measure the per-request session lookups")
+        void testLookups() {
+            User user = new User("operator", "hash", User.UserRole.OPERATOR);
+            Map<String, Object> attributes = new HashMap<>();
+            attributes.put(SessionUtil.CURRENT_USER_ATTR, UserPrincipal.of(user, CatalogVersion.USERS.getVersion()));
+            attributes.put(SessionUtil.LOGIN_TIME_ATTR, LocalDateTime.of(2024, 3, 14, 9, 30));
+            HttpServletRequest signedIn = request(session(attributes));
+            HttpServletRequest anonymous = request(null);
+
+            Benchmark.run("session.getCurrentUser", () -> SessionUtil.getCurrentUser(signedIn));
+            Benchmark.run("session.isCurrentUserAdmin", () -> SessionUtil.isCurrentUserAdmin(signedIn));
+            Benchmark.run("session.isUserAuthenticated.anonymous", () -> SessionUtil.isUserAuthenticated(anonymous));
+            Benchmark.run("session.getSessionInfo", () -> SessionUtil.getSessionInfo(signedIn));
+
+            assertEquals("operator", SessionUtil.getUsername(signedIn));
+            assertFalse(SessionUtil.isCurrentUserAdmin(signedIn));
+            assertFalse(SessionUtil.isUserAuthenticated(anonymous));
+        }
+    }
+}